@@ -0,0 +1,117 @@
+package de.codecentric.spring_modulith_example;
+
+import de.codecentric.spring_modulith_example.catalog.model.PriceProperties;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Bootstraps the application for JMH benchmarks and fills its database with synthetic data.
+ */
+public final class BenchmarkApplication {
+    /**
+     * ID of the first product inserted by {@link #insertProducts(ConfigurableApplicationContext, int)}. The offset keeps
+     * benchmark products apart from products with IDs generated by the application, e.g., for its initial data.
+     */
+    public static final long FIRST_PRODUCT_ID = 1_000_000_000L;
+
+    private static final String[] ADJECTIVES = {"Compact", "Deluxe", "Classic", "Portable", "Smart", "Vintage",
+        "Ultra", "Eco", "Premium", "Rugged"};
+    private static final String[] MATERIALS = {"Steel", "Bamboo", "Ceramic", "Glass", "Copper", "Oak", "Cotton",
+        "Leather", "Granite", "Titanium"};
+    private static final String[] NOUNS = {"Kettle", "Lamp", "Chair", "Backpack", "Blender", "Watch", "Mug",
+        "Speaker", "Shelf", "Bottle", "Toaster", "Pan"};
+    private static final String[] WORDS = {"durable", "lightweight", "handmade", "dishwasher", "safe", "kitchen",
+        "office", "outdoor", "travel", "gift", "design", "quality", "everyday", "modern", "robust", "elegant",
+        "sustainable", "warranty", "compact", "versatile"};
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private BenchmarkApplication() {
+        // NOOP
+    }
+
+    /**
+     * Start the application without HTTP server and with an in-memory H2 database of its own. The given properties
+     * (in {@code key=value} format) are passed as command line arguments, so that they override the application's
+     * configuration files.
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(App.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                "spring.h2.console.enabled=false",
+                "logging.level.root=WARN"
+            )
+            .run(Arrays.stream(properties).map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Insert the given number of synthetic products directly into the database, i.e., without publishing any events.
+     * Products get consecutive IDs starting at {@link #FIRST_PRODUCT_ID}, and their names and descriptions are drawn
+     * from a small vocabulary with a fixed seed so that benchmark runs are comparable. Their prices are stored with the
+     * storage configured by the {@link PriceProperties}.
+     */
+    public static void insertProducts(ConfigurableApplicationContext context, int count) {
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        var compactPrices = context.getBean(PriceProperties.class).storage() == PriceProperties.Storage.COMPACT;
+        var random = new Random(42);
+        var rows = new ArrayList<Object[]>(INSERT_BATCH_SIZE);
+        for (var i = 0; i < count; i++) {
+            var name = "%s %s %s".formatted(pick(random, ADJECTIVES), pick(random, MATERIALS), pick(random, NOUNS));
+            var description = new StringBuilder(pick(random, WORDS));
+            for (var w = 0; w < 9; w++)
+                description.append(' ').append(pick(random, WORDS));
+            // All products are priced in the default currency, whose normalized prices equal their prices
+            var price = 100L + random.nextInt(100_000);
+            rows.add(new Object[] {
+                FIRST_PRODUCT_ID + i,
+                name,
+                description.toString(),
+                compactPrices ? price : BigDecimal.valueOf(price, 2),
+                price,
+                "EUR",
+                random.nextInt(10)
+            });
+
+            if (rows.size() == INSERT_BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("""
+                    insert into product (id, name, description, %s, normalized_price, price_currency,
+                        current_quantity)
+                    values (?, ?, ?, ?, ?, ?, ?)
+                    """.formatted(compactPrices ? "price_minor_units" : "price_amount"), rows);
+                rows.clear();
+            }
+        }
+    }
+
+    /**
+     * Insert stocks for the given number of products with IDs starting at {@link #FIRST_PRODUCT_ID} directly into the
+     * database, i.e., without publishing any events. The Inventory module's stock table needs to be reloaded
+     * afterwards.
+     */
+    public static void insertStocks(ConfigurableApplicationContext context, int count) {
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        var random = new Random(42);
+        var rows = new ArrayList<Object[]>(INSERT_BATCH_SIZE);
+        for (var i = 0; i < count; i++) {
+            rows.add(new Object[] {FIRST_PRODUCT_ID + i, FIRST_PRODUCT_ID + i, random.nextInt(1000)});
+            if (rows.size() == INSERT_BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("insert into stock (id, product_id, quantity) values (?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,140 @@
+package de.codecentric.spring_modulith_example;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching the application in a JVM of its own until it answered its first request, and until
+ * it reported readiness, for the following startup modes:
+ * <ul>
+ *     <li>{@code default}: the extracted application jar</li>
+ *     <li>{@code aot}: additionally with the initialization code generated by Spring's AOT processing</li>
+ *     <li>{@code aot-cds}: additionally with the class data sharing (CDS) archive of the build's training run</li>
+ *     <li>{@code aot-cds-background}: additionally with the warm-up work in the background behind the readiness
+ *     gate</li>
+ * </ul>
+ * The benchmark launches the application from {@code target/startup}, which only the {@code startup} Maven profile
+ * produces. Run it with both profiles, e.g.:
+ * {@code mvn -Pstartup,benchmark verify -DskipTests -Djmh.args="StartupBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+    private static final Path STARTUP_DIRECTORY = Path.of("target", "startup");
+    private static final String CDS_ARCHIVE = "application.jsa";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    @Param({"default", "aot", "aot-cds", "aot-cds-background"})
+    private String startupMode;
+
+    private String jar;
+    private HttpClient httpClient;
+    private Process process;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (var files = Files.list(STARTUP_DIRECTORY)) {
+            jar = files.map(file -> file.getFileName().toString())
+                .filter(file -> file.endsWith(".jar"))
+                .findFirst()
+                .orElseThrow();
+        }
+        if (startupMode.contains("cds") && !Files.exists(STARTUP_DIRECTORY.resolve(CDS_ARCHIVE)))
+            throw new IllegalStateException("No CDS archive in %s, build with -Pstartup".formatted(STARTUP_DIRECTORY));
+        httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.close();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopApplication() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS))
+            process.destroyForcibly().waitFor();
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        return startAndAwait("/catalog?pageNumber=0");
+    }
+
+    @Benchmark
+    public int timeToReadiness() throws IOException, InterruptedException {
+        return startAndAwait("/actuator/health/readiness");
+    }
+
+    /**
+     * Launch the application and poll the given path until it answers with status 200.
+     */
+    private int startAndAwait(String path) throws IOException, InterruptedException {
+        var port = freePort();
+        process = new ProcessBuilder(command(port))
+            .directory(STARTUP_DIRECTORY.toFile())
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:%d%s".formatted(port, path))).build();
+        while (true) {
+            try {
+                var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200)
+                    return response.statusCode();
+            } catch (IOException ex) {
+                // The application doesn't accept connections yet
+            }
+            if (!process.isAlive())
+                throw new IllegalStateException("Application exited with code " + process.exitValue());
+            Thread.sleep(POLL_INTERVAL);
+        }
+    }
+
+    private List<String> command(int port) {
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (startupMode.startsWith("aot"))
+            command.add("-Dspring.aot.enabled=true");
+        if (startupMode.contains("cds"))
+            command.add("-XX:SharedArchiveFile=" + CDS_ARCHIVE);
+        command.addAll(List.of("-jar", jar, "--server.port=" + port, "--spring.h2.console.enabled=false"));
+        if (startupMode.endsWith("background"))
+            command.add("--warm-up.mode=background");
+        return command;
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
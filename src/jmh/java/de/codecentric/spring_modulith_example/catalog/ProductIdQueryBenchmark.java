@@ -0,0 +1,113 @@
+package de.codecentric.spring_modulith_example.catalog;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.catalog.model.CatalogReadModel;
+import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.catalog.controller.ProductApi.CATALOG_PAGE_SIZE;
+
+/**
+ * Compares the queries behind the Catalog module's endpoints that return product IDs, once hydrating full
+ * {@link Product} entities and mapping them to their IDs (the former implementation), once projecting only IDs in
+ * the database, and once answering from the {@link CatalogReadModel} (the current implementation). Run with JMH's GC
+ * profiler, i.e., {@code -prof gc}, to also compare the allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductIdQueryBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    @Param({"0", "2000"})
+    private int pageNumber;
+
+    private ConfigurableApplicationContext context;
+    private CatalogReadModel catalogReadModel;
+    private EntityManager entityManager;
+    private ProductRepository productRepository;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        // The products got inserted without ProductsChanged events
+        catalogReadModel = context.getBean(CatalogReadModel.class);
+        catalogReadModel.rebuild();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+            context.getBean(EntityManagerFactory.class)
+        );
+        productRepository = context.getBean(ProductRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> pageOfEntities() {
+        return productRepository.findAll(PageRequest.of(pageNumber, CATALOG_PAGE_SIZE))
+            .map(Product::getId)
+            .toList();
+    }
+
+    @Benchmark
+    public List<Long> pageOfIds() {
+        return productRepository.findIds(PageRequest.of(pageNumber, CATALOG_PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Long> pageOfReadModel() {
+        return catalogReadModel.productIds(PageRequest.of(pageNumber, CATALOG_PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<Long> outOfStockEntities() {
+        return transactionTemplate.execute(status -> entityManager
+            .createQuery("select p from Product p where p.currentQuantity < :quantity", Product.class)
+            .setParameter("quantity", 1)
+            .getResultStream()
+            .map(Product::getId)
+            .toList()
+        );
+    }
+
+    @Benchmark
+    public List<Long> outOfStockIds() {
+        return productRepository.findIdsByCurrentQuantityLessThan(1);
+    }
+
+    @Benchmark
+    public List<Long> outOfStockReadModel() {
+        return catalogReadModel.outOfStockProductIds(Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,80 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.catalog.controller.ProductDetailCache.ProductDetail;
+import de.codecentric.spring_modulith_example.catalog.model.ProductView;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Measures the rendering of the JSON body of {@link ProductApi#getProduct(long,
+ * org.springframework.web.context.request.WebRequest)} for random known products with the application's
+ * {@link JsonMapper}, once from the {@link ProductDetailCache} and once from a product that's loaded from the
+ * database, i.e., on a cache miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductDetailBenchmark {
+    @Param("10000")
+    private int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private JsonMapper jsonMapper;
+    private ProductDetailCache productDetailCache;
+    private ProductRepository productRepository;
+
+    @Setup
+    public void setUp() {
+        // Let the cache hold all benchmark products
+        context = BenchmarkApplication.start("catalog.product-detail-cache.maximum-size=" + datasetSize,
+            "catalog.product-detail-cache.maximum-weight=" + (datasetSize * 1024L) + "B");
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        jsonMapper = context.getBean(JsonMapper.class);
+        productDetailCache = context.getBean(ProductDetailCache.class);
+        productRepository = context.getBean(ProductRepository.class);
+        for (var i = 0; i < datasetSize; i++)
+            productDetailCache.get(FIRST_PRODUCT_ID + i);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] cachedResponse() {
+        return jsonMapper.writeValueAsBytes(productDetailCache.get(nextProductId()).response());
+    }
+
+    @Benchmark
+    public byte[] loadedResponse() {
+        var product = productRepository.findById(nextProductId()).orElseThrow();
+        return jsonMapper.writeValueAsBytes(ProductDetail.of(ProductView.of(product)).response());
+    }
+
+    private long nextProductId() {
+        return FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(datasetSize);
+    }
+}
@@ -0,0 +1,72 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.inventory.QuantityChanged;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.AopTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Measures the throughput of {@link CatalogData#quantityChanged(QuantityChanged)} for random known products when it's
+ * called by as many concurrent threads as the Catalog module's listener executor runs by default. The listener is
+ * called on the benchmark threads without its asynchronous execution, so that each call blocks until the
+ * {@link QuantityChangeCoalescer} committed the quantity. A maximum batch size of 1 makes every flush write a single
+ * product, so that the threads' changes are written one after another instead of together.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(8)
+public class CatalogDataBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    @Param({"1", "500"})
+    private int maxBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private CatalogData catalogData;
+    // Versions increase across all products, so that no quantity change gets skipped as stale
+    private final AtomicLong version = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("catalog.quantity-change-coalescing.max-batch-size=" + maxBatchSize);
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        catalogData = AopTestUtils.getUltimateTargetObject(context.getBean(CatalogData.class));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void quantityChanged() {
+        var random = ThreadLocalRandom.current();
+        var productId = FIRST_PRODUCT_ID + random.nextInt(datasetSize);
+        catalogData.quantityChanged(new QuantityChanged(this, productId, random.nextInt(1000),
+            version.incrementAndGet()));
+    }
+}
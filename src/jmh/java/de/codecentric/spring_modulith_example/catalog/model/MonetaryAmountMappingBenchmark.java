@@ -0,0 +1,86 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import io.hypersistence.utils.hibernate.type.money.MonetaryAmountType;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.money.MonetaryAmount;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+import static de.codecentric.spring_modulith_example.catalog.controller.ProductApi.CATALOG_PAGE_SIZE;
+import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
+
+/**
+ * Measures the mapping of {@link Product} prices between {@link Money} and the {@code price_amount} and
+ * {@code price_currency} columns by Hypersistence's {@link MonetaryAmountType}, through which the {@link PriceType}
+ * stores prices by default. The mapping is measured on its own in both directions and as part of loading a page of
+ * products by their IDs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MonetaryAmountMappingBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    private final MonetaryAmountType monetaryAmountType = new MonetaryAmountType();
+    private final Object[] columns = {new BigDecimal("123.45"), DEFAULT_CURRENCY.getCurrencyCode()};
+    private final Money price = Money.of(new BigDecimal("123.45"), DEFAULT_CURRENCY);
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        productRepository = context.getBean(ProductRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MonetaryAmount columnsToMoney() {
+        return monetaryAmountType.instantiate(() -> columns);
+    }
+
+    @Benchmark
+    public void moneyToColumns(Blackhole blackhole) {
+        blackhole.consume(monetaryAmountType.getPropertyValue(price, 0));
+        blackhole.consume(monetaryAmountType.getPropertyValue(price, 1));
+    }
+
+    @Benchmark
+    public List<Product> loadPageOfProducts() {
+        var firstProductId = FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(datasetSize - CATALOG_PAGE_SIZE);
+        return productRepository.findAllById(
+            LongStream.range(firstProductId, firstProductId + CATALOG_PAGE_SIZE).boxed().toList()
+        );
+    }
+}
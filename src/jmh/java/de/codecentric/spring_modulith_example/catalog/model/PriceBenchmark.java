@@ -0,0 +1,99 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.javamoney.moneta.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+import static de.codecentric.spring_modulith_example.catalog.controller.ProductApi.CATALOG_PAGE_SIZE;
+import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
+
+/**
+ * Compares {@link Product} {@link Price}s with {@link Money} amounts, when creating them from the values of their
+ * columns and when rendering their amounts for responses. In addition, the loading of a page of products by their IDs
+ * is measured for both {@link PriceProperties.Storage storages} of prices, which the {@link PriceType} maps with and
+ * without {@link io.hypersistence.utils.hibernate.type.money.MonetaryAmountType}. The benchmarks are best run with
+ * JMH's GC profiler, i.e., with {@code -prof gc}, whose {@code gc.alloc.rate.norm} reports the allocated bytes per
+ * operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PriceBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    @Param({"money", "compact"})
+    private String priceStorage;
+
+    private final long minorUnits = 12345;
+    private final BigDecimal amount = new BigDecimal("123.45");
+    private final String currencyCode = DEFAULT_CURRENCY.getCurrencyCode();
+    private final Price price = new Price(minorUnits, currencyCode);
+    private final Money money = Money.of(amount, DEFAULT_CURRENCY);
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("catalog.prices.storage=" + priceStorage);
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        productRepository = context.getBean(ProductRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Price columnsToPrice() {
+        return new Price(minorUnits, currencyCode);
+    }
+
+    @Benchmark
+    public Money columnsToMoney() {
+        return Money.of(amount, currencyCode);
+    }
+
+    @Benchmark
+    public String renderPrice() {
+        return price.toPlainString();
+    }
+
+    @Benchmark
+    public String renderMoney() {
+        return money.getNumberStripped().toPlainString();
+    }
+
+    @Benchmark
+    public List<Product> loadPageOfProducts() {
+        var firstProductId = FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(datasetSize - CATALOG_PAGE_SIZE);
+        return productRepository.findAllById(
+            LongStream.range(firstProductId, firstProductId + CATALOG_PAGE_SIZE).boxed().toList()
+        );
+    }
+}
@@ -0,0 +1,76 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductTextIndex;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.catalog.controller.ProductApi.CATALOG_PAGE_SIZE;
+
+/**
+ * Compares the leading-wildcard LIKE query of the {@link ProductRepository} with the {@link ProductTextIndex} for
+ * searches of products by name and description. The queries range from frequent terms over a rare combination of terms
+ * to a term that occurs in no product.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductSearchBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    @Param({"kettle", "granite blender", "xylophone"})
+    private String query;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductTextIndex productTextIndex;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        productRepository = context.getBean(ProductRepository.class);
+        productTextIndex = context.getBean(ProductTextIndex.class);
+        productTextIndex.rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> likeQuery() {
+        return productRepository.searchByNameLikeIgnoreCaseOrDescriptionLikeIgnoreCase(
+            "%" + query + "%",
+            "%" + query + "%",
+            PageRequest.of(0, CATALOG_PAGE_SIZE)
+        );
+    }
+
+    @Benchmark
+    public List<Long> textIndex() {
+        return productTextIndex.search(query, query, 0, CATALOG_PAGE_SIZE);
+    }
+}
@@ -0,0 +1,74 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.controller.SearchOptimizationApi;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductPriceIndex;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductTextIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the paginated queries of the {@link SearchOptimizationApi}, i.e., the search by name and description as well
+ * as the searches by maximum price and by price range, on the first page and on a page deep into the results.
+ * Benchmark prices range from 1.00 to 1000.99, so that the price queries match about half and a tenth of the products,
+ * respectively.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchOptimizationApiBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    @Param({"0", "100"})
+    private int pageNumber;
+
+    private ConfigurableApplicationContext context;
+    private SearchOptimizationApi searchOptimizationApi;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        context.getBean(ProductTextIndex.class).rebuild();
+        context.getBean(ProductPriceIndex.class).rebuild();
+        searchOptimizationApi = context.getBean(SearchOptimizationApi.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> searchByNameAndDescription() {
+        return searchOptimizationApi.searchProductsByNameAndDescription("steel", "kitchen", pageNumber);
+    }
+
+    @Benchmark
+    public List<Long> searchByMaxPrice() {
+        return searchOptimizationApi.searchProductsByMaxPrice("500.00", "EUR", pageNumber);
+    }
+
+    @Benchmark
+    public List<Long> searchByPriceRange() {
+        return searchOptimizationApi.searchProductsByPriceRange("100.00", "200.00", "EUR", pageNumber);
+    }
+}
@@ -0,0 +1,61 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Measures {@link InventoryData#addStockAndPublishQuantityChangedEvent(Long, int)} for random known products, i.e.,
+ * the stock update, the publication of the {@link QuantityChanged} event in Spring Modulith's event publication
+ * registry, and the commit. The Catalog module's listener handles the events asynchronously and is hence not part of
+ * the measured time, but it competes for the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InventoryDataBenchmark {
+    @Param("100000")
+    private int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private InventoryData inventoryData;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        BenchmarkApplication.insertStocks(context, datasetSize);
+        context.getBean(StockTable.class).reload();
+        inventoryData = context.getBean(InventoryData.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean addStock() {
+        var productId = FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(datasetSize);
+        return inventoryData.addStockAndPublishQuantityChangedEvent(productId, 1);
+    }
+}
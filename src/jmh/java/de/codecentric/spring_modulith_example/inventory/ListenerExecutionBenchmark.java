@@ -0,0 +1,96 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Compares platform threads and virtual threads under sustained {@code PUT inventory/stock} load from many concurrent
+ * clients. Each request triggers a {@link QuantityChanged} event, whose Catalog listener blocks until the quantity
+ * change got written to the database. In {@code virtual} mode, both the HTTP layer and the modules' listeners run on
+ * virtual threads. The teardown prints the metrics of the Catalog module's listener executor, which tell whether the
+ * listeners kept up with the requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(64)
+public class ListenerExecutionBenchmark {
+    @Param("10000")
+    private int datasetSize;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"8", "64"})
+    private int listenerConcurrency;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(
+            "spring.main.web-application-type=servlet",
+            "server.port=0",
+            "spring.threads.virtual.enabled=" + threads.equals("virtual"),
+            "listener-execution.mode=" + threads,
+            "listener-execution.modules.catalog.max-concurrency=" + listenerConcurrency,
+            "listener-execution.modules.inventory.max-concurrency=" + listenerConcurrency
+        );
+        BenchmarkApplication.insertProducts(context, datasetSize);
+        BenchmarkApplication.insertStocks(context, datasetSize);
+        context.getBean(StockTable.class).reload();
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    @TearDown
+    public void tearDown() {
+        var meterRegistry = context.getBean(MeterRegistry.class);
+        var queueTimes = meterRegistry.get("listener.executor.queue.time").tag("module", "catalog").timer();
+        System.out.printf("%nCatalog listener executor: %d tasks, %.1f ms mean and %.1f ms max time in queue, %.0f "
+                + "queued at teardown%n",
+            queueTimes.count(), queueTimes.mean(TimeUnit.MILLISECONDS), queueTimes.max(TimeUnit.MILLISECONDS),
+            meterRegistry.get("listener.executor.queued").tag("module", "catalog").gauge().value());
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int addStock() throws IOException, InterruptedException {
+        var productId = FIRST_PRODUCT_ID + ThreadLocalRandom.current().nextInt(datasetSize);
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/inventory/stock/" + productId + "?quantity=1"))
+            .PUT(HttpRequest.BodyPublishers.noBody())
+            .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,83 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Compares reads of product quantities from the Inventory module's {@link StockTable} with reads from the database via
+ * the {@link StockRepository} (the former implementation) for random known products. The setup also prints the
+ * table's heap footprint for the benchmarked dataset size and for 10 million products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StockTableBenchmark {
+    private static final int LOOKUP_COUNT = 1 << 16;
+
+    @Param("1000000")
+    private int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private StockRepository stockRepository;
+    private StockTable stockTable;
+    private long[] lookupProductIds;
+    private int lookup;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.insertStocks(context, datasetSize);
+        stockRepository = context.getBean(StockRepository.class);
+        stockTable = context.getBean(StockTable.class);
+        stockTable.reload();
+
+        var random = new Random(42);
+        lookupProductIds = new long[LOOKUP_COUNT];
+        for (var i = 0; i < LOOKUP_COUNT; i++)
+            lookupProductIds[i] = FIRST_PRODUCT_ID + random.nextInt(datasetSize);
+
+        System.out.printf("%nStock table footprint: %,d bytes for %,d products, %,d bytes for 10,000,000 products%n",
+            stockTable.footprintInBytes(), stockTable.size(), StockTable.footprintInBytes(10_000_000));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OptionalInt tableRead() {
+        return stockTable.quantity(nextProductId());
+    }
+
+    @Benchmark
+    public Integer databaseRead() {
+        return stockRepository.findQuantityByProductId(nextProductId());
+    }
+
+    private long nextProductId() {
+        return lookupProductIds[lookup++ & (LOOKUP_COUNT - 1)];
+    }
+}
@@ -0,0 +1,99 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.inventory.QuantityChanged;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.core.PublicationTargetIdentifier;
+import org.springframework.modulith.events.core.TargetEventPublication;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Measures how many events per second can be stored and completed in Spring Modulith's event publication registry by
+ * several publishing threads, for the following stores:
+ * <ul>
+ *     <li>{@code jpa}: the registry tables in the database, with batched completions</li>
+ *     <li>{@code journal-never}, {@code journal-interval}, {@code journal-always}: the event journal with the
+ *     respective fsync policy</li>
+ * </ul>
+ * The journal lives in a directory below {@code target/}, so that the fsync policies are measured against the disk
+ * that the build runs on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class EventJournalBenchmark {
+    private static final PublicationTargetIdentifier LISTENER = PublicationTargetIdentifier.of("benchmark.listener");
+
+    @Param({"jpa", "journal-never", "journal-interval", "journal-always"})
+    private String store;
+
+    private Path journalDirectory;
+    private ConfigurableApplicationContext context;
+    private EventPublicationRepository eventPublicationRepository;
+    private TransactionTemplate transactionTemplate;
+    private final AtomicLong productId = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        Files.createDirectories(Path.of("target"));
+        journalDirectory = Files.createTempDirectory(Path.of("target"), "event-journal-");
+        var storeAndFsync = store.split("-");
+        context = BenchmarkApplication.start(
+            "event-publication-registry.store=" + storeAndFsync[0],
+            "event-publication-registry.journal.directory=" + journalDirectory.toAbsolutePath(),
+            "event-publication-registry.journal.fsync=" + (storeAndFsync.length > 1 ? storeAndFsync[1] : "interval")
+        );
+        eventPublicationRepository = context.getBean(EventPublicationRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.walk(journalDirectory)) {
+            for (var file : files.sorted((a, b) -> b.compareTo(a)).toList())
+                Files.delete(file);
+        }
+    }
+
+    /**
+     * Store a publication in a transaction of its own, like a module does when it publishes an event, and complete it,
+     * like a listener does after it handled the event.
+     */
+    @Benchmark
+    public TargetEventPublication publishAndComplete() {
+        var event = new QuantityChanged("benchmark", FIRST_PRODUCT_ID + productId.getAndIncrement(), 1, 0);
+        var publication = transactionTemplate.execute(status ->
+            eventPublicationRepository.create(TargetEventPublication.of(event, LISTENER, Instant.now()))
+        );
+        eventPublicationRepository.markCompleted(publication, Instant.now());
+        return publication;
+    }
+}
@@ -0,0 +1,134 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import de.codecentric.spring_modulith_example.BenchmarkApplication;
+import de.codecentric.spring_modulith_example.inventory.QuantityChanged;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.core.PublicationTargetIdentifier;
+import org.springframework.modulith.events.core.TargetEventPublication;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static de.codecentric.spring_modulith_example.BenchmarkApplication.FIRST_PRODUCT_ID;
+
+/**
+ * Measures the latency of storing and completing an event publication in Spring Modulith's event publication registry,
+ * and of the lookup of incomplete publications at startup, for a registry that already holds the given number of
+ * completed publications. In Spring Modulith's default {@code update} completion mode, completed publications remain in
+ * the same table as incomplete ones. In the {@code archive} completion mode, which the application uses, they are
+ * moved to a table of their own.
+ * <br/>
+ * The registry lives in a file-based H2 database below {@code target/}, because ten million publications don't fit
+ * into the heap. The registry's maintenance is disabled, so that the prefilled publications are kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EventPublicationRegistryBenchmark {
+    private static final int PREFILL_CHUNK_SIZE = 1_000_000;
+    private static final PublicationTargetIdentifier LISTENER = PublicationTargetIdentifier.of("benchmark.listener");
+
+    @Param({"update", "archive"})
+    private String completionMode;
+
+    @Param({"0", "10000000"})
+    private int publishedEvents;
+
+    private Path databaseDirectory;
+    private ConfigurableApplicationContext context;
+    private EventPublicationRepository eventPublicationRepository;
+    private TransactionTemplate transactionTemplate;
+    private long productId;
+
+    @Setup
+    public void setUp() throws IOException {
+        Files.createDirectories(Path.of("target"));
+        databaseDirectory = Files.createTempDirectory(Path.of("target"), "event-publication-registry-");
+        context = BenchmarkApplication.start(
+            "spring.datasource.url=jdbc:h2:file:" + databaseDirectory.toAbsolutePath().resolve("registry"),
+            "spring.modulith.events.completion-mode=" + completionMode,
+            "event-publication-registry.maintenance-interval=1d"
+        );
+        eventPublicationRepository = context.getBean(EventPublicationRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        prefill();
+    }
+
+    /**
+     * Fill the registry with completed publications, which are copies of a publication that's completed by the
+     * registry itself. The copies were completed one millisecond apart each, so that the index of completion dates has
+     * as many distinct keys as there are publications.
+     */
+    private void prefill() {
+        if (publishedEvents == 0)
+            return;
+
+        publishAndComplete();
+        ((BatchingEventPublicationRepository) eventPublicationRepository).flush();
+        var completedTable = completionMode.equals("archive") ? "event_publication_archive" : "event_publication";
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (var offset = 1; offset < publishedEvents; offset += PREFILL_CHUNK_SIZE) {
+            var last = Math.min(offset + PREFILL_CHUNK_SIZE, publishedEvents) - 1;
+            jdbcTemplate.update("""
+                insert into %1$s (id, listener_id, event_type, serialized_event, publication_date, completion_date,
+                    status, completion_attempts)
+                select random_uuid(), p.listener_id, p.event_type, p.serialized_event,
+                    dateadd(millisecond, -r.x, p.publication_date), dateadd(millisecond, -r.x, p.completion_date),
+                    p.status, p.completion_attempts
+                from (select * from %1$s order by completion_date desc fetch first 1 rows only) p, system_range(?, ?) r
+                """.formatted(completedTable), offset, last);
+        }
+        System.out.printf("%nRegistry prefilled with %,d completed publications in table %s%n",
+            jdbcTemplate.queryForObject("select count(*) from " + completedTable, Long.class), completedTable);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        try (var files = Files.walk(databaseDirectory)) {
+            for (var file : files.sorted((a, b) -> b.compareTo(a)).toList())
+                Files.delete(file);
+        }
+    }
+
+    /**
+     * Store a publication in a transaction of its own, like a module does when it publishes an event, and complete it,
+     * like a listener does after it handled the event.
+     */
+    @Benchmark
+    public TargetEventPublication publishAndComplete() {
+        var event = new QuantityChanged("benchmark", FIRST_PRODUCT_ID + productId++, 1, 0);
+        var publication = transactionTemplate.execute(status ->
+            eventPublicationRepository.create(TargetEventPublication.of(event, LISTENER, Instant.now()))
+        );
+        eventPublicationRepository.markCompleted(publication, Instant.now());
+        return publication;
+    }
+
+    @Benchmark
+    public List<TargetEventPublication> findIncompletePublications() {
+        return eventPublicationRepository.findIncompletePublications();
+    }
+}
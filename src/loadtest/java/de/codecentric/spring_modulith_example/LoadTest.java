@@ -0,0 +1,232 @@
+package de.codecentric.spring_modulith_example;
+
+import de.codecentric.spring_modulith_example.PostmanCollection.Request;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Load test that replays the requests of the Postman collection against an application instance on a random port and
+ * reports latency percentiles and throughput per request. Run it with the {@code load-test} Maven profile, e.g.:
+ * {@code mvn -Pload-test verify -DskipTests -Dload.args="--rate=500 --duration=60s"}.
+ * <br/>
+ * The requests of the collection are sent round-robin on a fixed schedule of {@code rate} requests per second. Without
+ * {@code concurrency}, the load is open-loop: Every request is sent on a virtual thread of its own at its scheduled
+ * time, regardless of how many requests are still outstanding. With {@code concurrency}, a fixed number of virtual
+ * threads share the schedule and send their next request only after the previous one completed. In both modes,
+ * latencies are measured from a request's scheduled time instead of the time it was actually sent. Requests that are
+ * delayed by a stalled application hence count with the time they waited, which corrects the coordinated omission of
+ * closed-loop load generators that would otherwise just send fewer requests while the application stalls.
+ * <br/>
+ * Options are given as {@code --name=value} arguments (see {@link Options}). All other arguments of the form
+ * {@code key=value} are passed to the application as properties, e.g., {@code spring.threads.virtual.enabled=true}.
+ */
+public final class LoadTest {
+    private LoadTest() {
+        // NOOP
+    }
+
+    public static void main(String[] args) {
+        var options = Options.parse(args);
+        var collection = PostmanCollection.read(options.collection()).filter(options.requests());
+        if (collection.requests().isEmpty())
+            throw new IllegalArgumentException("No requests match " + options.requests());
+
+        try (var context = new SpringApplicationBuilder(App.class)
+            .logStartupInfo(false)
+            .properties("server.port=0", "spring.h2.console.enabled=false", "logging.level.root=WARN")
+            .run(options.applicationProperties().stream().map(property -> "--" + property).toArray(String[]::new))) {
+            var server = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            System.out.printf("Sending %d requests per second for %s (%s warmup) %s%n", options.rate(),
+                options.duration(), options.warmup(), options.concurrency() > 0
+                    ? "from " + options.concurrency() + " virtual threads"
+                    : "open-loop");
+            var results = run(server, collection.requests(), options);
+            results.print(System.out, options.duration());
+        }
+    }
+
+    private static Results run(String server, List<Request> requests, Options options) {
+        var results = new Results(requests);
+        var interval = 1_000_000_000L / options.rate();
+        var warmupRequests = options.warmup().toNanos() / interval;
+        var totalRequests = warmupRequests + options.duration().toNanos() / interval;
+        try (var httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var sender = new Sender(server, requests, httpClient, options.timeout(), results, warmupRequests);
+            var start = System.nanoTime() + interval;
+            if (options.concurrency() > 0) {
+                // Each thread takes every concurrency-th request of the schedule
+                for (var thread = 0; thread < options.concurrency(); thread++) {
+                    var first = thread;
+                    executor.execute(() -> {
+                        for (var i = (long) first; i < totalRequests; i += options.concurrency())
+                            sender.send(i, awaitSchedule(start + i * interval));
+                    });
+                }
+            } else {
+                for (var i = 0L; i < totalRequests; i++) {
+                    var index = i;
+                    var scheduledTime = awaitSchedule(start + i * interval);
+                    executor.execute(() -> sender.send(index, scheduledTime));
+                }
+            }
+        }
+        return results;
+    }
+
+    private static long awaitSchedule(long scheduledTime) {
+        for (var delay = scheduledTime - System.nanoTime(); delay > 0; delay = scheduledTime - System.nanoTime())
+            LockSupport.parkNanos(delay);
+        return scheduledTime;
+    }
+
+    /**
+     * Sends the requests of the schedule, i.e., the collection's requests round-robin, and records their outcome.
+     */
+    private record Sender(String server, List<Request> requests, HttpClient httpClient, Duration timeout,
+        Results results, long warmupRequests) {
+        void send(long index, long scheduledTime) {
+            var request = requests.get((int) (index % requests.size()));
+            var success = false;
+            try {
+                var httpRequest = HttpRequest.newBuilder(request.uri(server))
+                    .timeout(timeout)
+                    .method(request.method(), request.body() != null
+                        ? HttpRequest.BodyPublishers.ofString(request.body())
+                        : HttpRequest.BodyPublishers.noBody());
+                if (!request.headers().isEmpty())
+                    httpRequest.headers(request.headers().toArray(String[]::new));
+                var response = httpClient.send(httpRequest.build(), HttpResponse.BodyHandlers.discarding());
+                success = response.statusCode() < 400;
+            } catch (IOException ex) {
+                // Counted as error, e.g., a timeout
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (index >= warmupRequests)
+                results.record(request, System.nanoTime() - scheduledTime, success);
+        }
+    }
+
+    /**
+     * Latencies in nanoseconds, and the numbers of requests and errors per request of the collection.
+     */
+    private static final class Results {
+        private final Map<Request, Recorder> latencies = new LinkedHashMap<>();
+        private final Map<Request, LongAdder> errors = new HashMap<>();
+
+        Results(List<Request> requests) {
+            for (var request : requests) {
+                latencies.put(request, new Recorder(3));
+                errors.put(request, new LongAdder());
+            }
+        }
+
+        void record(Request request, long latency, boolean success) {
+            latencies.get(request).recordValue(latency);
+            if (!success)
+                errors.get(request).increment();
+        }
+
+        void print(PrintStream out, Duration duration) {
+            var seconds = duration.toNanos() / 1e9;
+            var histograms = new LinkedHashMap<String, Histogram>();
+            var errorCounts = new HashMap<String, Long>();
+            var total = new Histogram(3);
+            var totalErrors = 0L;
+            // Requests are reported in the order of the collection
+            for (var request : latencies.keySet()) {
+                var histogram = latencies.get(request).getIntervalHistogram();
+                histograms.put(request.name(), histogram);
+                errorCounts.put(request.name(), errors.get(request).sum());
+                total.add(histogram);
+                totalErrors += errors.get(request).sum();
+            }
+            histograms.put("Total", total);
+            errorCounts.put("Total", totalErrors);
+
+            out.printf("%n%-48s %9s %7s %9s %9s %9s %9s %9s%n", "Request", "Count", "Errors", "Req/s", "p50 ms",
+                "p99 ms", "p99.9 ms", "Max ms");
+            histograms.forEach((name, histogram) -> out.printf("%-48s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", name,
+                histogram.getTotalCount(), errorCounts.get(name), histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue())));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    /**
+     * Options of a load test.
+     *
+     * @param rate                  Requests per second of the schedule.
+     * @param concurrency           Number of virtual threads that share the schedule, or zero for open-loop load.
+     * @param duration              Duration of the measurement.
+     * @param warmup                Duration of the schedule before the measurement, whose results are discarded.
+     * @param timeout               Timeout of each request, after which it counts as error.
+     * @param requests              Regular expression that selects the collection's requests by name.
+     * @param collection            Postman collection file.
+     * @param applicationProperties Properties of the application under test in {@code key=value} format.
+     */
+    record Options(int rate, int concurrency, Duration duration, Duration warmup, Duration timeout,
+        Pattern requests, Path collection, List<String> applicationProperties) {
+        static Options parse(String[] args) {
+            var options = new HashMap<>(Map.of(
+                "rate", "100",
+                "concurrency", "0",
+                "duration", "30s",
+                "warmup", "10s",
+                "timeout", "10s",
+                "requests", "",
+                "collection", "spring-modulith-example.postman_collection.json"
+            ));
+            var applicationProperties = new ArrayList<String>();
+            for (var arg : args) {
+                if (arg.startsWith("--")) {
+                    var option = arg.substring(2).split("=", 2);
+                    if (option.length != 2 || !options.containsKey(option[0]))
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    options.put(option[0], option[1]);
+                } else if (arg.contains("=")) {
+                    applicationProperties.add(arg);
+                } else {
+                    throw new IllegalArgumentException("Neither an option nor a property: " + arg);
+                }
+            }
+
+            var rate = Integer.parseInt(options.get("rate"));
+            if (rate <= 0)
+                throw new IllegalArgumentException("Rate must be positive");
+            return new Options(rate, Integer.parseInt(options.get("concurrency")),
+                DurationStyle.detectAndParse(options.get("duration")),
+                DurationStyle.detectAndParse(options.get("warmup")),
+                DurationStyle.detectAndParse(options.get("timeout")), Pattern.compile(options.get("requests")),
+                Path.of(options.get("collection")), List.copyOf(applicationProperties));
+        }
+    }
+}
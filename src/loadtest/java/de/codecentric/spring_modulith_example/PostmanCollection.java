@@ -0,0 +1,76 @@
+package de.codecentric.spring_modulith_example;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Requests of a Postman collection in the v2.1 format, e.g., of {@code spring-modulith-example.postman_collection.json}.
+ * Only the parts of the format that the collection uses are supported: request methods, raw URLs with a
+ * {@code {{server}}} placeholder and {@code :name} path variables, headers, and raw bodies. Requests in folders are
+ * flattened in the order of the collection.
+ */
+record PostmanCollection(List<Request> requests) {
+    private static final String SERVER_PLACEHOLDER = "{{server}}";
+
+    static PostmanCollection read(Path file) {
+        var collection = JsonMapper.shared().readTree(file.toFile());
+        var requests = new ArrayList<Request>();
+        collectRequests(collection.path("item"), requests);
+        return new PostmanCollection(List.copyOf(requests));
+    }
+
+    private static void collectRequests(JsonNode items, List<Request> requests) {
+        for (var item : items) {
+            if (item.has("item"))
+                collectRequests(item.get("item"), requests);
+            else
+                requests.add(Request.of(item.get("name").asString(), item.get("request")));
+        }
+    }
+
+    /**
+     * Keep only the requests whose names match the given regular expression.
+     */
+    PostmanCollection filter(Pattern names) {
+        return new PostmanCollection(requests.stream()
+            .filter(request -> names.matcher(request.name()).find())
+            .toList());
+    }
+
+    /**
+     * Request with a URL that is relative to the collection's server, with path variables already substituted.
+     */
+    record Request(String name, String method, String url, List<String> headers, String body) {
+        static Request of(String name, JsonNode request) {
+            var url = request.path("url").path("raw").asString();
+            if (!url.startsWith(SERVER_PLACEHOLDER))
+                throw new IllegalArgumentException("URL of request " + name + " doesn't start with "
+                    + SERVER_PLACEHOLDER);
+            url = url.substring(SERVER_PLACEHOLDER.length());
+            for (var variable : request.path("url").path("variable"))
+                url = url.replace(":" + variable.get("key").asString(), variable.path("value").asString(""));
+
+            var headers = new ArrayList<String>();
+            for (var header : request.path("header")) {
+                if (!header.path("disabled").asBoolean(false)) {
+                    headers.add(header.get("key").asString());
+                    headers.add(header.path("value").asString(""));
+                }
+            }
+            var body = request.path("body").path("mode").asString("").equals("raw")
+                ? request.path("body").path("raw").asString()
+                : null;
+            return new Request(name, request.path("method").asString("GET"), url, List.copyOf(headers), body);
+        }
+
+        URI uri(String server) {
+            return URI.create(server + url);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of product IDs for keyset pagination. By contrast to offset-based pages, clients don't request a page number but
+ * pass the page's {@link #nextCursor()} to get the subsequent page. The cursor encodes the sort key(s) of the page's
+ * last product, so that the subsequent page can be found by seeking directly behind that product instead of counting
+ * and skipping all preceding products. Fetching a page thus costs the same regardless of how deep it is in the result.
+ * <br/>
+ * Cursors are opaque to clients, i.e., they are Base64url-encoded and clients must not rely on their contents. The
+ * {@code nextCursor} of the last page is {@code null}.
+ */
+public record CursorPage(List<Long> productIds, String nextCursor) {
+    /**
+     * Build a page from at most {@code pageSize + 1} sort keys. Fetching one key more than the page size tells whether
+     * there is a subsequent page without having to count the remaining results. The page's cursor is derived from the
+     * last key on the page by the given function.
+     */
+    public static <K> CursorPage of(List<K> keys, int pageSize, Function<K, Long> productId,
+        Function<K, long[]> cursorKeys) {
+        var pageKeys = keys.size() > pageSize ? keys.subList(0, pageSize) : keys;
+        var nextCursor = keys.size() > pageSize ? encodeCursor(cursorKeys.apply(pageKeys.getLast())) : null;
+        return new CursorPage(pageKeys.stream().map(productId).toList(), nextCursor);
+    }
+
+    /**
+     * Encode the given sort keys as an opaque cursor.
+     */
+    public static String encodeCursor(long... keys) {
+        var buffer = ByteBuffer.allocate(keys.length * Long.BYTES);
+        for (var key : keys)
+            buffer.putLong(key);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decode the given number of sort keys from an opaque cursor. Malformed cursors result in a
+     * {@link HttpStatus#BAD_REQUEST} response.
+     */
+    public static long[] decodeCursor(String cursor, int keyCount) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor", ex);
+        }
+        if (bytes.length != keyCount * Long.BYTES)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor");
+
+        var buffer = ByteBuffer.wrap(bytes);
+        var keys = new long[keyCount];
+        for (var i = 0; i < keyCount; i++)
+            keys[i] = buffer.getLong();
+        return keys;
+    }
+}
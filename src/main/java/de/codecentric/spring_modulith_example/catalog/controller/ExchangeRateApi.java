@@ -0,0 +1,43 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import de.codecentric.spring_modulith_example.catalog.model.ExchangeRates;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * HTTP API for administrators to look up and replace the {@link ExchangeRates} at runtime. The body of a replacement
+ * maps the ISO codes of currencies to the amount in the default currency that one unit of the currency is worth, like
+ * the {@code catalog.exchange-rates.rates} configuration does. Currencies without rate in the body lose their rate. The
+ * request returns once the normalized prices of all products were recomputed with the new rates.
+ */
+@RestController
+public class ExchangeRateApi {
+    private final ExchangeRates exchangeRates;
+
+    public ExchangeRateApi(ExchangeRates exchangeRates) {
+        this.exchangeRates = exchangeRates;
+    }
+
+    @GetMapping("catalog/exchangeRates")
+    public Map<String, BigDecimal> getExchangeRates() {
+        return exchangeRates.rates();
+    }
+
+    @PutMapping("catalog/exchangeRates")
+    public Map<String, BigDecimal> updateExchangeRates(@RequestBody Map<String, BigDecimal> rates) {
+        try {
+            exchangeRates.update(rates);
+        } catch (IllegalArgumentException ex) {
+            // Unknown currencies, and rates that are missing or not positive
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+        return exchangeRates.rates();
+    }
+}
@@ -1,27 +1,32 @@
 package de.codecentric.spring_modulith_example.catalog.controller;
 
-import de.codecentric.spring_modulith_example.catalog.model.Product;
-import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import de.codecentric.spring_modulith_example.catalog.model.CatalogReadModel;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
 /**
  * This controller exposes an HTTP API to application-external clients. However, in the modulithic application this
  * controller will not be visible to other modules because it is contained in a sub-package of the Catalog module.
+ * <br/>
+ * All endpoints are answered from the in-memory {@link CatalogReadModel} without querying the database, unless the
+ * read model didn't get loaded yet.
  */
 @RestController
 public class ProductApi {
     public static final int CATALOG_PAGE_SIZE = 20;
 
-    private final ProductRepository productRepository;
+    private final CatalogReadModel catalogReadModel;
+    private final ProductDetailCache productDetailCache;
 
-    public ProductApi(ProductRepository productRepository) {
-        this.productRepository = productRepository;
+    public ProductApi(CatalogReadModel catalogReadModel, ProductDetailCache productDetailCache) {
+        this.catalogReadModel = catalogReadModel;
+        this.productDetailCache = productDetailCache;
     }
 
     @GetMapping("catalog")
@@ -30,24 +35,53 @@ public class ProductApi {
         // http://toddfredrich.com/ids-in-rest-api.html for a brief summary of the issue. However, to keep the codebase
         // concise and focused on its core concern (illustrating the usage various techniques of Spring Modulith), we
         // expose and process technical IDs in our HTTP APIs.
-        return productRepository.findAll(PageRequest.of(pageNumber, CATALOG_PAGE_SIZE))
-            .map(Product::getId)
-            .toList();
+        return catalogReadModel.productIds(PageRequest.of(pageNumber, CATALOG_PAGE_SIZE));
     }
 
+    /**
+     * Keyset-paginated variant of {@link #getProducts(int)}. Pages are ordered by product ID, and by contrast to
+     * {@link #getProducts(int)} don't skip the products of previous pages.
+     */
+    @GetMapping("catalog/scroll")
+    public CursorPage scrollProducts(@RequestParam(required = false) String after) {
+        var afterProductId = after != null ? CursorPage.decodeCursor(after, 1)[0] : Long.MIN_VALUE;
+        var productIds = catalogReadModel.productIdsAfter(afterProductId, CATALOG_PAGE_SIZE + 1);
+        return CursorPage.of(productIds, CATALOG_PAGE_SIZE, id -> id, id -> new long[] {id});
+    }
+
+    /**
+     * Get the details of a product from the {@link ProductDetailCache}. Responses carry an entity tag, so that clients
+     * that send it back in an {@code If-None-Match} header get a {@code 304 Not Modified} response without body as long
+     * as the product's details didn't change.
+     */
     @GetMapping("catalog/products/{productId}")
-    public GetProductResponse getProduct(@PathVariable long productId) {
-        var product = productRepository.findById(productId).orElseThrow();
-        return new GetProductResponse(product.getName(), product.getDescription(),
-            product.getPrice().getNumberStripped().toPlainString(), product.getPrice().getCurrency().getCurrencyCode());
+    public GetProductResponse getProduct(@PathVariable long productId, WebRequest request) {
+        var productDetail = productDetailCache.get(productId);
+        if (request.checkNotModified(productDetail.eTag()))
+            return null;
+        return productDetail.response();
     }
 
     public record GetProductResponse(String name, String description, String priceAmount, String priceCurrency) {
         // NOOP
     }
 
+    // The following endpoints are answered from the read model's bitsets of out-of-stock products
+
     @GetMapping("catalog/products/outOfStock")
     public List<Long> getOutOfStockProducts() {
-        return productRepository.findByCurrentQuantityLessThan(1).stream().map(Product::getId).toList();
+        return catalogReadModel.outOfStockProductIds(Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @GetMapping("catalog/products/outOfStock/scroll")
+    public CursorPage scrollOutOfStockProducts(@RequestParam(required = false) String after) {
+        var afterProductId = after != null ? CursorPage.decodeCursor(after, 1)[0] : Long.MIN_VALUE;
+        var productIds = catalogReadModel.outOfStockProductIds(afterProductId, CATALOG_PAGE_SIZE + 1);
+        return CursorPage.of(productIds, CATALOG_PAGE_SIZE, id -> id, id -> new long[] {id});
+    }
+
+    @GetMapping("catalog/products/outOfStock/count")
+    public int countOutOfStockProducts() {
+        return catalogReadModel.countOutOfStockProducts();
     }
 }
@@ -0,0 +1,101 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.codecentric.spring_modulith_example.catalog.controller.ProductApi.GetProductResponse;
+import de.codecentric.spring_modulith_example.catalog.model.CatalogReadModel;
+import de.codecentric.spring_modulith_example.catalog.model.Price;
+import de.codecentric.spring_modulith_example.catalog.model.ProductView;
+import de.codecentric.spring_modulith_example.catalog.model.ProductsChanged;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cache of the responses of {@link ProductApi#getProduct(long, org.springframework.web.context.request.WebRequest)},
+ * which are rendered from the {@link CatalogReadModel} and hashed for their entity tags. The cache is backed by
+ * Caffeine, whose W-TinyLFU policy only admits new entries if they are likely to be requested more often than the
+ * entries they would evict. It is bounded by the estimated memory footprint of its entries, which are weighed at least
+ * {@code maximumWeight / maximumSize} so that the weight bound also limits the number of entries.
+ * Statistics on hits, misses, and evictions are published as {@code cache.*} meters with the tag
+ * {@code cache=catalog.product-details}.
+ * <br/>
+ * Entries are invalidated from {@link ProductsChanged} events, i.e., after changes to products got committed. Loads
+ * that might have read the state before such a commit can't outlive the invalidation: The read model applies the event
+ * before this cache, and Caffeine lets invalidations of a key wait for in-flight loads of the same key, and then checks
+ * the loaded entry. Changes that don't affect a product's response, e.g., changes of the product's current quantity,
+ * leave the entry in place.
+ */
+@Component
+class ProductDetailCache {
+    static final String CACHE_NAME = "catalog.product-details";
+
+    // Estimated heap size of a cache entry without its strings, i.e., of Caffeine's node, the boxed key, the
+    // ProductDetail and GetProductResponse records, and the strings' object headers and array headers
+    private static final int ENTRY_OVERHEAD_IN_BYTES = 256;
+
+    private final CatalogReadModel catalogReadModel;
+    private final Cache<Long, ProductDetail> cache;
+
+    ProductDetailCache(ProductDetailCacheProperties properties, CatalogReadModel catalogReadModel,
+        MeterRegistry meterRegistry) {
+        this.catalogReadModel = catalogReadModel;
+        var minimumWeight = (int) Math.min(Integer.MAX_VALUE,
+            Math.ceilDiv(properties.maximumWeight().toBytes(), properties.maximumSize()));
+        cache = Caffeine.newBuilder()
+            .maximumWeight(properties.maximumWeight().toBytes())
+            .weigher((Long productId, ProductDetail detail) -> Math.max(minimumWeight, detail.estimatedSize()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Get the cached details of the product with the given ID, or load them from the read model. Unknown products are
+     * not cached and result in a {@link java.util.NoSuchElementException}.
+     */
+    ProductDetail get(long productId) {
+        return cache.get(productId, id -> ProductDetail.of(catalogReadModel.product(id).orElseThrow()));
+    }
+
+    @EventListener
+    void productsChanged(ProductsChanged event) {
+        for (var changedProduct : event.changedProducts()) {
+            var response = toResponse(changedProduct.name(), changedProduct.description(), changedProduct.price());
+            // Like invalidate(), computeIfPresent() waits for an in-flight load of the product. Returning null removes
+            // the entry.
+            cache.asMap().computeIfPresent(changedProduct.id(),
+                (productId, cachedDetail) -> cachedDetail.response().equals(response) ? cachedDetail : null);
+        }
+    }
+
+    private static GetProductResponse toResponse(String name, String description, Price price) {
+        return new GetProductResponse(name, description, price.toPlainString(), price.currencyCode());
+    }
+
+    /**
+     * Rendered {@link GetProductResponse} of a product together with the response's entity tag for conditional
+     * requests. The entity tag is a hash of the response's content and hence stable across application instances and
+     * restarts.
+     */
+    record ProductDetail(GetProductResponse response, String eTag) {
+        static ProductDetail of(ProductView product) {
+            var response = toResponse(product.name(), product.description(), product.price());
+            var content = String.join("\0", response.name(), response.description(), response.priceAmount(),
+                response.priceCurrency());
+            var eTag = "\"" + DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) + "\"";
+            return new ProductDetail(response, eTag);
+        }
+
+        private int estimatedSize() {
+            // Strings take at most two bytes per character
+            var characterCount = (long) response.name().length() + response.description().length()
+                + response.priceAmount().length() + response.priceCurrency().length() + eTag.length();
+            return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_IN_BYTES + 2 * characterCount);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration of the {@link ProductDetailCache}. The cache holds at most {@code maximumSize} product details, which
+ * together occupy at most {@code maximumWeight} of heap memory (estimated).
+ */
+@ConfigurationProperties("catalog.product-detail-cache")
+public record ProductDetailCacheProperties(
+    @DefaultValue("10000") int maximumSize,
+    @DefaultValue("8MB") DataSize maximumWeight
+) {
+    // NOOP
+}
@@ -0,0 +1,87 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.model.ProductExporter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP API for exports of the whole catalog by means of the {@link ProductExporter}, e.g., for search partners. The
+ * response is newline-delimited JSON with one {@link ExportedProduct} line per product, which is written while the
+ * products are read from the database. Hence, clients get all products with a single request, and neither the
+ * application nor the client needs to hold the catalog in memory.
+ * <br/>
+ * The response is compressed with gzip if the client accepts it. Incremental exports are requested by a
+ * {@code changedSince} time. To not miss products that change during an export, clients should pass the time at which
+ * they started their previous export.
+ */
+@RestController
+public class ProductExportApi {
+    private static final String GZIP = "gzip";
+
+    private final JsonMapper jsonMapper;
+    private final ProductExporter productExporter;
+
+    public ProductExportApi(JsonMapper jsonMapper, ProductExporter productExporter) {
+        this.jsonMapper = jsonMapper;
+        this.productExporter = productExporter;
+    }
+
+    @GetMapping(value = "catalog/products/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportProducts(@RequestParam(required = false) Instant changedSince,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        var gzip = acceptsGzip(acceptEncoding);
+        if (gzip)
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+
+        // The output isn't flushed per product. The servlet container sends its buffer whenever it's full.
+        try (var output = gzip ? new GZIPOutputStream(response.getOutputStream()) : response.getOutputStream()) {
+            productExporter.exportProducts(changedSince, product -> writeLine(output, ExportedProduct.of(product)));
+        }
+    }
+
+    private void writeLine(OutputStream output, Object line) {
+        try {
+            output.write(jsonMapper.writeValueAsBytes(line));
+            output.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            if (parameters[0].strip().equalsIgnoreCase(GZIP))
+                // Codings with a quality value of zero aren't acceptable
+                return parameters.length == 1 || !parameters[1].strip().matches("q=0(\\.0{0,3})?");
+        }
+        return false;
+    }
+
+    public record ExportedProduct(Long id, String name, String description, String priceAmount, String priceCurrency,
+        Integer currentQuantity) {
+        static ExportedProduct of(Product product) {
+            var price = product.getPrice();
+            return new ExportedProduct(product.getId(), product.getName(), product.getDescription(),
+                price.toPlainString(), price.currencyCode(), product.getCurrentQuantity());
+        }
+    }
+}
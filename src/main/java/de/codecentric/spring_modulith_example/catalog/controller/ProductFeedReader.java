@@ -0,0 +1,167 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import de.codecentric.spring_modulith_example.catalog.model.ProductImporter.ImportedProduct;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Parses the products of a product feed incrementally from an {@link InputStream}, so that feeds of any size can be
+ * imported in constant memory. Malformed products result in a {@link ResponseStatusException} with status
+ * {@code 400 Bad Request}, whose reason names the line of the product in the feed.
+ */
+final class ProductFeedReader {
+    static final String CSV_HEADER = "name,description,priceAmount,priceCurrency,quantity";
+
+    private ProductFeedReader() {
+        // NOOP
+    }
+
+    /**
+     * Read products from newline-delimited JSON, i.e., one JSON object per product with the fields of
+     * {@link ImportedProduct}.
+     */
+    static Iterator<ImportedProduct> ndjson(InputStream input, JsonMapper jsonMapper) {
+        var products = jsonMapper.readerFor(ImportedProduct.class).<ImportedProduct>readValues(input);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return products.hasNextValue();
+                } catch (JacksonException ex) {
+                    throw malformed(products, ex);
+                }
+            }
+
+            @Override
+            public ImportedProduct next() {
+                try {
+                    return products.nextValue();
+                } catch (JacksonException ex) {
+                    throw malformed(products, ex);
+                }
+            }
+        };
+    }
+
+    private static ResponseStatusException malformed(MappingIterator<?> products, JacksonException ex) {
+        // Report the reasons why ImportedProduct rejected a product without Jackson's explanations around them
+        var reason = ex.getCause() instanceof IllegalArgumentException invalidProduct
+            ? invalidProduct.getMessage()
+            : ex.getOriginalMessage();
+        return malformed(products.currentLocation().getLineNr(), reason, ex);
+    }
+
+    /**
+     * Read products from CSV with the header {@value #CSV_HEADER}, in any order of columns. Fields may be quoted with
+     * double quotes, which are escaped by doubling them, but must not span lines.
+     */
+    static Iterator<ImportedProduct> csv(InputStream input) {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        var header = readLine(reader);
+        if (header == null)
+            return List.<ImportedProduct>of().iterator();
+        var columns = parseCsvLine(header, 1);
+        var columnIndexes = Arrays.stream(CSV_HEADER.split(",")).mapToInt(columns::indexOf).toArray();
+        if (Arrays.stream(columnIndexes).anyMatch(index -> index < 0))
+            throw malformed(1, "Header must contain the columns " + CSV_HEADER, null);
+
+        return new Iterator<>() {
+            private int lineNumber = 1;
+            private String nextLine = readNonBlankLine();
+
+            private String readNonBlankLine() {
+                String line;
+                do {
+                    line = readLine(reader);
+                    lineNumber++;
+                } while (line != null && line.isBlank());
+                return line;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextLine != null;
+            }
+
+            @Override
+            public ImportedProduct next() {
+                if (nextLine == null)
+                    throw new NoSuchElementException();
+                var fields = parseCsvLine(nextLine, lineNumber);
+                if (fields.size() != columns.size())
+                    throw malformed(lineNumber, "Expected %d fields but got %d".formatted(columns.size(),
+                        fields.size()), null);
+                try {
+                    var product = new ImportedProduct(
+                        fields.get(columnIndexes[0]),
+                        fields.get(columnIndexes[1]),
+                        new BigDecimal(fields.get(columnIndexes[2]).strip()),
+                        fields.get(columnIndexes[3]).strip(),
+                        Integer.parseInt(fields.get(columnIndexes[4]).strip())
+                    );
+                    nextLine = readNonBlankLine();
+                    return product;
+                } catch (IllegalArgumentException ex) {
+                    // Also covers NumberFormatException
+                    throw malformed(lineNumber, ex.getMessage(), ex);
+                }
+            }
+        };
+    }
+
+    private static String readLine(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static List<String> parseCsvLine(String line, int lineNumber) {
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        for (var i = 0; i < line.length(); i++) {
+            var c = line.charAt(i);
+            if (quoted) {
+                if (c != '"')
+                    field.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else
+                    quoted = false;
+            } else if (c == '"')
+                quoted = true;
+            else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else
+                field.append(c);
+        }
+        if (quoted)
+            throw malformed(lineNumber, "Unterminated quoted field", null);
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static ResponseStatusException malformed(int lineNumber, String reason, Throwable cause) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Line %d: %s".formatted(lineNumber, reason), cause);
+    }
+}
@@ -0,0 +1,88 @@
+package de.codecentric.spring_modulith_example.catalog.controller;
+
+import de.codecentric.spring_modulith_example.catalog.model.ProductImporter;
+import de.codecentric.spring_modulith_example.catalog.model.ProductImporter.BatchReport;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP API for bulk imports of products by means of the {@link ProductImporter}. The request body is a product feed in
+ * newline-delimited JSON or CSV (see {@link ProductFeedReader}), which is parsed while it's being received. The
+ * response is newline-delimited JSON, too: After each committed batch, the endpoint sends the import's progress and the
+ * batch's throughput as an {@link ImportProgress} line, and finally an {@link ImportResult} line. If the feed turns out
+ * to be malformed after the first batch got committed, the status code can't be changed anymore. The error is then
+ * reported as the final {@link ImportResult} line instead.
+ */
+@RestController
+public class ProductImportApi {
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final JsonMapper jsonMapper;
+    private final ProductImporter productImporter;
+
+    public ProductImportApi(JsonMapper jsonMapper, ProductImporter productImporter) {
+        this.jsonMapper = jsonMapper;
+        this.productImporter = productImporter;
+    }
+
+    @PostMapping(value = "catalog/products/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public void importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body,
+        HttpServletResponse response) throws IOException {
+        var products = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+            ? ProductFeedReader.ndjson(body, jsonMapper)
+            : ProductFeedReader.csv(body);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        var output = response.getOutputStream();
+        var committedProducts = new AtomicLong();
+        try {
+            productImporter.importProducts(products, batchReport -> {
+                committedProducts.set(batchReport.importedProducts());
+                writeLine(output, ImportProgress.of(batchReport));
+            });
+            writeLine(output, new ImportResult(committedProducts.get(), null));
+        } catch (ResponseStatusException ex) {
+            if (!response.isCommitted())
+                throw ex;
+            writeLine(output, new ImportResult(committedProducts.get(), ex.getReason()));
+        }
+    }
+
+    private void writeLine(OutputStream output, Object line) {
+        try {
+            output.write(jsonMapper.writeValueAsBytes(line));
+            output.write('\n');
+            // Send the line right away, so that clients can follow the import's progress
+            output.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public record ImportProgress(int batch, int batchSize, long importedProducts, long batchMillis,
+        long productsPerSecond) {
+        static ImportProgress of(BatchReport batchReport) {
+            return new ImportProgress(batchReport.batchNumber(), batchReport.batchSize(),
+                batchReport.importedProducts(), batchReport.batchDuration().toMillis(),
+                Math.round(batchReport.productsPerSecond()));
+        }
+    }
+
+    /**
+     * Outcome of an import. The error is {@code null} if all products of the feed got imported.
+     */
+    public record ImportResult(long importedProducts, String error) {
+        // NOOP
+    }
+}
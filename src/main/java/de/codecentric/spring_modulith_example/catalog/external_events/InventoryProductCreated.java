@@ -2,6 +2,8 @@ package de.codecentric.spring_modulith_example.catalog.external_events;
 
 import de.codecentric.spring_modulith_example.inventory.ProductCreated;
 
+import java.time.Instant;
+
 /**
  * The Catalog and Inventory modules communicate via events. Still, there exists a cyclic dependency on the conceptual
  * level. First, the Catalog module reacts to {@link de.codecentric.spring_modulith_example.inventory.QuantityChanged}
@@ -19,6 +21,7 @@ import de.codecentric.spring_modulith_example.inventory.ProductCreated;
 public class InventoryProductCreated implements ProductCreated {
     private Long productId;
     private int quantity;
+    private Instant publishedAt = Instant.now();
 
     // Required for event (de)serialization
     public InventoryProductCreated() {
@@ -49,4 +52,14 @@ public class InventoryProductCreated implements ProductCreated {
     public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
+
+    @Override
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    // Required for event (de)serialization
+    public void setPublishedAt(Instant publishedAt) {
+        this.publishedAt = publishedAt;
+    }
 }
@@ -0,0 +1,45 @@
+package de.codecentric.spring_modulith_example.catalog.external_events;
+
+import de.codecentric.spring_modulith_example.inventory.ProductsCreated;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The Catalog module's implementation of {@link ProductsCreated}, which informs the Inventory module about several new
+ * products at once. See {@link InventoryProductCreated} for the rationale behind implementing an Inventory module
+ * interface in the Catalog module.
+ */
+public class InventoryProductsCreated implements ProductsCreated {
+    private List<CreatedProduct> createdProducts;
+    private Instant publishedAt = Instant.now();
+
+    // Required for event (de)serialization
+    public InventoryProductsCreated() {
+        // NOOP
+    }
+
+    public InventoryProductsCreated(List<CreatedProduct> createdProducts) {
+        this.createdProducts = List.copyOf(createdProducts);
+    }
+
+    @Override
+    public List<CreatedProduct> getCreatedProducts() {
+        return createdProducts;
+    }
+
+    // Required for event (de)serialization
+    public void setCreatedProducts(List<CreatedProduct> createdProducts) {
+        this.createdProducts = createdProducts;
+    }
+
+    @Override
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    // Required for event (de)serialization
+    public void setPublishedAt(Instant publishedAt) {
+        this.publishedAt = publishedAt;
+    }
+}
@@ -2,50 +2,70 @@ package de.codecentric.spring_modulith_example.catalog.model;
 
 import de.codecentric.spring_modulith_example.catalog.external_events.InventoryProductCreated;
 import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import de.codecentric.spring_modulith_example.inventory.QuantitiesChanged;
 import de.codecentric.spring_modulith_example.inventory.QuantityChanged;
-import org.javamoney.moneta.Money;
+import de.codecentric.spring_modulith_example.shared.WarmUp;
 import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.stream.Collectors;
 
+import static de.codecentric.spring_modulith_example.catalog.model.CatalogListenerExecutorConfiguration.CATALOG_LISTENER_EXECUTOR;
 import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
 
 @Component
 public class CatalogData {
     private final ApplicationEventPublisher applicationEventPublisher;
+    private final ProductChangePublisher productChangePublisher;
     private final ProductRepository productRepository;
+    private final QuantityChangeCoalescer quantityChangeCoalescer;
+    private final TransactionTemplate transactionTemplate;
+    private final WarmUp warmUp;
 
-    public CatalogData(ApplicationEventPublisher applicationEventPublisher, ProductRepository productRepository) {
+    public CatalogData(ApplicationEventPublisher applicationEventPublisher,
+        ProductChangePublisher productChangePublisher, ProductRepository productRepository,
+        QuantityChangeCoalescer quantityChangeCoalescer, TransactionTemplate transactionTemplate, WarmUp warmUp) {
         this.applicationEventPublisher = applicationEventPublisher;
+        this.productChangePublisher = productChangePublisher;
         this.productRepository = productRepository;
+        this.quantityChangeCoalescer = quantityChangeCoalescer;
+        this.transactionTemplate = transactionTemplate;
+        this.warmUp = warmUp;
     }
 
     /**
      * Add some initial products for illustrative purposes. See how
      * {@code CatalogIntegrationTests.testInitialProductEvents()} checks for the occurrence of the events
-     * {@link InventoryProductCreated} and {@link QuantityChanged} fired during initial product creation.
+     * {@link InventoryProductCreated} and {@link QuantityChanged} fired during initial product creation. The products
+     * are created as {@link WarmUp} work, i.e., in the background behind the readiness gate if so configured, so that
+     * the seed data and the resulting event fan-out don't delay the startup.
      */
     @EventListener(ApplicationStartedEvent.class)
-    @Transactional
     public void initialData(ApplicationStartedEvent event) {
-        createProductAndPublishProductCreatedEvent("Product 1", "Description of product 1", 100);
-        createProductAndPublishProductCreatedEvent("Product 2", "Description of product 2", 200);
-        createProductAndPublishProductCreatedEvent("Product 3", "Description of product 3", 300);
+        warmUp.run("catalog initial data", () -> transactionTemplate.executeWithoutResult(status -> {
+            createProductAndPublishProductCreatedEvent("Product 1", "Description of product 1", 100);
+            createProductAndPublishProductCreatedEvent("Product 2", "Description of product 2", 200);
+            createProductAndPublishProductCreatedEvent("Product 3", "Description of product 3", 300);
+        }));
     }
 
     /**
-     * Store new {@link Product} in database and afterwards fire an {@link InventoryProductCreated} event.
+     * Store new {@link Product} in database and afterwards fire an {@link InventoryProductCreated} event. Once the
+     * product is committed, a Catalog-internal {@link ProductsChanged} event informs about it, too.
      */
     private void createProductAndPublishProductCreatedEvent(String name, String description,
         Number priceInDefaultCurrency) {
         var product = productRepository.save(
-                new Product(name, description, Money.of(priceInDefaultCurrency, DEFAULT_CURRENCY), 0)
+                new Product(name, description, Price.of(priceInDefaultCurrency, DEFAULT_CURRENCY), 0)
             );
+        productChangePublisher.publishAfterCommit(List.of(product));
         applicationEventPublisher.publishEvent(
             new InventoryProductCreated(product.getId(), product.getCurrentQuantity())
         );
@@ -53,15 +73,35 @@ public class CatalogData {
 
     /**
      * React to {@link QuantityChanged} events from the Inventory module and adapt the current quantity of the product
-     * communicated by the event in the database.
+     * communicated by the event in the database. The update goes through the {@link QuantityChangeCoalescer} so that
+     * bursts of changes to the same product result in a single write of the latest quantity, and stale or duplicate
+     * events, as told by their versions, don't result in a write at all. The listener does not
+     * need a transaction of its own because the coalescer writes in separate transactions. This also prevents waiting
+     * listeners from holding database connections. Like all of the Catalog module's listeners, it runs on the
+     * module's own {@link de.codecentric.spring_modulith_example.shared.ListenerExecutor}.
      */
-    @ApplicationModuleListener
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    @Async(CATALOG_LISTENER_EXECUTOR)
     public void quantityChanged(QuantityChanged event) {
-        var product = productRepository.findById(event.getProductId());
-        if (product.isPresent()) {
-            product.get().setCurrentQuantity(event.getNewQuantity());
-            productRepository.save(product.get());
-        } else
-            throw new NoSuchElementException();
+        quantityChangeCoalescer.applyAndWait(event.getProductId(), event.getNewQuantity(), event.getVersion());
+    }
+
+    /**
+     * React to {@link QuantitiesChanged} events from the Inventory module and adapt the current quantities of all
+     * products communicated by the event in the database. Like {@link #quantityChanged(QuantityChanged)}, this listener
+     * hands the quantities to the {@link QuantityChangeCoalescer}, which writes them together with other pending
+     * changes in one batch.
+     */
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    @Async(CATALOG_LISTENER_EXECUTOR)
+    public void quantitiesChanged(QuantitiesChanged event) {
+        quantityChangeCoalescer.applyAndWait(
+            event.getQuantityChanges().stream()
+                .collect(Collectors.toMap(
+                    QuantitiesChanged.QuantityChange::productId,
+                    quantityChange -> new QuantityChangeCoalescer.VersionedQuantity(quantityChange.newQuantity(),
+                        quantityChange.version())
+                ))
+        );
     }
 }
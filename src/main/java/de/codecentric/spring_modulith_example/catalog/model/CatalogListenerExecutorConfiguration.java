@@ -0,0 +1,21 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.shared.ListenerExecutionProperties;
+import de.codecentric.spring_modulith_example.shared.ListenerExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the {@link ListenerExecutor} on which the Catalog module's
+ * {@link org.springframework.modulith.events.ApplicationModuleListener}s run.
+ */
+@Configuration
+class CatalogListenerExecutorConfiguration {
+    static final String CATALOG_LISTENER_EXECUTOR = "catalogListenerExecutor";
+
+    @Bean(CATALOG_LISTENER_EXECUTOR)
+    ListenerExecutor catalogListenerExecutor(ListenerExecutionProperties properties, MeterRegistry meterRegistry) {
+        return ListenerExecutor.forModule("catalog", properties, meterRegistry);
+    }
+}
@@ -0,0 +1,430 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository.IdRange;
+import de.codecentric.spring_modulith_example.shared.WarmUp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Denormalized in-memory read model of all products in the catalog, from which the Catalog module's HTTP API answers
+ * reads without querying the database. Readers obtain the current snapshot of the read model with a single volatile
+ * read and query it without any locks, since published snapshots never change. Writers are serialized, copy the parts
+ * of the snapshot they change (copy-on-write), and publish a new snapshot.
+ * <br/>
+ * To keep the copies small, product IDs are split into chunks of {@value #CHUNK_SIZE} consecutive IDs. Every chunk
+ * holds a slot per ID with the product's {@link ProductView}, a bitset of the IDs of its products, and a bitset of the
+ * IDs of its out-of-stock products, i.e., of the products whose current quantity is below one. Changes copy the chunks
+ * they touch and the array of chunk references, but no other chunks. Since the database assigns IDs mostly
+ * consecutively, chunks are densely populated, and ranges of IDs without products take no chunks at all. Products can
+ * be listed in ascending order of their IDs starting at any ID or offset, with costs proportional to the number of
+ * chunks plus the number of listed products.
+ * <br/>
+ * The read model is loaded on startup in the background as {@link WarmUp} work. Product IDs are split into ranges of
+ * about the same number of products, which are loaded concurrently (see {@link CatalogReadModelProperties}). Until the
+ * read model got loaded, reads fall back to the database. Afterwards, the read model follows {@link ProductsChanged}
+ * events, i.e., the committed state of the database, including the quantities that {@link CatalogData#quantityChanged}
+ * writes through the {@link QuantityChangeCoalescer}. Changes that get committed while the read model is loaded are
+ * applied once the loading finished. The timer {@code catalog.read.model.staleness} tells how long after their commit
+ * changes became visible to readers.
+ */
+@Component
+public class CatalogReadModel implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogReadModel.class);
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int WORDS_PER_CHUNK = CHUNK_SIZE / Long.SIZE;
+    // Ranges of product IDs to load per thread, so that threads that loaded a range quickly take over other ranges
+    private static final int RANGES_PER_THREAD = 4;
+
+    private final ProductRepository productRepository;
+    private final CatalogReadModelProperties properties;
+    private final WarmUp warmUp;
+    private final Timer staleness;
+    private final Counter fallbacks;
+
+    // Current snapshot, or null until the read model got loaded
+    private volatile Snapshot snapshot;
+
+    // Serializes writers of the snapshot and guards pendingChanges
+    private final Object updateLock = new Object();
+    // Changes that got committed while the read model is loaded, or null if it isn't loaded at the moment
+    private List<ProductsChanged> pendingChanges;
+
+    // Serializes loads of the read model
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public CatalogReadModel(ProductRepository productRepository, CatalogReadModelProperties properties, WarmUp warmUp,
+        MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+        this.warmUp = warmUp;
+        staleness = Timer.builder("catalog.read.model.staleness")
+            .description("Time from the commit of product changes until they became visible in the read model")
+            .register(meterRegistry);
+        fallbacks = Counter.builder("catalog.read.model.fallbacks")
+            .description("Reads that were answered from the database because the read model wasn't loaded yet")
+            .register(meterRegistry);
+        Gauge.builder("catalog.read.model.products", this, readModel -> {
+                var currentSnapshot = readModel.snapshot;
+                return currentSnapshot != null ? currentSnapshot.productCount() : Double.NaN;
+            })
+            .description("Products in the read model")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load the read model in the background, so that the application doesn't wait for all products to start. The
+     * application only reports readiness once the read model got loaded, though.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        warmUp.runInBackground("catalog read model", () -> {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                LOGGER.error("Failed to load the catalog read model, reads keep falling back to the database", ex);
+            }
+        });
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Load the read model anew from the database and block until it got loaded. In the meantime, reads are answered
+     * from the previous snapshot, or from the database if there is none.
+     */
+    public void rebuild() {
+        loadLock.lock();
+        try {
+            synchronized (updateLock) {
+                pendingChanges = new ArrayList<>();
+            }
+            var start = System.nanoTime();
+            Snapshot loadedSnapshot = null;
+            try {
+                loadedSnapshot = load();
+            } finally {
+                synchronized (updateLock) {
+                    if (loadedSnapshot != null) {
+                        // Changes were only visible to readers before if there was a previous snapshot
+                        var firstVisible = snapshot == null;
+                        for (var event : pendingChanges) {
+                            loadedSnapshot = loadedSnapshot.with(toViews(event));
+                            if (firstVisible)
+                                recordStaleness(event);
+                        }
+                        snapshot = loadedSnapshot;
+                    }
+                    pendingChanges = null;
+                }
+            }
+            LOGGER.info("Loaded {} products into the catalog read model in {} ms", loadedSnapshot.productCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private Snapshot load() {
+        // Ranges of IDs are made of whole chunks, so that concurrently loaded ranges never share a chunk
+        var chunkRanges = productRepository.findIdRanges(CHUNK_SIZE);
+        var productCount = chunkRanges.stream().mapToLong(IdRange::getProductCount).sum();
+        var productsPerRange = Math.ceilDiv(productCount, (long) properties.loadParallelism() * RANGES_PER_THREAD);
+        var ranges = new ArrayList<IdBounds>();
+        IdBounds range = null;
+        var rangeProductCount = 0L;
+        for (var chunkRange : chunkRanges) {
+            if (range == null || rangeProductCount >= productsPerRange) {
+                range = new IdBounds(chunkRange.getMinId(), chunkRange.getMaxId());
+                ranges.add(range);
+                rangeProductCount = 0;
+            } else {
+                range = new IdBounds(range.fromId(), chunkRange.getMaxId());
+                ranges.set(ranges.size() - 1, range);
+            }
+            rangeProductCount += chunkRange.getProductCount();
+        }
+
+        try (var executor = Executors.newFixedThreadPool(properties.loadParallelism(),
+            Thread.ofPlatform().name("catalog-read-model-loader-", 0).daemon().factory())) {
+            var loads = ranges.stream()
+                .map(bounds -> CompletableFuture.supplyAsync(
+                    () -> productRepository.findViewsByIdBetween(bounds.fromId(), bounds.toId()), executor
+                ))
+                .toList();
+            var loadedSnapshot = Snapshot.EMPTY;
+            for (var load : loads)
+                loadedSnapshot = loadedSnapshot.with(load.join());
+            return loadedSnapshot;
+        }
+    }
+
+    @EventListener
+    // Runs before other listeners, e.g., before the ProductDetailCache reloads changed products from the read model
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    void productsChanged(ProductsChanged event) {
+        synchronized (updateLock) {
+            if (pendingChanges != null)
+                pendingChanges.add(event);
+            var currentSnapshot = snapshot;
+            if (currentSnapshot != null) {
+                snapshot = currentSnapshot.with(toViews(event));
+                recordStaleness(event);
+            }
+        }
+    }
+
+    private static List<ProductView> toViews(ProductsChanged event) {
+        return event.changedProducts().stream().map(ProductView::of).toList();
+    }
+
+    private void recordStaleness(ProductsChanged event) {
+        staleness.record(Duration.between(event.committedAt(), Instant.now()));
+    }
+
+    /**
+     * Get the IDs of the products on the given page, in ascending order.
+     */
+    public List<Long> productIds(Pageable pageable) {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            fallbacks.increment();
+            return productRepository.findIds(pageable);
+        }
+        return currentSnapshot.productIds(false, Long.MIN_VALUE, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /**
+     * Get at most {@code limit} IDs of products that are greater than {@code afterProductId}, in ascending order.
+     */
+    public List<Long> productIdsAfter(long afterProductId, int limit) {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            fallbacks.increment();
+            return productRepository.findIdsByIdGreaterThan(afterProductId, Limit.of(limit));
+        }
+        return currentSnapshot.productIds(false, afterProductId, 0, limit);
+    }
+
+    public Optional<ProductView> product(long productId) {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            fallbacks.increment();
+            return productRepository.findById(productId).map(ProductView::of);
+        }
+        return Optional.ofNullable(currentSnapshot.product(productId));
+    }
+
+    /**
+     * Get at most {@code limit} IDs of out-of-stock products that are greater than {@code afterProductId}, in
+     * ascending order.
+     */
+    public List<Long> outOfStockProductIds(long afterProductId, int limit) {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            fallbacks.increment();
+            return productRepository.findIdsByCurrentQuantityLessThan(1).stream()
+                .filter(productId -> productId > afterProductId)
+                .limit(limit)
+                .toList();
+        }
+        return currentSnapshot.productIds(true, afterProductId, 0, limit);
+    }
+
+    public int countOutOfStockProducts() {
+        var currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            fallbacks.increment();
+            return productRepository.findIdsByCurrentQuantityLessThan(1).size();
+        }
+        return currentSnapshot.outOfStockCount();
+    }
+
+    private record IdBounds(long fromId, long toId) {
+        // NOOP
+    }
+
+    /**
+     * Immutable state of the read model. The chunks are sorted by their indexes, i.e., by their first product IDs.
+     */
+    private record Snapshot(long[] chunkIndexes, Chunk[] chunks, int productCount, int outOfStockCount) {
+        static final Snapshot EMPTY = new Snapshot(new long[0], new Chunk[0], 0, 0);
+
+        ProductView product(long productId) {
+            var position = Arrays.binarySearch(chunkIndexes, Math.floorDiv(productId, CHUNK_SIZE));
+            return position >= 0 ? chunks[position].products[(int) Math.floorMod(productId, CHUNK_SIZE)] : null;
+        }
+
+        /**
+         * Get at most {@code limit} IDs of products, or of out-of-stock products only, that are greater than
+         * {@code afterProductId}, in ascending order and without the first {@code offset} of them.
+         */
+        List<Long> productIds(boolean outOfStockOnly, long afterProductId, long offset, int limit) {
+            var productIds = new ArrayList<Long>(Math.min(limit, 1024));
+            if (afterProductId == Long.MAX_VALUE || limit <= 0)
+                return productIds;
+
+            var firstProductId = afterProductId + 1;
+            var firstChunkIndex = Math.floorDiv(firstProductId, CHUNK_SIZE);
+            var position = Arrays.binarySearch(chunkIndexes, firstChunkIndex);
+            for (var c = position >= 0 ? position : -position - 1; c < chunks.length; c++) {
+                var chunk = chunks[c];
+                var firstBit = chunkIndexes[c] == firstChunkIndex ? (int) Math.floorMod(firstProductId, CHUNK_SIZE) : 0;
+                // Whole chunks and words are skipped by their counts
+                if (firstBit == 0 && offset >= chunk.count(outOfStockOnly)) {
+                    offset -= chunk.count(outOfStockOnly);
+                    continue;
+                }
+
+                var chunkStart = chunkIndexes[c] * CHUNK_SIZE;
+                var bits = chunk.bits(outOfStockOnly);
+                for (var w = firstBit / Long.SIZE; w < WORDS_PER_CHUNK; w++) {
+                    // Clear the bits of the first word that belong to IDs before the first requested ID
+                    var word = w == firstBit / Long.SIZE ? bits[w] & (-1L << firstBit) : bits[w];
+                    if (offset >= Long.bitCount(word)) {
+                        offset -= Long.bitCount(word);
+                        continue;
+                    }
+                    for (; word != 0; word &= word - 1) {
+                        if (offset > 0) {
+                            offset--;
+                            continue;
+                        }
+                        productIds.add(chunkStart + (long) w * Long.SIZE + Long.numberOfTrailingZeros(word));
+                        if (productIds.size() == limit)
+                            return productIds;
+                    }
+                }
+            }
+            return productIds;
+        }
+
+        /**
+         * Create a snapshot in which the given products are added or replaced. Only the chunks of the given products
+         * are copied.
+         */
+        Snapshot with(Collection<ProductView> products) {
+            if (products.isEmpty())
+                return this;
+
+            var changedChunks = new TreeMap<Long, Chunk>();
+            for (var product : products) {
+                var chunkIndex = Math.floorDiv(product.id(), CHUNK_SIZE);
+                var chunk = changedChunks.get(chunkIndex);
+                if (chunk == null) {
+                    var position = Arrays.binarySearch(chunkIndexes, chunkIndex);
+                    chunk = position >= 0 ? new Chunk(chunks[position]) : new Chunk();
+                    changedChunks.put(chunkIndex, chunk);
+                }
+                chunk.put((int) Math.floorMod(product.id(), CHUNK_SIZE), product);
+            }
+
+            // Merge the changed chunks into the sorted chunks, replacing the chunks they are copies of
+            var newChunkIndexes = new long[chunkIndexes.length + changedChunks.size()];
+            var newChunks = new Chunk[newChunkIndexes.length];
+            var newProductCount = productCount;
+            var newOutOfStockCount = outOfStockCount;
+            var c = 0;
+            var n = 0;
+            for (var changedChunk : changedChunks.entrySet()) {
+                var start = c;
+                while (c < chunkIndexes.length && chunkIndexes[c] < changedChunk.getKey())
+                    c++;
+                System.arraycopy(chunkIndexes, start, newChunkIndexes, n, c - start);
+                System.arraycopy(chunks, start, newChunks, n, c - start);
+                n += c - start;
+                if (c < chunkIndexes.length && chunkIndexes[c] == changedChunk.getKey()) {
+                    newProductCount -= chunks[c].productCount;
+                    newOutOfStockCount -= chunks[c].outOfStockCount;
+                    c++;
+                }
+                newChunkIndexes[n] = changedChunk.getKey();
+                newChunks[n] = changedChunk.getValue();
+                newProductCount += changedChunk.getValue().productCount;
+                newOutOfStockCount += changedChunk.getValue().outOfStockCount;
+                n++;
+            }
+            System.arraycopy(chunkIndexes, c, newChunkIndexes, n, chunkIndexes.length - c);
+            System.arraycopy(chunks, c, newChunks, n, chunks.length - c);
+            n += chunks.length - c;
+            return new Snapshot(Arrays.copyOf(newChunkIndexes, n), Arrays.copyOf(newChunks, n), newProductCount,
+                newOutOfStockCount);
+        }
+    }
+
+    /**
+     * Products of a chunk of consecutive IDs. Chunks are only changed while they are copies for a new snapshot, i.e.,
+     * before the snapshot got published.
+     */
+    private static final class Chunk {
+        private final ProductView[] products;
+        private final long[] productBits;
+        private final long[] outOfStockBits;
+        private int productCount;
+        private int outOfStockCount;
+
+        Chunk() {
+            products = new ProductView[CHUNK_SIZE];
+            productBits = new long[WORDS_PER_CHUNK];
+            outOfStockBits = new long[WORDS_PER_CHUNK];
+        }
+
+        Chunk(Chunk chunk) {
+            products = chunk.products.clone();
+            productBits = chunk.productBits.clone();
+            outOfStockBits = chunk.outOfStockBits.clone();
+            productCount = chunk.productCount;
+            outOfStockCount = chunk.outOfStockCount;
+        }
+
+        void put(int slot, ProductView product) {
+            var word = slot / Long.SIZE;
+            var mask = 1L << slot;
+            if ((productBits[word] & mask) == 0) {
+                productBits[word] |= mask;
+                productCount++;
+            }
+            var outOfStock = product.currentQuantity() < 1;
+            if (outOfStock != ((outOfStockBits[word] & mask) != 0)) {
+                outOfStockBits[word] ^= mask;
+                outOfStockCount += outOfStock ? 1 : -1;
+            }
+            products[slot] = product;
+        }
+
+        long[] bits(boolean outOfStockOnly) {
+            return outOfStockOnly ? outOfStockBits : productBits;
+        }
+
+        int count(boolean outOfStockOnly) {
+            return outOfStockOnly ? outOfStockCount : productCount;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the {@link CatalogReadModel}. On startup, the read model is loaded with up to
+ * {@code loadParallelism} concurrent queries, each of which takes a database connection from the pool.
+ */
+@ConfigurationProperties("catalog.read-model")
+public record CatalogReadModelProperties(
+    @DefaultValue("4") int loadParallelism
+) {
+    // NOOP
+}
@@ -0,0 +1,19 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Configuration of the {@link ExchangeRates}. {@code rates} maps the ISO codes of currencies, in which products may be
+ * priced, to the amount in the {@link de.codecentric.spring_modulith_example.shared.Defaults#DEFAULT_CURRENCY default
+ * currency} that one unit of the currency is worth. The default currency doesn't need a rate.
+ */
+@ConfigurationProperties("catalog.exchange-rates")
+public record ExchangeRateProperties(
+    @DefaultValue Map<String, BigDecimal> rates
+) {
+    // NOOP
+}
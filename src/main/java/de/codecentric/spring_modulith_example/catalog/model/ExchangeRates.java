@@ -0,0 +1,130 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
+
+/**
+ * Snapshot of the locally configured exchange rates (see {@link ExchangeRateProperties}) that converts prices to the
+ * {@link de.codecentric.spring_modulith_example.shared.Defaults#DEFAULT_CURRENCY default currency}. No exchange rate
+ * provider is queried at runtime, but administrators can replace the rates via the
+ * {@link de.codecentric.spring_modulith_example.catalog.controller.ExchangeRateApi}. Every {@link Product} keeps its price in the default currency as
+ * {@link Product#getNormalizedPrice() normalized price}, which is computed when the product is written (see
+ * {@link ProductPriceNormalizer}), so that prices in all currencies can be compared with each other without
+ * converting them in queries.
+ * <br/>
+ * The normalized prices of all products are recomputed in bulk whenever the rates change, and on startup in case the
+ * database was written with other rates. Once recomputed prices got committed, the new rates take effect and an
+ * {@link ExchangeRatesChanged} event is published. If the recomputation fails, the previous rates stay in effect.
+ * Products that are written concurrently to a change of the rates might keep a price that was normalized with the
+ * previous rates until the next change.
+ */
+@Component
+public class ExchangeRates implements SmartInitializingSingleton {
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private volatile Snapshot snapshot;
+
+    public ExchangeRates(ExchangeRateProperties properties, ProductRepository productRepository,
+        TransactionTemplate transactionTemplate, ApplicationEventPublisher applicationEventPublisher) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.applicationEventPublisher = applicationEventPublisher;
+        snapshot = Snapshot.of(properties.rates());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recomputeNormalizedPrices(snapshot);
+    }
+
+    /**
+     * Get the current rates, including the rate of the default currency, which is always one.
+     */
+    public Map<String, BigDecimal> rates() {
+        return snapshot.rates();
+    }
+
+    /**
+     * Replace the current rates with the given ones and recompute the normalized prices of all products.
+     */
+    public void update(Map<String, BigDecimal> rates) {
+        recomputeNormalizedPrices(Snapshot.of(rates));
+    }
+
+    private synchronized void recomputeNormalizedPrices(Snapshot newSnapshot) {
+        var changedProducts = transactionTemplate.execute(status -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshot = newSnapshot;
+                }
+            });
+            var changed = 0;
+            for (var factor : newSnapshot.factors().entrySet())
+                changed += productRepository.updateNormalizedPrices(factor.getKey(),
+                    BigDecimal.ONE.movePointRight(Price.fractionDigits(factor.getKey())), factor.getValue());
+            return changed + productRepository.clearNormalizedPrices(newSnapshot.factors().keySet());
+        });
+        if (changedProducts != null && changedProducts > 0)
+            applicationEventPublisher.publishEvent(new ExchangeRatesChanged(newSnapshot.rates()));
+    }
+
+    /**
+     * Convert the given price to minor units of the default currency, or return {@code null} if there's no rate for
+     * the price's currency. Results are rounded half up like the bulk recomputation in the database does.
+     */
+    public Long normalize(Price price) {
+        if (price.hasCurrency(DEFAULT_CURRENCY))
+            return price.minorUnits();
+        var factor = snapshot.factors().get(price.currencyCode());
+        if (factor == null)
+            return null;
+        return BigDecimal.valueOf(price.minorUnits()).multiply(factor).setScale(0, RoundingMode.HALF_UP)
+            .longValueExact();
+    }
+
+    /**
+     * Convert the given amount in the given currency exactly to the default currency. Currencies without rate are
+     * rejected with an {@link IllegalArgumentException}.
+     */
+    public BigDecimal toDefaultCurrency(BigDecimal amount, String currencyCode) {
+        var rate = snapshot.rates().get(currencyCode);
+        if (rate == null)
+            throw new IllegalArgumentException("No exchange rate for currency " + currencyCode);
+        return amount.multiply(rate);
+    }
+
+    /**
+     * Immutable set of rates together with the factors that convert minor units of each currency to minor units of
+     * the default currency, which differ from the rates for currencies with other numbers of fraction digits.
+     */
+    private record Snapshot(Map<String, BigDecimal> rates, Map<String, BigDecimal> factors) {
+        static Snapshot of(Map<String, BigDecimal> configuredRates) {
+            var rates = new HashMap<>(configuredRates);
+            rates.put(DEFAULT_CURRENCY.getCurrencyCode(), BigDecimal.ONE);
+            var defaultFractionDigits = Price.fractionDigits(DEFAULT_CURRENCY.getCurrencyCode());
+            var factors = new HashMap<String, BigDecimal>();
+            rates.forEach((currencyCode, rate) -> {
+                if (rate == null || rate.signum() <= 0)
+                    throw new IllegalArgumentException("Exchange rate of " + currencyCode + " must be positive");
+                factors.put(currencyCode, rate.movePointRight(defaultFractionDigits
+                    - Price.fractionDigits(currencyCode)));
+            });
+            return new Snapshot(Map.copyOf(rates), Map.copyOf(factors));
+        }
+    }
+}
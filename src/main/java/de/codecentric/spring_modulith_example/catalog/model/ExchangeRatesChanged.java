@@ -0,0 +1,15 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Catalog-internal event that informs about changed {@link ExchangeRates}. The event is published after the normalized
+ * prices of all products got recomputed with the new rates and committed. Like {@link ProductsChanged}, it's meant for
+ * Spring's plain {@link org.springframework.context.event.EventListener}s, e.g., of in-memory price indexes.
+ */
+public record ExchangeRatesChanged(Map<String, BigDecimal> rates) {
+    public ExchangeRatesChanged {
+        rates = Map.copyOf(rates);
+    }
+}
@@ -0,0 +1,91 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.javamoney.moneta.Money;
+
+import javax.money.CurrencyUnit;
+import javax.money.Monetary;
+import javax.money.MonetaryAmount;
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Compact fixed-point price of a {@link Product}, i.e., a whole number of minor units of the price's currency (e.g.,
+ * cents for EUR) together with the currency's ISO code. By contrast to {@link Money}, which is backed by a
+ * {@link BigDecimal} and carries a {@link javax.money.MonetaryContext}, a price is compared and rendered without
+ * allocating intermediate numbers. The Catalog module hence uses prices for comparisons and responses, and converts
+ * them to {@link Money} via {@link #toMoney()} only where calculations need it. How prices are stored is up to the
+ * {@link PriceType}.
+ * <br/>
+ * Prices are exact. Amounts with fractions of minor units can't be represented and are rejected with an
+ * {@link IllegalArgumentException}.
+ */
+public record Price(long minorUnits, String currencyCode) {
+    public Price {
+        Objects.requireNonNull(currencyCode, "Currency code must not be null");
+    }
+
+    public static Price of(MonetaryAmount amount) {
+        return of(amount.getNumber().numberValue(BigDecimal.class), amount.getCurrency());
+    }
+
+    public static Price of(Number amount, String currencyCode) {
+        return of(amount, Monetary.getCurrency(currencyCode));
+    }
+
+    public static Price of(Number amount, CurrencyUnit currency) {
+        var decimalAmount = amount instanceof BigDecimal decimal ? decimal : new BigDecimal(amount.toString());
+        var currencyCode = currency.getCurrencyCode();
+        try {
+            return new Price(decimalAmount.movePointRight(fractionDigits(currencyCode)).longValueExact(),
+                currencyCode);
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Price " + decimalAmount.toPlainString() + " " + currencyCode
+                + " is not a whole number of minor units", ex);
+        }
+    }
+
+    public boolean hasCurrency(CurrencyUnit currency) {
+        return currencyCode.equals(currency.getCurrencyCode());
+    }
+
+    public Money toMoney() {
+        return Money.of(BigDecimal.valueOf(minorUnits, fractionDigits(currencyCode)), currencyCode);
+    }
+
+    /**
+     * Render the price's amount without trailing zeros in its fraction and without exponent, like
+     * {@link BigDecimal#toPlainString()} does for {@link Money#getNumberStripped()}, e.g., {@code 49.5} for 4950 cents
+     * and {@code 120} for 12000 cents.
+     */
+    public String toPlainString() {
+        var fractionDigits = fractionDigits(currencyCode);
+        var digits = Long.toString(minorUnits);
+        var firstDigit = minorUnits < 0 ? 1 : 0;
+        // Position at which the fraction starts in digits. It lies before the first digit if the amount is less than
+        // one major unit.
+        var fractionStart = digits.length() - fractionDigits;
+        var fractionEnd = digits.length();
+        while (fractionEnd > Math.max(fractionStart, firstDigit) && digits.charAt(fractionEnd - 1) == '0')
+            fractionEnd--;
+
+        var plain = new StringBuilder(digits.length() + fractionDigits + 2);
+        plain.append(digits, 0, firstDigit);
+        if (fractionStart > firstDigit)
+            plain.append(digits, firstDigit, fractionStart);
+        else
+            plain.append('0');
+        if (fractionEnd > Math.max(fractionStart, firstDigit)) {
+            plain.append('.');
+            for (var i = fractionStart; i < firstDigit; i++)
+                plain.append('0');
+            plain.append(digits, Math.max(fractionStart, firstDigit), fractionEnd);
+        }
+        return plain.toString();
+    }
+
+    static int fractionDigits(String currencyCode) {
+        // Currencies without minor units, e.g., gold, report -1
+        return Math.max(0, Currency.getInstance(currencyCode).getDefaultFractionDigits());
+    }
+}
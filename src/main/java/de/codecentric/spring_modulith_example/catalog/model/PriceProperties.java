@@ -0,0 +1,19 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of how the {@link Price}s of {@link Product}s are stored by the {@link PriceType}. By default, prices
+ * are stored like Hypersistence's {@code MonetaryAmountType} stores {@code Money} amounts, i.e., as decimal amount and
+ * currency code. The compact storage keeps the whole number of minor units and the currency code instead.
+ */
+@ConfigurationProperties("catalog.prices")
+public record PriceProperties(
+    @DefaultValue("money") Storage storage
+) {
+    public enum Storage {
+        MONEY,
+        COMPACT
+    }
+}
@@ -0,0 +1,114 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import io.hypersistence.utils.hibernate.type.money.MonetaryAmountType;
+import org.hibernate.metamodel.spi.ValueAccess;
+import org.hibernate.usertype.CompositeUserType;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Hibernate mapping of {@link Product} {@link Price}s to their {@code amount}, {@code currency}, and
+ * {@code minorUnits} columns. With the default {@link PriceProperties.Storage#MONEY MONEY} storage, prices are written
+ * to the amount and currency columns via Hypersistence's {@link MonetaryAmountType}, i.e., exactly like products
+ * priced in {@code Money} were. With the {@link PriceProperties.Storage#COMPACT COMPACT} storage, prices are written
+ * to the minor units and currency columns instead, which spares the {@link BigDecimal}s and {@code Money}s of the
+ * former on every load.
+ * <br/>
+ * Prices are read from the minor units if they were stored compactly, and from the amount otherwise, so that products
+ * stay readable when the storage gets switched. Hibernate obtains the mapping from the Spring context.
+ */
+class PriceType implements CompositeUserType<Price> {
+    // Indexes of the columns, which Hibernate orders by the names of the embeddable's fields. Amount and currency come
+    // first, like they do for the MonetaryAmountType.
+    private static final int AMOUNT = 0;
+    private static final int CURRENCY = 1;
+    private static final int MINOR_UNITS = 2;
+
+    private final MonetaryAmountType monetaryAmountType = new MonetaryAmountType();
+    private final PriceProperties.Storage storage;
+
+    PriceType(PriceProperties properties) {
+        this.storage = properties.storage();
+    }
+
+    @Override
+    public Object getPropertyValue(Price component, int property) {
+        return switch (property) {
+            case AMOUNT -> storage == PriceProperties.Storage.MONEY
+                ? monetaryAmountType.getPropertyValue(component.toMoney(), AMOUNT)
+                : null;
+            case CURRENCY -> component.currencyCode();
+            case MINOR_UNITS -> storage == PriceProperties.Storage.COMPACT ? component.minorUnits() : null;
+            default -> throw new IllegalArgumentException("Unknown property " + property + " of prices");
+        };
+    }
+
+    @Override
+    public Price instantiate(ValueAccess values) {
+        var currencyCode = values.getValue(CURRENCY, String.class);
+        if (currencyCode == null)
+            return null;
+        var minorUnits = values.getValue(MINOR_UNITS, Long.class);
+        if (minorUnits != null)
+            return new Price(minorUnits, currencyCode);
+        return Price.of(monetaryAmountType.instantiate(values));
+    }
+
+    @Override
+    public Class<?> embeddable() {
+        return PriceColumns.class;
+    }
+
+    @Override
+    public Class<Price> returnedClass() {
+        return Price.class;
+    }
+
+    @Override
+    public boolean equals(Price x, Price y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Price x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Price deepCopy(Price value) {
+        // Prices are immutable
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Price value) {
+        return value != null ? new Serializable[]{value.minorUnits(), value.currencyCode()} : null;
+    }
+
+    @Override
+    public Price assemble(Serializable cached, Object owner) {
+        return cached instanceof Serializable[] values ? new Price((Long) values[0], (String) values[1]) : null;
+    }
+
+    @Override
+    public Price replace(Price detached, Price managed, Object owner) {
+        return detached;
+    }
+
+    /**
+     * Columns of a price. Either the amount or the minor units are set, depending on the storage the price was written
+     * with.
+     */
+    static class PriceColumns {
+        BigDecimal amount;
+        String currency;
+        Long minorUnits;
+    }
+}
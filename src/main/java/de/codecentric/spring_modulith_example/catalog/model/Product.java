@@ -1,21 +1,32 @@
 package de.codecentric.spring_modulith_example.catalog.model;
 
-import io.hypersistence.utils.hibernate.type.money.MonetaryAmountType;
 import jakarta.persistence.AttributeOverride;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import org.hibernate.annotations.CompositeType;
-import org.javamoney.moneta.Money;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "product_last_modified", columnList = "lastModified"))
+@EntityListeners(ProductPriceNormalizer.class)
 public class Product {
+    // IDs are allocated from a pooled sequence, so that bulk inserts by the ProductImporter only fetch the sequence's
+    // next value once per block of IDs
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id")
+    @SequenceGenerator(name = "product_id", sequenceName = "product_seq", allocationSize = 1000)
     private Long id;
 
     @NotNull
@@ -32,21 +43,35 @@ public class Product {
         name = "currency",
         column = @Column(name = "price_currency")
     )
-    @CompositeType(MonetaryAmountType.class)
+    @AttributeOverride(
+        name = "minorUnits",
+        column = @Column(name = "price_minor_units")
+    )
+    @CompositeType(PriceType.class)
     @NotNull
-    private Money price;
+    private Price price;
+
+    // Price in minor units of the default currency, or null if there's no exchange rate for the price's currency
+    private Long normalizedPrice;
 
     private Integer currentQuantity;
 
+    // Version of the Inventory module's stock that the current quantity was taken from, or null if the quantity didn't
+    // change since the product got created
+    private Long quantityVersion;
+
+    // Time of the last insert or update, by which the ProductExporter selects the products of incremental exports
+    private Instant lastModified;
+
     public Product() {
         // NOOP
     }
 
-    public Product(String name, String description, Money price, Integer currentQuantity) {
+    public Product(String name, String description, Price price, Integer currentQuantity) {
         this(null, name, description, price, currentQuantity);
     }
 
-    public Product(Long id, String name, String description, Money price, Integer currentQuantity) {
+    public Product(Long id, String name, String description, Price price, Integer currentQuantity) {
         this.id = id;
         this.name = name;
         this.description = description;
@@ -78,14 +103,25 @@ public class Product {
         this.description = description;
     }
 
-    public Money getPrice() {
+    public Price getPrice() {
         return price;
     }
 
-    public void setPrice(Money price) {
+    public void setPrice(Price price) {
         this.price = price;
     }
 
+    /**
+     * Get the price in minor units of the default currency as computed by the {@link ExchangeRates} when the product
+     * was written, or {@code null} if there's no exchange rate for the price's currency.
+     */
+    public Long getNormalizedPrice() {
+        return normalizedPrice;
+    }
+
+    void setNormalizedPrice(Long normalizedPrice) {
+        this.normalizedPrice = normalizedPrice;
+    }
 
     public Integer getCurrentQuantity() {
         return currentQuantity;
@@ -94,4 +130,23 @@ public class Product {
     public void setCurrentQuantity(Integer currentQuantity) {
         this.currentQuantity = currentQuantity;
     }
+
+    public Long getQuantityVersion() {
+        return quantityVersion;
+    }
+
+    public void setQuantityVersion(Long quantityVersion) {
+        this.quantityVersion = quantityVersion;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateLastModified() {
+        // Truncated to the precision of the column, so that the stored time doesn't differ from the product's one
+        lastModified = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
 }
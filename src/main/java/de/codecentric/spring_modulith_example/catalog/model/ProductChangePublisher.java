@@ -0,0 +1,40 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+/**
+ * Publishes {@link ProductsChanged} events once the transaction, in which the products got changed, committed. Outside
+ * of transactions, events are published immediately.
+ */
+@Component
+public class ProductChangePublisher {
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    public ProductChangePublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Take a snapshot of the given products' current state and publish it after commit.
+     */
+    public void publishAfterCommit(Collection<Product> products) {
+        if (products.isEmpty())
+            return;
+
+        var changedProducts = products.stream().map(ProductsChanged.ChangedProduct::of).toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applicationEventPublisher.publishEvent(new ProductsChanged(changedProducts));
+                }
+            });
+        else
+            applicationEventPublisher.publishEvent(new ProductsChanged(changedProducts));
+    }
+}
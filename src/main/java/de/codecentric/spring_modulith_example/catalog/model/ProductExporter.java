@@ -0,0 +1,49 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Exports products in bulk, e.g., to a search partner. By contrast to paging through the catalog, all products are
+ * read by a single query in one read-only transaction and handed to a consumer one by one while the query's cursor
+ * moves forward (see {@link ProductRepository#streamAll()}). Every product is detached from the persistence context
+ * right after it was consumed, so that the memory an export takes doesn't grow with the number of products.
+ * <br/>
+ * Incremental exports only comprise the products that were inserted or updated since a given time (see
+ * {@link Product#getLastModified()}). Since the export holds a database connection until the last product was
+ * consumed, consumers should write products to their destination right away.
+ */
+@Component
+public class ProductExporter {
+    private final EntityManager entityManager;
+    private final ProductRepository productRepository;
+
+    public ProductExporter(EntityManager entityManager, ProductRepository productRepository) {
+        this.entityManager = entityManager;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Export all products, or only the products changed since the given time if it isn't {@code null}, to the given
+     * consumer in the order of their IDs. Returns the number of exported products.
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(Instant changedSince, Consumer<Product> products) {
+        var exportedProducts = 0L;
+        try (var stream = changedSince != null
+            ? productRepository.streamByLastModifiedSince(changedSince)
+            : productRepository.streamAll()) {
+            for (var iterator = stream.iterator(); iterator.hasNext(); exportedProducts++) {
+                var product = iterator.next();
+                products.accept(product);
+                entityManager.detach(product);
+            }
+        }
+        return exportedProducts;
+    }
+}
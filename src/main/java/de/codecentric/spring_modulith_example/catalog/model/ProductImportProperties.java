@@ -0,0 +1,15 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the {@link ProductImporter}. Imported products are inserted and announced to the Inventory module in
+ * batches of {@code batchSize} products, each in a transaction of its own.
+ */
+@ConfigurationProperties("catalog.product-import")
+public record ProductImportProperties(
+    @DefaultValue("1000") int batchSize
+) {
+    // NOOP
+}
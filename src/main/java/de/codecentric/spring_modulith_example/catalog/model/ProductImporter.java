@@ -0,0 +1,120 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import de.codecentric.spring_modulith_example.catalog.external_events.InventoryProductsCreated;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import de.codecentric.spring_modulith_example.inventory.ProductsCreated.CreatedProduct;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.money.Monetary;
+import javax.money.MonetaryException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Imports products in bulk, e.g., from a supplier feed. By contrast to the creation of single products (see
+ * {@link CatalogData}), the products are inserted in batches of {@link ProductImportProperties#batchSize()} products,
+ * each in one transaction. Product IDs come from a pooled sequence and Hibernate sends the INSERTs to the database as
+ * JDBC batches. Per batch, a single {@link InventoryProductsCreated} event lets the Inventory module create the stocks
+ * of all products in bulk as well, and a single {@link ProductsChanged} event informs the Catalog module's indexes.
+ * <br/>
+ * Products are taken from an {@link Iterator}, so that callers can parse them incrementally, and only the products of
+ * the current batch are held in memory. Batches that were imported before a failure remain imported.
+ */
+@Component
+public class ProductImporter {
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ProductChangePublisher productChangePublisher;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductImportProperties properties;
+
+    public ProductImporter(ApplicationEventPublisher applicationEventPublisher,
+        ProductChangePublisher productChangePublisher, ProductRepository productRepository,
+        TransactionTemplate transactionTemplate, ProductImportProperties properties) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.productChangePublisher = productChangePublisher;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Import all given products and report every imported batch to the given consumer. Returns the total number of
+     * imported products.
+     */
+    public long importProducts(Iterator<ImportedProduct> products, Consumer<BatchReport> batchReports) {
+        var batch = new ArrayList<Product>(properties.batchSize());
+        var batchNumber = 0;
+        var importedProducts = 0L;
+        var batchStart = System.nanoTime();
+        while (products.hasNext()) {
+            batch.add(products.next().toProduct());
+            if (batch.size() == properties.batchSize() || !products.hasNext()) {
+                importBatch(batch);
+                importedProducts += batch.size();
+                var batchEnd = System.nanoTime();
+                batchReports.accept(new BatchReport(++batchNumber, batch.size(), importedProducts,
+                    Duration.ofNanos(batchEnd - batchStart)));
+                batch.clear();
+                batchStart = batchEnd;
+            }
+        }
+        return importedProducts;
+    }
+
+    private void importBatch(List<Product> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.saveAll(batch);
+            productChangePublisher.publishAfterCommit(batch);
+            applicationEventPublisher.publishEvent(new InventoryProductsCreated(batch.stream()
+                .map(product -> new CreatedProduct(product.getId(), product.getCurrentQuantity()))
+                .toList()));
+        });
+    }
+
+    /**
+     * A product to import with its initial quantity. Invalid products are rejected with an
+     * {@link IllegalArgumentException}.
+     */
+    public record ImportedProduct(String name, String description, BigDecimal priceAmount, String priceCurrency,
+        int quantity) {
+        public ImportedProduct {
+            if (name == null || name.isBlank())
+                throw new IllegalArgumentException("Product name is missing");
+            if (description == null)
+                throw new IllegalArgumentException("Product description is missing");
+            if (priceAmount == null || priceAmount.signum() < 0)
+                throw new IllegalArgumentException("Product price is missing or negative");
+            if (quantity < 0)
+                throw new IllegalArgumentException("Product quantity is negative");
+            if (priceCurrency == null)
+                throw new IllegalArgumentException("Product currency is missing");
+            try {
+                Monetary.getCurrency(priceCurrency);
+            } catch (MonetaryException ex) {
+                throw new IllegalArgumentException("Unknown currency " + priceCurrency, ex);
+            }
+            // Rejects prices with fractions of the currency's minor units
+            Price.of(priceAmount, priceCurrency);
+        }
+
+        private Product toProduct() {
+            return new Product(name, description, Price.of(priceAmount, priceCurrency), quantity);
+        }
+    }
+
+    /**
+     * Progress of an import after a batch got committed. The duration spans the parsing and the import of the batch.
+     */
+    public record BatchReport(int batchNumber, int batchSize, long importedProducts, Duration batchDuration) {
+        public double productsPerSecond() {
+            return batchSize / (batchDuration.toNanos() / 1e9);
+        }
+    }
+}
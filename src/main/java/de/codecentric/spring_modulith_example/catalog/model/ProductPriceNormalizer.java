@@ -0,0 +1,26 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * JPA entity listener that computes the {@link Product#getNormalizedPrice() normalized price} of every {@link Product}
+ * that gets inserted or updated with the current {@link ExchangeRates}. Hibernate obtains the listener from the Spring
+ * context.
+ */
+class ProductPriceNormalizer {
+    private final ExchangeRates exchangeRates;
+
+    // Hibernate creates the listener while the entity manager factory is built, on which the ExchangeRates depend via
+    // the ProductRepository. The lazy proxy defers their resolution until the first product gets written.
+    ProductPriceNormalizer(@Lazy ExchangeRates exchangeRates) {
+        this.exchangeRates = exchangeRates;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizePrice(Product product) {
+        product.setNormalizedPrice(product.getPrice() != null ? exchangeRates.normalize(product.getPrice()) : null);
+    }
+}
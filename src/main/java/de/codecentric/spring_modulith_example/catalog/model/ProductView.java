@@ -0,0 +1,17 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+/**
+ * Immutable copy of the fields of a {@link Product} that the {@link CatalogReadModel} holds, i.e., the fields that the
+ * Catalog module's HTTP API serves.
+ */
+public record ProductView(Long id, String name, String description, Price price, int currentQuantity) {
+    public static ProductView of(Product product) {
+        return new ProductView(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+            product.getCurrentQuantity());
+    }
+
+    static ProductView of(ProductsChanged.ChangedProduct changedProduct) {
+        return new ProductView(changedProduct.id(), changedProduct.name(), changedProduct.description(),
+            changedProduct.price(), changedProduct.currentQuantity());
+    }
+}
@@ -0,0 +1,33 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Catalog-internal event that informs about {@link Product}s that got created or changed. The event is published only
+ * after the changes got committed (see {@link ProductChangePublisher}) and carries an immutable copy of the products'
+ * state at that time. It thus allows in-memory structures like search indexes to follow the Catalog module's database
+ * without having to query it. The time of the commit tells how far such structures lag behind the database.
+ * <br/>
+ * By contrast to {@link de.codecentric.spring_modulith_example.inventory.QuantityChanged}, this event is not meant to
+ * be consumed by {@link org.springframework.modulith.events.ApplicationModuleListener}s and hence does not end up in
+ * Spring Modulith's event publication registry. Listeners should instead rely on Spring's plain
+ * {@link org.springframework.context.event.EventListener} annotation.
+ */
+public record ProductsChanged(List<ChangedProduct> changedProducts, Instant committedAt) {
+    public ProductsChanged {
+        changedProducts = List.copyOf(changedProducts);
+    }
+
+    public ProductsChanged(List<ChangedProduct> changedProducts) {
+        this(changedProducts, Instant.now());
+    }
+
+    public record ChangedProduct(Long id, String name, String description, Price price, Long normalizedPrice,
+        int currentQuantity) {
+        public static ChangedProduct of(Product product) {
+            return new ChangedProduct(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getNormalizedPrice(), product.getCurrentQuantity());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces the quantity changes that the Catalog module receives from the Inventory module before they are written to
+ * the database. Callers write their quantities themselves, unless another caller is writing already. In that case,
+ * their quantities stay pending until the write finished, and the next caller to get the turn writes all pending
+ * quantities with a single multi-row fetch and one batched flush. Only the latest quantity per product is kept while
+ * pending. Hence, an idle Catalog module writes every quantity right away, while under stock bursts, batches grow with
+ * the number of concurrent callers up to {@code maxBatchSize} (see {@link QuantityChangeCoalescingProperties}), and
+ * intermediate quantities that are already stale by the time they commit aren't written at all.
+ * <br/>
+ * Callers return once the quantity they submitted, or a later quantity of the same product that superseded it, got
+ * committed. That way, a module event is only completed after its effect is durable.
+ * <br/>
+ * Quantities are versioned by the Inventory module, and only quantities with a higher version than the product's
+ * current one are written. The last committed versions of the most recently written products are kept in a bounded
+ * cache, so that stale and duplicate quantities of these products, e.g., of events that were handled out of order or
+ * delivered again, are skipped without touching the database. Quantities of other products, e.g., after a restart or
+ * after their versions got evicted, are checked against the version stored with the product, which the flush fetches
+ * anyway.
+ */
+@Component
+public class QuantityChangeCoalescer {
+    private final ProductChangePublisher productChangePublisher;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final QuantityChangeCoalescingProperties properties;
+
+    private final Counter receivedChanges;
+    private final Counter coalescedChanges;
+    private final Counter skippedChanges;
+    private final DistributionSummary flushedBatchSizes;
+
+    // Guards pendingChanges
+    private final Object pendingChangesLock = new Object();
+    private Map<Long, PendingChange> pendingChanges = new HashMap<>();
+
+    // Serializes flushes so that batches get committed in the order in which they were taken from pendingChanges
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Last committed quantity version by product ID
+    private final Cache<Long, Long> committedVersions;
+
+    public QuantityChangeCoalescer(ProductChangePublisher productChangePublisher,
+        ProductRepository productRepository, TransactionTemplate transactionTemplate,
+        QuantityChangeCoalescingProperties properties, MeterRegistry meterRegistry) {
+        this.productChangePublisher = productChangePublisher;
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        committedVersions = Caffeine.newBuilder()
+            .maximumSize(properties.committedVersionsMaximumSize())
+            .build();
+        receivedChanges = Counter.builder("catalog.quantity.changes.received")
+            .description("Quantity changes received by the Catalog module")
+            .register(meterRegistry);
+        coalescedChanges = Counter.builder("catalog.quantity.changes.coalesced")
+            .description("Quantity changes that were superseded by a later change before being written")
+            .register(meterRegistry);
+        skippedChanges = Counter.builder("catalog.quantity.changes.skipped")
+            .description("Quantity changes that were skipped because a change with the same or a later version was "
+                + "already written or pending")
+            .register(meterRegistry);
+        flushedBatchSizes = DistributionSummary.builder("catalog.quantity.changes.flushed")
+            .description("Number of products whose quantities were written by one batched flush")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Submit the new quantity of a product with the given version and return once it, or a later quantity of the same
+     * product, got committed. Throws a {@link NoSuchElementException} if the product does not exist.
+     */
+    public void applyAndWait(Long productId, int newQuantity, long version) {
+        await(submit(productId, new VersionedQuantity(newQuantity, version)));
+    }
+
+    /**
+     * Submit the new quantities of several products and return once all of them got committed. Throws a
+     * {@link NoSuchElementException} if one of the products does not exist.
+     */
+    public void applyAndWait(Map<Long, VersionedQuantity> newQuantities) {
+        await(CompletableFuture.allOf(
+            newQuantities.entrySet().stream()
+                .map(newQuantity -> submit(newQuantity.getKey(), newQuantity.getValue()))
+                .toArray(CompletableFuture[]::new)
+        ));
+    }
+
+    private CompletableFuture<Void> submit(Long productId, VersionedQuantity newQuantity) {
+        receivedChanges.increment();
+        var committedVersion = committedVersions.getIfPresent(productId);
+        if (committedVersion != null && committedVersion >= newQuantity.version()) {
+            skippedChanges.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var completion = new CompletableFuture<Void>();
+        synchronized (pendingChangesLock) {
+            var pendingChange = pendingChanges.get(productId);
+            if (pendingChange != null && pendingChange.newQuantity().version() >= newQuantity.version()) {
+                skippedChanges.increment();
+                // The skipped quantity is done as soon as the pending one got committed
+                return pendingChange.completion();
+            }
+
+            var supersededChange = pendingChanges.put(productId, new PendingChange(newQuantity, completion));
+            if (supersededChange != null) {
+                coalescedChanges.increment();
+                // The superseded quantity is done as soon as the quantity that replaced it got committed
+                completion.whenComplete((result, ex) -> supersededChange.complete(ex));
+            }
+        }
+        return completion;
+    }
+
+    private void await(CompletableFuture<Void> completion) {
+        // Flushes complete every change they take, so that a change that's still incomplete once we have the turn is
+        // pending, or was superseded by a pending change, or didn't fit into the last batch
+        while (!completion.isDone()) {
+            flushLock.lock();
+            try {
+                if (!completion.isDone())
+                    flush(takeBatch());
+            } finally {
+                flushLock.unlock();
+            }
+        }
+
+        try {
+            completion.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw ex;
+        }
+    }
+
+    private Map<Long, PendingChange> takeBatch() {
+        synchronized (pendingChangesLock) {
+            if (pendingChanges.size() <= properties.maxBatchSize()) {
+                var batch = pendingChanges;
+                pendingChanges = new HashMap<>();
+                return batch;
+            }
+            var batch = new HashMap<Long, PendingChange>();
+            var iterator = pendingChanges.entrySet().iterator();
+            while (batch.size() < properties.maxBatchSize()) {
+                var pendingChange = iterator.next();
+                batch.put(pendingChange.getKey(), pendingChange.getValue());
+                iterator.remove();
+            }
+            return batch;
+        }
+    }
+
+    private void flush(Map<Long, PendingChange> batch) {
+        if (batch.isEmpty())
+            return;
+        flushedBatchSizes.record(batch.size());
+        try {
+            var versionsByProductId = transactionTemplate.execute(status -> {
+                var products = productRepository.findAllById(batch.keySet());
+                var changedProducts = new ArrayList<Product>(products.size());
+                for (var product : products) {
+                    var newQuantity = batch.get(product.getId()).newQuantity();
+                    // Products that already got the same or a later quantity keep it
+                    if (product.getQuantityVersion() != null && product.getQuantityVersion() >= newQuantity.version()) {
+                        skippedChanges.increment();
+                        continue;
+                    }
+                    product.setCurrentQuantity(newQuantity.quantity());
+                    product.setQuantityVersion(newQuantity.version());
+                    changedProducts.add(product);
+                }
+                productRepository.saveAll(changedProducts);
+                productChangePublisher.publishAfterCommit(changedProducts);
+                return products.stream().collect(Collectors.toMap(Product::getId, Product::getQuantityVersion));
+            });
+            versionsByProductId.forEach((productId, version) ->
+                committedVersions.asMap().merge(productId, version, Math::max)
+            );
+            batch.forEach((productId, pendingChange) -> pendingChange.complete(
+                versionsByProductId.containsKey(productId) ? null : new NoSuchElementException()
+            ));
+        } catch (RuntimeException ex) {
+            batch.values().forEach(pendingChange -> pendingChange.complete(ex));
+        }
+    }
+
+    /**
+     * Quantity of a product together with the version of the Inventory module's stock it was taken from.
+     */
+    public record VersionedQuantity(int quantity, long version) {
+        // NOOP
+    }
+
+    private record PendingChange(VersionedQuantity newQuantity, CompletableFuture<Void> completion) {
+        void complete(Throwable ex) {
+            if (ex == null)
+                completion.complete(null);
+            else
+                completion.completeExceptionally(ex);
+        }
+    }
+}
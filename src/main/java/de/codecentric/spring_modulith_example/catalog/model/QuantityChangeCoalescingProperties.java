@@ -0,0 +1,17 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the {@link QuantityChangeCoalescer}. A single flush writes the pending quantity changes of at most
+ * {@code maxBatchSize} products. The last committed quantity versions of at most {@code committedVersionsMaximumSize}
+ * products are kept in memory.
+ */
+@ConfigurationProperties("catalog.quantity-change-coalescing")
+public record QuantityChangeCoalescingProperties(
+    @DefaultValue("500") int maxBatchSize,
+    @DefaultValue("100000") long committedVersionsMaximumSize
+) {
+    // NOOP
+}
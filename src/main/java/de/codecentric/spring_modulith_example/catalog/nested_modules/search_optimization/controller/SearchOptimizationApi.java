@@ -1,12 +1,16 @@
 package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.controller;
 
-import de.codecentric.spring_modulith_example.catalog.model.Product;
-import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
-import org.javamoney.moneta.Money;
+import de.codecentric.spring_modulith_example.catalog.controller.CursorPage;
+import de.codecentric.spring_modulith_example.catalog.model.ExchangeRates;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductPriceIndex;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductPriceIndex.PricedProductId;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductTextIndex;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -14,33 +18,100 @@ import java.util.List;
 import static de.codecentric.spring_modulith_example.catalog.controller.ProductApi.CATALOG_PAGE_SIZE;
 import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
 
+/**
+ * Search endpoints that are answered from the in-memory indexes of the Search Optimization module. Prices can be given
+ * in any currency with an exchange rate (see {@link ExchangeRates}) and default to the default currency. They are
+ * converted to the default currency and compared with the products' normalized prices.
+ */
 @RestController
 public class SearchOptimizationApi {
-    private final ProductRepository productRepository;
+    private final ExchangeRates exchangeRates;
+    private final ProductPriceIndex productPriceIndex;
+    private final ProductTextIndex productTextIndex;
 
-    public SearchOptimizationApi(ProductRepository productRepository) {
-        this.productRepository = productRepository;
+    public SearchOptimizationApi(ExchangeRates exchangeRates, ProductPriceIndex productPriceIndex,
+        ProductTextIndex productTextIndex) {
+        this.exchangeRates = exchangeRates;
+        this.productPriceIndex = productPriceIndex;
+        this.productTextIndex = productTextIndex;
     }
 
     @GetMapping("catalog/search/by/nameAndDescription")
     public List<Long> searchProductsByNameAndDescription(@RequestParam String name, @RequestParam String description,
         @RequestParam int pageNumber) {
-        return productRepository
-            .searchByNameOrDescriptionLikeIgnoreCase(
-                "%" + name + "%",
-                "%" + description + "%",
-                PageRequest.of(pageNumber, CATALOG_PAGE_SIZE)
-            )
-            .stream().map(Product::getId)
-            .toList();
+        // Answered from the in-memory trigram index instead of a leading-wildcard LIKE query, which can't use database
+        // indexes and would scan the whole product table
+        var page = PageRequest.of(pageNumber, CATALOG_PAGE_SIZE);
+        return productTextIndex.search(name, description, page.getOffset(), page.getPageSize());
     }
 
     @GetMapping("catalog/search/by/maxPrice")
-    public List<Long> searchProductsByMaxPrice(@RequestParam String price, @RequestParam int pageNumber) {
-        var maxPrice = Money.of(new BigDecimal(price), DEFAULT_CURRENCY);
-        return productRepository
-            .findByPriceLessThanEqual(maxPrice, PageRequest.of(pageNumber, CATALOG_PAGE_SIZE))
-            .stream().map(Product::getId)
-            .toList();
+    public List<Long> searchProductsByMaxPrice(@RequestParam String price,
+        @RequestParam(required = false) String currency, @RequestParam int pageNumber) {
+        // Answered from the in-memory price index, which compares primitive minor units of normalized prices instead
+        // of creating Money instances and converting prices of other currencies in the database
+        var page = PageRequest.of(pageNumber, CATALOG_PAGE_SIZE);
+        return productPriceIndex.searchByMaxPrice(toDefaultCurrency(price, currency), page.getOffset(),
+            page.getPageSize());
+    }
+
+    @GetMapping("catalog/search/by/priceRange")
+    public List<Long> searchProductsByPriceRange(@RequestParam String minPrice, @RequestParam String maxPrice,
+        @RequestParam(required = false) String currency, @RequestParam int pageNumber) {
+        var page = PageRequest.of(pageNumber, CATALOG_PAGE_SIZE);
+        return productPriceIndex.searchByPriceRange(toDefaultCurrency(minPrice, currency),
+            toDefaultCurrency(maxPrice, currency), page.getOffset(), page.getPageSize());
+    }
+
+    // The following endpoints are keyset-paginated variants of the above endpoints. They return CursorPages whose
+    // cursors point behind the last match of the page so that subsequent pages don't need to skip preceding matches.
+
+    @GetMapping("catalog/search/by/nameAndDescription/scroll")
+    public CursorPage scrollProductsByNameAndDescription(@RequestParam String name, @RequestParam String description,
+        @RequestParam(required = false) String after) {
+        var afterProductId = after != null ? CursorPage.decodeCursor(after, 1)[0] : Long.MIN_VALUE;
+        var productIds = productTextIndex.searchAfter(name, description, afterProductId, CATALOG_PAGE_SIZE + 1);
+        return CursorPage.of(productIds, CATALOG_PAGE_SIZE, id -> id, id -> new long[] {id});
+    }
+
+    @GetMapping("catalog/search/by/maxPrice/scroll")
+    public CursorPage scrollProductsByMaxPrice(@RequestParam String price,
+        @RequestParam(required = false) String currency, @RequestParam(required = false) String after) {
+        var matches = productPriceIndex.searchByMaxPriceAfter(toDefaultCurrency(price, currency),
+            decodePriceCursor(after), CATALOG_PAGE_SIZE + 1);
+        return toPriceCursorPage(matches);
+    }
+
+    @GetMapping("catalog/search/by/priceRange/scroll")
+    public CursorPage scrollProductsByPriceRange(@RequestParam String minPrice, @RequestParam String maxPrice,
+        @RequestParam(required = false) String currency, @RequestParam(required = false) String after) {
+        var matches = productPriceIndex.searchByPriceRangeAfter(toDefaultCurrency(minPrice, currency),
+            toDefaultCurrency(maxPrice, currency), decodePriceCursor(after), CATALOG_PAGE_SIZE + 1);
+        return toPriceCursorPage(matches);
+    }
+
+    /**
+     * Convert the given query price to the default currency. Malformed prices and currencies without exchange rate
+     * are rejected with {@code 400 Bad Request}.
+     */
+    private BigDecimal toDefaultCurrency(String price, String currency) {
+        try {
+            return exchangeRates.toDefaultCurrency(new BigDecimal(price),
+                currency != null ? currency : DEFAULT_CURRENCY.getCurrencyCode());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    private static PricedProductId decodePriceCursor(String cursor) {
+        if (cursor == null)
+            return null;
+        var keys = CursorPage.decodeCursor(cursor, 2);
+        return new PricedProductId(keys[0], keys[1]);
+    }
+
+    private static CursorPage toPriceCursorPage(List<PricedProductId> matches) {
+        return CursorPage.of(matches, CATALOG_PAGE_SIZE, PricedProductId::productId,
+            match -> new long[] {match.priceInMinorUnits(), match.productId()});
     }
 }
@@ -0,0 +1,238 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index;
+
+import de.codecentric.spring_modulith_example.catalog.model.ExchangeRates;
+import de.codecentric.spring_modulith_example.catalog.model.ExchangeRatesChanged;
+import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.model.ProductsChanged;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
+
+/**
+ * In-memory index over the prices of all products in the catalog. The index stores the products'
+ * {@link Product#getNormalizedPrice() normalized prices}, i.e., their prices in minor units of the
+ * {@link de.codecentric.spring_modulith_example.shared.Defaults#DEFAULT_CURRENCY default currency} (e.g., cents for
+ * EUR), as primitive longs and keeps them sorted, so that price queries boil down to two binary searches and the
+ * slicing of the matching range. Products are hence returned in ascending order of their prices, and products with the
+ * same price in ascending order of their IDs. Query prices in other currencies than the default currency need to be
+ * converted with the {@link ExchangeRates} before.
+ * <br/>
+ * Products priced in currencies without exchange rate have no normalized price and are hence not indexed.
+ * <br/>
+ * The index is built from the database on startup and afterwards maintained incrementally from
+ * {@link ProductsChanged} events. Changed exchange rates, which change the normalized prices of many products at once,
+ * let the index be rebuilt. Searches continue on the previous index while a rebuild reads the database. Products that
+ * change in the meantime are indexed once more after the read prices, since the read might predate their changes.
+ */
+@Component
+public class ProductPriceIndex implements SmartInitializingSingleton {
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // All of the following fields are guarded by lock. The lists contain the same (price, product ID) pairs, sorted by
+    // price in the first case to answer queries and sorted by product ID in the second case to find the indexed prices
+    // of changed products. The changed products are only recorded while a rebuild is in progress and null otherwise.
+    private final SortedLongPairList productIdsByPrice = new SortedLongPairList();
+    private final SortedLongPairList pricesByProductId = new SortedLongPairList();
+    private List<ProductsChanged.ChangedProduct> changedProductsDuringRebuild;
+
+    public ProductPriceIndex(ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Build the index before the application starts to accept requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Discard the index and build it anew from all products in the database. Concurrent rebuilds are serialized. If
+     * reading the products fails, the previous index is kept.
+     */
+    public synchronized void rebuild() {
+        recordChangedProducts(new ArrayList<>());
+        // The products are read in ascending order of their IDs, which makes every insertion into pricesByProductId an
+        // append
+        var readPricesByProductId = new SortedLongPairList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (var products = productRepository.streamNormalizedPrices()) {
+                    products.forEach(product ->
+                        readPricesByProductId.add(product.getId(), product.getNormalizedPrice())
+                    );
+                }
+            });
+        } catch (RuntimeException ex) {
+            recordChangedProducts(null);
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            productIdsByPrice.clear();
+            pricesByProductId.clear();
+            for (var i = 0; i < readPricesByProductId.size(); i++)
+                index(readPricesByProductId.key(i), readPricesByProductId.value(i));
+            for (var changedProduct : changedProductsDuringRebuild)
+                index(changedProduct.id(), changedProduct.normalizedPrice());
+            changedProductsDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recordChangedProducts(List<ProductsChanged.ChangedProduct> changedProducts) {
+        lock.writeLock().lock();
+        try {
+            changedProductsDuringRebuild = changedProducts;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    void productsChanged(ProductsChanged event) {
+        lock.writeLock().lock();
+        try {
+            for (var changedProduct : event.changedProducts()) {
+                index(changedProduct.id(), changedProduct.normalizedPrice());
+                if (changedProductsDuringRebuild != null)
+                    changedProductsDuringRebuild.add(changedProduct);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    void exchangeRatesChanged(ExchangeRatesChanged event) {
+        rebuild();
+    }
+
+    private void index(long productId, Long normalizedPrice) {
+        var position = pricesByProductId.lowerBound(productId);
+        var isIndexed = position < pricesByProductId.size() && pricesByProductId.key(position) == productId;
+        var indexable = normalizedPrice != null;
+        var minorUnits = indexable ? normalizedPrice : 0;
+        if (isIndexed) {
+            var indexedMinorUnits = pricesByProductId.value(position);
+            if (indexable && indexedMinorUnits == minorUnits)
+                return;
+            productIdsByPrice.remove(indexedMinorUnits, productId);
+            pricesByProductId.remove(productId, indexedMinorUnits);
+        }
+
+        if (indexable) {
+            productIdsByPrice.add(minorUnits, productId);
+            pricesByProductId.add(productId, minorUnits);
+        }
+    }
+
+    /**
+     * Get the IDs of the products with a price less than or equal to the given price in the default currency. At most
+     * {@code limit} of them are returned starting at the given offset.
+     */
+    public List<Long> searchByMaxPrice(BigDecimal maxPrice, long offset, int limit) {
+        return search(Long.MIN_VALUE, toMinorUnits(maxPrice, RoundingMode.FLOOR), offset, limit);
+    }
+
+    /**
+     * Get the IDs of the products with a price between the given prices (inclusive) in the default currency. At most
+     * {@code limit} of them are returned starting at the given offset.
+     */
+    public List<Long> searchByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, long offset, int limit) {
+        return search(toMinorUnits(minPrice, RoundingMode.CEILING), toMinorUnits(maxPrice, RoundingMode.FLOOR), offset,
+            limit);
+    }
+
+    /**
+     * Keyset variant of {@link #searchByMaxPrice(BigDecimal, long, int)} that returns at most {@code limit} matches
+     * behind the given match, or from the first match if {@code after} is {@code null}.
+     */
+    public List<PricedProductId> searchByMaxPriceAfter(BigDecimal maxPrice, PricedProductId after, int limit) {
+        return searchAfter(Long.MIN_VALUE, toMinorUnits(maxPrice, RoundingMode.FLOOR), after, limit);
+    }
+
+    /**
+     * Keyset variant of {@link #searchByPriceRange(BigDecimal, BigDecimal, long, int)} that returns at most
+     * {@code limit} matches behind the given match, or from the first match if {@code after} is {@code null}.
+     */
+    public List<PricedProductId> searchByPriceRangeAfter(BigDecimal minPrice, BigDecimal maxPrice,
+        PricedProductId after, int limit) {
+        return searchAfter(toMinorUnits(minPrice, RoundingMode.CEILING), toMinorUnits(maxPrice, RoundingMode.FLOOR),
+            after, limit);
+    }
+
+    private List<PricedProductId> searchAfter(long minMinorUnits, long maxMinorUnits, PricedProductId after,
+        int limit) {
+        if (minMinorUnits > maxMinorUnits)
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            var from = productIdsByPrice.lowerBound(minMinorUnits);
+            if (after != null)
+                from = Math.max(from, productIdsByPrice.positionAfter(after.priceInMinorUnits(), after.productId()));
+            var to = productIdsByPrice.upperBound(maxMinorUnits);
+            if (to - from > limit)
+                to = from + limit;
+            var matches = new ArrayList<PricedProductId>(Math.max(0, to - from));
+            for (var i = from; i < to; i++)
+                matches.add(new PricedProductId(productIdsByPrice.key(i), productIdsByPrice.value(i)));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> search(long minMinorUnits, long maxMinorUnits, long offset, int limit) {
+        if (minMinorUnits > maxMinorUnits)
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            var from = productIdsByPrice.lowerBound(minMinorUnits);
+            var to = productIdsByPrice.upperBound(maxMinorUnits);
+            return productIdsByPrice.values(from, to, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Convert the given amount in the default currency to minor units. Amounts beyond the range of longs are clamped,
+     * which keeps query bounds meaningful.
+     */
+    private static long toMinorUnits(BigDecimal amount, RoundingMode roundingMode) {
+        var minorUnits = amount.movePointRight(DEFAULT_CURRENCY.getDefaultFractionDigits())
+            .setScale(0, roundingMode);
+        if (minorUnits.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0)
+            return Long.MAX_VALUE;
+        else if (minorUnits.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0)
+            return Long.MIN_VALUE;
+        return minorUnits.longValue();
+    }
+
+    /**
+     * Position of a product in the index's sort order, which serves as key for keyset pagination.
+     */
+    public record PricedProductId(long priceInMinorUnits, long productId) {
+        // NOOP
+    }
+}
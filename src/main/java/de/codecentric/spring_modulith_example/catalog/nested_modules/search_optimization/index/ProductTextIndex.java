@@ -0,0 +1,248 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index;
+
+import de.codecentric.spring_modulith_example.catalog.model.ProductsChanged;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory inverted trigram index over the names and descriptions of all products in the catalog. The index answers
+ * case-insensitive substring queries, i.e., the same queries as SQL's {@code LIKE '%...%'}, without scanning all
+ * products. To this end, it maps every trigram (sequence of three characters) that occurs in a product's name or
+ * description to the sorted IDs of the products with that trigram. A query's candidates are the products that have all
+ * of the query's trigrams, and only these candidates need to be checked for actually containing the query.
+ * <br/>
+ * The index is built from the database on startup and afterwards maintained incrementally from
+ * {@link ProductsChanged} events.
+ */
+@Component
+public class ProductTextIndex implements SmartInitializingSingleton {
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // All of the following fields are guarded by lock
+    private final Map<Long, IndexedText> indexedTexts = new HashMap<>();
+    private final SortedLongList productIds = new SortedLongList();
+    private final Map<Long, SortedLongList> productIdsByNameTrigram = new HashMap<>();
+    private final Map<Long, SortedLongList> productIdsByDescriptionTrigram = new HashMap<>();
+
+    public ProductTextIndex(ProductRepository productRepository, TransactionTemplate transactionTemplate) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Build the index before the application starts to accept requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Discard the index and build it anew from all products in the database. The products' texts are streamed from the
+     * database while the write lock is held, so that no change of a product gets lost between reading and indexing it.
+     * Queries wait for the rebuild, which only happens on startup, before requests are accepted.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            indexedTexts.clear();
+            productIds.clear();
+            productIdsByNameTrigram.clear();
+            productIdsByDescriptionTrigram.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (var texts = productRepository.streamTexts()) {
+                    texts.forEach(text -> index(text.getId(), text.getName(), text.getDescription()));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    void productsChanged(ProductsChanged event) {
+        lock.writeLock().lock();
+        try {
+            for (var changedProduct : event.changedProducts())
+                index(changedProduct.id(), changedProduct.name(), changedProduct.description());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long productId, String name, String description) {
+        var text = new IndexedText(normalize(name), normalize(description));
+        var previousText = indexedTexts.put(productId, text);
+        if (text.equals(previousText))
+            return;
+
+        if (previousText != null) {
+            removePostings(productId, previousText.name(), productIdsByNameTrigram);
+            removePostings(productId, previousText.description(), productIdsByDescriptionTrigram);
+        }
+        productIds.add(productId);
+        addPostings(productId, text.name(), productIdsByNameTrigram);
+        addPostings(productId, text.description(), productIdsByDescriptionTrigram);
+    }
+
+    private static void addPostings(long productId, String text, Map<Long, SortedLongList> productIdsByTrigram) {
+        for (var trigram : distinctTrigrams(text))
+            productIdsByTrigram.computeIfAbsent(trigram, t -> new SortedLongList()).add(productId);
+    }
+
+    private static void removePostings(long productId, String text, Map<Long, SortedLongList> productIdsByTrigram) {
+        for (var trigram : distinctTrigrams(text)) {
+            var postings = productIdsByTrigram.get(trigram);
+            if (postings != null && postings.remove(productId) && postings.isEmpty())
+                productIdsByTrigram.remove(trigram);
+        }
+    }
+
+    /**
+     * Get the IDs of the products whose name contains {@code name} or whose description contains {@code description},
+     * ignoring case. Like SQL's {@code LIKE '%%'}, an empty query matches all products. Matches are sorted by product
+     * ID, and at most {@code limit} of them are returned starting at the given offset.
+     */
+    public List<Long> search(String name, String description, long offset, int limit) {
+        // Only the matches up to the end of the requested slice need to be determined
+        var matches = matches(name, description, Long.MIN_VALUE, (int) Math.min(Integer.MAX_VALUE, offset + limit));
+        return SortedLongList.slice(matches, matches.length, offset, limit);
+    }
+
+    /**
+     * Keyset variant of {@link #search(String, String, long, int)} that returns at most {@code limit} matches with a
+     * product ID greater than {@code afterProductId}. By contrast to an offset, the product ID allows to seek directly
+     * to the first requested match instead of determining and skipping all preceding matches.
+     */
+    public List<Long> searchAfter(String name, String description, long afterProductId, int limit) {
+        var matches = matches(name, description, afterProductId, limit);
+        return SortedLongList.slice(matches, matches.length, 0, limit);
+    }
+
+    private long[] matches(String name, String description, long afterProductId, int limit) {
+        var nameQuery = normalize(name);
+        var descriptionQuery = normalize(description);
+        lock.readLock().lock();
+        try {
+            if (nameQuery.isEmpty() || descriptionQuery.isEmpty())
+                // Every product contains the empty query, so this boils down to a slice of all product IDs
+                return matching("", productIdsByNameTrigram, IndexedText::name, afterProductId, limit);
+
+            var matches = union(
+                matching(nameQuery, productIdsByNameTrigram, IndexedText::name, afterProductId, limit),
+                matching(descriptionQuery, productIdsByDescriptionTrigram, IndexedText::description, afterProductId,
+                    limit)
+            );
+            return matches.length > limit ? Arrays.copyOf(matches, limit) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get at most {@code limit} IDs of products with an ID greater than {@code afterProductId} whose field contains
+     * the given query. The candidates are the products with the query's rarest trigram, which are checked in ascending
+     * order of their IDs for also having the query's other trigrams and for actually containing the query.
+     */
+    private long[] matching(String query, Map<Long, SortedLongList> productIdsByTrigram,
+        Function<IndexedText, String> indexedField, long afterProductId, int limit) {
+        SortedLongList candidates;
+        List<SortedLongList> otherPostings;
+        if (query.length() < TRIGRAM_LENGTH) {
+            // Queries without trigrams can't be narrowed down by the index and need to check all products
+            candidates = productIds;
+            otherPostings = List.of();
+        } else {
+            var postings = new ArrayList<SortedLongList>();
+            for (var trigram : distinctTrigrams(query)) {
+                var trigramPostings = productIdsByTrigram.get(trigram);
+                if (trigramPostings == null)
+                    return new long[0];
+                postings.add(trigramPostings);
+            }
+            postings.sort(Comparator.comparingInt(SortedLongList::size));
+            candidates = postings.getFirst();
+            otherPostings = postings.subList(1, postings.size());
+        }
+
+        var start = candidates.positionAfter(afterProductId);
+        var matches = new long[Math.min(limit, candidates.size() - start)];
+        var matchCount = 0;
+        for (var i = start; i < candidates.size() && matchCount < matches.length; i++) {
+            var candidate = candidates.get(i);
+            if (containedInAll(otherPostings, candidate)
+                && indexedField.apply(indexedTexts.get(candidate)).contains(query))
+                matches[matchCount++] = candidate;
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+
+    private static boolean containedInAll(List<SortedLongList> postings, long productId) {
+        for (var trigramPostings : postings)
+            if (!trigramPostings.contains(productId))
+                return false;
+        return true;
+    }
+
+    private static long[] union(long[] sorted1, long[] sorted2) {
+        var union = new long[sorted1.length + sorted2.length];
+        int i = 0, j = 0, size = 0;
+        while (i < sorted1.length && j < sorted2.length) {
+            if (sorted1[i] < sorted2[j])
+                union[size++] = sorted1[i++];
+            else if (sorted1[i] > sorted2[j])
+                union[size++] = sorted2[j++];
+            else {
+                union[size++] = sorted1[i++];
+                j++;
+            }
+        }
+        while (i < sorted1.length)
+            union[size++] = sorted1[i++];
+        while (j < sorted2.length)
+            union[size++] = sorted2[j++];
+        return Arrays.copyOf(union, size);
+    }
+
+    private static long[] distinctTrigrams(String text) {
+        if (text.length() < TRIGRAM_LENGTH)
+            return new long[0];
+
+        var trigrams = new long[text.length() - TRIGRAM_LENGTH + 1];
+        for (var i = 0; i < trigrams.length; i++)
+            trigrams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        Arrays.sort(trigrams);
+
+        var distinctCount = 1;
+        for (var i = 1; i < trigrams.length; i++)
+            if (trigrams[i] != trigrams[distinctCount - 1])
+                trigrams[distinctCount++] = trigrams[i];
+        return Arrays.copyOf(trigrams, distinctCount);
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private record IndexedText(String name, String description) {
+        // NOOP
+    }
+}
@@ -0,0 +1,89 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable, duplicate-free list of primitive longs kept in ascending order. Appending values that are larger than all
+ * contained values, which is the common case for database-generated product IDs, takes amortized constant time. Other
+ * insertions and removals shift the values behind the affected position. This class is not thread-safe.
+ */
+final class SortedLongList {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values = EMPTY;
+    private int size;
+
+    /**
+     * Add the given value unless it is already contained. Returns whether the list changed.
+     */
+    boolean add(long value) {
+        var insertionPoint = size;
+        if (size > 0 && value <= values[size - 1]) {
+            var index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0)
+                return false;
+            insertionPoint = -index - 1;
+        }
+
+        if (size == values.length)
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        System.arraycopy(values, insertionPoint, values, insertionPoint + 1, size - insertionPoint);
+        values[insertionPoint] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove the given value if it is contained. Returns whether the list changed.
+     */
+    boolean remove(long value) {
+        var index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0)
+            return false;
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    void clear() {
+        values = EMPTY;
+        size = 0;
+    }
+
+    boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Get the position of the first value that is greater than the given value, or {@link #size()} if there is no such
+     * value.
+     */
+    int positionAfter(long value) {
+        var index = Arrays.binarySearch(values, 0, size, value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Get at most {@code limit} values of the first {@code size} values of the given array, starting at the given
+     * offset.
+     */
+    static List<Long> slice(long[] values, int size, long offset, int limit) {
+        if (offset >= size)
+            return List.of();
+        var from = (int) offset;
+        return Arrays.stream(values, from, from + Math.min(size - from, limit)).boxed().toList();
+    }
+}
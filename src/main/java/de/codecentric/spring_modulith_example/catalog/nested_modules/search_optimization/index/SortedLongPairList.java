@@ -0,0 +1,142 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable, duplicate-free list of pairs of primitive longs kept in ascending order by key and then by value. Keys and
+ * values are stored in two parallel arrays, i.e., without an object per pair. Like for {@link SortedLongList},
+ * appending pairs that are larger than all contained pairs takes amortized constant time, while other insertions and
+ * removals shift the pairs behind the affected position. This class is not thread-safe.
+ */
+final class SortedLongPairList {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] keys = EMPTY;
+    private long[] values = EMPTY;
+    private int size;
+
+    /**
+     * Add the given pair unless it is already contained. Returns whether the list changed.
+     */
+    boolean add(long key, long value) {
+        var insertionPoint = size;
+        if (size > 0 && compare(key, value, size - 1) <= 0) {
+            var index = indexOf(key, value);
+            if (index >= 0)
+                return false;
+            insertionPoint = -index - 1;
+        }
+
+        if (size == keys.length) {
+            var capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(keys, insertionPoint, keys, insertionPoint + 1, size - insertionPoint);
+        System.arraycopy(values, insertionPoint, values, insertionPoint + 1, size - insertionPoint);
+        keys[insertionPoint] = key;
+        values[insertionPoint] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove the given pair if it is contained. Returns whether the list changed.
+     */
+    boolean remove(long key, long value) {
+        var index = indexOf(key, value);
+        if (index < 0)
+            return false;
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    void clear() {
+        keys = EMPTY;
+        values = EMPTY;
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long key(int index) {
+        return keys[index];
+    }
+
+    long value(int index) {
+        return values[index];
+    }
+
+    /**
+     * Get the position of the first pair whose key is greater than or equal to the given key, or {@link #size()} if
+     * there is no such pair.
+     */
+    int lowerBound(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (keys[middle] < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Get the position of the first pair whose key is greater than the given key, or {@link #size()} if there is no
+     * such pair.
+     */
+    int upperBound(long key) {
+        return key == Long.MAX_VALUE ? size : lowerBound(key + 1);
+    }
+
+    /**
+     * Get the position of the first pair that is greater than the given pair, or {@link #size()} if there is no such
+     * pair.
+     */
+    int positionAfter(long key, long value) {
+        var index = indexOf(key, value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Get at most {@code limit} values of the pairs between the positions {@code from} (inclusive) and {@code to}
+     * (exclusive), skipping the given number of pairs.
+     */
+    List<Long> values(int from, int to, long offset, int limit) {
+        if (offset >= to - from)
+            return List.of();
+        var start = from + (int) offset;
+        return Arrays.stream(values, start, start + Math.min(to - start, limit)).boxed().toList();
+    }
+
+    /**
+     * Binary search for the given pair with the same return value convention as
+     * {@link Arrays#binarySearch(long[], long)}.
+     */
+    private int indexOf(long key, long value) {
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            var middle = (low + high) >>> 1;
+            var comparison = compare(key, value, middle);
+            if (comparison > 0)
+                low = middle + 1;
+            else if (comparison < 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -(low + 1);
+    }
+
+    private int compare(long key, long value, int index) {
+        var keyComparison = Long.compare(key, keys[index]);
+        return keyComparison != 0 ? keyComparison : Long.compare(value, values[index]);
+    }
+}
@@ -1,14 +1,149 @@
 package de.codecentric.spring_modulith_example.catalog.repository;
 
 import de.codecentric.spring_modulith_example.catalog.model.Product;
-import org.javamoney.moneta.Money;
+import de.codecentric.spring_modulith_example.catalog.model.ProductView;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> searchByNameOrDescriptionLikeIgnoreCase(String name, String description, PageRequest pageRequest);
-    List<Product> findByPriceLessThanEqual(Money price, PageRequest pageRequest);
-    List<Product> findByCurrentQuantityLessThan(int quantity);
+    // The following queries only project product IDs. They neither hydrate Product entities, including their composite
+    // price, nor register them in the persistence context for dirty checking. Returning a List instead of a Page also
+    // prevents paged queries from counting all products.
+
+    @Query("select p.id from Product p order by p.id")
+    @Transactional(readOnly = true)
+    List<Long> findIds(Pageable pageable);
+
+    @Query("select p.id from Product p where p.id > :id order by p.id")
+    @Transactional(readOnly = true)
+    List<Long> findIdsByIdGreaterThan(Long id, Limit limit);
+
+    @Query("select p.id from Product p where p.currentQuantity < :quantity order by p.id")
+    @Transactional(readOnly = true)
+    List<Long> findIdsByCurrentQuantityLessThan(int quantity);
+
+    List<Product> searchByNameLikeIgnoreCaseOrDescriptionLikeIgnoreCase(String name, String description,
+        PageRequest pageRequest);
+
+    // The following queries stream products ordered by ID through a forward-only cursor, which fetches rows from the
+    // database in chunks of the fetch size instead of reading the whole result up front. The products are loaded
+    // read-only, i.e., without snapshots for dirty checking. Streams must be consumed and closed in transactions.
+
+    @Query("select p from Product p order by p.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Product> streamAll();
+
+    @Query("select p from Product p where p.lastModified >= :changedSince order by p.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<Product> streamByLastModifiedSince(Instant changedSince);
+
+    /**
+     * Stream the IDs, names, and descriptions of all products ordered by ID, e.g., to build the Search Optimization
+     * module's text index. Only these fields are projected instead of hydrating Product entities.
+     */
+    @Query("select p.id as id, p.name as name, p.description as description from Product p order by p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductText> streamTexts();
+
+    /**
+     * Stream the IDs and normalized prices of all products that have a normalized price ordered by ID, e.g., to build
+     * the Search Optimization module's price index.
+     */
+    @Query("select p.id as id, p.normalizedPrice as normalizedPrice from Product p where p.normalizedPrice is not null "
+        + "order by p.id")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductPrice> streamNormalizedPrices();
+
+    // The following queries load the CatalogReadModel. The product IDs are grouped into ranges, which are loaded
+    // concurrently, and only the fields of ProductViews are projected instead of hydrating Product entities.
+
+    /**
+     * Get the smallest and the largest ID as well as the number of products per range of the given number of
+     * consecutive IDs, omitting ranges without products.
+     */
+    @Query("""
+        select min(p.id) as minId, max(p.id) as maxId, count(p) as productCount from Product p
+        group by floor(p.id / :idsPerRange)
+        order by min(p.id)
+        """)
+    @Transactional(readOnly = true)
+    List<IdRange> findIdRanges(double idsPerRange);
+
+    @Query("""
+        select new de.codecentric.spring_modulith_example.catalog.model.ProductView(p.id, p.name, p.description,
+            p.price, p.currentQuantity)
+        from Product p where p.id between :fromId and :toId
+        """)
+    @Transactional(readOnly = true)
+    List<ProductView> findViewsByIdBetween(Long fromId, Long toId);
+
+    // The following bulk updates recompute the normalized prices of all products with changed exchange rates in the
+    // database instead of loading the products. They only write products whose normalized price actually changes and
+    // must be called in transactions.
+
+    /**
+     * Set the normalized price of all products priced in the given currency to their minor units times the given
+     * factor, rounded half up. Prices that weren't stored compactly (see
+     * {@link de.codecentric.spring_modulith_example.catalog.model.PriceProperties.Storage}) are converted to minor
+     * units with the given number of minor units per unit of the currency.
+     */
+    @Modifying
+    @Query("""
+        update Product p
+        set p.normalizedPrice = cast(round(coalesce(cast(p.price.minorUnits as BigDecimal),
+                p.price.amount * :minorUnitsPerUnit) * :factor, 0) as Long)
+        where p.price.currency = :currencyCode
+            and (p.normalizedPrice is null
+                or p.normalizedPrice <> cast(round(coalesce(cast(p.price.minorUnits as BigDecimal),
+                    p.price.amount * :minorUnitsPerUnit) * :factor, 0) as Long))
+        """)
+    int updateNormalizedPrices(String currencyCode, BigDecimal minorUnitsPerUnit, BigDecimal factor);
+
+    /**
+     * Clear the normalized price of all products priced in other currencies than the given ones.
+     */
+    @Modifying
+    @Query("""
+        update Product p set p.normalizedPrice = null
+        where p.normalizedPrice is not null and p.price.currency not in :currencyCodes
+        """)
+    int clearNormalizedPrices(Collection<String> currencyCodes);
+
+    interface ProductText {
+        Long getId();
+
+        String getName();
+
+        String getDescription();
+    }
+
+    interface ProductPrice {
+        Long getId();
+
+        Long getNormalizedPrice();
+    }
+
+    interface IdRange {
+        Long getMinId();
+
+        Long getMaxId();
+
+        long getProductCount();
+    }
 }
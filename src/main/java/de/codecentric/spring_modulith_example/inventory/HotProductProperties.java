@@ -0,0 +1,26 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of {@link HotProducts}. If {@code enabled}, stock UPDATEs that take at least
+ * {@code contentionThreshold}, i.e., that most likely waited for the row lock of another transaction, count as
+ * contended. Every {@code evaluationInterval}, products with at least {@code promotionThreshold} contended UPDATEs are
+ * promoted to hot products with {@code stripeCount} stripes, and hot products that had fewer than
+ * {@code demotionThreshold} UPDATEs in every interval of the last {@code demotionDelay} are demoted again.
+ */
+@ConfigurationProperties("inventory.hot-products")
+record HotProductProperties(
+    @DefaultValue("false") boolean enabled,
+    @DefaultValue("8") int stripeCount,
+    @DefaultValue("2ms") Duration contentionThreshold,
+    @DefaultValue("1s") Duration evaluationInterval,
+    @DefaultValue("20") int promotionThreshold,
+    @DefaultValue("50") int demotionThreshold,
+    @DefaultValue("30s") Duration demotionDelay
+) {
+    // NOOP
+}
@@ -0,0 +1,218 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.inventory.model.Stock;
+import de.codecentric.spring_modulith_example.inventory.model.StockStripe;
+import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import de.codecentric.spring_modulith_example.inventory.repository.StockStripeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the contention on the {@link Stock}s of products and splits the stocks of the most contended products into
+ * {@link StockStripe}s, which {@link StockCounters} write instead of the stock's quantity. Products with stripes are
+ * called hot products.
+ * <br/>
+ * Writers report the duration of every stock UPDATE. UPDATEs that took longer than a threshold most likely waited for
+ * the row lock of another transaction, and are counted per product. The evaluation scheduler periodically promotes
+ * products with many contended UPDATEs, i.e., moves their stock's quantity to a fixed number of stripes, and demotes
+ * hot products whose UPDATE rate stayed low for a while, i.e., merges their stripes back into the stock. Both happen in
+ * a transaction that locks the product's stock first, like every other transaction that locks a stock together with
+ * its stripes, and leave the product's quantity unchanged.
+ * <br/>
+ * Automatic promotion and demotion is opt-in ({@code inventory.hot-products.enabled}). Products that have stripes in
+ * the database are hot products on startup regardless.
+ */
+@Component
+class HotProducts implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotProducts.class);
+
+    private final StockRepository stockRepository;
+    private final StockStripeRepository stockStripeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final HotProductProperties properties;
+    private final long contentionThresholdNanos;
+    private final long demotionEvaluations;
+    private final ScheduledExecutorService evaluationScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("hot-product-evaluation").daemon().factory()
+    );
+    private final Counter promotions;
+    private final Counter demotions;
+
+    private final Map<Long, HotProduct> hotProducts = new ConcurrentHashMap<>();
+    // Contended UPDATEs of the stocks of products that are not hot, since the last evaluation
+    private final Map<Long, LongAdder> contendedUpdates = new ConcurrentHashMap<>();
+
+    HotProducts(StockRepository stockRepository, StockStripeRepository stockStripeRepository,
+        TransactionTemplate transactionTemplate, HotProductProperties properties, MeterRegistry meterRegistry) {
+        if (properties.stripeCount() < 2)
+            throw new IllegalArgumentException("Hot products need at least two stripes");
+        this.stockRepository = stockRepository;
+        this.stockStripeRepository = stockStripeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        contentionThresholdNanos = properties.contentionThreshold().toNanos();
+        demotionEvaluations = Math.max(1,
+            properties.demotionDelay().toNanos() / properties.evaluationInterval().toNanos());
+        promotions = Counter.builder("inventory.hot.products.promotions")
+            .description("Products whose stocks got split into stripes because of contention")
+            .register(meterRegistry);
+        demotions = Counter.builder("inventory.hot.products.demotions")
+            .description("Products whose stripes got merged back into their stocks")
+            .register(meterRegistry);
+        Gauge.builder("inventory.hot.products", hotProducts, Map::size)
+            .description("Products whose stocks are split into stripes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load the hot products and start the evaluation scheduler if enabled.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (var stripeCount : stockStripeRepository.countStripesByProductId())
+            hotProducts.put(stripeCount.getProductId(), new HotProduct(stripeCount.getStripeCount().intValue()));
+        if (properties.enabled()) {
+            var intervalNanos = properties.evaluationInterval().toNanos();
+            evaluationScheduler.scheduleAtFixedRate(this::evaluate, intervalNanos, intervalNanos,
+                TimeUnit.NANOSECONDS);
+        }
+        LOGGER.info("Loaded {} hot products", hotProducts.size());
+    }
+
+    @PreDestroy
+    void shutDown() {
+        evaluationScheduler.shutdownNow();
+    }
+
+    /**
+     * Get the number of stripes of a product, or zero if the product isn't hot.
+     */
+    int stripeCount(long productId) {
+        var hotProduct = hotProducts.get(productId);
+        return hotProduct != null ? hotProduct.stripeCount : 0;
+    }
+
+    /**
+     * Record an UPDATE of a product's stock or of one of its stripes that took the given time.
+     */
+    void recordUpdate(long productId, long durationNanos) {
+        if (!properties.enabled())
+            return;
+        var hotProduct = hotProducts.get(productId);
+        if (hotProduct != null)
+            hotProduct.updates.increment();
+        else if (durationNanos >= contentionThresholdNanos)
+            contendedUpdates.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Demote the hot products with too few UPDATEs for long enough, and promote the products with enough contended
+     * UPDATEs since the last evaluation.
+     */
+    void evaluate() {
+        // Exceptions must not escape, since they would cancel the periodic execution
+        try {
+            // Products promoted by this evaluation only get evaluated for demotion after a whole interval
+            hotProducts.forEach((productId, hotProduct) -> {
+                if (hotProduct.updates.sumThenReset() >= properties.demotionThreshold())
+                    hotProduct.quietEvaluations = 0;
+                else if (++hotProduct.quietEvaluations >= demotionEvaluations)
+                    demote(productId, hotProduct);
+            });
+
+            var iterator = contendedUpdates.entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                iterator.remove();
+                if (entry.getValue().sum() >= properties.promotionThreshold()
+                    && !hotProducts.containsKey(entry.getKey()))
+                    promote(entry.getKey());
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to evaluate the contention on stocks", ex);
+        }
+    }
+
+    /**
+     * Move the quantity of a product's stock to new stripes.
+     */
+    void promote(long productId) {
+        var hotProduct = new HotProduct(properties.stripeCount());
+        var promoted = false;
+        try {
+            promoted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                var stock = stockRepository.findAndLockByProductId(productId);
+                if (stock == null)
+                    return false;
+                // Announce the stripes before the stock's quantity moves to them, so that writers that find the stock
+                // emptied once we commit look for the stripes
+                hotProducts.put(productId, hotProduct);
+                var quantity = Math.max(stock.getQuantity(), 0);
+                var stripes = new ArrayList<StockStripe>(hotProduct.stripeCount);
+                for (var stripe = 0; stripe < hotProduct.stripeCount; stripe++)
+                    stripes.add(new StockStripe(productId, stripe,
+                        quantity / hotProduct.stripeCount + (stripe < quantity % hotProduct.stripeCount ? 1 : 0)));
+                stockStripeRepository.saveAll(stripes);
+                stock.setQuantity(stock.getQuantity() - quantity);
+                return true;
+            }));
+        } finally {
+            if (!promoted)
+                hotProducts.remove(productId, hotProduct);
+        }
+        if (promoted) {
+            promotions.increment();
+            LOGGER.info("Promoted product {} to a hot product with {} stripes", productId, hotProduct.stripeCount);
+        }
+    }
+
+    /**
+     * Merge the stripes of a hot product back into its stock.
+     */
+    void demote(long productId) {
+        var hotProduct = hotProducts.get(productId);
+        if (hotProduct != null)
+            demote(productId, hotProduct);
+    }
+
+    private void demote(long productId, HotProduct hotProduct) {
+        transactionTemplate.executeWithoutResult(status -> {
+            var stock = stockRepository.findAndLockByProductId(productId);
+            var stripes = stockStripeRepository.findByProductIdInOrderByProductIdAscStripeAsc(List.of(productId));
+            if (stock != null)
+                stock.setQuantity(StockCounters.totalQuantity(stock, stripes));
+            stockStripeRepository.deleteAllInBatch(stripes);
+        });
+        // Writers that still take the product for hot until now find the stripes gone and fall back to the stock
+        hotProducts.remove(productId, hotProduct);
+        demotions.increment();
+        LOGGER.info("Demoted hot product {}", productId);
+    }
+
+    private static final class HotProduct {
+        private final int stripeCount;
+        private final LongAdder updates = new LongAdder();
+        // Only accessed by the evaluation scheduler
+        private long quietEvaluations;
+
+        HotProduct(int stripeCount) {
+            this.stripeCount = stripeCount;
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package de.codecentric.spring_modulith_example.inventory;
 
-import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
 /**
  * This controller exposes an HTTP API to application-external clients and in the modulithic application is only visible
  * to the Inventory module. By contrast to the Catalog module's HTTP API, the accessibility of this controller is
@@ -19,33 +30,106 @@ import org.springframework.web.server.ResponseStatusException;
 @RestController
 class InventoryApi {
     private final InventoryData inventoryData;
-    private final StockRepository stockRepository;
+    private final ReservationProperties reservationProperties;
+    private final StockReservations stockReservations;
+    private final StockTable stockTable;
 
-    InventoryApi(InventoryData inventoryData, StockRepository stockRepository) {
+    InventoryApi(InventoryData inventoryData, ReservationProperties reservationProperties,
+        StockReservations stockReservations, StockTable stockTable) {
         this.inventoryData = inventoryData;
-        this.stockRepository = stockRepository;
+        this.reservationProperties = reservationProperties;
+        this.stockReservations = stockReservations;
+        this.stockTable = stockTable;
     }
 
     @PostMapping("inventory/stock/{productId}")
     void purchase(@PathVariable long productId, @RequestParam int purchaseQuantity) {
-        var currentQuantity = getQuantity(productId);
-        if (currentQuantity == 0 || (currentQuantity - purchaseQuantity) < 0)
-            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
-        addStock(productId, purchaseQuantity * -1);
+        if (purchaseQuantity <= 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+
+        switch (inventoryData.purchaseAndPublishQuantityChangedEvent(productId, purchaseQuantity)) {
+            case PURCHASED -> {
+                // NOOP
+            }
+            case INSUFFICIENT_STOCK -> throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+            case UNKNOWN_PRODUCT -> throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @PostMapping("inventory/orders")
+    void placeOrder(@RequestBody @NotEmpty List<@Valid OrderLine> orderLines) {
+        // Merge order lines of the same product so that every product's stock is checked against the total quantity.
+        // A total that overflows would pass the stock check as a negative quantity and add stock instead.
+        TreeMap<Long, Integer> quantitiesByProductId;
+        try {
+            quantitiesByProductId = orderLines.stream()
+                .collect(Collectors.toMap(OrderLine::productId, OrderLine::quantity, Math::addExact, TreeMap::new));
+        } catch (ArithmeticException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Total quantity of a product is too large", ex);
+        }
+        switch (inventoryData.placeOrderAndPublishQuantitiesChangedEvent(quantitiesByProductId)) {
+            case PURCHASED -> {
+                // NOOP
+            }
+            case INSUFFICIENT_STOCK -> throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+            case UNKNOWN_PRODUCT -> throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    record OrderLine(@NotNull Long productId, @Positive int quantity) {
+        // NOOP
     }
 
     @PutMapping("inventory/stock/{productId}")
     void addStock(@PathVariable long productId, @RequestParam int quantity) {
-        if (stockRepository.findByProductId(productId) == null
+        if (!stockTable.contains(productId)
             || !inventoryData.addStockAndPublishQuantityChangedEvent(productId, quantity))
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Get the quantity of a product that is available, i.e., neither purchased nor reserved.
+     */
     @GetMapping("inventory/stock/{productId}")
     Integer getQuantity(@PathVariable long productId) {
-        var stockEntry = stockRepository.findByProductId(productId);
-        if (stockEntry == null)
+        return stockTable.quantity(productId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Reserve a quantity of a product until it gets confirmed or released, or until the time to live elapsed (see
+     * {@link StockReservations}).
+     */
+    @PostMapping("inventory/stock/{productId}/reservations")
+    ReservationResponse reserve(@PathVariable long productId, @RequestParam int quantity,
+        @RequestParam(required = false) Long ttlSeconds) {
+        var ttl = ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : reservationProperties.defaultTtl();
+        if (quantity <= 0 || ttl.isNegative() || ttl.isZero() || ttl.compareTo(reservationProperties.maxTtl()) > 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+
+        var result = stockReservations.reserve(productId, quantity, ttl);
+        return switch (result.outcome()) {
+            case RESERVED -> new ReservationResponse(result.reservation().getId(), productId, quantity,
+                result.reservation().getExpiresAt());
+            case INSUFFICIENT_STOCK -> throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+            case UNKNOWN_PRODUCT -> throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        };
+    }
+
+    record ReservationResponse(Long reservationId, Long productId, int quantity, Instant expiresAt) {
+        // NOOP
+    }
+
+    // Reservations that expired are unknown to the following endpoints
+
+    @PostMapping("inventory/reservations/{reservationId}/confirmation")
+    void confirmReservation(@PathVariable long reservationId) {
+        if (!stockReservations.confirm(reservationId))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+
+    @DeleteMapping("inventory/reservations/{reservationId}")
+    void releaseReservation(@PathVariable long reservationId) {
+        if (!stockReservations.release(reservationId))
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
-        return stockEntry.getQuantity();
     }
 }
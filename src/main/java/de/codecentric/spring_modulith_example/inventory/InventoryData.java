@@ -6,33 +6,168 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
 @Service
 class InventoryData {
     private final ApplicationEventPublisher applicationEventPublisher;
     private final StockRepository stockRepository;
+    private final StockCounters stockCounters;
+    private final StockTable stockTable;
 
-    InventoryData(ApplicationEventPublisher applicationEventPublisher, StockRepository stockRepository) {
+    InventoryData(ApplicationEventPublisher applicationEventPublisher, StockRepository stockRepository,
+        StockCounters stockCounters, StockTable stockTable) {
         this.applicationEventPublisher = applicationEventPublisher;
         this.stockRepository = stockRepository;
+        this.stockCounters = stockCounters;
+        this.stockTable = stockTable;
     }
 
     /**
-     * Store new {@link Stock} in database and fire a {@link QuantityChanged} event in case of success.
+     * Store new {@link Stock} in database and fire a {@link QuantityChanged} event in case of success. Stocks of known
+     * products are increased by a single UPDATE of their stock or, for hot products, of one of their stripes (see
+     * {@link StockCounters#add(long, int)}) so that concurrent callers cannot lose updates, and the {@link StockTable}
+     * can follow the change by adding the same quantity once the transaction commits. The UPDATE returns the product's
+     * resulting quantity for the event itself.
      */
     @Transactional
     public boolean addStockAndPublishQuantityChangedEvent(Long productId, int quantity) {
         try {
-            var stockEntry = stockRepository.findByProductId(productId);
-            if (stockEntry == null)
-                stockEntry = new Stock(productId, 0);
-            stockEntry.setQuantity(stockEntry.getQuantity() + quantity);
-            stockRepository.save(stockEntry);
-            applicationEventPublisher.publishEvent(
-                new QuantityChanged(this, stockEntry.getProductId(), stockEntry.getQuantity())
-            );
+            QuantityChanged event;
+            var newQuantity = stockCounters.add(productId, quantity);
+            if (newQuantity != null) {
+                event = new QuantityChanged(this, productId, newQuantity.getQuantity(), newQuantity.getVersion());
+                stockTable.addAfterCommit(Map.of(productId, quantity));
+            } else {
+                var stock = stockRepository.save(new Stock(productId, quantity));
+                event = new QuantityChanged(this, productId, quantity, stock.getVersion());
+                stockTable.putAfterCommit(Map.of(productId, quantity));
+            }
+            applicationEventPublisher.publishEvent(event);
             return true;
         } catch (Exception ex) {
             return false;
         }
     }
+
+    /**
+     * Store the initial {@link Stock}s of several new products and fire a single {@link QuantitiesChanged} event. The
+     * new stocks are sent to the database as JDBC batches when the transaction commits. Like
+     * {@link #addStockAndPublishQuantityChangedEvent(Long, int)}, the method adds the quantities of products that
+     * already have a stock, e.g., because the event announcing the products got delivered again, to the existing stock.
+     */
+    @Transactional
+    public void addStocksAndPublishQuantitiesChangedEvent(SortedMap<Long, Integer> quantitiesByProductId) {
+        var newQuantities = new TreeMap<>(quantitiesByProductId);
+        var addedQuantities = new HashMap<Long, Integer>();
+        var quantityChanges = new ArrayList<QuantitiesChanged.QuantityChange>(quantitiesByProductId.size());
+        var stockEntries = stockRepository.findByProductIdInOrderByProductId(quantitiesByProductId.keySet());
+        var stripesByProductId = stockCounters.lockStripes(quantitiesByProductId.keySet());
+        for (var stockEntry : stockEntries) {
+            var productId = stockEntry.getProductId();
+            var quantity = newQuantities.remove(productId);
+            stockEntry.setQuantity(stockEntry.getQuantity() + quantity);
+            stockEntry.setVersion(stockEntry.getVersion() + 1);
+            addedQuantities.put(productId, quantity);
+            var stripes = stripesByProductId.getOrDefault(productId, List.of());
+            quantityChanges.add(new QuantitiesChanged.QuantityChange(productId,
+                StockCounters.totalQuantity(stockEntry, stripes), stockEntry.getVersion()));
+        }
+        var newStocks = stockRepository.saveAll(newQuantities.entrySet().stream()
+            .map(newQuantity -> new Stock(newQuantity.getKey(), newQuantity.getValue()))
+            .toList());
+        newStocks.forEach(stock -> quantityChanges.add(
+            new QuantitiesChanged.QuantityChange(stock.getProductId(), stock.getQuantity(), stock.getVersion())
+        ));
+
+        applicationEventPublisher.publishEvent(new QuantitiesChanged(this, quantityChanges));
+        stockTable.addAfterCommit(addedQuantities);
+        stockTable.putAfterCommit(newQuantities);
+    }
+
+    /**
+     * Take the given, positive quantity from the {@link Stock} of a product and fire a {@link QuantityChanged} event in
+     * case of success. Sufficiency check and decrement happen in one conditional UPDATE (see
+     * {@link StockRepository#decrementAndGetQuantityIfSufficient(Long, int)}) instead of a read-check-write sequence,
+     * so that concurrent purchases of the same product neither lose updates nor oversell. The UPDATE also returns the
+     * product's resulting quantity for the event. Purchases of hot products take the quantity from any stripe that
+     * suffices (see {@link StockCounters#take(long, int)}).
+     */
+    @Transactional
+    public PurchaseResult purchaseAndPublishQuantityChangedEvent(Long productId, int quantity) {
+        // Taking a negative quantity would add to the stock
+        if (quantity <= 0)
+            throw new IllegalArgumentException("Purchase quantity must be positive, but is " + quantity);
+
+        // Check the purchase's precondition against the StockTable first, so that purchases of unknown products and of
+        // products with insufficient stock are rejected without a database roundtrip. Only the UPDATE is authoritative,
+        // though.
+        var currentQuantity = stockTable.quantity(productId);
+        if (currentQuantity.isEmpty())
+            return PurchaseResult.UNKNOWN_PRODUCT;
+        else if (!isSufficient(currentQuantity.getAsInt(), quantity))
+            return PurchaseResult.INSUFFICIENT_STOCK;
+        var newQuantity = stockCounters.take(productId, quantity);
+        if (newQuantity == null)
+            return PurchaseResult.INSUFFICIENT_STOCK;
+        stockTable.addAfterCommit(Map.of(productId, -quantity));
+
+        applicationEventPublisher.publishEvent(
+            new QuantityChanged(this, productId, newQuantity.getQuantity(), newQuantity.getVersion())
+        );
+        return PurchaseResult.PURCHASED;
+    }
+
+    /**
+     * Take the given quantities from the {@link Stock}s of the ordered products with all-or-nothing semantics and fire a
+     * single {@link QuantitiesChanged} event in case of success. All stocks are fetched and locked with one query, and
+     * so are the stripes of hot products. The resulting UPDATEs are sent to the database as one JDBC batch when the
+     * transaction commits. The order is rejected as a whole, i.e., without changing any stock, if one of its products
+     * is unknown or has insufficient stock.
+     */
+    @Transactional
+    public PurchaseResult placeOrderAndPublishQuantitiesChangedEvent(SortedMap<Long, Integer> quantitiesByProductId) {
+        var stockEntries = stockRepository.findByProductIdInOrderByProductId(quantitiesByProductId.keySet());
+        if (stockEntries.size() != quantitiesByProductId.size())
+            return PurchaseResult.UNKNOWN_PRODUCT;
+
+        var stripesByProductId = stockCounters.lockStripes(quantitiesByProductId.keySet());
+        for (var stockEntry : stockEntries)
+            if (!isSufficient(StockCounters.totalQuantity(stockEntry,
+                    stripesByProductId.getOrDefault(stockEntry.getProductId(), List.of())),
+                quantitiesByProductId.get(stockEntry.getProductId())))
+                return PurchaseResult.INSUFFICIENT_STOCK;
+
+        var quantityChanges = stockEntries.stream()
+            .map(stockEntry -> {
+                var stripes = stripesByProductId.getOrDefault(stockEntry.getProductId(), List.of());
+                StockCounters.take(stockEntry, stripes, quantitiesByProductId.get(stockEntry.getProductId()));
+                return new QuantitiesChanged.QuantityChange(stockEntry.getProductId(),
+                    StockCounters.totalQuantity(stockEntry, stripes), stockEntry.getVersion());
+            })
+            .toList();
+        applicationEventPublisher.publishEvent(new QuantitiesChanged(this, quantityChanges));
+        stockTable.addAfterCommit(quantitiesByProductId.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, quantityByProductId -> -quantityByProductId.getValue())));
+        return PurchaseResult.PURCHASED;
+    }
+
+    /**
+     * Same sufficiency rule as in {@link StockRepository#decrementAndGetQuantityIfSufficient(Long, int)}.
+     */
+    static boolean isSufficient(int currentQuantity, int quantity) {
+        return currentQuantity > 0 && currentQuantity >= quantity;
+    }
+
+    enum PurchaseResult {
+        PURCHASED,
+        INSUFFICIENT_STOCK,
+        UNKNOWN_PRODUCT
+    }
 }
@@ -0,0 +1,21 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.shared.ListenerExecutionProperties;
+import de.codecentric.spring_modulith_example.shared.ListenerExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the {@link ListenerExecutor} on which the Inventory module's
+ * {@link org.springframework.modulith.events.ApplicationModuleListener}s run.
+ */
+@Configuration
+class InventoryListenerExecutorConfiguration {
+    static final String INVENTORY_LISTENER_EXECUTOR = "inventoryListenerExecutor";
+
+    @Bean(INVENTORY_LISTENER_EXECUTOR)
+    ListenerExecutor inventoryListenerExecutor(ListenerExecutionProperties properties, MeterRegistry meterRegistry) {
+        return ListenerExecutor.forModule("inventory", properties, meterRegistry);
+    }
+}
@@ -1,5 +1,7 @@
 package de.codecentric.spring_modulith_example.inventory;
 
+import de.codecentric.spring_modulith_example.shared.TimestampedEvent;
+
 /**
  * The Catalog and Inventory modules communicate via events. Still, there exists a cyclic dependency on the conceptual
  * level. First, the Catalog module reacts to {@link de.codecentric.spring_modulith_example.inventory.QuantityChanged}
@@ -11,8 +13,9 @@ package de.codecentric.spring_modulith_example.inventory;
  * means of this interface: The Inventory module treats this interface as an event (see the
  * {@link ProductCreatedListener} class) which can be implemented and published by other modules to inform the Inventory
  * module about new products with initial stock (see the {@code InventoryProductCreated} class of the Catalog module).
+ * Implementations also tell when they were published, which allows to measure the propagation lag of new products.
  */
-public interface ProductCreated {
+public interface ProductCreated extends TimestampedEvent {
     Long getProductId();
     Integer getQuantity();
 }
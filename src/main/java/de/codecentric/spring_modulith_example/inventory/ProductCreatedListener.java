@@ -1,8 +1,14 @@
 package de.codecentric.spring_modulith_example.inventory;
 
 import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static de.codecentric.spring_modulith_example.inventory.InventoryListenerExecutorConfiguration.INVENTORY_LISTENER_EXECUTOR;
+
 @Component
 class ProductCreatedListener {
     private final InventoryData inventoryData;
@@ -13,12 +19,30 @@ class ProductCreatedListener {
 
     /**
      * React to events based on the {@link ProductCreated} interface and fired by other modules to inform the Inventory
-     * modules about newly created products
+     * modules about newly created products. The listener runs on the Inventory module's own
+     * {@link de.codecentric.spring_modulith_example.shared.ListenerExecutor}.
      */
     @ApplicationModuleListener
+    @Async(INVENTORY_LISTENER_EXECUTOR)
     void productCreated(ProductCreated event) {
         if (!inventoryData.addStockAndPublishQuantityChangedEvent(event.getProductId(), event.getQuantity()))
             throw new IllegalStateException("Creation of initial stock for product %s with quantity %s failed"
                 .formatted(event.getProductId(), event.getQuantity()));
     }
+
+    /**
+     * React to events based on the {@link ProductsCreated} interface, which announce several new products at once, and
+     * create the initial stocks of all products in one transaction.
+     */
+    @ApplicationModuleListener
+    @Async(INVENTORY_LISTENER_EXECUTOR)
+    void productsCreated(ProductsCreated event) {
+        inventoryData.addStocksAndPublishQuantitiesChangedEvent(event.getCreatedProducts().stream()
+            .collect(Collectors.toMap(
+                ProductsCreated.CreatedProduct::productId,
+                ProductsCreated.CreatedProduct::quantity,
+                Integer::sum,
+                TreeMap::new
+            )));
+    }
 }
@@ -0,0 +1,18 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.shared.TimestampedEvent;
+
+import java.util.List;
+
+/**
+ * Bulk variant of the {@link ProductCreated} interface, which other modules can implement and publish to inform the
+ * Inventory module about several new products with initial stock at once, e.g., when importing products. The
+ * {@link ProductCreatedListener} creates the stocks of all announced products in a single transaction.
+ */
+public interface ProductsCreated extends TimestampedEvent {
+    List<CreatedProduct> getCreatedProducts();
+
+    record CreatedProduct(Long productId, int quantity) {
+        // NOOP
+    }
+}
@@ -0,0 +1,38 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.shared.TimestampedEvent;
+import org.springframework.context.ApplicationEvent;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Event fired by the Inventory module when the quantities of several products' stocks got changed together, e.g., by
+ * an order (see {@link InventoryData#placeOrderAndPublishQuantitiesChangedEvent(java.util.SortedMap)}). Like
+ * {@link QuantityChanged}, this event is a module-external type so that other modules can react to it. Receivers get
+ * all quantity changes of the underlying transaction at once and can thus apply them in a single transaction, too.
+ * Every quantity change carries the version of the product's stock after the change.
+ */
+public class QuantitiesChanged extends ApplicationEvent implements TimestampedEvent {
+    private final List<QuantityChange> quantityChanges;
+    private final Instant publishedAt;
+
+    public QuantitiesChanged(Object source, List<QuantityChange> quantityChanges) {
+        super(source);
+        this.quantityChanges = List.copyOf(quantityChanges);
+        publishedAt = Instant.now();
+    }
+
+    public List<QuantityChange> getQuantityChanges() {
+        return quantityChanges;
+    }
+
+    @Override
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
+
+    public record QuantityChange(Long productId, int newQuantity, long version) {
+        // NOOP
+    }
+}
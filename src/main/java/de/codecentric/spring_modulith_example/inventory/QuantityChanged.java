@@ -1,21 +1,32 @@
 package de.codecentric.spring_modulith_example.inventory;
 
+import de.codecentric.spring_modulith_example.shared.TimestampedEvent;
 import org.springframework.context.ApplicationEvent;
 
+import java.time.Instant;
+
 /**
  * Event fired by the Inventory module when the quantity of some product's stock got changed (see
  * {@link InventoryData#addStockAndPublishQuantityChangedEvent(Long, int)}. Note that this event is a module-external
  * type because it resides in the top-level package of the Inventory module and has public visibility. Therefore, other
  * modules can directly refer to this event type without violating the intended modulithic structure of the application.
+ * <br/>
+ * The event carries the version of the product's stock after the change. Versions increase with every change of a
+ * product's quantity, so that receivers can tell stale and duplicate events, which asynchronous listeners and
+ * redeliveries may hand them in any order, from the latest one.
  */
-public class QuantityChanged extends ApplicationEvent {
+public class QuantityChanged extends ApplicationEvent implements TimestampedEvent {
     private final Long productId;
     private final int newQuantity;
+    private final long version;
+    private final Instant publishedAt;
 
-    public QuantityChanged(Object source, Long productId, int newQuantity) {
+    public QuantityChanged(Object source, Long productId, int newQuantity, long version) {
         super(source);
         this.productId = productId;
         this.newQuantity = newQuantity;
+        this.version = version;
+        publishedAt = Instant.now();
     }
 
     public Long getProductId() {
@@ -25,4 +36,13 @@ public class QuantityChanged extends ApplicationEvent {
     public int getNewQuantity() {
         return newQuantity;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Instant getPublishedAt() {
+        return publishedAt;
+    }
 }
@@ -0,0 +1,21 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link StockReservations}. Reservations are held for {@code defaultTtl} unless the client asks
+ * for another time to live of at most {@code maxTtl}. Expired reservations are detected by a {@link TimingWheel} with
+ * {@code bucketCount} buckets that advances every {@code tickDuration}, which bounds how late reservations expire.
+ */
+@ConfigurationProperties("inventory.reservations")
+record ReservationProperties(
+    @DefaultValue("15m") Duration defaultTtl,
+    @DefaultValue("2h") Duration maxTtl,
+    @DefaultValue("100ms") Duration tickDuration,
+    @DefaultValue("1024") int bucketCount
+) {
+    // NOOP
+}
@@ -0,0 +1,163 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.inventory.model.Stock;
+import de.codecentric.spring_modulith_example.inventory.model.StockStripe;
+import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import de.codecentric.spring_modulith_example.inventory.repository.StockStripeRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the quantities of products, which are held by their {@link Stock}s and, for hot products (see
+ * {@link HotProducts}), by their {@link StockStripe}s. All methods must be called within a transaction.
+ * <br/>
+ * Adding to a hot product updates a random stripe. Taking from a hot product updates a stripe that suffices. If no
+ * stripe suffices on its own, e.g., because the product's quantity got fragmented across its stripes, all stripes are
+ * locked, and the quantity is taken from the stock and several stripes if their sum suffices.
+ * <br/>
+ * A product's version is the version of its stock, which every change of the product's quantity increments, also if
+ * the change goes to a stripe. Writers of a stripe therefore increment the stock's version before, which locks the
+ * stock, so that they return a quantity that no concurrent writer of another stripe is missing. That is, writers of a
+ * hot product queue up on its stock's lock again, trading the lock-free writes of stripes for quantity changes whose
+ * versions order them correctly.
+ * <br/>
+ * To not deadlock, transactions lock the stocks of all products before any stripe, each in the order of the product
+ * IDs.
+ */
+@Component
+class StockCounters {
+    private final StockRepository stockRepository;
+    private final StockStripeRepository stockStripeRepository;
+    private final HotProducts hotProducts;
+
+    StockCounters(StockRepository stockRepository, StockStripeRepository stockStripeRepository,
+        HotProducts hotProducts) {
+        this.stockRepository = stockRepository;
+        this.stockStripeRepository = stockStripeRepository;
+        this.hotProducts = hotProducts;
+    }
+
+    /**
+     * Add the given quantity to a product. Returns the product's resulting quantity and version, or {@code null} if the
+     * product has no stock.
+     */
+    StockRepository.VersionedQuantity add(long productId, int quantity) {
+        var stripeCount = hotProducts.stripeCount(productId);
+        if (stripeCount > 0) {
+            var stripe = ThreadLocalRandom.current().nextInt(stripeCount);
+            var start = System.nanoTime();
+            if (stockRepository.incrementAndGetVersion(productId) == null)
+                return null;
+            var newQuantity = stockStripeRepository.incrementAndGetQuantity(productId, stripe, quantity);
+            hotProducts.recordUpdate(productId, System.nanoTime() - start);
+            // The product might have been demoted in the meantime, in which case its version is incremented once more
+            if (newQuantity != null)
+                return newQuantity;
+        }
+
+        var start = System.nanoTime();
+        var newQuantity = stockRepository.incrementAndGetQuantity(productId, quantity);
+        hotProducts.recordUpdate(productId, System.nanoTime() - start);
+        return newQuantity;
+    }
+
+    /**
+     * Take the given quantity from a product if its quantity suffices (see
+     * {@link InventoryData#isSufficient(int, int)}). Returns the product's resulting quantity and version if the
+     * quantity got taken, and {@code null} otherwise. Only taking the quantity from a single stripe of a hot product
+     * needs a query of its own for the result, since the stripe is changed as an entity.
+     */
+    StockRepository.VersionedQuantity take(long productId, int quantity) {
+        var hot = hotProducts.stripeCount(productId) > 0;
+        if (hot) {
+            var start = System.nanoTime();
+            if (stockRepository.incrementAndGetVersion(productId) == null)
+                return null;
+            // Same sufficiency rule as for stocks
+            var stripe = stockStripeRepository.findFirstByProductIdAndQuantityGreaterThanEqual(productId,
+                Math.max(quantity, 1));
+            hotProducts.recordUpdate(productId, System.nanoTime() - start);
+            if (stripe != null) {
+                stripe.setQuantity(stripe.getQuantity() - quantity);
+                // Flushes the stripe before the query. The other stripes cannot change while the stock is locked.
+                return stockRepository.findVersionedQuantityByProductId(productId);
+            }
+        } else {
+            var start = System.nanoTime();
+            var newQuantity = stockRepository.decrementAndGetQuantityIfSufficient(productId, quantity);
+            hotProducts.recordUpdate(productId, System.nanoTime() - start);
+            if (newQuantity != null)
+                return newQuantity;
+            // Products that were promoted while we tried the stock have their quantity in stripes we didn't try
+            else if (hotProducts.stripeCount(productId) == 0)
+                return null;
+        }
+
+        var stock = stockRepository.findAndLockByProductId(productId);
+        if (stock == null)
+            return null;
+        var stripes = stockStripeRepository.findByProductIdInOrderByProductIdAscStripeAsc(List.of(productId));
+        if (!InventoryData.isSufficient(totalQuantity(stock, stripes), quantity))
+            return null;
+        take(stock, stripes, quantity);
+        return new Total(totalQuantity(stock, stripes), stock.getVersion());
+    }
+
+    /**
+     * Fetch and lock the stripes of the given products, whose stocks must have been locked before, by product ID.
+     * Products without stripes are missing in the result.
+     */
+    Map<Long, List<StockStripe>> lockStripes(Collection<Long> productIds) {
+        return stockStripeRepository.findByProductIdInOrderByProductIdAscStripeAsc(productIds).stream()
+            .collect(Collectors.groupingBy(StockStripe::getProductId));
+    }
+
+    /**
+     * Get the quantity of a product from its stock and stripes.
+     */
+    static int totalQuantity(Stock stock, List<StockStripe> stripes) {
+        var quantity = stock.getQuantity();
+        for (var stripe : stripes)
+            quantity += stripe.getQuantity();
+        return quantity;
+    }
+
+    /**
+     * Quantity and version of a product as computed from its stock and stripes.
+     */
+    private record Total(int quantity, long version) implements StockRepository.VersionedQuantity {
+        @Override
+        public int getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Take the given quantity from a product's locked stock and stripes, whose total quantity must suffice. The stock
+     * is drained first, so that stripes keep their quantities for concurrent writers as long as possible. The change
+     * counts as one change of the stock's version.
+     */
+    static void take(Stock stock, List<StockStripe> stripes, int quantity) {
+        var remainingQuantity = quantity;
+        var fromStock = Math.clamp(stock.getQuantity(), 0, Math.max(remainingQuantity, 0));
+        remainingQuantity -= fromStock;
+        for (var stripe : stripes) {
+            var fromStripe = Math.clamp(stripe.getQuantity(), 0, Math.max(remainingQuantity, 0));
+            stripe.setQuantity(stripe.getQuantity() - fromStripe);
+            remainingQuantity -= fromStripe;
+        }
+        // Non-positive quantities, which don't take anything, end up in the stock like they would without stripes
+        stock.setQuantity(stock.getQuantity() - fromStock - remainingQuantity);
+        stock.setVersion(stock.getVersion() + 1);
+    }
+}
@@ -0,0 +1,264 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.inventory.TimingWheel.Timeout;
+import de.codecentric.spring_modulith_example.inventory.model.Reservation;
+import de.codecentric.spring_modulith_example.inventory.model.Stock;
+import de.codecentric.spring_modulith_example.inventory.repository.ReservationRepository;
+import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Time-bounded reservations of stock, e.g., for the duration of a checkout. Reserving takes the quantity from the
+ * product's {@link Stock} with the same conditional UPDATE as a purchase, so that reservations never oversell, and
+ * stores a {@link Reservation}. Stock quantities, the {@link StockTable}, and {@link QuantityChanged} events hence
+ * always tell the quantities that are still available. Confirming a reservation just deletes it, whereas releasing it
+ * returns its quantity to the stock. Neither needs to lock the stock while the customer pays.
+ * <br/>
+ * Reservations that are neither confirmed nor released before their time to live elapsed are returned to the stocks
+ * by the expiry scheduler. Instead of a timer per reservation or polling the database, open reservations are kept in a
+ * {@link TimingWheel} that a single thread advances every tick. All reservations that expired with a tick are returned
+ * to the stocks in batches, each with one transaction and one {@link QuantitiesChanged} event. Open reservations are
+ * loaded into the wheel on startup, so that reservations survive restarts.
+ */
+@Component
+class StockReservations implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockReservations.class);
+
+    private static final int EXPIRY_BATCH_SIZE = 1000;
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ReservationRepository reservationRepository;
+    private final StockRepository stockRepository;
+    private final StockCounters stockCounters;
+    private final StockTable stockTable;
+    private final TransactionTemplate transactionTemplate;
+    private final ReservationProperties properties;
+    private final ScheduledExecutorService expiryScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("reservation-expiry").daemon().factory()
+    );
+    private final Counter expiredReservations;
+
+    private final TimingWheel<OpenReservation> timingWheel;
+    // Timeouts of all open reservations by reservation ID. Whoever removes a reservation's timeout and manages to
+    // cancel it, confirms or releases the reservation. The expiry scheduler competes by expiring timeouts.
+    private final Map<Long, Timeout<OpenReservation>> openReservations = new ConcurrentHashMap<>();
+
+    StockReservations(ApplicationEventPublisher applicationEventPublisher,
+        ReservationRepository reservationRepository, StockRepository stockRepository, StockCounters stockCounters,
+        StockTable stockTable, TransactionTemplate transactionTemplate, ReservationProperties properties,
+        MeterRegistry meterRegistry) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.reservationRepository = reservationRepository;
+        this.stockRepository = stockRepository;
+        this.stockCounters = stockCounters;
+        this.stockTable = stockTable;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        timingWheel = new TimingWheel<>(properties.tickDuration(), properties.bucketCount(), System.nanoTime());
+        expiredReservations = Counter.builder("inventory.reservations.expired")
+            .description("Reservations that were returned to the stocks because they expired")
+            .register(meterRegistry);
+        Gauge.builder("inventory.reservations.open", openReservations, Map::size)
+            .description("Reservations that were neither confirmed, released, nor expired yet")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Load the open reservations and start the expiry scheduler. Reservations that expired while the application was
+     * down are returned to the stocks with the first tick.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        var now = Instant.now();
+        var nowNanos = System.nanoTime();
+        for (var reservation : reservationRepository.findAll())
+            schedule(OpenReservation.of(reservation),
+                nowNanos + Duration.between(now, reservation.getExpiresAt()).toNanos());
+        var tickNanos = properties.tickDuration().toNanos();
+        expiryScheduler.scheduleAtFixedRate(this::expireReservations, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        LOGGER.info("Loaded {} open reservations", openReservations.size());
+    }
+
+    @PreDestroy
+    void shutDown() {
+        expiryScheduler.shutdownNow();
+    }
+
+    /**
+     * Reserve the given quantity of a product for the given time to live and fire a {@link QuantityChanged} event with
+     * the quantity that remains available in case of success.
+     */
+    ReservationResult reserve(long productId, int quantity, Duration ttl) {
+        return transactionTemplate.execute(status -> {
+            // Like purchases, reservations are checked against the StockTable first, but only the UPDATE is
+            // authoritative
+            var currentQuantity = stockTable.quantity(productId);
+            if (currentQuantity.isEmpty())
+                return new ReservationResult(ReservationResult.Outcome.UNKNOWN_PRODUCT, null);
+            else if (!InventoryData.isSufficient(currentQuantity.getAsInt(), quantity))
+                return new ReservationResult(ReservationResult.Outcome.INSUFFICIENT_STOCK, null);
+            var newQuantity = stockCounters.take(productId, quantity);
+            if (newQuantity == null)
+                return new ReservationResult(ReservationResult.Outcome.INSUFFICIENT_STOCK, null);
+
+            var deadlineNanos = System.nanoTime() + ttl.toNanos();
+            var reservation = reservationRepository.save(new Reservation(productId, quantity, Instant.now().plus(ttl)));
+            stockTable.addAfterCommit(Map.of(productId, -quantity));
+            applicationEventPublisher.publishEvent(
+                new QuantityChanged(this, productId, newQuantity.getQuantity(), newQuantity.getVersion())
+            );
+            // A reservation that didn't get committed must never expire
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(OpenReservation.of(reservation), deadlineNanos);
+                }
+            });
+            return new ReservationResult(ReservationResult.Outcome.RESERVED, reservation);
+        });
+    }
+
+    /**
+     * Confirm an open reservation, i.e., turn its quantity into a purchase. Returns {@code false} if there's no such
+     * reservation, e.g., because it already expired.
+     */
+    boolean confirm(long reservationId) {
+        var timeout = cancel(reservationId);
+        if (timeout == null)
+            return false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> reservationRepository.deleteById(reservationId));
+        } catch (RuntimeException ex) {
+            schedule(timeout.element(), timeout.deadlineNanos());
+            throw ex;
+        }
+        return true;
+    }
+
+    /**
+     * Release an open reservation, i.e., return its quantity to the product's stock, and fire a {@link QuantityChanged}
+     * event. Returns {@code false} if there's no such reservation, e.g., because it already expired.
+     */
+    boolean release(long reservationId) {
+        var timeout = cancel(reservationId);
+        if (timeout == null)
+            return false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> returnToStocks(List.of(timeout.element()))
+                .forEach(quantityChange -> applicationEventPublisher.publishEvent(
+                    new QuantityChanged(this, quantityChange.productId(), quantityChange.newQuantity(),
+                        quantityChange.version())
+                )));
+        } catch (RuntimeException ex) {
+            schedule(timeout.element(), timeout.deadlineNanos());
+            throw ex;
+        }
+        return true;
+    }
+
+    private Timeout<OpenReservation> cancel(long reservationId) {
+        var timeout = openReservations.remove(reservationId);
+        return timeout != null && timeout.cancel() ? timeout : null;
+    }
+
+    private void schedule(OpenReservation reservation, long deadlineNanos) {
+        openReservations.put(reservation.id(), timingWheel.schedule(reservation, deadlineNanos));
+    }
+
+    private void expireReservations() {
+        // Exceptions must not escape, since they would cancel the periodic execution
+        try {
+            var expired = timingWheel.advance(System.nanoTime());
+            for (var from = 0; from < expired.size(); from += EXPIRY_BATCH_SIZE)
+                expire(expired.subList(from, Math.min(from + EXPIRY_BATCH_SIZE, expired.size())));
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to advance the reservation timing wheel", ex);
+        }
+    }
+
+    private void expire(List<OpenReservation> reservations) {
+        reservations.forEach(reservation -> openReservations.remove(reservation.id()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                var quantityChanges = returnToStocks(reservations);
+                if (!quantityChanges.isEmpty())
+                    applicationEventPublisher.publishEvent(new QuantitiesChanged(this, quantityChanges));
+            });
+            expiredReservations.increment(reservations.size());
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to return {} expired reservations to the stocks, retrying with the next tick",
+                reservations.size(), ex);
+            var nowNanos = System.nanoTime();
+            reservations.forEach(reservation -> schedule(reservation, nowNanos));
+        }
+    }
+
+    /**
+     * Delete the given reservations and return their quantities to the stocks. Stocks are updated in the order of their
+     * product IDs, so that concurrent callers cannot deadlock. Returns the resulting quantities.
+     */
+    private List<QuantitiesChanged.QuantityChange> returnToStocks(List<OpenReservation> reservations) {
+        reservationRepository.deleteByIds(reservations.stream().map(OpenReservation::id).toList());
+        var quantitiesByProductId = reservations.stream()
+            .collect(Collectors.toMap(OpenReservation::productId, OpenReservation::quantity, Integer::sum,
+                TreeMap::new));
+        var returnedQuantities = new HashMap<Long, Integer>();
+        var quantityChanges = new ArrayList<QuantitiesChanged.QuantityChange>(quantitiesByProductId.size());
+        quantitiesByProductId.forEach((productId, quantity) -> {
+            // Stocks that were deleted in the meantime don't get their quantities back. Quantities are returned to the
+            // stocks even for hot products, since the transaction may update several products.
+            var newQuantity = stockRepository.incrementAndGetQuantity(productId, quantity);
+            if (newQuantity != null) {
+                returnedQuantities.put(productId, quantity);
+                quantityChanges.add(new QuantitiesChanged.QuantityChange(productId, newQuantity.getQuantity(),
+                    newQuantity.getVersion()));
+            }
+        });
+        stockTable.addAfterCommit(returnedQuantities);
+        return quantityChanges;
+    }
+
+    /**
+     * Outcome of a reservation attempt. The reservation is only given if the quantity got reserved.
+     */
+    record ReservationResult(Outcome outcome, Reservation reservation) {
+        enum Outcome {
+            RESERVED,
+            INSUFFICIENT_STOCK,
+            UNKNOWN_PRODUCT
+        }
+    }
+
+    /**
+     * Compact in-memory representation of an open reservation, as held by the timing wheel.
+     */
+    private record OpenReservation(long id, long productId, int quantity) {
+        static OpenReservation of(Reservation reservation) {
+            return new OpenReservation(reservation.getId(), reservation.getProductId(), reservation.getQuantity());
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import de.codecentric.spring_modulith_example.inventory.model.Stock;
+import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import de.codecentric.spring_modulith_example.inventory.repository.StockStripeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongConsumer;
+
+/**
+ * In-memory, write-through copy of the quantities of all {@link Stock}s, including the stripes of hot products (see
+ * {@link HotProducts}). The table is loaded on startup, and every committed change of a stock is applied to it (see
+ * {@link #addAfterCommit(Map)} and {@link #putAfterCommit(Map)}), so that reads of known products never touch the
+ * database.
+ * <br/>
+ * Quantities are stored in an open-addressing hash table with linear probing, i.e., in a {@code long[]} of product IDs
+ * and a parallel {@code int[]} of quantities, without any object per product. Reads are optimistic and don't acquire
+ * a lock unless they overlap with a write.
+ * <br/>
+ * Committed changes are applied as deltas. Since deltas commute, the table ends up with the committed quantities even
+ * if the after-commit callbacks of concurrent transactions run in another order than the transactions committed.
+ * Every change gets a sequence number when it's registered, which happens within its transaction after it locked the
+ * rows of the changed stocks and stripes.
+ * <br/>
+ * Reads of products that are unknown to the table, e.g., because their stock was written by other means than this
+ * module, fetch and lock the product's stock and stripes and add the fetched quantity to the table. Since the rows are
+ * locked, the fetched quantity includes exactly the changes that were registered before, whose deltas are hence skipped
+ * for the product once they get applied. Deltas of new products that are applied before the product itself, since the
+ * after-commit callback of its creation runs late, are kept and added to the new product's quantity. Neither fetched
+ * nor new products are thus dropped under concurrent changes of other products.
+ * <br/>
+ * In consistency check mode ({@code inventory.stock-table.verify-reads=true}), every read also fetches the quantity
+ * from the database, counts and logs deviations, and returns the database's quantity.
+ */
+@Component
+class StockTable implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockTable.class);
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 1024;
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+
+    private final StockRepository stockRepository;
+    private final StockStripeRepository stockStripeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean verifyReads;
+    private final Counter misses;
+    private final Counter mismatches;
+
+    private final StampedLock lock = new StampedLock();
+    // All of the following fields are guarded by lock. The sequence is the number of the last registered change, the
+    // pending sequences are the numbers of changes whose transactions were not completed yet, and the fetch sequences
+    // are the numbers of the last changes that were registered before a product's quantity got fetched, as long as
+    // some of these changes are pending. New products whose creation is pending map to the deltas that got applied to
+    // them before the creation.
+    private long[] productIds;
+    private int[] quantities;
+    private int size;
+    private long sequence;
+    private final TreeSet<Long> pendingSequences = new TreeSet<>();
+    private final Map<Long, Long> fetchSequences = new HashMap<>();
+    private final Map<Long, PendingCreation> pendingCreations = new HashMap<>();
+
+    StockTable(StockTableProperties properties, StockRepository stockRepository,
+        StockStripeRepository stockStripeRepository, TransactionTemplate transactionTemplate,
+        MeterRegistry meterRegistry) {
+        this.stockRepository = stockRepository;
+        this.stockStripeRepository = stockStripeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.verifyReads = properties.verifyReads();
+        misses = Counter.builder("inventory.stock.table.misses")
+            .description("Reads of product quantities that were not found in the stock table")
+            .register(meterRegistry);
+        mismatches = Counter.builder("inventory.stock.table.mismatches")
+            .description("Reads of product quantities that differed from the database (only in consistency check mode)")
+            .register(meterRegistry);
+        Gauge.builder("inventory.stock.table.size", this, StockTable::size)
+            .description("Number of products in the stock table")
+            .register(meterRegistry);
+        Gauge.builder("inventory.stock.table.footprint", this, StockTable::footprintInBytes)
+            .description("Heap memory occupied by the stock table")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Load the table before the application starts to accept requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    /**
+     * Discard the table and load it anew from the database. This must not happen concurrently with changes of stocks.
+     * The quantities are streamed, so that loading doesn't hold all stocks in memory at once.
+     */
+    void reload() {
+        var stamp = lock.writeLock();
+        try {
+            allocate(capacityFor(Math.toIntExact(stockRepository.count())));
+            fetchSequences.clear();
+            pendingCreations.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (var quantities = stockRepository.streamQuantities()) {
+                    quantities.forEach(quantity -> put(quantity.getProductId(), quantity.getQuantity()));
+                }
+            });
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        LOGGER.info("Loaded {} stocks into the stock table ({} bytes)", size(), footprintInBytes());
+    }
+
+    /**
+     * Get the quantity of the given product, or an empty result if the product is unknown.
+     */
+    OptionalInt quantity(long productId) {
+        var quantity = tableQuantity(productId);
+        if (verifyReads)
+            return verifiedQuantity(productId, quantity);
+        else if (quantity.isPresent())
+            return quantity;
+
+        misses.increment();
+        return fetchQuantity(productId);
+    }
+
+    boolean contains(long productId) {
+        return quantity(productId).isPresent();
+    }
+
+    private OptionalInt tableQuantity(long productId) {
+        var stamp = lock.tryOptimisticRead();
+        var quantity = find(productId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                quantity = find(productId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return quantity;
+    }
+
+    /**
+     * Fetch the quantity of a product from the database and add it to the table. The product's stock and stripes stay
+     * locked until the quantity was added, so that changes of the product that are registered afterwards aren't part
+     * of the fetched quantity, while all changes that were registered before are. Within a transaction that changed
+     * stocks itself, the fetched quantity might include changes that are rolled back, so that it's not added.
+     */
+    private OptionalInt fetchQuantity(long productId) {
+        return transactionTemplate.execute(status -> {
+            var stockQuantity = stockRepository.findAndLockQuantityByProductId(productId);
+            if (stockQuantity == null)
+                return OptionalInt.empty();
+            var quantity = stockQuantity;
+            for (var stripeQuantity : stockStripeRepository.findAndLockQuantitiesByProductId(productId))
+                quantity += stripeQuantity;
+            if (TransactionSynchronizationManager.getSynchronizations().stream()
+                .anyMatch(ChangeSynchronization.class::isInstance))
+                return OptionalInt.of(quantity);
+
+            var stamp = lock.writeLock();
+            try {
+                // Deltas that got applied to the product before are part of the fetched quantity as well
+                pendingCreations.remove(productId);
+                if (find(productId).isEmpty()) {
+                    put(productId, quantity);
+                    if (!pendingSequences.isEmpty())
+                        fetchSequences.put(productId, sequence);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            return OptionalInt.of(quantity);
+        });
+    }
+
+    private OptionalInt verifiedQuantity(long productId, OptionalInt tableQuantity) {
+        var quantity = stockRepository.findQuantityByProductId(productId);
+        var databaseQuantity = quantity != null ? OptionalInt.of(quantity) : OptionalInt.empty();
+        // Products that were only unknown to the table are regular misses
+        if (tableQuantity.isPresent() && !tableQuantity.equals(databaseQuantity)) {
+            mismatches.increment();
+            LOGGER.warn("Stock table has quantity {} for product {}, but database has {}", tableQuantity, productId,
+                databaseQuantity);
+        }
+        return databaseQuantity;
+    }
+
+    /**
+     * Compare the whole table with the database and return the number of products whose quantities differ.
+     */
+    int checkConsistency() {
+        var inconsistencies = new AtomicInteger();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (var databaseQuantities = stockRepository.streamQuantities()) {
+                databaseQuantities.forEach(databaseQuantity -> {
+                    var quantity = tableQuantity(databaseQuantity.getProductId());
+                    if (quantity.isPresent() && quantity.getAsInt() != databaseQuantity.getQuantity()) {
+                        LOGGER.warn("Stock table has quantity {} for product {}, but database has {} (version {})",
+                            quantity.getAsInt(), databaseQuantity.getProductId(), databaseQuantity.getQuantity(),
+                            databaseQuantity.getVersion());
+                        inconsistencies.incrementAndGet();
+                    }
+                });
+            }
+        });
+        return inconsistencies.get();
+    }
+
+    /**
+     * Add the given quantities to the stocks of the given products once the current transaction commits, or
+     * immediately if there is no transaction. Products that are unknown to the table are skipped. Their quantities will
+     * be fetched from the database on the next read.
+     */
+    void addAfterCommit(Map<Long, Integer> quantitiesByProductId) {
+        applyAfterCommit(Map.of(), sequence -> quantitiesByProductId.forEach((productId, quantity) -> {
+            var fetchSequence = fetchSequences.get(productId);
+            if (fetchSequence != null && sequence <= fetchSequence)
+                return;
+            if (!add(productId, quantity)) {
+                var pendingCreation = pendingCreations.get(productId);
+                if (pendingCreation != null)
+                    pendingCreation.delta += quantity;
+            }
+        }));
+    }
+
+    /**
+     * Add the stocks of new products with the given quantities once the current transaction commits, or immediately if
+     * there is no transaction. Changes of the new products that are applied before, since they committed after the
+     * creation but their after-commit callbacks ran first, are added to the quantities. Products that are already known
+     * by then were fetched from the database including their creation.
+     */
+    void putAfterCommit(Map<Long, Integer> quantitiesByProductId) {
+        applyAfterCommit(quantitiesByProductId, sequence -> quantitiesByProductId.forEach((productId, quantity) -> {
+            var pendingCreation = pendingCreations.remove(productId);
+            if (find(productId).isEmpty())
+                put(productId, quantity + (pendingCreation != null ? pendingCreation.delta : 0));
+        }));
+    }
+
+    /**
+     * Register a change, which gets the next sequence number, and apply it to the table while holding the write lock
+     * once the current transaction commits, or immediately if there is no transaction. The creations of the given new
+     * products are pending until then.
+     */
+    private void applyAfterCommit(Map<Long, Integer> newQuantitiesByProductId, LongConsumer change) {
+        var changeSequence = register(newQuantitiesByProductId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            var stamp = lock.writeLock();
+            try {
+                change.accept(changeSequence);
+                complete(changeSequence, newQuantitiesByProductId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(
+            new ChangeSynchronization(changeSequence, newQuantitiesByProductId, change));
+    }
+
+    private long register(Map<Long, Integer> newQuantitiesByProductId) {
+        var stamp = lock.writeLock();
+        try {
+            sequence++;
+            pendingSequences.add(sequence);
+            newQuantitiesByProductId.keySet().forEach(productId ->
+                pendingCreations.computeIfAbsent(productId, key -> new PendingCreation()).registrations++);
+            return sequence;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forget a change once its transaction completed, as well as the fetch sequences that no pending change is
+     * compared with anymore, and the creations of new products that got rolled back. Must be called while holding the
+     * write lock.
+     */
+    private void complete(long changeSequence, Map<Long, Integer> newQuantitiesByProductId) {
+        pendingSequences.remove(changeSequence);
+        if (!fetchSequences.isEmpty()) {
+            var firstPendingSequence = pendingSequences.isEmpty() ? Long.MAX_VALUE : pendingSequences.first();
+            fetchSequences.values().removeIf(fetchSequence -> fetchSequence < firstPendingSequence);
+        }
+        newQuantitiesByProductId.keySet().forEach(productId -> pendingCreations.computeIfPresent(productId,
+            (key, pendingCreation) -> --pendingCreation.registrations > 0 ? pendingCreation : null));
+    }
+
+    int size() {
+        var stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the heap memory occupied by the table's arrays, including their object headers.
+     */
+    long footprintInBytes() {
+        var stamp = lock.readLock();
+        try {
+            return arrayFootprintInBytes(productIds.length);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the heap memory that the table occupies after loading the given number of products.
+     */
+    static long footprintInBytes(int productCount) {
+        return arrayFootprintInBytes(capacityFor(productCount));
+    }
+
+    private static long arrayFootprintInBytes(int capacity) {
+        // 16 bytes per array header, 8 bytes per product ID, and 4 bytes per quantity
+        return 2 * 16 + capacity * (long) (Long.BYTES + Integer.BYTES);
+    }
+
+    // The following methods must be called while holding the lock (find() may also be called during an optimistic
+    // read, whose result is only used if the read is validated afterwards)
+
+    private OptionalInt find(long productId) {
+        var productIds = this.productIds;
+        var quantities = this.quantities;
+        // Optimistic reads might see the arrays of different table sizes during a resize. The read is invalid anyway.
+        if (productIds.length != quantities.length)
+            return OptionalInt.empty();
+
+        var mask = productIds.length - 1;
+        // Bound the probing by the capacity, so that optimistic reads terminate even if concurrent writes change the
+        // arrays under their feet
+        for (int i = slot(productId, mask), probes = 0; probes < productIds.length; i = (i + 1) & mask, probes++) {
+            var slotProductId = productIds[i];
+            if (slotProductId == productId)
+                return OptionalInt.of(quantities[i]);
+            else if (slotProductId == EMPTY)
+                return OptionalInt.empty();
+        }
+        return OptionalInt.empty();
+    }
+
+    private boolean add(long productId, int quantity) {
+        var mask = productIds.length - 1;
+        for (var i = slot(productId, mask); productIds[i] != EMPTY; i = (i + 1) & mask)
+            if (productIds[i] == productId) {
+                quantities[i] += quantity;
+                return true;
+            }
+        return false;
+    }
+
+    private void put(long productId, int quantity) {
+        if (size + 1 > productIds.length * MAX_LOAD_FACTOR)
+            resize(productIds.length * 2);
+
+        var mask = productIds.length - 1;
+        var i = slot(productId, mask);
+        while (productIds[i] != EMPTY && productIds[i] != productId)
+            i = (i + 1) & mask;
+        if (productIds[i] == EMPTY)
+            size++;
+        productIds[i] = productId;
+        quantities[i] = quantity;
+    }
+
+    private void resize(int capacity) {
+        var oldProductIds = productIds;
+        var oldQuantities = quantities;
+        allocate(capacity);
+        for (var i = 0; i < oldProductIds.length; i++)
+            if (oldProductIds[i] != EMPTY)
+                put(oldProductIds[i], oldQuantities[i]);
+    }
+
+    private void allocate(int capacity) {
+        productIds = new long[capacity];
+        Arrays.fill(productIds, EMPTY);
+        quantities = new int[capacity];
+        size = 0;
+    }
+
+    private static int capacityFor(int productCount) {
+        var minCapacity = (long) Math.ceil((productCount + 1) / (double) MAX_LOAD_FACTOR);
+        return (int) Math.max(MIN_CAPACITY, Long.highestOneBit(minCapacity - 1) << 1);
+    }
+
+    private static int slot(long productId, int mask) {
+        // Scramble the bits of the mostly consecutive product IDs (finalizer of MurmurHash3) to avoid long probe
+        // sequences
+        var hash = productId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    /**
+     * Applies a registered change once its transaction commits and forgets it once the transaction completed. Also
+     * tells fetches within the same transaction that the transaction changed stocks.
+     */
+    private class ChangeSynchronization implements TransactionSynchronization {
+        private final long changeSequence;
+        private final Map<Long, Integer> newQuantitiesByProductId;
+        private final LongConsumer change;
+
+        ChangeSynchronization(long changeSequence, Map<Long, Integer> newQuantitiesByProductId, LongConsumer change) {
+            this.changeSequence = changeSequence;
+            this.newQuantitiesByProductId = newQuantitiesByProductId;
+            this.change = change;
+        }
+
+        @Override
+        public void afterCommit() {
+            var stamp = lock.writeLock();
+            try {
+                change.accept(changeSequence);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            var stamp = lock.writeLock();
+            try {
+                complete(changeSequence, newQuantitiesByProductId);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Creation of a new product by one or more pending transactions, of which at most one can commit, with the deltas
+     * that were applied to the product before the creation.
+     */
+    private static class PendingCreation {
+        private int registrations;
+        private int delta;
+    }
+}
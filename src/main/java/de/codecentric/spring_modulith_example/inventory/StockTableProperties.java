@@ -0,0 +1,13 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the {@link StockTable}. With {@code verifyReads} enabled, the table runs in consistency check mode
+ * and compares every read with the database.
+ */
+@ConfigurationProperties("inventory.stock-table")
+record StockTableProperties(@DefaultValue("false") boolean verifyReads) {
+    // NOOP
+}
@@ -0,0 +1,188 @@
+package de.codecentric.spring_modulith_example.inventory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Hashed timing wheel (see Varghese and Lauck: Hashed and Hierarchical Timing Wheels) that tells which of many
+ * scheduled elements are due, without a timer or a priority queue entry per element. The wheel consists of a
+ * power-of-two number of buckets, each of which covers one tick. Elements are hashed to the bucket of their deadline's
+ * tick and remember how many more rounds of the wheel they have to wait. Advancing the wheel by one tick thus only
+ * visits the elements of one bucket, and scheduling and cancelling elements takes constant time.
+ * <br/>
+ * Elements can be scheduled and cancelled from any thread. Both are queued and only applied to the buckets by the
+ * thread that advances the wheel, which must be a single thread at a time. Deadlines are {@link System#nanoTime()}
+ * values, and elements become due with a delay of up to one tick, but never early.
+ */
+final class TimingWheel<E> {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket<E>[] buckets;
+    private final int mask;
+    private final Queue<Timeout<E>> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout<E>> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    // Next tick to process. Only accessed by the thread that advances the wheel.
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(Duration tickDuration, int bucketCount, long startNanos) {
+        if (tickDuration.isNegative() || tickDuration.isZero())
+            throw new IllegalArgumentException("Tick duration must be positive");
+        if (bucketCount <= 0)
+            throw new IllegalArgumentException("Bucket count must be positive");
+        tickNanos = tickDuration.toNanos();
+        this.startNanos = startNanos;
+        // Round up to a power of two, so that ticks are mapped to buckets by a mask
+        buckets = new Bucket[bucketCount == 1 ? 1 : Integer.highestOneBit(bucketCount - 1) << 1];
+        for (var i = 0; i < buckets.length; i++)
+            buckets[i] = new Bucket<>();
+        mask = buckets.length - 1;
+    }
+
+    Timeout<E> schedule(E element, long deadlineNanos) {
+        var timeout = new Timeout<>(this, element, deadlineNanos);
+        scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Process all ticks up to the given time and return the elements that became due, i.e., whose timeouts expired
+     * and weren't cancelled before.
+     */
+    List<E> advance(long nowNanos) {
+        var dueElements = new ArrayList<E>();
+        var lastTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        if (lastTick < tick)
+            return dueElements;
+
+        transferScheduledTimeouts();
+        removeCancelledTimeouts();
+        for (; tick <= lastTick; tick++)
+            buckets[(int) (tick & mask)].expireTimeouts(dueElements);
+        return dueElements;
+    }
+
+    private void transferScheduledTimeouts() {
+        for (var timeout = scheduledTimeouts.poll(); timeout != null; timeout = scheduledTimeouts.poll()) {
+            if (timeout.state != Timeout.PENDING)
+                continue;
+            // Deadlines within the current tick, or in the past, expire with the current tick, whose bucket is visited
+            // right away. All other buckets are visited before another round passed.
+            var deadlineTick = Math.max(tick, Math.ceilDiv(timeout.deadlineNanos - startNanos, tickNanos));
+            timeout.remainingRounds = (deadlineTick - tick) / buckets.length;
+            buckets[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        for (var timeout = cancelledTimeouts.poll(); timeout != null; timeout = cancelledTimeouts.poll())
+            if (timeout.bucket != null)
+                timeout.bucket.remove(timeout);
+    }
+
+    /**
+     * Scheduled element that can be cancelled until it's due.
+     */
+    static final class Timeout<E> {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel<E> wheel;
+        private final E element;
+        private final long deadlineNanos;
+        private volatile int state;
+
+        // The following fields are only accessed by the thread that advances the wheel
+        private long remainingRounds;
+        private Bucket<E> bucket;
+        private Timeout<E> previous;
+        private Timeout<E> next;
+
+        private Timeout(TimingWheel<E> wheel, E element, long deadlineNanos) {
+            this.wheel = wheel;
+            this.element = element;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        E element() {
+            return element;
+        }
+
+        long deadlineNanos() {
+            return deadlineNanos;
+        }
+
+        /**
+         * Cancel the timeout, unless it already expired or got cancelled. Returns whether this call cancelled it, in
+         * which case its element will never be due.
+         */
+        boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED))
+                return false;
+            wheel.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        private boolean expire() {
+            return STATE.compareAndSet(this, PENDING, EXPIRED);
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts of one bucket.
+     */
+    private static final class Bucket<E> {
+        private Timeout<E> head;
+        private Timeout<E> tail;
+
+        void add(Timeout<E> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(List<E> dueElements) {
+            var timeout = head;
+            while (timeout != null) {
+                var next = timeout.next;
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                } else {
+                    remove(timeout);
+                    // Timeouts that got cancelled concurrently are dropped
+                    if (timeout.expire())
+                        dueElements.add(timeout.element);
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout<E> timeout) {
+            if (timeout.previous != null)
+                timeout.previous.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.previous = timeout.previous;
+            else
+                tail = timeout.previous;
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
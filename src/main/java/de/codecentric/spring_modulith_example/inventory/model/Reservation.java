@@ -0,0 +1,57 @@
+package de.codecentric.spring_modulith_example.inventory.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+
+/**
+ * Quantity of a product that is held back for a customer until it gets confirmed or released, or until it expires. The
+ * reserved quantity is taken from the product's {@link Stock} when the reservation is made, so that stock quantities
+ * are the quantities still available. Only open reservations are stored.
+ */
+@Entity
+@Table
+public class Reservation {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @NotNull
+    private Long productId;
+
+    @NotNull
+    private Integer quantity;
+
+    @NotNull
+    private Instant expiresAt;
+
+    public Reservation() {
+        // NOOP
+    }
+
+    public Reservation(Long productId, Integer quantity, Instant expiresAt) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
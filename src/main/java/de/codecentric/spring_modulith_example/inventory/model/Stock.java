@@ -21,6 +21,11 @@ public class Stock {
     @NotNull
     private Integer quantity;
 
+    // Incremented by every change of the product's quantity, also in its stripes, by which receivers of quantity
+    // changes can tell their order
+    @NotNull
+    private Long version = 0L;
+
     public Stock() {
         // NOOP
     }
@@ -58,4 +63,12 @@ public class Stock {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
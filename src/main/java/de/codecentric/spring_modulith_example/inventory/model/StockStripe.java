@@ -0,0 +1,62 @@
+package de.codecentric.spring_modulith_example.inventory.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Sub-counter of the {@link Stock} of a hot product, i.e., of a product whose stock is written by so many concurrent
+ * transactions that they would queue up on the lock of its single row. The stock of a hot product is split into
+ * several stripes, each of which holds a part of the product's quantity and can be written independently of the
+ * others. A product's quantity is the sum of its stock's quantity and the quantities of its stripes, while its version
+ * is the version of its stock only.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"productId", "stripe"}))
+public class StockStripe {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @NotNull
+    private Long productId;
+
+    @NotNull
+    private Integer stripe;
+
+    @NotNull
+    private Integer quantity;
+
+    public StockStripe() {
+        // NOOP
+    }
+
+    public StockStripe(Long productId, Integer stripe, Integer quantity) {
+        this.productId = productId;
+        this.stripe = stripe;
+        this.quantity = quantity;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getStripe() {
+        return stripe;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,17 @@
+package de.codecentric.spring_modulith_example.inventory.repository;
+
+import de.codecentric.spring_modulith_example.inventory.model.Reservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+    /**
+     * Delete the given reservations with a single DELETE. Returns the number of deleted reservations.
+     */
+    @Modifying
+    @Query("delete from Reservation r where r.id in :ids")
+    int deleteByIds(Collection<Long> ids);
+}
@@ -1,8 +1,140 @@
 package de.codecentric.spring_modulith_example.inventory.repository;
 
 import de.codecentric.spring_modulith_example.inventory.model.Stock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface StockRepository extends JpaRepository<Stock, Long> {
     Stock findByProductId(Long productId);
+
+    /**
+     * Fetch and lock the stocks of all given products with a single query. Rows are locked in the order of their product
+     * IDs so that concurrent callers with overlapping products cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Stock> findByProductIdInOrderByProductId(Collection<Long> productIds);
+
+    /**
+     * Fetch and lock the stock of a product.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stock s where s.productId = :productId")
+    Stock findAndLockByProductId(Long productId);
+
+    /**
+     * Fetch and lock the quantity of a product's stock, without the quantities of its stripes, as a scalar instead of a
+     * managed entity, or {@code null} if the product has no stock.
+     */
+    @Query(nativeQuery = true, value = "select quantity from stock where product_id = :productId for update")
+    Integer findAndLockQuantityByProductId(Long productId);
+
+    /**
+     * Get the quantity of a product, i.e., the quantity of its stock plus the quantities of its stripes, if any (see
+     * {@link de.codecentric.spring_modulith_example.inventory.model.StockStripe}).
+     */
+    @Query("""
+        select cast(s.quantity
+            + coalesce((select sum(t.quantity) from StockStripe t where t.productId = s.productId), 0) as Integer)
+        from Stock s where s.productId = :productId
+        """)
+    Integer findQuantityByProductId(Long productId);
+
+    /**
+     * Get the quantity of a product like {@link #findQuantityByProductId(Long)}, together with its version, i.e., the
+     * version of its stock.
+     */
+    @Query("""
+        select cast(s.quantity
+                + coalesce((select sum(t.quantity) from StockStripe t where t.productId = s.productId), 0) as Integer)
+            as quantity,
+            s.version as version
+        from Stock s where s.productId = :productId
+        """)
+    VersionedQuantity findVersionedQuantityByProductId(Long productId);
+
+    /**
+     * Stream the quantities and versions of all products like {@link #findVersionedQuantityByProductId(Long)}, as
+     * scalars that are fetched in chunks instead of managed entities. The stream must be consumed within a transaction
+     * and closed afterwards.
+     */
+    @Query("""
+        select s.productId as productId,
+            cast(s.quantity
+                + coalesce((select sum(t.quantity) from StockStripe t where t.productId = s.productId), 0) as Integer)
+            as quantity,
+            s.version as version
+        from Stock s
+        """)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<ProductQuantity> streamQuantities();
+
+    /**
+     * Add the given quantity to the stock of a product in a single UPDATE, so that concurrent callers cannot lose
+     * updates. Like all changes of a stock's quantity, the UPDATE increments the stock's version. Returns the product's
+     * resulting quantity and version like {@link #findVersionedQuantityByProductId(Long)}, or {@code null} if the product
+     * has no stock. The UPDATE's row is returned by the same statement by means of H2's data change delta table
+     * ({@code final table}), so that no further query is needed. The quantities of the product's stripes, if any, are
+     * read as last committed, which is consistent since writers of stripes lock the stock before (see
+     * {@link #incrementAndGetVersion(Long)}).
+     */
+    @Query(nativeQuery = true, value = """
+        select cast(s.quantity
+                + coalesce((select sum(t.quantity) from stock_stripe t where t.product_id = s.product_id), 0) as Integer)
+            as quantity,
+            s.version as version
+        from final table (
+            update stock set quantity = quantity + :quantity, version = version + 1
+            where product_id = :productId
+        ) s
+        """)
+    VersionedQuantity incrementAndGetQuantity(Long productId, int quantity);
+
+    /**
+     * Take the given quantity from the stock of a product in a single conditional UPDATE. The UPDATE only affects the
+     * product's row if its stock suffices for the given quantity so that concurrent callers can neither lose updates
+     * nor oversell. Returns the product's resulting quantity and version in case of success and {@code null} otherwise
+     * (see {@link #incrementAndGetQuantity(Long, int)}).
+     */
+    @Query(nativeQuery = true, value = """
+        select cast(s.quantity
+                + coalesce((select sum(t.quantity) from stock_stripe t where t.product_id = s.product_id), 0) as Integer)
+            as quantity,
+            s.version as version
+        from final table (
+            update stock set quantity = quantity - :quantity, version = version + 1
+            where product_id = :productId and quantity > 0 and quantity >= :quantity
+        ) s
+        """)
+    VersionedQuantity decrementAndGetQuantityIfSufficient(Long productId, int quantity);
+
+    /**
+     * Increment the version of a product's stock in a single UPDATE, which locks the stock until the end of the
+     * transaction. Writers of the product's stripes call this before, so that the stock's version counts their changes
+     * as well, and so that the product's quantity doesn't change until they commit. Returns the incremented version,
+     * or {@code null} if the product has no stock.
+     */
+    @Query(nativeQuery = true, value = """
+        select version from final table (update stock set version = version + 1 where product_id = :productId)
+        """)
+    Long incrementAndGetVersion(Long productId);
+
+    interface VersionedQuantity {
+        int getQuantity();
+
+        long getVersion();
+    }
+
+    interface ProductQuantity extends VersionedQuantity {
+        Long getProductId();
+    }
 }
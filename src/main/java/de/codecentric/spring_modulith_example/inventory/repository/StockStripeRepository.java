@@ -0,0 +1,63 @@
+package de.codecentric.spring_modulith_example.inventory.repository;
+
+import de.codecentric.spring_modulith_example.inventory.model.StockStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockStripeRepository extends JpaRepository<StockStripe, Long> {
+    /**
+     * Fetch and lock the stripes of all given products with a single query, in the order of their product IDs and
+     * stripe numbers.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StockStripe> findByProductIdInOrderByProductIdAscStripeAsc(Collection<Long> productIds);
+
+    /**
+     * Fetch and lock a stripe of a product that holds at least the given quantity, or {@code null} if no stripe does.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    StockStripe findFirstByProductIdAndQuantityGreaterThanEqual(Long productId, int quantity);
+
+    /**
+     * Fetch and lock the quantities of a product's stripes, in the order of their stripe numbers, as scalars instead of
+     * managed entities.
+     */
+    @Query(nativeQuery = true,
+        value = "select quantity from stock_stripe where product_id = :productId order by stripe for update")
+    List<Integer> findAndLockQuantitiesByProductId(Long productId);
+
+    /**
+     * Get the number of stripes of every product that has stripes.
+     */
+    @Query("select s.productId as productId, count(s) as stripeCount from StockStripe s group by s.productId")
+    List<StripeCount> countStripesByProductId();
+
+    /**
+     * Add the given quantity to a stripe in a single UPDATE. Returns the resulting quantity and version of the
+     * stripe's product, i.e., including its stock and its other stripes as last committed, or {@code null} if the
+     * stripe doesn't exist (see {@link StockRepository#incrementAndGetQuantity(Long, int)}). The caller must have
+     * incremented the product's version before (see {@link StockRepository#incrementAndGetVersion(Long)}).
+     */
+    @Query(nativeQuery = true, value = """
+        select cast(t.quantity + s.quantity + coalesce((select sum(o.quantity) from stock_stripe o
+                where o.product_id = t.product_id and o.stripe <> t.stripe), 0) as Integer) as quantity,
+            s.version as version
+        from final table (
+            update stock_stripe set quantity = quantity + :quantity
+            where product_id = :productId and stripe = :stripe
+        ) t
+        join stock s on s.product_id = t.product_id
+        """)
+    StockRepository.VersionedQuantity incrementAndGetQuantity(Long productId, int stripe, int quantity);
+
+    interface StripeCount {
+        Long getProductId();
+
+        Long getStripeCount();
+    }
+}
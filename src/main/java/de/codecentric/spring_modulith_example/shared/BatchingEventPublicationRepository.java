@@ -0,0 +1,358 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.modulith.events.EventPublication;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.core.PublicationTargetIdentifier;
+import org.springframework.modulith.events.core.TargetEventPublication;
+import org.springframework.modulith.events.support.CompletionMode;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator for the {@link EventPublicationRepository} of Spring Modulith that writes the state changes of event
+ * publications in batches. By default, every publication is marked as processing when its listener starts and as
+ * completed when the listener finished, each with a statement and a transaction of its own. This repository instead
+ * collects both kinds of marks and writes them in one transaction per batch of at most
+ * {@link EventPublicationRegistryProperties#completionBatchSize()} publications, at the latest after
+ * {@link EventPublicationRegistryProperties#completionFlushInterval()}. Processing marks of publications that got
+ * completed before the next flush are skipped altogether.
+ * <br/>
+ * The marks of a batch are written with JDBC batches against the registry tables rather than with the repository's
+ * statements per publication: processing marks, and completions in the {@link CompletionMode#UPDATE update} completion
+ * mode, with one batched {@code update} each, and completions in the {@link CompletionMode#ARCHIVE archive} completion
+ * mode with one batched {@code insert ... select} into the archive table followed by one batched {@code delete}. In
+ * the {@link CompletionMode#DELETE delete} completion mode, the repository already deletes all completed publications
+ * of a batch with a single statement.
+ * <br/>
+ * Completed publications stay incomplete in the database until their batch was written. If the application stops
+ * without writing the batch, the publications are hence delivered once more after a restart, which is in line with the
+ * at-least-once semantics of the registry anyway. If a batch cannot be written, its marks are retried one by one, so
+ * that only the publications whose marks fail again remain incomplete. To keep the registry's view consistent, all
+ * other operations write the pending marks before they are delegated.
+ */
+class BatchingEventPublicationRepository implements EventPublicationRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingEventPublicationRepository.class);
+    private static final String MARK_PROCESSING = """
+        update event_publication
+           set status = 'PROCESSING'
+         where id = ?
+           and status <> 'PROCESSING'
+        """;
+    private static final String MARK_COMPLETED = """
+        update event_publication
+           set status = 'COMPLETED',
+               completion_date = ?
+         where id = ?
+        """;
+    private static final String ARCHIVE = """
+        insert into event_publication_archive (id, publication_date, listener_id, serialized_event, event_type,
+                                               status, completion_date, last_resubmission_date, completion_attempts)
+        select id, publication_date, listener_id, serialized_event, event_type,
+               'COMPLETED', ?, last_resubmission_date, completion_attempts
+          from event_publication
+         where id = ?
+        """;
+    private static final String DELETE = """
+        delete
+          from event_publication
+         where id = ?
+        """;
+
+    private final EventPublicationRepository delegate;
+    private final CompletionMode completionMode;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventPublicationRegistryProperties properties;
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("event-publication-flusher").daemon().factory()
+    );
+
+    private final DistributionSummary flushedBatchSizes;
+    private final Counter failedWrites;
+
+    // Guards the following fields
+    private final Object pendingMarksLock = new Object();
+    private Map<UUID, Instant> pendingCompletions = new LinkedHashMap<>();
+    private Set<UUID> pendingProcessing = new LinkedHashSet<>();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    // Serializes flushes so that batches get committed in the order in which they were taken from the pending marks
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    BatchingEventPublicationRepository(EventPublicationRepository delegate, CompletionMode completionMode,
+        JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+        EventPublicationRegistryProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.completionMode = completionMode;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        flushedBatchSizes = DistributionSummary.builder("events.publications.flushed")
+            .description("Number of event publication state changes written by one batch")
+            .register(meterRegistry);
+        failedWrites = Counter.builder("events.publications.flush.failures")
+            .description("Event publication state changes that could not be written, even one by one")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public TargetEventPublication create(TargetEventPublication publication) {
+        return delegate.create(publication);
+    }
+
+    @Override
+    public void markProcessing(UUID identifier) {
+        boolean flushNow;
+        synchronized (pendingMarksLock) {
+            if (closed) {
+                delegate.markProcessing(identifier);
+                return;
+            }
+            pendingProcessing.add(identifier);
+            flushNow = scheduleFlush();
+        }
+        if (flushNow)
+            flush();
+    }
+
+    @Override
+    public void markCompleted(TargetEventPublication publication, Instant completionDate) {
+        publication.markCompleted(completionDate);
+        markCompleted(publication.getIdentifier(), completionDate);
+    }
+
+    @Override
+    public void markCompleted(UUID identifier, Instant completionDate) {
+        boolean flushNow;
+        synchronized (pendingMarksLock) {
+            if (closed) {
+                delegate.markCompleted(identifier, completionDate);
+                return;
+            }
+            // There's no need to mark the publication as processing if it's completed in the same batch anyway
+            pendingProcessing.remove(identifier);
+            pendingCompletions.put(identifier, completionDate);
+            flushNow = scheduleFlush();
+        }
+        if (flushNow)
+            flush();
+    }
+
+    /**
+     * Schedule a flush of the pending marks if none is scheduled yet, or tell the caller to flush immediately if the
+     * batch is full. Must be called while holding {@link #pendingMarksLock}.
+     */
+    private boolean scheduleFlush() {
+        if (pendingCompletions.size() + pendingProcessing.size() >= properties.completionBatchSize())
+            return true;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            flushScheduler.schedule(this::flush, properties.completionFlushInterval().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return false;
+    }
+
+    /**
+     * Write all pending marks in one transaction.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            Map<UUID, Instant> completions;
+            Set<UUID> processing;
+            synchronized (pendingMarksLock) {
+                completions = pendingCompletions;
+                processing = pendingProcessing;
+                pendingCompletions = new LinkedHashMap<>();
+                pendingProcessing = new LinkedHashSet<>();
+                flushScheduled = false;
+            }
+            if (completions.isEmpty() && processing.isEmpty())
+                return;
+
+            flushedBatchSizes.record(completions.size() + processing.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(completions, processing));
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Failed to write {} completions and {} processing marks of event publications in one "
+                    + "batch. Writing them one by one.", completions.size(), processing.size(), ex);
+                writeIndividually(completions, processing);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch(Map<UUID, Instant> completions, Set<UUID> processing) {
+        if (!processing.isEmpty())
+            jdbcTemplate.batchUpdate(MARK_PROCESSING, identifierArguments(processing));
+        if (completions.isEmpty())
+            return;
+        switch (completionMode) {
+            case DELETE -> delegate.deletePublications(new ArrayList<>(completions.keySet()));
+            case UPDATE -> jdbcTemplate.batchUpdate(MARK_COMPLETED, completionArguments(completions));
+            case ARCHIVE -> {
+                jdbcTemplate.batchUpdate(ARCHIVE, completionArguments(completions));
+                jdbcTemplate.batchUpdate(DELETE, identifierArguments(completions.keySet()));
+            }
+        }
+    }
+
+    private static List<Object[]> identifierArguments(Set<UUID> identifiers) {
+        return identifiers.stream().map(identifier -> new Object[] {identifier}).toList();
+    }
+
+    private static List<Object[]> completionArguments(Map<UUID, Instant> completions) {
+        return completions.entrySet().stream()
+            .map(completion -> new Object[] {Timestamp.from(completion.getValue()), completion.getKey()})
+            .toList();
+    }
+
+    /**
+     * Write every mark of a failed batch in a transaction of its own, so that a single mark that cannot be written
+     * doesn't keep the other publications of its batch incomplete.
+     */
+    private void writeIndividually(Map<UUID, Instant> completions, Set<UUID> processing) {
+        var failedMarks = 0;
+        for (var identifier : processing)
+            if (!write(identifier, "processing mark", () -> delegate.markProcessing(identifier)))
+                failedMarks++;
+        for (var completion : completions.entrySet()) {
+            var identifier = completion.getKey();
+            if (!write(identifier, "completion", () -> {
+                if (completionMode == CompletionMode.DELETE)
+                    delegate.deletePublications(List.of(identifier));
+                else
+                    delegate.markCompleted(identifier, completion.getValue());
+            }))
+                failedMarks++;
+        }
+        if (failedMarks > 0)
+            failedWrites.increment(failedMarks);
+    }
+
+    private boolean write(UUID identifier, String mark, Runnable write) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write.run());
+            return true;
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to write the {} of event publication {}. The publication remains incomplete.", mark,
+                identifier, ex);
+            return false;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        synchronized (pendingMarksLock) {
+            // Listeners that are still running during shutdown write their marks directly
+            closed = true;
+        }
+        flushScheduler.shutdownNow();
+        flush();
+    }
+
+    // All remaining operations are rare compared to the above ones. They write the pending marks first, so that they
+    // operate on the publications' latest states.
+
+    @Override
+    public void markCompleted(Object event, PublicationTargetIdentifier identifier, Instant completionDate) {
+        flush();
+        delegate.markCompleted(event, identifier, completionDate);
+    }
+
+    @Override
+    public void markFailed(UUID identifier) {
+        flush();
+        delegate.markFailed(identifier);
+    }
+
+    @Override
+    public boolean markResubmitted(UUID identifier, Instant resubmissionDate) {
+        flush();
+        return delegate.markResubmitted(identifier, resubmissionDate);
+    }
+
+    @Override
+    public List<TargetEventPublication> findIncompletePublications() {
+        flush();
+        return delegate.findIncompletePublications();
+    }
+
+    @Override
+    public List<TargetEventPublication> findIncompletePublicationsPublishedBefore(Instant instant) {
+        flush();
+        return delegate.findIncompletePublicationsPublishedBefore(instant);
+    }
+
+    @Override
+    public Optional<TargetEventPublication> findIncompletePublicationsByEventAndTargetIdentifier(Object event,
+        PublicationTargetIdentifier targetIdentifier) {
+        flush();
+        return delegate.findIncompletePublicationsByEventAndTargetIdentifier(event, targetIdentifier);
+    }
+
+    @Override
+    public List<TargetEventPublication> findCompletedPublications() {
+        flush();
+        return delegate.findCompletedPublications();
+    }
+
+    @Override
+    public List<TargetEventPublication> findFailedPublications(FailedCriteria criteria) {
+        flush();
+        return delegate.findFailedPublications(criteria);
+    }
+
+    @Override
+    public List<TargetEventPublication> findByStatus(EventPublication.Status status) {
+        flush();
+        return delegate.findByStatus(status);
+    }
+
+    @Override
+    public int countByStatus(EventPublication.Status status) {
+        flush();
+        return delegate.countByStatus(status);
+    }
+
+    @Override
+    public void deletePublications(List<UUID> identifiers) {
+        flush();
+        delegate.deletePublications(identifiers);
+    }
+
+    @Override
+    public void deleteCompletedPublications() {
+        flush();
+        delegate.deleteCompletedPublications();
+    }
+
+    @Override
+    public void deleteCompletedPublicationsBefore(Instant instant) {
+        flush();
+        delegate.deleteCompletedPublicationsBefore(instant);
+    }
+}
@@ -0,0 +1,557 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of records, split into segment files that are memory-mapped while they're written. Records are
+ * addressed by their position, i.e., their byte offset in the journal as a whole, and every segment is named after the
+ * position of its first record. Appending writes the record to the active segment's mapping right behind the previous
+ * record. Once a record doesn't fit into the active segment anymore, the segment is truncated to its records, and a new
+ * segment of {@code segmentSize} bytes is created and becomes the active one (rolling). Segments are only ever deleted
+ * as a whole and from the start of the journal, see {@link #deleteSegmentsBefore(long)}.
+ * <br/>
+ * Every record consists of its length, a CRC32C checksum, a type, and a body. Appended records reach the page cache
+ * right away, but only reach the disk when the journal is {@link #force() forced} according to the {@link FsyncPolicy}
+ * of the caller. A record that was torn by a crash fails the checksum and ends the journal when it's opened again,
+ * along with all records that might have followed it.
+ * <br/>
+ * Every segment is mapped at most once. The mapping of the active segment is kept when the segment gets sealed, and
+ * other sealed segments are mapped on their first read. Mappings are unmapped once their segment is deleted or the
+ * journal is closed, but not before the reads that use them are finished. On Java 22 and later, every mapping belongs
+ * to a shared arena of the FFM API, which unmaps it when it's closed. The build targets Java 21, whose FFM API is a
+ * preview, so that the arena is looked up reflectively. On Java 21, mappings are unmapped by the JDK-internal cleaner
+ * of {@code sun.misc.Unsafe} instead, which crashes the JVM rather than failing if an unmapped buffer is accessed.
+ * <br/>
+ * All methods are thread-safe, but appends are serialized. The directory is locked while the journal is open, so that
+ * only one application instance at a time writes to it.
+ */
+final class EventJournal implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String LOCK_FILE = "journal.lock";
+    // Length and checksum
+    private static final int HEADER_SIZE = Integer.BYTES * 2;
+    // Java version whose FFM API isn't a preview anymore
+    private static final int FFM_VERSION = 22;
+    // Open a shared arena, and map a file region into it, or null before Java 22
+    private static final MethodHandle OPEN_SHARED_ARENA;
+    private static final MethodHandle MAP_INTO_ARENA;
+    // Unmaps a mapped buffer, or null if the JDK doesn't allow it, so that mappings are left to the garbage collector.
+    // Only used before Java 22.
+    private static final MethodHandle INVOKE_CLEANER;
+
+    static {
+        var arenaHandles = Runtime.version().feature() >= FFM_VERSION ? arenaHandles() : null;
+        OPEN_SHARED_ARENA = arenaHandles != null ? arenaHandles[0] : null;
+        MAP_INTO_ARENA = arenaHandles != null ? arenaHandles[1] : null;
+        INVOKE_CLEANER = arenaHandles == null ? invokeCleaner() : null;
+    }
+
+    public enum FsyncPolicy {
+        // Force every record to disk before the append returns
+        ALWAYS,
+        // Force appended records to disk periodically
+        INTERVAL,
+        // Leave it to the operating system when appended records reach the disk, except for rolled segments
+        NEVER
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    // Keeps other processes from opening the same journal
+    private final FileChannel lockChannel;
+
+    // Sizes of all segments by their first position. The size of the active segment is its current write offset.
+    private final NavigableMap<Long, Integer> segments = new ConcurrentSkipListMap<>();
+
+    // The following fields are guarded by this journal's monitor
+    private long activeSegmentStart;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+    private int writeOffset;
+    private int forcedOffset;
+    // Mappings of the active segment and of the sealed segments that were read, by their first position
+    private final Map<Long, Mapping> mappings = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Open the journal in the given directory, which is created if necessary, and recover the end of the last
+     * segment.
+     */
+    EventJournal(Path directory, int segmentSize, FsyncPolicy fsyncPolicy) {
+        if (segmentSize <= HEADER_SIZE)
+            throw new IllegalArgumentException("Segment size must exceed " + HEADER_SIZE + " bytes");
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+            if (tryLock(lockChannel) == null) {
+                lockChannel.close();
+                throw new IllegalStateException("The event journal in " + directory + " is already in use");
+            }
+            try (var files = Files.list(directory)) {
+                for (var file : files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).toList())
+                    segments.put(segmentStart(file), (int) Files.size(file));
+            }
+            if (segments.isEmpty())
+                createSegment(0, segmentSize);
+            else
+                recoverActiveSegment(segments.lastKey());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open the event journal in " + directory, ex);
+        }
+    }
+
+    /**
+     * Look up {@code Arena.ofShared()} as a handle that returns the arena as an {@link AutoCloseable}, and a handle
+     * that maps a file region into an arena and returns the region's buffer, i.e.,
+     * {@code channel.map(mode, offset, size, arena).asByteBuffer()}. Returns {@code null} if the JDK lacks them.
+     */
+    private static MethodHandle[] arenaHandles() {
+        try {
+            var arenaClass = Class.forName("java.lang.foreign.Arena");
+            var segmentClass = Class.forName("java.lang.foreign.MemorySegment");
+            var lookup = MethodHandles.publicLookup();
+            var openSharedArena = lookup.findStatic(arenaClass, "ofShared", MethodType.methodType(arenaClass))
+                .asType(MethodType.methodType(AutoCloseable.class));
+            var map = lookup.findVirtual(FileChannel.class, "map", MethodType.methodType(segmentClass,
+                FileChannel.MapMode.class, long.class, long.class, arenaClass));
+            var asByteBuffer = lookup.findVirtual(segmentClass, "asByteBuffer",
+                MethodType.methodType(ByteBuffer.class));
+            var mapIntoArena = MethodHandles.filterReturnValue(map, asByteBuffer)
+                .asType(MethodType.methodType(ByteBuffer.class, FileChannel.class, FileChannel.MapMode.class,
+                    long.class, long.class, AutoCloseable.class));
+            return new MethodHandle[] {openSharedArena, mapIntoArena};
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            LOGGER.warn("Event journal segments cannot be mapped into arenas", ex);
+            return null;
+        }
+    }
+
+    private static MethodHandle invokeCleaner() {
+        LOGGER.warn("Java {} maps event journal segments without arenas, and unmaps them with sun.misc.Unsafe",
+            Runtime.version().feature());
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            unsafeField.setAccessible(true);
+            return MethodHandles.lookup()
+                .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                .bindTo(unsafeField.get(null));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            LOGGER.warn("Event journal segments cannot be unmapped and stay mapped until they're garbage collected",
+                ex);
+            return null;
+        }
+    }
+
+    /**
+     * Map the given region of a segment file, into a shared arena of its own if possible.
+     */
+    private static Mapping map(FileChannel channel, FileChannel.MapMode mode, int size) throws IOException {
+        if (MAP_INTO_ARENA == null)
+            return new Mapping(channel.map(mode, 0, size), null);
+        AutoCloseable arena = null;
+        try {
+            arena = (AutoCloseable) OPEN_SHARED_ARENA.invokeExact();
+            // Buffers of mapped segments are mapped buffers
+            var buffer = (MappedByteBuffer) (ByteBuffer) MAP_INTO_ARENA.invokeExact(channel, mode, 0L, (long) size,
+                arena);
+            return new Mapping(buffer, arena);
+        } catch (IOException | RuntimeException | Error ex) {
+            closeArena(arena);
+            throw ex;
+        } catch (Throwable ex) {
+            closeArena(arena);
+            throw new UndeclaredThrowableException(ex);
+        }
+    }
+
+    private static void closeArena(AutoCloseable arena) {
+        if (arena == null)
+            return;
+        try {
+            arena.close();
+        } catch (Exception ex) {
+            LOGGER.warn("Failed to unmap an event journal segment", ex);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            // Locked by this process
+            return null;
+        }
+    }
+
+    private static long segmentStart(Path file) {
+        var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Path segmentFile(long start) {
+        return directory.resolve("%020d%s".formatted(start, SEGMENT_SUFFIX));
+    }
+
+    private void createSegment(long start, int size) throws IOException {
+        activeChannel = FileChannel.open(segmentFile(start), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        var mapping = map(activeChannel, FileChannel.MapMode.READ_WRITE, size);
+        activeBuffer = mapping.buffer;
+        activeSegmentStart = start;
+        writeOffset = 0;
+        forcedOffset = 0;
+        mappings.put(start, mapping);
+        segments.put(start, 0);
+        if (fsyncPolicy != FsyncPolicy.NEVER)
+            forceDirectory();
+    }
+
+    /**
+     * Map the last segment and find the end of its valid records, from which appending continues. Whatever follows,
+     * e.g., a torn record, is zeroed, so that it cannot be mistaken for records later.
+     */
+    private void recoverActiveSegment(long start) throws IOException {
+        activeChannel = FileChannel.open(segmentFile(start), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var size = (int) Math.max(activeChannel.size(), segmentSize);
+        var mapping = map(activeChannel, FileChannel.MapMode.READ_WRITE, size);
+        activeBuffer = mapping.buffer;
+        mappings.put(start, mapping);
+        activeSegmentStart = start;
+        writeOffset = validLength(activeBuffer, size);
+        if (writeOffset < size && activeBuffer.getInt(writeOffset) != 0) {
+            LOGGER.warn("Discarding the invalid tail of event journal segment {} at offset {}", segmentFile(start),
+                writeOffset);
+            for (var offset = writeOffset; offset < size; offset++)
+                activeBuffer.put(offset, (byte) 0);
+            activeBuffer.force();
+        }
+        forcedOffset = writeOffset;
+        segments.put(start, writeOffset);
+    }
+
+    private static int validLength(ByteBuffer buffer, int limit) {
+        var offset = 0;
+        while (true) {
+            var length = recordLength(buffer, offset, limit);
+            if (length < 0)
+                return offset;
+            offset += HEADER_SIZE + length;
+        }
+    }
+
+    /**
+     * Get the length of the type and body of the valid record at the given offset, or -1 if there's none.
+     */
+    private static int recordLength(ByteBuffer buffer, int offset, int limit) {
+        if (offset + HEADER_SIZE >= limit)
+            return -1;
+        var length = buffer.getInt(offset);
+        if (length <= 0 || length > limit - offset - HEADER_SIZE)
+            return -1;
+        var crc = new CRC32C();
+        updateChecksum(crc, buffer.slice(offset + HEADER_SIZE, length));
+        return (int) crc.getValue() == buffer.getInt(offset + Integer.BYTES) ? length : -1;
+    }
+
+    private static void updateChecksum(CRC32C crc, ByteBuffer buffer) {
+        // Buffers of shared arenas don't expose their address, from which CRC32C reads direct buffers
+        if (MAP_INTO_ARENA == null || !buffer.isDirect()) {
+            crc.update(buffer);
+            return;
+        }
+        var chunk = new byte[Math.min(buffer.remaining(), 8192)];
+        while (buffer.hasRemaining()) {
+            var length = Math.min(buffer.remaining(), chunk.length);
+            buffer.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+    }
+
+    /**
+     * Append a record of the given type and body, rolling the active segment if necessary, and return its position.
+     */
+    synchronized long append(byte type, ByteBuffer body) {
+        if (closed)
+            throw new IllegalStateException("The event journal in " + directory + " is closed");
+        var length = 1 + body.remaining();
+        if (writeOffset + HEADER_SIZE + length > activeBuffer.capacity())
+            roll(HEADER_SIZE + length);
+
+        var offset = writeOffset;
+        var record = activeBuffer.slice(offset + HEADER_SIZE, length);
+        record.put(type).put(body);
+        var crc = new CRC32C();
+        updateChecksum(crc, record.flip());
+        activeBuffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+        // The length comes last, so that readers of the mapping never see a record without checksum
+        activeBuffer.putInt(offset, length);
+        writeOffset += HEADER_SIZE + length;
+        segments.put(activeSegmentStart, writeOffset);
+        if (fsyncPolicy == FsyncPolicy.ALWAYS)
+            force();
+        return activeSegmentStart + offset;
+    }
+
+    private void roll(int recordSize) {
+        try {
+            activeBuffer.force(forcedOffset, writeOffset - forcedOffset);
+            activeChannel.truncate(writeOffset);
+            // The mapping outlives the channel and keeps serving the reads of the sealed segment
+            activeChannel.close();
+            createSegment(activeSegmentStart + writeOffset, Math.max(segmentSize, recordSize));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to roll the event journal in " + directory, ex);
+        }
+    }
+
+    private void forceDirectory() {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Not every platform allows to force directories
+            LOGGER.debug("Failed to force the event journal directory {}", directory, ex);
+        }
+    }
+
+    /**
+     * Write all appended records to disk.
+     */
+    synchronized void force() {
+        if (closed || forcedOffset == writeOffset)
+            return;
+        activeBuffer.force(forcedOffset, writeOffset - forcedOffset);
+        forcedOffset = writeOffset;
+    }
+
+    /**
+     * Get the position that the next record will be appended at, unless the active segment gets rolled.
+     */
+    synchronized long endPosition() {
+        return activeSegmentStart + writeOffset;
+    }
+
+    /**
+     * Get the first position of the segment that holds the given position.
+     */
+    long segmentStart(long position) {
+        var start = segments.floorKey(position);
+        return start != null ? start : segments.firstKey();
+    }
+
+    /**
+     * Get the sizes of all segments by their first positions, in the order of the positions. The last segment is the
+     * active one.
+     */
+    NavigableMap<Long, Integer> segments() {
+        return new ConcurrentSkipListMap<>(segments);
+    }
+
+    /**
+     * Read all records from the given position on, in the order in which they were appended. The bodies passed to
+     * the handler are only valid until the handler returns.
+     */
+    void read(long fromPosition, RecordHandler handler) {
+        for (var start : segments.tailMap(segmentStart(fromPosition), true).keySet()) {
+            var segment = acquire(start);
+            // The segment got deleted concurrently
+            if (segment == null)
+                continue;
+            try {
+                var buffer = segment.mapping().buffer;
+                var limit = segment.limit();
+                var offset = (int) Math.max(0, fromPosition - start);
+                while (true) {
+                    var length = recordLength(buffer, offset, limit);
+                    if (length < 0)
+                        break;
+                    handler.handle(start + offset, buffer.get(offset + HEADER_SIZE),
+                        buffer.slice(offset + HEADER_SIZE + 1, length - 1));
+                    offset += HEADER_SIZE + length;
+                }
+                if (offset < limit)
+                    LOGGER.warn("Event journal segment {} ends with an invalid record at offset {}",
+                        segmentFile(start), offset);
+            } finally {
+                release(segment.mapping());
+            }
+        }
+    }
+
+    /**
+     * Read the record at the given position. Returns {@code false} if there's no such record, e.g., because its
+     * segment got deleted. The body passed to the handler is only valid until the handler returns.
+     */
+    boolean readRecord(long position, RecordHandler handler) {
+        var start = segments.floorKey(position);
+        var segment = start != null ? acquire(start) : null;
+        if (segment == null)
+            return false;
+        try {
+            var buffer = segment.mapping().buffer;
+            var offset = (int) (position - start);
+            var length = recordLength(buffer, offset, segment.limit());
+            if (length < 0)
+                return false;
+            handler.handle(position, buffer.get(offset + HEADER_SIZE),
+                buffer.slice(offset + HEADER_SIZE + 1, length - 1));
+            return true;
+        } finally {
+            release(segment.mapping());
+        }
+    }
+
+    /**
+     * Get the mapping of the given segment along with the size of its records, and keep the mapping until it's
+     * {@link #release(Mapping) released}. Returns {@code null} if the segment doesn't exist (anymore).
+     */
+    private synchronized SegmentMapping acquire(long start) {
+        var size = segments.get(start);
+        if (closed || size == null)
+            return null;
+        var mapping = mappings.get(start);
+        if (mapping == null) {
+            mapping = mapSealedSegment(start, size);
+            mappings.put(start, mapping);
+        }
+        mapping.references++;
+        // The segment might have been active when the iteration started
+        return new SegmentMapping(mapping, start == activeSegmentStart ? writeOffset : size);
+    }
+
+    /**
+     * Release a reference to the mapping, and unmap it if it was the last one.
+     */
+    private void release(Mapping mapping) {
+        synchronized (this) {
+            if (--mapping.references > 0)
+                return;
+        }
+        if (mapping.arena != null)
+            closeArena(mapping.arena);
+        else if (INVOKE_CLEANER != null) {
+            try {
+                INVOKE_CLEANER.invokeExact((ByteBuffer) mapping.buffer);
+            } catch (Throwable ex) {
+                LOGGER.warn("Failed to unmap an event journal segment", ex);
+            }
+        }
+    }
+
+    private Mapping mapSealedSegment(long start, int size) {
+        // Segments are only deleted after they're removed from the segments under the journal's monitor
+        try (var channel = FileChannel.open(segmentFile(start), StandardOpenOption.READ)) {
+            return map(channel, FileChannel.MapMode.READ_ONLY, size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read event journal segment " + segmentFile(start), ex);
+        }
+    }
+
+    /**
+     * Delete all segments that precede the segment holding the given position, except for the active segment.
+     * Returns the number of deleted segments.
+     */
+    int deleteSegmentsBefore(long position) {
+        var deleted = new ArrayList<Long>();
+        var releasedMappings = new ArrayList<Mapping>();
+        for (var start : segments.headMap(segmentStart(position), false).keySet()) {
+            synchronized (this) {
+                if (start == activeSegmentStart)
+                    break;
+                segments.remove(start);
+                var mapping = mappings.remove(start);
+                if (mapping != null)
+                    releasedMappings.add(mapping);
+            }
+            deleted.add(start);
+        }
+        releasedMappings.forEach(this::release);
+        deleted.forEach(this::deleteSegmentFile);
+        return deleted.size();
+    }
+
+    private void deleteSegmentFile(long start) {
+        try {
+            Files.deleteIfExists(segmentFile(start));
+        } catch (IOException ex) {
+            LOGGER.error("Failed to delete event journal segment {}", segmentFile(start), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Mapping> releasedMappings;
+        synchronized (this) {
+            if (closed)
+                return;
+            try {
+                force();
+                closed = true;
+                activeChannel.close();
+                // Closing the channel releases the lock
+                lockChannel.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to close the event journal in " + directory, ex);
+            }
+            releasedMappings = List.copyOf(mappings.values());
+            mappings.clear();
+        }
+        releasedMappings.forEach(this::release);
+    }
+
+    /**
+     * Mapping of a segment, which is unmapped once the journal and all reads have released it, by closing its arena if
+     * it has one.
+     */
+    private static final class Mapping {
+        private final MappedByteBuffer buffer;
+        private final AutoCloseable arena;
+        // The journal's own reference is released when the segment is deleted or the journal is closed. Guarded by
+        // the journal's monitor.
+        private int references = 1;
+
+        Mapping(MappedByteBuffer buffer, AutoCloseable arena) {
+            this.buffer = buffer;
+            this.arena = arena;
+        }
+    }
+
+    private record SegmentMapping(Mapping mapping, int limit) {
+        // NOOP
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(long position, byte type, ByteBuffer body);
+    }
+}
@@ -0,0 +1,188 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.modulith.events.EventPublication;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how long {@link TimestampedEvent}s take from their publication until the
+ * {@link org.springframework.modulith.events.ApplicationModuleListener}s of other modules took them into account. For
+ * the Inventory module's quantity changes, this is the time during which the Catalog module still shows a stale
+ * quantity. The lag is split into the following Micrometer timers with percentile histograms:
+ * <ul>
+ *     <li>{@code events.publish.to.commit}: From the publication of an event until the commit of the publishing
+ *     transaction, tagged with the publishing module and the event type.</li>
+ *     <li>{@code events.listener.queue.wait}: From the commit until a listener starts to handle the event, tagged with
+ *     the listener's module, the listener, and the event type.</li>
+ *     <li>{@code events.listener.duration}: The time a listener took to handle the event, with the same tags.</li>
+ *     <li>{@code events.propagation.lag}: From the publication of an event until a listener finished to handle it,
+ *     with the same tags.</li>
+ * </ul>
+ * In addition, the {@code events.publications.incomplete} gauge reports the number of event publications that were
+ * not completed yet per publication status. The numbers are counted every
+ * {@link EventPublicationRegistryProperties#statusCountInterval()} rather than on every scrape, since counting writes
+ * the pending marks of the {@link BatchingEventPublicationRepository} and queries the registry.
+ * <br/>
+ * Commit times are kept in memory per event instance. For events that the listener gets from a resubmission after a
+ * restart, the queue wait hence starts at the event's publication.
+ */
+@Component
+class EventLagMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventLagMetrics.class);
+    private static final String ROOT_PACKAGE = EventLagMetrics.class.getPackageName()
+        .substring(0, EventLagMetrics.class.getPackageName().lastIndexOf('.'));
+
+    // Identity-based and weakly referenced, so that events don't need to implement equals() and entries vanish with
+    // their events
+    private final Cache<TimestampedEvent, Instant> commitTimes = Caffeine.newBuilder().weakKeys().build();
+
+    private final Meter.MeterProvider<Timer> publishToCommitTimes;
+    private final Meter.MeterProvider<Timer> queueWaitTimes;
+    private final Meter.MeterProvider<Timer> handlingTimes;
+    private final Meter.MeterProvider<Timer> propagationLags;
+
+    private final EventPublicationRepository eventPublicationRepository;
+    private final Map<EventPublication.Status, AtomicInteger> incompleteCounts =
+        new EnumMap<>(EventPublication.Status.class);
+    private final ScheduledExecutorService countScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("event-publication-counter").daemon().factory()
+    );
+
+    EventLagMetrics(MeterRegistry meterRegistry, EventPublicationRepository eventPublicationRepository,
+        EventPublicationRegistryProperties properties) {
+        this.eventPublicationRepository = eventPublicationRepository;
+        publishToCommitTimes = timer("events.publish.to.commit",
+            "Time from the publication of an event until the commit of the publishing transaction", meterRegistry);
+        queueWaitTimes = timer("events.listener.queue.wait",
+            "Time from the commit of an event until a module listener started to handle it", meterRegistry);
+        handlingTimes = timer("events.listener.duration",
+            "Time a module listener took to handle an event", meterRegistry);
+        propagationLags = timer("events.propagation.lag",
+            "Time from the publication of an event until a module listener finished to handle it", meterRegistry);
+
+        for (var status : EventPublication.Status.values())
+            if (status != EventPublication.Status.COMPLETED) {
+                var count = new AtomicInteger();
+                incompleteCounts.put(status, count);
+                Gauge.builder("events.publications.incomplete", count, AtomicInteger::get)
+                    .description("Event publications that were not completed yet")
+                    .tag("status", status.name().toLowerCase())
+                    .register(meterRegistry);
+            }
+        var interval = properties.statusCountInterval().toNanos();
+        countScheduler.scheduleWithFixedDelay(this::countIncompletePublications, 0, interval, TimeUnit.NANOSECONDS);
+    }
+
+    private void countIncompletePublications() {
+        // Exceptions must not escape, since they would cancel the periodic execution
+        try {
+            incompleteCounts.forEach((status, count) -> count.set(eventPublicationRepository.countByStatus(status)));
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to count the incomplete event publications", ex);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        countScheduler.shutdownNow();
+    }
+
+    private static Meter.MeterProvider<Timer> timer(String name, String description, MeterRegistry meterRegistry) {
+        return Timer.builder(name)
+            .description(description)
+            .publishPercentileHistogram()
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .withRegistry(meterRegistry);
+    }
+
+    /**
+     * Take the commit time of every published event. The synchronization runs before all other synchronizations, in
+     * particular before the one that hands the event to asynchronous listeners.
+     */
+    @EventListener
+    void timestampedEventPublished(TimestampedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                var commitTime = Instant.now();
+                commitTimes.put(event, commitTime);
+                publishToCommitTimes
+                    .withTags("module", moduleOf(event.getClass()), "event", event.getClass().getSimpleName())
+                    .record(Duration.between(event.getPublishedAt(), commitTime));
+            }
+
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+        });
+    }
+
+    /**
+     * Invoke a module listener and record the listener-related timers if it handles a {@link TimestampedEvent}. This
+     * needs to happen on the thread that executes the listener, i.e., inside the asynchronous execution (see
+     * {@link EventLagMetricsConfiguration}).
+     */
+    Object invokeListener(MethodInvocation invocation) throws Throwable {
+        var arguments = invocation.getArguments();
+        if (arguments.length == 0 || !(arguments[0] instanceof TimestampedEvent event))
+            return invocation.proceed();
+
+        var listenerClass = invocation.getMethod().getDeclaringClass();
+        var tags = new String[] {
+            "module", moduleOf(listenerClass),
+            "listener", listenerClass.getSimpleName() + "." + invocation.getMethod().getName(),
+            "event", event.getClass().getSimpleName()
+        };
+        var start = Instant.now();
+        var commitTime = commitTimes.getIfPresent(event);
+        queueWaitTimes.withTags(tags)
+            .record(Duration.between(commitTime != null ? commitTime : event.getPublishedAt(), start));
+        try {
+            return invocation.proceed();
+        } finally {
+            var end = Instant.now();
+            handlingTimes.withTags(tags).record(Duration.between(start, end));
+            propagationLags.withTags(tags).record(Duration.between(event.getPublishedAt(), end));
+        }
+    }
+
+    /**
+     * Get the name of the module a class belongs to, i.e., the first package segment below the application's root
+     * package.
+     */
+    private static String moduleOf(Class<?> type) {
+        var packageName = type.getPackageName();
+        if (!packageName.startsWith(ROOT_PACKAGE + "."))
+            return "none";
+        var modulePackage = packageName.substring(ROOT_PACKAGE.length() + 1);
+        var end = modulePackage.indexOf('.');
+        return end < 0 ? modulePackage : modulePackage.substring(0, end);
+    }
+}
@@ -0,0 +1,35 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.modulith.events.ApplicationModuleListener;
+
+/**
+ * Applies {@link EventLagMetrics} to all {@link ApplicationModuleListener} methods. The advisor is an infrastructure
+ * advisor, so that it gets applied by the same auto-proxy creator as the transactional advice of the listeners. Since
+ * Spring's asynchronous execution advice is always added in front of the existing advisors, the metrics are recorded on
+ * the thread that executes the listener, and the advisor's high precedence places the listener's transaction inside
+ * the measured duration.
+ */
+@Configuration
+class EventLagMetricsConfiguration {
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor moduleListenerMetricsAdvisor(ObjectProvider<EventLagMetrics> eventLagMetrics) {
+        // Resolve the metrics lazily, because infrastructure advisors are instantiated before regular beans
+        MethodInterceptor interceptor = invocation -> eventLagMetrics.getObject().invokeListener(invocation);
+        var advisor = new DefaultPointcutAdvisor(
+            AnnotationMatchingPointcut.forMethodAnnotation(ApplicationModuleListener.class), interceptor
+        );
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
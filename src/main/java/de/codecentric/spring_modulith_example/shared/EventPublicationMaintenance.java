@@ -0,0 +1,153 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.modulith.events.EventPublication;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.support.CompletionMode;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the tables of Spring Modulith's event publication registry small. Completed publications are never removed by
+ * the registry itself, which slows down the inserts of new publications and the lookup of incomplete publications at
+ * startup over time. Every {@link EventPublicationRegistryProperties#maintenanceInterval()}, this component hence
+ * deletes completed publications that are older than {@link EventPublicationRegistryProperties#retention()} as well as
+ * all but the {@link EventPublicationRegistryProperties#maxCompletedPublications()} most recently completed
+ * publications. With Spring Modulith's {@link CompletionMode#ARCHIVE archive} completion mode, completed publications
+ * are kept in an archive table of their own, so that the table of incomplete publications only holds the publications
+ * that are still in flight. The deletions then only concern the archive table.
+ * <br/>
+ * The {@code events.publications.table.size} gauge reports the number of rows per registry table and the
+ * {@code events.publications.pruned} counter the number of deleted completed publications. Publications that are kept
+ * in the {@link EventPublicationRegistryProperties.Store#JOURNAL journal} aren't pruned by this component, but by the
+ * compaction of the {@link JournalEventPublicationRepository}.
+ */
+@Component
+class EventPublicationMaintenance implements SmartInitializingSingleton {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventPublicationMaintenance.class);
+    private static final String PUBLICATION_TABLE = "event_publication";
+    private static final String ARCHIVE_TABLE = "event_publication_archive";
+
+    private final EventPublicationRepository eventPublicationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EventPublicationRegistryProperties properties;
+    private final CompletionMode completionMode;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("event-publication-maintenance").daemon().factory()
+    );
+
+    private final Counter prunedPublications;
+
+    EventPublicationMaintenance(EventPublicationRepository eventPublicationRepository, JdbcTemplate jdbcTemplate,
+        EventPublicationRegistryProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        this.eventPublicationRepository = eventPublicationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        completionMode = CompletionMode.from(environment);
+        prunedPublications = Counter.builder("events.publications.pruned")
+            .description("Completed event publications deleted by the maintenance of the event publication registry")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Index the completion dates of completed publications for the deletions and start the periodic maintenance.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.store() == EventPublicationRegistryProperties.Store.JOURNAL)
+            return;
+
+        registerTableSize(PUBLICATION_TABLE);
+        if (completionMode == CompletionMode.ARCHIVE)
+            registerTableSize(ARCHIVE_TABLE);
+
+        var completedTable = completedTable();
+        if (completedTable != null)
+            jdbcTemplate.execute("create index if not exists %1$s_completion_date_idx on %1$s (completion_date)"
+                .formatted(completedTable));
+
+        var interval = properties.maintenanceInterval().toNanos();
+        maintenanceScheduler.scheduleWithFixedDelay(this::runMaintenance, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    private void registerTableSize(String table) {
+        Gauge.builder("events.publications.table.size", jdbcTemplate,
+                jdbcTemplate -> jdbcTemplate.queryForObject("select count(*) from " + table, Long.class))
+            .description("Rows in a table of the event publication registry")
+            .tag("table", table)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Get the table that holds completed publications, or {@code null} if completed publications are deleted right
+     * away.
+     */
+    private String completedTable() {
+        return switch (completionMode) {
+            case UPDATE -> PUBLICATION_TABLE;
+            case ARCHIVE -> ARCHIVE_TABLE;
+            case DELETE -> null;
+        };
+    }
+
+    private void runMaintenance() {
+        try {
+            prune(Instant.now());
+        } catch (RuntimeException ex) {
+            // Try again in the next interval
+            LOGGER.error("Failed to prune completed event publications", ex);
+        }
+    }
+
+    /**
+     * Delete completed publications that were completed before the retention period preceding the given instant, and
+     * all but the configured maximum number of most recently completed publications. Returns the number of deleted
+     * publications.
+     */
+    long prune(Instant now) {
+        var completedTable = completedTable();
+        if (completedTable == null)
+            return 0;
+
+        var completedCount = eventPublicationRepository.countByStatus(EventPublication.Status.COMPLETED);
+        eventPublicationRepository.deleteCompletedPublicationsBefore(now.minus(properties.retention()));
+
+        // Keep at most maxCompletedPublications publications, i.e., delete everything that was completed before the
+        // publication at this position in descending completion order
+        var cutoffs = jdbcTemplate.queryForList("""
+                select completion_date from %s
+                where completion_date is not null
+                order by completion_date desc
+                offset ? rows fetch next 1 rows only
+                """.formatted(completedTable), Timestamp.class, properties.maxCompletedPublications());
+        if (!cutoffs.isEmpty())
+            eventPublicationRepository.deleteCompletedPublicationsBefore(cutoffs.getFirst().toInstant());
+
+        var prunedCount = Math.max(0,
+            completedCount - eventPublicationRepository.countByStatus(EventPublication.Status.COMPLETED));
+        prunedPublications.increment(prunedCount);
+        if (prunedCount > 0)
+            LOGGER.info("Pruned {} completed event publications", prunedCount);
+        return prunedCount;
+    }
+
+    @PreDestroy
+    void close() {
+        maintenanceScheduler.shutdownNow();
+    }
+}
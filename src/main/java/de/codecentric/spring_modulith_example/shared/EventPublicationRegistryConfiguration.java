@@ -0,0 +1,39 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.core.EventSerializer;
+import org.springframework.modulith.events.support.CompletionMode;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Replaces the JPA-based {@link EventPublicationRepository} of Spring Modulith depending on the configured
+ * {@link EventPublicationRegistryProperties.Store}. Either a {@link BatchingEventPublicationRepository} is put in front
+ * of the JPA repository, or publications are kept in a {@link JournalEventPublicationRepository}. The JPA repository
+ * is package-private, so it's referenced by the name of its bean. The store is chosen when the bean is created instead
+ * of by a condition, so that it can still be switched for an application that went through AOT processing.
+ */
+@Configuration
+class EventPublicationRegistryConfiguration {
+    @Bean
+    @Primary
+    EventPublicationRepository eventPublicationRegistryRepository(
+        @Qualifier("jpaEventPublicationRepository") ObjectProvider<EventPublicationRepository> jpaEventPublicationRepository,
+        EventSerializer eventSerializer, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+        EventPublicationRegistryProperties properties, MeterRegistry meterRegistry, Environment environment) {
+        var completionMode = CompletionMode.from(environment);
+        return switch (properties.store()) {
+            case JPA -> new BatchingEventPublicationRepository(jpaEventPublicationRepository.getObject(),
+                completionMode, jdbcTemplate, transactionTemplate, properties, meterRegistry);
+            case JOURNAL -> new JournalEventPublicationRepository(completionMode, eventSerializer, properties,
+                meterRegistry);
+        };
+    }
+}
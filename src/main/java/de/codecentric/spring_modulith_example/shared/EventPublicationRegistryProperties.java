@@ -0,0 +1,48 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Configuration of Spring Modulith's event publication registry. The {@code store} selects whether publications are
+ * kept in the database (see {@link BatchingEventPublicationRepository}) or in the {@code journal}, i.e., an append-only
+ * file of its own (see {@link JournalEventPublicationRepository}). Completions of event publications in the database
+ * are written in batches of at most {@code completionBatchSize} publications, at the latest after
+ * {@code completionFlushInterval}. Every {@code maintenanceInterval}, completed publications older than
+ * {@code retention} and all but the {@code maxCompletedPublications} most recently completed publications are deleted
+ * (see {@link EventPublicationMaintenance}), or their journal segments are compacted, respectively. The incomplete
+ * publications per status that {@link EventLagMetrics} reports are counted every {@code statusCountInterval}.
+ */
+@ConfigurationProperties("event-publication-registry")
+record EventPublicationRegistryProperties(
+    @DefaultValue("jpa") Store store,
+    @DefaultValue("500") int completionBatchSize,
+    @DefaultValue("50ms") Duration completionFlushInterval,
+    @DefaultValue("1m") Duration maintenanceInterval,
+    @DefaultValue("7d") Duration retention,
+    @DefaultValue("1000000") int maxCompletedPublications,
+    @DefaultValue("10s") Duration statusCountInterval,
+    @DefaultValue Journal journal
+) {
+    enum Store {
+        JPA,
+        JOURNAL
+    }
+
+    /**
+     * Directory of the journal's segment files and checkpoint, the size of new segments, and when appended records
+     * are forced to disk.
+     */
+    record Journal(
+        @DefaultValue("event-journal") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("interval") EventJournal.FsyncPolicy fsync,
+        @DefaultValue("100ms") Duration fsyncInterval
+    ) {
+        // NOOP
+    }
+}
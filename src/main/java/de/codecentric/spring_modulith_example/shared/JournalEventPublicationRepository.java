@@ -0,0 +1,817 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.modulith.events.EventPublication;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.core.EventSerializer;
+import org.springframework.modulith.events.core.PublicationTargetIdentifier;
+import org.springframework.modulith.events.core.TargetEventPublication;
+import org.springframework.modulith.events.support.CompletionMode;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link EventPublicationRepository} that keeps event publications in a local {@link EventJournal} instead of the
+ * database, so that module events don't compete with the modules' writes for the database. Creating a publication, and
+ * any later change of its state, appends one record to the journal. Incomplete publications are additionally held in
+ * memory, from which all lookups of incomplete publications are answered. Processing marks are only kept in memory,
+ * since they don't matter after a restart.
+ * <br/>
+ * Every listener has an offset, i.e., the journal position before which all of its publications are complete. The
+ * offsets are written to a checkpoint file every {@link EventPublicationRegistryProperties#maintenanceInterval()} and
+ * on shutdown. On startup, the journal is replayed from the smallest offset on to recover the incomplete publications,
+ * which Spring Modulith resubmits if {@code spring.modulith.events.republish-outstanding-events-on-restart} is set.
+ * <br/>
+ * The journal is compacted with every maintenance run. Incomplete publications that are left over in sealed segments
+ * whose other publications are complete are appended to the journal once more, so that their old segments don't need
+ * to be kept. Afterwards, segments that only hold complete publications are deleted from the start of the journal on,
+ * once all of their completed publications are older than {@link EventPublicationRegistryProperties#retention()}, or as
+ * long as more than {@link EventPublicationRegistryProperties#maxCompletedPublications()} completed publications are
+ * kept. Completed publications are only indexed in memory by the position of their record and their completion date,
+ * and read from the journal when asked for. Unless the completion mode is {@link CompletionMode#DELETE}, the startup
+ * hence also reads the segments before the smallest offset, for the completed publications that they hold.
+ * <br/>
+ * Unlike the JPA-based registry, the journal isn't part of the publishing transaction. Publications that are created
+ * within a transaction are therefore only appended to the journal, and held in memory, right before the transaction
+ * commits, so that neither a rollback nor a crash before the commit leaves a publication of a transaction that never
+ * committed. Publications whose transaction fails to commit after the append are deleted again. Only a crash during
+ * the commit itself can still let such a publication be resubmitted after the restart.
+ */
+class JournalEventPublicationRepository implements EventPublicationRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalEventPublicationRepository.class);
+
+    private static final byte PUBLISHED = 1;
+    private static final byte COMPLETED = 2;
+    private static final byte STATUS_CHANGED = 3;
+    private static final byte DELETED = 4;
+
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+    // Sealed segments whose incomplete publications make up at most this share of their publications get compacted
+    private static final double COMPACTION_RATIO = 0.1;
+
+    private final EventJournal journal;
+    private final Path directory;
+    private final CompletionMode completionMode;
+    private final EventSerializer eventSerializer;
+    private final EventPublicationRegistryProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("event-journal-maintenance").daemon().factory()
+    );
+
+    // Serializes all state changes, so that the in-memory state follows the order of the records in the journal
+    private final ReentrantLock lock = new ReentrantLock();
+    // Incomplete publications by identifier
+    private final Map<UUID, JournaledPublication> incompletePublications = new ConcurrentHashMap<>();
+    // Positions of the incomplete publications by listener, the first of which is the listener's offset
+    private final Map<String, ConcurrentSkipListSet<Long>> listenerPositions = new ConcurrentHashMap<>();
+    // Statistics of all segments by their first position. Guarded by lock.
+    private final TreeMap<Long, SegmentStatistics> segmentStatistics = new TreeMap<>();
+    // Completed publications before this instant are considered deleted. Guarded by lock.
+    private Instant completedDeletedBefore = Instant.EPOCH;
+    // Completion dates of the completed publications that aren't considered deleted, by the position of their latest
+    // PUBLISHED record. Empty in the delete completion mode. Guarded by lock.
+    private final TreeMap<Long, Instant> completedPublications = new TreeMap<>();
+
+    JournalEventPublicationRepository(CompletionMode completionMode, EventSerializer eventSerializer,
+        EventPublicationRegistryProperties properties, MeterRegistry meterRegistry) {
+        var journalProperties = properties.journal();
+        directory = journalProperties.directory();
+        journal = new EventJournal(directory, (int) journalProperties.segmentSize().toBytes(),
+            journalProperties.fsync());
+        this.completionMode = completionMode;
+        this.eventSerializer = eventSerializer;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+
+        replay();
+
+        Gauge.builder("events.journal.segments", journal, eventJournal -> eventJournal.segments().size())
+            .description("Segments of the event journal")
+            .register(meterRegistry);
+        Gauge.builder("events.journal.size", journal,
+                eventJournal -> eventJournal.segments().values().stream().mapToLong(Integer::longValue).sum())
+            .description("Bytes of all records in the event journal")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+
+        if (journalProperties.fsync() == EventJournal.FsyncPolicy.INTERVAL) {
+            var fsyncInterval = journalProperties.fsyncInterval().toNanos();
+            maintenanceScheduler.scheduleWithFixedDelay(this::force, fsyncInterval, fsyncInterval,
+                TimeUnit.NANOSECONDS);
+        }
+        var maintenanceInterval = properties.maintenanceInterval().toNanos();
+        maintenanceScheduler.scheduleWithFixedDelay(this::runMaintenance, maintenanceInterval, maintenanceInterval,
+            TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Recover the incomplete publications, the completed publications, and the segment statistics from the checkpoint
+     * and the journal.
+     */
+    private void replay() {
+        var start = System.nanoTime();
+        var checkpoint = readCheckpoint();
+        // Whole segments are replayed, so that their statistics are complete
+        var fromPosition = journal.segmentStart(Long.parseLong(checkpoint.getProperty("replay-from", "0")));
+        completedDeletedBefore = Instant.parse(checkpoint.getProperty("completed-deleted-before",
+            Instant.EPOCH.toString()));
+        for (var segment : journal.segments().headMap(fromPosition, false).keySet()) {
+            var statistics = checkpoint.getProperty("segment." + segment);
+            if (statistics != null)
+                segmentStatistics.put(segment, SegmentStatistics.parse(statistics));
+        }
+
+        // Positions of the publications before the replayed segments, which are all complete, by their identifiers
+        var earlierPublications = new HashMap<UUID, Long>();
+        var readFrom = completionMode == CompletionMode.DELETE ? fromPosition : journal.segments().firstKey();
+        journal.read(readFrom, (position, type, body) -> {
+            if (position < fromPosition) {
+                indexEarlierRecord(earlierPublications, position, type, body);
+                return;
+            }
+            switch (type) {
+                case PUBLISHED -> {
+                    var publication = readPublication(body);
+                    remove(publication.getIdentifier(), true);
+                    add(publication, position);
+                }
+                case COMPLETED -> {
+                    var identifier = readUuid(body);
+                    var completionDate = readInstant(body);
+                    if (complete(identifier, completionDate) == null)
+                        indexCompleted(earlierPublications.remove(identifier), completionDate);
+                }
+                case STATUS_CHANGED -> {
+                    var publication = incompletePublications.get(readUuid(body));
+                    var status = EventPublication.Status.values()[body.get()];
+                    var date = readInstant(body);
+                    if (publication != null)
+                        publication.changeStatus(status, date);
+                }
+                case DELETED -> remove(readUuid(body), true);
+                default -> throw new IllegalStateException("Unknown event journal record type " + type);
+            }
+        });
+        LOGGER.info("Replayed the event journal from position {} with {} incomplete and {} completed publications "
+                + "in {} ms", fromPosition, incompletePublications.size(), completedPublications.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Index the completed publications of the records before the replayed segments. Status changes don't matter for
+     * them.
+     */
+    private void indexEarlierRecord(Map<UUID, Long> earlierPublications, long position, byte type, ByteBuffer body) {
+        switch (type) {
+            case PUBLISHED -> earlierPublications.put(readUuid(body), position);
+            case COMPLETED -> {
+                var identifier = readUuid(body);
+                indexCompleted(earlierPublications.remove(identifier), readInstant(body));
+            }
+            case DELETED -> earlierPublications.remove(readUuid(body));
+            default -> {
+                // NOOP
+            }
+        }
+    }
+
+    private void indexCompleted(Long position, Instant completionDate) {
+        if (position != null && completionMode != CompletionMode.DELETE
+            && !completionDate.isBefore(completedDeletedBefore))
+            completedPublications.put(position, completionDate);
+    }
+
+    private Properties readCheckpoint() {
+        var checkpoint = new Properties();
+        var file = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(file)) {
+            try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                checkpoint.load(reader);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to read the event journal checkpoint " + file, ex);
+            }
+        }
+        return checkpoint;
+    }
+
+    private SegmentStatistics statistics(long position) {
+        return segmentStatistics.computeIfAbsent(journal.segmentStart(position), start -> new SegmentStatistics());
+    }
+
+    private void add(JournaledPublication publication, long position) {
+        publication.position = position;
+        incompletePublications.put(publication.getIdentifier(), publication);
+        listenerPositions.computeIfAbsent(publication.listenerId(), this::registerListener).add(position);
+        var statistics = statistics(position);
+        statistics.publications++;
+        statistics.incomplete++;
+        statistics.changedAt(publication.getPublicationDate());
+    }
+
+    /**
+     * Remove an incomplete publication from memory as completed. Returns the publication, or {@code null} if there's
+     * no such incomplete publication.
+     */
+    private JournaledPublication complete(UUID identifier, Instant completionDate) {
+        var publication = remove(identifier, false);
+        if (publication != null) {
+            statistics(publication.position).changedAt(completionDate);
+            publication.markCompleted(completionDate);
+            indexCompleted(publication.position, completionDate);
+        }
+        return publication;
+    }
+
+    /**
+     * Remove an incomplete publication from memory. Deleted publications don't count as completed publications of
+     * their segment anymore.
+     */
+    private JournaledPublication remove(UUID identifier, boolean deleted) {
+        var publication = incompletePublications.remove(identifier);
+        if (publication == null)
+            return null;
+        listenerPositions.get(publication.listenerId()).remove(publication.position);
+        var statistics = statistics(publication.position);
+        statistics.incomplete--;
+        if (deleted)
+            statistics.publications--;
+        return publication;
+    }
+
+    private ConcurrentSkipListSet<Long> registerListener(String listenerId) {
+        var positions = new ConcurrentSkipListSet<Long>();
+        Gauge.builder("events.journal.listener.lag", positions,
+                offsets -> offsets.isEmpty() ? 0 : journal.endPosition() - offsets.first())
+            .description("Bytes of the event journal from the listener's offset on")
+            .baseUnit("bytes")
+            .tag("listener", listenerId)
+            .register(meterRegistry);
+        return positions;
+    }
+
+    @Override
+    public TargetEventPublication create(TargetEventPublication publication) {
+        var journaledPublication = new JournaledPublication(publication.getIdentifier(),
+            publication.getTargetIdentifier().getValue(), publication.getEvent().getClass().getName(),
+            eventSerializer.serialize(publication.getEvent()).toString(), publication.getPublicationDate());
+        journaledPublication.event = publication.getEvent();
+
+        // Publications must not outlive their transaction, since their events will never be delivered otherwise
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    append(journaledPublication);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK)
+                        deletePublications(List.of(publication.getIdentifier()));
+                }
+            });
+        else
+            append(journaledPublication);
+        return journaledPublication;
+    }
+
+    private void append(JournaledPublication publication) {
+        lock.lock();
+        try {
+            add(publication, journal.append(PUBLISHED, publication.toBody()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void markProcessing(UUID identifier) {
+        var publication = incompletePublications.get(identifier);
+        if (publication != null)
+            publication.changeStatus(EventPublication.Status.PROCESSING, null);
+    }
+
+    @Override
+    public void markCompleted(TargetEventPublication publication, Instant completionDate) {
+        publication.markCompleted(completionDate);
+        markCompleted(publication.getIdentifier(), completionDate);
+    }
+
+    @Override
+    public void markCompleted(UUID identifier, Instant completionDate) {
+        lock.lock();
+        try {
+            if (complete(identifier, completionDate) != null)
+                journal.append(COMPLETED, ByteBuffer.allocate(Long.BYTES * 3 + Integer.BYTES)
+                    .putLong(identifier.getMostSignificantBits())
+                    .putLong(identifier.getLeastSignificantBits())
+                    .putLong(completionDate.getEpochSecond())
+                    .putInt(completionDate.getNano())
+                    .flip());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void markCompleted(Object event, PublicationTargetIdentifier identifier, Instant completionDate) {
+        findIncompletePublicationsByEventAndTargetIdentifier(event, identifier)
+            .ifPresent(publication -> markCompleted(publication.getIdentifier(), completionDate));
+    }
+
+    @Override
+    public void markFailed(UUID identifier) {
+        changeStatus(identifier, EventPublication.Status.FAILED, Instant.now());
+    }
+
+    @Override
+    public boolean markResubmitted(UUID identifier, Instant resubmissionDate) {
+        return changeStatus(identifier, EventPublication.Status.RESUBMITTED, resubmissionDate);
+    }
+
+    private boolean changeStatus(UUID identifier, EventPublication.Status status, Instant date) {
+        lock.lock();
+        try {
+            var publication = incompletePublications.get(identifier);
+            if (publication == null || publication.getStatus() == status)
+                return false;
+            journal.append(STATUS_CHANGED, ByteBuffer.allocate(Long.BYTES * 3 + Integer.BYTES + 1)
+                .putLong(identifier.getMostSignificantBits())
+                .putLong(identifier.getLeastSignificantBits())
+                .put((byte) status.ordinal())
+                .putLong(date.getEpochSecond())
+                .putInt(date.getNano())
+                .flip());
+            publication.changeStatus(status, date);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<TargetEventPublication> findIncompletePublications() {
+        return findIncompletePublicationsPublishedBefore(Instant.MAX);
+    }
+
+    @Override
+    public List<TargetEventPublication> findIncompletePublicationsPublishedBefore(Instant instant) {
+        return incompletePublications.values().stream()
+            .filter(publication -> publication.getPublicationDate().isBefore(instant))
+            .sorted(Comparator.comparing(JournaledPublication::getPublicationDate))
+            .map(TargetEventPublication.class::cast)
+            .toList();
+    }
+
+    @Override
+    public Optional<TargetEventPublication> findIncompletePublicationsByEventAndTargetIdentifier(Object event,
+        PublicationTargetIdentifier targetIdentifier) {
+        // Like the JPA-based registry, compare events by their serialized form
+        var serializedEvent = eventSerializer.serialize(event).toString();
+        return incompletePublications.values().stream()
+            .filter(publication -> publication.listenerId().equals(targetIdentifier.getValue())
+                && publication.serializedEvent.equals(serializedEvent))
+            .min(Comparator.comparing(JournaledPublication::getPublicationDate))
+            .map(TargetEventPublication.class::cast);
+    }
+
+    @Override
+    public List<TargetEventPublication> findCompletedPublications() {
+        Map<Long, Instant> completed;
+        lock.lock();
+        try {
+            completed = new TreeMap<>(completedPublications);
+        } finally {
+            lock.unlock();
+        }
+        // Publications whose segments got deleted in the meantime are skipped
+        var publications = new ArrayList<JournaledPublication>(completed.size());
+        completed.forEach((position, completionDate) -> journal.readRecord(position, (recordPosition, type, body) -> {
+            var publication = readPublication(body);
+            publication.markCompleted(completionDate);
+            publications.add(publication);
+        }));
+        return publications.stream()
+            .sorted(Comparator.comparing(JournaledPublication::getPublicationDate))
+            .map(TargetEventPublication.class::cast)
+            .toList();
+    }
+
+    @Override
+    public List<TargetEventPublication> findFailedPublications(FailedCriteria criteria) {
+        var publishedBefore = criteria.getPublicationDateReference();
+        var failedPublications = incompletePublications.values().stream()
+            .filter(publication -> publication.getStatus() == EventPublication.Status.FAILED)
+            .filter(publication -> publishedBefore == null || publication.getPublicationDate().isBefore(publishedBefore))
+            .sorted(Comparator.comparing(JournaledPublication::getPublicationDate))
+            .map(TargetEventPublication.class::cast);
+        return criteria.getMaxItemsToRead() > 0
+            ? failedPublications.limit(criteria.getMaxItemsToRead()).toList()
+            : failedPublications.toList();
+    }
+
+    @Override
+    public List<TargetEventPublication> findByStatus(EventPublication.Status status) {
+        if (status == EventPublication.Status.COMPLETED)
+            return findCompletedPublications();
+        return incompletePublications.values().stream()
+            .filter(publication -> publication.getStatus() == status)
+            .sorted(Comparator.comparing(JournaledPublication::getPublicationDate))
+            .map(TargetEventPublication.class::cast)
+            .toList();
+    }
+
+    @Override
+    public int countByStatus(EventPublication.Status status) {
+        if (status == EventPublication.Status.COMPLETED) {
+            lock.lock();
+            try {
+                return completedPublications.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return (int) incompletePublications.values().stream()
+            .filter(publication -> publication.getStatus() == status)
+            .count();
+    }
+
+    @Override
+    public void deletePublications(List<UUID> identifiers) {
+        lock.lock();
+        try {
+            for (var identifier : identifiers)
+                if (remove(identifier, true) != null)
+                    journal.append(DELETED, ByteBuffer.allocate(Long.BYTES * 2)
+                        .putLong(identifier.getMostSignificantBits())
+                        .putLong(identifier.getLeastSignificantBits())
+                        .flip());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteCompletedPublications() {
+        deleteCompletedPublicationsBefore(Instant.now());
+    }
+
+    /**
+     * Hide all publications completed before the given instant. Their segments get deleted by the next compaction.
+     */
+    @Override
+    public void deleteCompletedPublicationsBefore(Instant instant) {
+        lock.lock();
+        try {
+            if (instant.isAfter(completedDeletedBefore)) {
+                completedDeletedBefore = instant;
+                completedPublications.values().removeIf(completionDate -> completionDate.isBefore(instant));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void force() {
+        // Exceptions must not escape, since they would cancel the periodic execution
+        try {
+            journal.force();
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to force the event journal to disk", ex);
+        }
+    }
+
+    private void runMaintenance() {
+        try {
+            deleteCompletedPublicationsBefore(Instant.now().minus(properties.retention()));
+            compact();
+            writeCheckpoint();
+        } catch (RuntimeException ex) {
+            // Try again in the next interval
+            LOGGER.error("Failed to compact the event journal", ex);
+        }
+    }
+
+    /**
+     * Append the incomplete publications of sealed segments that are mostly complete once more, and delete the
+     * segments from the start of the journal that only hold complete publications and don't need to be kept for their
+     * completed publications.
+     */
+    void compact() {
+        lock.lock();
+        try {
+            var activeSegment = journal.segmentStart(journal.endPosition());
+            var compactedSegments = new ArrayList<Long>();
+            segmentStatistics.headMap(activeSegment, false).forEach((segment, statistics) -> {
+                if (statistics.incomplete > 0 && statistics.incomplete <= statistics.publications * COMPACTION_RATIO)
+                    compactedSegments.add(segment);
+            });
+            var movedPublications = 0;
+            for (var publication : List.copyOf(incompletePublications.values()))
+                if (compactedSegments.contains(journal.segmentStart(publication.position))) {
+                    remove(publication.getIdentifier(), true);
+                    add(publication, journal.append(PUBLISHED, publication.toBody()));
+                    movedPublications++;
+                }
+
+            var completedCount = segmentStatistics.values().stream()
+                .mapToLong(statistics -> statistics.publications - statistics.incomplete)
+                .sum();
+            var deleteBefore = activeSegment;
+            for (var segment : segmentStatistics.headMap(activeSegment, false).entrySet()) {
+                var statistics = segment.getValue();
+                var deletable = completionMode == CompletionMode.DELETE
+                    || statistics.lastChangeAt.isBefore(completedDeletedBefore)
+                    || completedCount > properties.maxCompletedPublications();
+                if (statistics.incomplete > 0 || !deletable) {
+                    deleteBefore = segment.getKey();
+                    break;
+                }
+                completedCount -= statistics.publications - statistics.incomplete;
+            }
+            var deletedSegments = journal.deleteSegmentsBefore(deleteBefore);
+            segmentStatistics.headMap(deleteBefore, false).clear();
+            completedPublications.headMap(deleteBefore, false).clear();
+            if (movedPublications > 0 || deletedSegments > 0)
+                LOGGER.info("Compacted the event journal by moving {} incomplete publications and deleting {} segments",
+                    movedPublications, deletedSegments);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the listeners' offsets and the statistics of the segments before the smallest offset, whose records
+     * don't need to be replayed anymore. The journal is forced before, so that the offsets never precede records that
+     * didn't reach the disk.
+     */
+    void writeCheckpoint() {
+        var checkpoint = new Properties();
+        lock.lock();
+        try {
+            journal.force();
+            var endPosition = journal.endPosition();
+            var replayFrom = endPosition;
+            for (var listener : listenerPositions.entrySet()) {
+                var positions = listener.getValue();
+                var offset = positions.isEmpty() ? endPosition : positions.first();
+                checkpoint.setProperty("offset." + listener.getKey(), Long.toString(offset));
+                replayFrom = Math.min(replayFrom, offset);
+            }
+            checkpoint.setProperty("replay-from", Long.toString(replayFrom));
+            checkpoint.setProperty("completed-deleted-before", completedDeletedBefore.toString());
+            segmentStatistics.headMap(journal.segmentStart(replayFrom), false).forEach((segment, statistics) ->
+                checkpoint.setProperty("segment." + segment, statistics.toString()));
+        } finally {
+            lock.unlock();
+        }
+
+        var file = directory.resolve(CHECKPOINT_FILE);
+        var temporaryFile = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            try (var writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                checkpoint.store(writer, "Event journal checkpoint");
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write the event journal checkpoint " + file, ex);
+        }
+    }
+
+    /**
+     * Get the listeners' offsets, i.e., the journal positions before which all of their publications are complete.
+     */
+    Map<String, Long> listenerOffsets() {
+        var endPosition = journal.endPosition();
+        var offsets = new HashMap<String, Long>();
+        listenerPositions.forEach((listenerId, positions) ->
+            offsets.put(listenerId, positions.isEmpty() ? endPosition : positions.first()));
+        return offsets;
+    }
+
+    EventJournal journal() {
+        return journal;
+    }
+
+    @PreDestroy
+    void close() {
+        maintenanceScheduler.shutdownNow();
+        writeCheckpoint();
+        journal.close();
+    }
+
+    private JournaledPublication readPublication(ByteBuffer body) {
+        var identifier = readUuid(body);
+        var publicationDate = readInstant(body);
+        var status = EventPublication.Status.values()[body.get()];
+        var completionAttempts = body.getInt();
+        var resubmissionSeconds = body.getLong();
+        var resubmissionNanos = body.getInt();
+        var publication = new JournaledPublication(identifier, getString(body), getString(body), getString(body),
+            publicationDate);
+        publication.status = status;
+        publication.completionAttempts = completionAttempts;
+        if (resubmissionSeconds != Long.MIN_VALUE)
+            publication.lastResubmissionDate = Instant.ofEpochSecond(resubmissionSeconds, resubmissionNanos);
+        return publication;
+    }
+
+    private static UUID readUuid(ByteBuffer body) {
+        return new UUID(body.getLong(), body.getLong());
+    }
+
+    private static Instant readInstant(ByteBuffer body) {
+        return Instant.ofEpochSecond(body.getLong(), body.getInt());
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] string) {
+        buffer.putInt(string.length).put(string);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        var string = new byte[buffer.getInt()];
+        buffer.get(string);
+        return new String(string, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Number of publications in a segment, the number of those that are still incomplete, and the latest publication
+     * or completion date of the publications.
+     */
+    private static final class SegmentStatistics {
+        private int publications;
+        private int incomplete;
+        private Instant lastChangeAt = Instant.EPOCH;
+
+        void changedAt(Instant instant) {
+            if (instant.isAfter(lastChangeAt))
+                lastChangeAt = instant;
+        }
+
+        static SegmentStatistics parse(String value) {
+            var parts = value.split(",");
+            var statistics = new SegmentStatistics();
+            statistics.publications = Integer.parseInt(parts[0]);
+            statistics.lastChangeAt = Instant.parse(parts[1]);
+            return statistics;
+        }
+
+        @Override
+        public String toString() {
+            // Only written for segments without incomplete publications
+            return publications + "," + lastChangeAt;
+        }
+    }
+
+    /**
+     * Publication as recorded in the journal. The event is deserialized on first access.
+     */
+    private final class JournaledPublication implements TargetEventPublication {
+        private final UUID identifier;
+        private final PublicationTargetIdentifier targetIdentifier;
+        private final String eventType;
+        private final String serializedEvent;
+        private final Instant publicationDate;
+        private volatile Object event;
+        private volatile EventPublication.Status status = EventPublication.Status.PUBLISHED;
+        private volatile Instant completionDate;
+        private volatile Instant lastResubmissionDate;
+        private volatile int completionAttempts = 1;
+        // Position of the publication's latest PUBLISHED record. Guarded by lock.
+        private long position;
+
+        JournaledPublication(UUID identifier, String listenerId, String eventType, String serializedEvent,
+            Instant publicationDate) {
+            this.identifier = identifier;
+            targetIdentifier = PublicationTargetIdentifier.of(listenerId);
+            this.eventType = eventType;
+            this.serializedEvent = serializedEvent;
+            this.publicationDate = publicationDate;
+        }
+
+        String listenerId() {
+            return targetIdentifier.getValue();
+        }
+
+        void changeStatus(EventPublication.Status status, Instant date) {
+            this.status = status;
+            if (status == EventPublication.Status.RESUBMITTED) {
+                lastResubmissionDate = date;
+                completionAttempts++;
+            }
+        }
+
+        @Override
+        public void markCompleted(Instant completionDate) {
+            this.completionDate = completionDate;
+            status = EventPublication.Status.COMPLETED;
+        }
+
+        /**
+         * Encode the publication with its current state as body of a PUBLISHED record. Processing marks aren't
+         * recorded.
+         */
+        ByteBuffer toBody() {
+            var listenerId = listenerId().getBytes(StandardCharsets.UTF_8);
+            var type = eventType.getBytes(StandardCharsets.UTF_8);
+            var serialized = serializedEvent.getBytes(StandardCharsets.UTF_8);
+            var recordedStatus = status == EventPublication.Status.PROCESSING ? EventPublication.Status.PUBLISHED
+                : status;
+            var resubmissionDate = lastResubmissionDate;
+            var body = ByteBuffer.allocate(Long.BYTES * 4 + Integer.BYTES * 6 + 1 + listenerId.length + type.length
+                    + serialized.length)
+                .putLong(identifier.getMostSignificantBits())
+                .putLong(identifier.getLeastSignificantBits())
+                .putLong(publicationDate.getEpochSecond())
+                .putInt(publicationDate.getNano())
+                .put((byte) recordedStatus.ordinal())
+                .putInt(completionAttempts)
+                .putLong(resubmissionDate != null ? resubmissionDate.getEpochSecond() : Long.MIN_VALUE)
+                .putInt(resubmissionDate != null ? resubmissionDate.getNano() : 0);
+            putString(body, listenerId);
+            putString(body, type);
+            putString(body, serialized);
+            return body.flip();
+        }
+
+        @Override
+        public UUID getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public Object getEvent() {
+            var currentEvent = event;
+            if (currentEvent == null) {
+                try {
+                    currentEvent = eventSerializer.deserialize(serializedEvent,
+                        ClassUtils.forName(eventType, JournalEventPublicationRepository.class.getClassLoader()));
+                } catch (ClassNotFoundException ex) {
+                    throw new IllegalStateException("Unknown event type " + eventType + " in the event journal", ex);
+                }
+                event = currentEvent;
+            }
+            return currentEvent;
+        }
+
+        @Override
+        public PublicationTargetIdentifier getTargetIdentifier() {
+            return targetIdentifier;
+        }
+
+        @Override
+        public Instant getPublicationDate() {
+            return publicationDate;
+        }
+
+        @Override
+        public Optional<Instant> getCompletionDate() {
+            return Optional.ofNullable(completionDate);
+        }
+
+        @Override
+        public EventPublication.Status getStatus() {
+            return status;
+        }
+
+        @Override
+        public Instant getLastResubmissionDate() {
+            return lastResubmissionDate;
+        }
+
+        @Override
+        public int getCompletionAttempts() {
+            return completionAttempts;
+        }
+    }
+}
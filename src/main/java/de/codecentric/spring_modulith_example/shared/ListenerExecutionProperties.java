@@ -0,0 +1,30 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Configuration of the modules' {@link ListenerExecutor}s. The {@code mode} applies to all modules, while concurrency
+ * limits are configured per module under {@code modules.<module name>}. Modules without such a configuration get the
+ * default limits.
+ */
+@ConfigurationProperties("listener-execution")
+public record ListenerExecutionProperties(
+    @DefaultValue("platform") ListenerExecutor.Mode mode,
+    @DefaultValue("10s") Duration shutdownTimeout,
+    Map<String, ModuleLimits> modules
+) {
+    public ModuleLimits limits(String module) {
+        return modules != null ? modules.getOrDefault(module, ModuleLimits.DEFAULT) : ModuleLimits.DEFAULT;
+    }
+
+    public record ModuleLimits(
+        @DefaultValue("8") int maxConcurrency,
+        @DefaultValue("2147483647") int queueCapacity
+    ) {
+        static final ModuleLimits DEFAULT = new ModuleLimits(8, Integer.MAX_VALUE);
+    }
+}
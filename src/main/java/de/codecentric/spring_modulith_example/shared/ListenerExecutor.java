@@ -0,0 +1,199 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the asynchronous {@link org.springframework.modulith.events.ApplicationModuleListener}s of one module.
+ * Modules refer to their executor by bean name in an {@link org.springframework.scheduling.annotation.Async} annotation
+ * next to the listener annotation, so that every module gets a concurrency limit of its own and a module whose
+ * listeners are slow or receive a burst of events cannot starve the listeners of other modules.
+ * <br/>
+ * Depending on the {@link Mode}, listeners run on a fixed pool of platform threads or on a new virtual thread each. In
+ * both modes, at most {@code maxConcurrency} listeners of the module run at the same time, and further tasks wait in a
+ * FIFO queue of at most {@code queueCapacity} tasks (none with a capacity of 0). Since the listeners spend most of
+ * their time blocked on JDBC, virtual threads allow for a much higher concurrency limit at almost no cost, while the
+ * limit still protects the database's connection pool.
+ * <br/>
+ * The executor reports the number of queued and active tasks, rejected tasks, and the time tasks spent in the queue
+ * as metrics tagged with the module's name. On shutdown, it stops accepting tasks and waits for queued and active tasks
+ * to finish, so that module events don't remain incomplete unnecessarily.
+ */
+public class ListenerExecutor implements TaskExecutor, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ListenerExecutor.class);
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private final String module;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final Duration shutdownTimeout;
+    private final ExecutorService executorService;
+
+    // Permits for running tasks, i.e., all tasks beyond maxConcurrency wait in the queue
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<QueuedTask> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+    // Number of accepted tasks that did not finish yet, i.e., of queued and active tasks
+    private final AtomicInteger outstandingCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final Counter rejectedTasks;
+    private final Timer queueTimes;
+
+    /**
+     * Create the executor for the given module according to the given properties.
+     */
+    public static ListenerExecutor forModule(String module, ListenerExecutionProperties properties,
+        MeterRegistry meterRegistry) {
+        var limits = properties.limits(module);
+        return new ListenerExecutor(module, properties.mode(), limits.maxConcurrency(), limits.queueCapacity(),
+            properties.shutdownTimeout(), meterRegistry);
+    }
+
+    public ListenerExecutor(String module, Mode mode, int maxConcurrency, int queueCapacity, Duration shutdownTimeout,
+        MeterRegistry meterRegistry) {
+        if (maxConcurrency < 1 || queueCapacity < 0)
+            throw new IllegalArgumentException(
+                "Invalid limits for listener executor of module %s: maxConcurrency=%s, queueCapacity=%s"
+                    .formatted(module, maxConcurrency, queueCapacity)
+            );
+
+        this.module = module;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.shutdownTimeout = shutdownTimeout;
+        executorService = switch (mode) {
+            case PLATFORM -> Executors.newFixedThreadPool(maxConcurrency,
+                Thread.ofPlatform().name(module + "-listener-", 1).factory());
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(module + "-listener-", 1).factory());
+        };
+        permits = new Semaphore(maxConcurrency);
+
+        Gauge.builder("listener.executor.queued", queuedCount, AtomicInteger::get)
+            .description("Module listener tasks waiting for execution")
+            .tag("module", module)
+            .register(meterRegistry);
+        Gauge.builder("listener.executor.active", this, ListenerExecutor::activeCount)
+            .description("Module listener tasks being executed")
+            .tag("module", module)
+            .register(meterRegistry);
+        rejectedTasks = Counter.builder("listener.executor.rejected")
+            .description("Module listener tasks rejected because the queue was full or the executor was closed")
+            .tag("module", module)
+            .register(meterRegistry);
+        queueTimes = Timer.builder("listener.executor.queue.time")
+            .description("Time module listener tasks spent waiting for execution")
+            .tag("module", module)
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (closed)
+            reject("executor is closed");
+
+        // Only tasks that have to wait count against the queue's capacity. A task starts right away if no other task
+        // waits, so that it cannot overtake earlier tasks.
+        if (queue.isEmpty() && permits.tryAcquire()) {
+            outstandingCount.incrementAndGet();
+            start(new QueuedTask(task, System.nanoTime()));
+            return;
+        }
+        if (queuedCount.incrementAndGet() > queueCapacity) {
+            queuedCount.decrementAndGet();
+            reject("queue is full");
+        }
+
+        outstandingCount.incrementAndGet();
+        queue.add(new QueuedTask(task, System.nanoTime()));
+        dispatch();
+    }
+
+    private void reject(String reason) {
+        rejectedTasks.increment();
+        throw new TaskRejectedException("Listener executor of module %s rejected task: %s".formatted(module, reason));
+    }
+
+    /**
+     * Start queued tasks as long as there are permits. Every caller that adds a task and every finishing task calls
+     * this method, so that no task remains queued while a permit is available.
+     */
+    private void dispatch() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            var queuedTask = queue.poll();
+            if (queuedTask == null) {
+                // Another caller took the task in the meantime
+                permits.release();
+                continue;
+            }
+
+            queuedCount.decrementAndGet();
+            start(queuedTask);
+        }
+    }
+
+    /**
+     * Run the given task on the executor service. The caller must hold a permit for it.
+     */
+    private void start(QueuedTask queuedTask) {
+        queueTimes.record(System.nanoTime() - queuedTask.queuedAt(), TimeUnit.NANOSECONDS);
+        executorService.execute(() -> run(queuedTask.task()));
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            outstandingCount.decrementAndGet();
+            permits.release();
+            dispatch();
+        }
+    }
+
+    private int activeCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Stop accepting tasks and wait at most for the configured shutdown timeout until all accepted tasks finished.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        var deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        try {
+            while (outstandingCount.get() > 0 && System.nanoTime() < deadline)
+                Thread.sleep(10);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (outstandingCount.get() > 0)
+            LOGGER.warn("Listener executor of module {} closed with {} unfinished tasks", module,
+                outstandingCount.get());
+        executorService.shutdownNow();
+    }
+
+    private record QueuedTask(Runnable task, long queuedAt) {
+        // NOOP
+    }
+}
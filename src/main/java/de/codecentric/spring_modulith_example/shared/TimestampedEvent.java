@@ -0,0 +1,12 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import java.time.Instant;
+
+/**
+ * Event that knows when it was published. Modules implement this interface with their events, so that
+ * {@link EventLagMetrics} can measure how long it takes for the events to take effect in the modules that listen to
+ * them.
+ */
+public interface TimestampedEvent {
+    Instant getPublishedAt();
+}
@@ -0,0 +1,126 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readiness gate for the work that modules do to warm up after the application started, e.g., creating seed data or
+ * loading in-memory read models. The gate is the {@code warmUp} health indicator, which the readiness health group
+ * includes (see {@code application.yaml}). While warm-up work is pending, the indicator reports
+ * {@code OUT_OF_SERVICE}, and once warm-up work failed, it reports {@code DOWN}. Load balancers and orchestrators that
+ * probe {@code /actuator/health/readiness} hence route requests only to instances that finished their warm-up, while
+ * the liveness of the instances isn't affected.
+ * <br/>
+ * Depending on the {@link Mode}, {@link #run(String, Runnable)} executes warm-up work right away on the calling thread,
+ * so that the application only starts once the work completed, or on a thread of its own, so that the application
+ * starts serving requests, e.g., health probes, as soon as possible. Work that should never block the startup is
+ * passed to {@link #runInBackground(String, Runnable)} instead. The timer {@code warm.up.time} tells how long every
+ * piece of warm-up work took.
+ */
+@Component
+public class WarmUp implements HealthIndicator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+
+    public enum Mode {
+        BLOCKING,
+        BACKGROUND
+    }
+
+    private final Mode mode;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executorService = Executors.newThreadPerTaskExecutor(
+        Thread.ofPlatform().name("warm-up-", 1).daemon().factory()
+    );
+
+    // Number of pending runs by name of the warm-up work
+    private final Map<String, Integer> pendingWork = new ConcurrentHashMap<>();
+    // Failure messages by name of the warm-up work that failed in the background
+    private final Map<String, String> failedWork = new ConcurrentHashMap<>();
+
+    WarmUp(WarmUpProperties properties, MeterRegistry meterRegistry) {
+        mode = properties.mode();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    void shutDown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Run the given warm-up work according to the configured {@link Mode}. In {@link Mode#BLOCKING blocking} mode,
+     * failures are thrown to the caller.
+     */
+    public void run(String name, Runnable work) {
+        if (mode == Mode.BACKGROUND) {
+            runInBackground(name, work);
+            return;
+        }
+
+        pendingWork.merge(name, 1, Integer::sum);
+        try {
+            timed(name, work);
+        } finally {
+            pendingWork.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Run the given warm-up work on a thread of its own, regardless of the configured {@link Mode}, and hold back the
+     * readiness until it completed.
+     */
+    public void runInBackground(String name, Runnable work) {
+        pendingWork.merge(name, 1, Integer::sum);
+        executorService.execute(() -> {
+            try {
+                timed(name, work);
+            } catch (RuntimeException ex) {
+                LOGGER.error("Warm-up work {} failed", name, ex);
+                failedWork.put(name, String.valueOf(ex.getMessage()));
+            } finally {
+                pendingWork.computeIfPresent(name, (key, count) -> count > 1 ? count - 1 : null);
+            }
+        });
+    }
+
+    private void timed(String name, Runnable work) {
+        var start = System.nanoTime();
+        work.run();
+        var duration = System.nanoTime() - start;
+        Timer.builder("warm.up.time")
+            .description("Time warm-up work took after the application started")
+            .tag("work", name)
+            .register(meterRegistry)
+            .record(duration, TimeUnit.NANOSECONDS);
+        LOGGER.info("Warm-up work {} completed in {} ms", name, TimeUnit.NANOSECONDS.toMillis(duration));
+    }
+
+    /**
+     * Tell whether all warm-up work that was started so far completed, successfully or not.
+     */
+    public boolean isComplete() {
+        return pendingWork.isEmpty();
+    }
+
+    @Override
+    public Health health() {
+        if (!failedWork.isEmpty())
+            return Health.down().withDetail("failed", Map.copyOf(failedWork)).build();
+        else if (!pendingWork.isEmpty())
+            return Health.outOfService().withDetail("pending", Set.copyOf(pendingWork.keySet())).build();
+        return Health.up().build();
+    }
+}
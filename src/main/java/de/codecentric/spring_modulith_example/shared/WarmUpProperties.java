@@ -0,0 +1,14 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the {@link WarmUp}, i.e., whether warm-up work blocks the startup or runs in the background.
+ */
+@ConfigurationProperties("warm-up")
+public record WarmUpProperties(
+    @DefaultValue("blocking") WarmUp.Mode mode
+) {
+    // NOOP
+}
@@ -3,10 +3,22 @@
  * application. Precisely, the {@link de.codecentric.spring_modulith_example.shared.Defaults} class defines
  * application-global constants and the
  * {@link de.codecentric.spring_modulith_example.shared.GlobalControllerExceptionHandler} class maps Java exceptions
- * from the application's HTTP APIs to specific HTTP status code.
+ * from the application's HTTP APIs to specific HTTP status code. The
+ * {@link de.codecentric.spring_modulith_example.shared.ListenerExecutor} class runs the asynchronous event listeners of
+ * a module with a concurrency limit of its own, configured by
+ * {@link de.codecentric.spring_modulith_example.shared.ListenerExecutionProperties}. The
+ * {@link de.codecentric.spring_modulith_example.shared.EventLagMetrics} class measures how long events that implement
+ * {@link de.codecentric.spring_modulith_example.shared.TimestampedEvent} take to propagate to the modules' listeners.
+ * The {@link de.codecentric.spring_modulith_example.shared.BatchingEventPublicationRepository} and
+ * {@link de.codecentric.spring_modulith_example.shared.EventPublicationMaintenance} classes keep the writes to and the
+ * size of Spring Modulith's event publication registry in check. Alternatively, the
+ * {@link de.codecentric.spring_modulith_example.shared.JournalEventPublicationRepository} class keeps the registry in
+ * an append-only {@link de.codecentric.spring_modulith_example.shared.EventJournal} instead of the database.
  * <br/>
  * Given Spring Modulith's interpretation of Java packages as modules, this package constitutes the Shared module of the
- * application with one exposed type, i.e., {@link de.codecentric.spring_modulith_example.shared.Defaults} which has
- * public visibility.
+ * application with four exposed types, i.e., {@link de.codecentric.spring_modulith_example.shared.Defaults},
+ * {@link de.codecentric.spring_modulith_example.shared.ListenerExecutor},
+ * {@link de.codecentric.spring_modulith_example.shared.ListenerExecutionProperties}, and
+ * {@link de.codecentric.spring_modulith_example.shared.TimestampedEvent} which have public visibility.
  */
 package de.codecentric.spring_modulith_example.shared;
\ No newline at end of file
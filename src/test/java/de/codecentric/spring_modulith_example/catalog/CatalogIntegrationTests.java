@@ -1,44 +1,102 @@
 package de.codecentric.spring_modulith_example.catalog;
 
+import de.codecentric.spring_modulith_example.catalog.controller.CursorPage;
+import de.codecentric.spring_modulith_example.catalog.controller.ProductApi;
 import de.codecentric.spring_modulith_example.catalog.external_events.InventoryProductCreated;
 import de.codecentric.spring_modulith_example.catalog.model.CatalogData;
+import de.codecentric.spring_modulith_example.catalog.model.CatalogReadModel;
+import de.codecentric.spring_modulith_example.catalog.model.Price;
 import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.model.ProductChangePublisher;
+import de.codecentric.spring_modulith_example.catalog.model.ProductsChanged;
+import de.codecentric.spring_modulith_example.catalog.model.QuantityChangeCoalescer;
+import de.codecentric.spring_modulith_example.catalog.model.QuantityChangeCoalescingProperties;
 import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
 import de.codecentric.spring_modulith_example.inventory.QuantityChanged;
-import org.javamoney.moneta.Money;
+import de.codecentric.spring_modulith_example.shared.WarmUp;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.modulith.events.core.EventPublicationRepository;
 import org.springframework.modulith.test.ApplicationModuleTest;
 import org.springframework.modulith.test.Scenario;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Integration tests for the Catalog module that assume a running database (here: embedded H2). Note that we explicitly
  * include the Inventory module in the tests using the {@link ApplicationModuleTest#extraIncludes()} property. That is
  * because the test in {@link #testInitialProductEvents()} expects the occurrence of events that are handled and emitted
- * by the Inventory module.
+ * by the Inventory module. Product imports run in tiny batches, so that {@link #testProductImport()} spans several
+ * batches.
  */
 @ApplicationModuleTest(extraIncludes = "inventory")
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "catalog.product-import.batch-size=2")
 class CatalogIntegrationTests {
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final CatalogReadModel catalogReadModel;
     private final EventPublicationRepository eventPublicationRepository;
+    private final MeterRegistry meterRegistry;
+    private final MockMvc mockMvc;
+    private final ProductApi productApi;
+    private final ProductChangePublisher productChangePublisher;
     private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WarmUp warmUp;
 
-    CatalogIntegrationTests(EventPublicationRepository eventPublicationRepository,
-        ProductRepository productRepository) {
+    CatalogIntegrationTests(ApplicationEventPublisher applicationEventPublisher, CatalogReadModel catalogReadModel,
+        EventPublicationRepository eventPublicationRepository, MeterRegistry meterRegistry, MockMvc mockMvc,
+        ProductApi productApi, ProductChangePublisher productChangePublisher, ProductRepository productRepository,
+        TransactionTemplate transactionTemplate, WarmUp warmUp) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.catalogReadModel = catalogReadModel;
         this.eventPublicationRepository = eventPublicationRepository;
+        this.meterRegistry = meterRegistry;
+        this.mockMvc = mockMvc;
+        this.productApi = productApi;
+        this.productChangePublisher = productChangePublisher;
         this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.warmUp = warmUp;
     }
 
     /**
@@ -108,13 +166,13 @@ class CatalogIntegrationTests {
     void testQuantityChangedEvent(Scenario scenario) {
         // Create a test product in the Catalog module's database
         var initialQuantity = 100;
-        var product = productRepository.save(new Product("Some Test Product", "", Money.of(100, DEFAULT_CURRENCY),
+        var product = productRepository.save(new Product("Some Test Product", "", Price.of(100, DEFAULT_CURRENCY),
             initialQuantity));
 
         // Fire QuantityChanged event for new quantity of the test product and verify the event's impact
         var newQuantity = initialQuantity + 100;
         scenario
-            .publish(new QuantityChanged(this, product.getId(), newQuantity))
+            .publish(new QuantityChanged(this, product.getId(), newQuantity, 1))
             .andWaitForStateChange(
                 () -> productRepository.findById(product.getId()),
                 optProduct -> optProduct.isPresent() && optProduct.get().getCurrentQuantity() == newQuantity
@@ -131,4 +189,509 @@ class CatalogIntegrationTests {
         // Clean up
         productRepository.delete(product);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that the {@link CatalogReadModel} follows the quantities written by
+     * {@link CatalogData#quantityChanged(QuantityChanged)}, including products that run out of stock, and that it times
+     * how long after their commit the changes became visible.
+     */
+    @Test
+    void testReadModelFollowsQuantityChanges(Scenario scenario) {
+        await().atMost(Duration.ofSeconds(5)).until(catalogReadModel::isLoaded);
+        var product = productRepository.save(new Product("Some Read Model Product", "",
+            Price.of(100, DEFAULT_CURRENCY), 100));
+        var stalenessCountBefore = timerCount("catalog.read.model.staleness");
+
+        scenario
+            .publish(new QuantityChanged(this, product.getId(), 0, 1))
+            .andWaitForStateChange(
+                () -> catalogReadModel.product(product.getId()),
+                optProduct -> optProduct.isPresent() && optProduct.get().currentQuantity() == 0
+            );
+        assertThat(catalogReadModel.product(product.getId()).orElseThrow().name()).isEqualTo("Some Read Model Product");
+        assertThat(productApi.getOutOfStockProducts()).contains(product.getId());
+        assertThat(timerCount("catalog.read.model.staleness")).isGreaterThan(stalenessCountBefore);
+
+        scenario
+            .publish(new QuantityChanged(this, product.getId(), 5, 2))
+            .andWaitForStateChange(
+                () -> catalogReadModel.product(product.getId()),
+                optProduct -> optProduct.isPresent() && optProduct.get().currentQuantity() == 5
+            );
+        assertThat(productApi.getOutOfStockProducts()).doesNotContain(product.getId());
+
+        // Clean up
+        productRepository.delete(product);
+        catalogReadModel.rebuild();
+    }
+
+    /**
+     * Test that the propagation of a {@link QuantityChanged} event from its publication to the Catalog module's
+     * {@link CatalogData#quantityChanged(QuantityChanged)} listener is measured by timers tagged with the publishing
+     * module, the listening module, and the listener, and that incomplete event publications are reported by a gauge.
+     */
+    @Test
+    void testPropagationLagMetrics(Scenario scenario) {
+        var product = productRepository.save(new Product("Some Lagging Product", "", Price.of(100, DEFAULT_CURRENCY),
+            0));
+        var listenerTags = new String[] {"module", "catalog", "listener", "CatalogData.quantityChanged", "event",
+            "QuantityChanged"};
+        var lagsBefore = timerCount("events.propagation.lag", listenerTags);
+
+        scenario
+            .publish(new QuantityChanged(this, product.getId(), 1, 1))
+            .andWaitForStateChange(
+                () -> productRepository.findById(product.getId()),
+                optProduct -> optProduct.isPresent() && optProduct.get().getCurrentQuantity() == 1
+            );
+
+        // The listener's timers are recorded as soon as the listener returned, which might be slightly after the state
+        // change became visible
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(timerCount("events.propagation.lag", listenerTags)).isGreaterThan(lagsBefore);
+            assertThat(timerCount("events.listener.queue.wait", listenerTags)).isGreaterThan(lagsBefore);
+            assertThat(timerCount("events.listener.duration", listenerTags)).isGreaterThan(lagsBefore);
+        });
+        assertThat(timerCount("events.publish.to.commit", "module", "inventory", "event", "QuantityChanged"))
+            .isPositive();
+        assertThat(meterRegistry.get("events.publications.incomplete").tag("status", "published").gauge().value())
+            .isNotNegative();
+
+        // Clean up
+        productRepository.delete(product);
+    }
+
+    /**
+     * Test that {@link QuantityChanged} events whose versions are lower than or equal to the version of the last
+     * written quantity are skipped, i.e., neither change the product's current quantity nor get written, and that the
+     * skips are counted.
+     */
+    @Test
+    void testStaleQuantityChangesAreSkipped(Scenario scenario) {
+        var product = productRepository.save(new Product("Some Versioned Product", "", Price.of(100, DEFAULT_CURRENCY),
+            0));
+        scenario
+            .publish(new QuantityChanged(this, product.getId(), 5, 2))
+            .andWaitForStateChange(
+                () -> productRepository.findById(product.getId()),
+                optProduct -> optProduct.isPresent() && optProduct.get().getCurrentQuantity() == 5
+            );
+        var lastModified = productRepository.findById(product.getId()).orElseThrow().getLastModified();
+
+        var skippedBefore = meterRegistry.get("catalog.quantity.changes.skipped").counter().count();
+        // A stale and a duplicate event, which are published within transactions like the Inventory module does
+        scenario
+            .publish(new QuantityChanged(this, product.getId(), 3, 1))
+            .andWaitForStateChange(
+                () -> meterRegistry.get("catalog.quantity.changes.skipped").counter().count(),
+                skipped -> skipped == skippedBefore + 1
+            );
+        scenario
+            .publish(new QuantityChanged(this, product.getId(), 4, 2))
+            .andWaitForStateChange(
+                () -> meterRegistry.get("catalog.quantity.changes.skipped").counter().count(),
+                skipped -> skipped == skippedBefore + 2
+            );
+        var unchangedProduct = productRepository.findById(product.getId()).orElseThrow();
+        assertThat(unchangedProduct.getCurrentQuantity()).isEqualTo(5);
+        assertThat(unchangedProduct.getQuantityVersion()).isEqualTo(2);
+        assertThat(unchangedProduct.getLastModified()).isEqualTo(lastModified);
+
+        // Clean up
+        productRepository.delete(product);
+    }
+
+    /**
+     * Test that quantity changes of the same product that are submitted while the {@link QuantityChangeCoalescer} is
+     * flushing are written by the next flush as a single change with the latest quantity, that every caller gets
+     * released once it's committed, and that the coalescing is counted. Changes that are stale by then are skipped
+     * without a flush. The test uses a coalescer of its own, whose
+     * first flush is held up until the other changes are pending, and meters of its own, so that no other changes
+     * interfere.
+     */
+    @Test
+    void testQuantityChangesAreCoalesced() {
+        var product = productRepository.save(new Product("Some Coalesced Product", "", Price.of(100, DEFAULT_CURRENCY),
+            0));
+        var coalescerMeterRegistry = new SimpleMeterRegistry();
+        var firstFlush = new CountDownLatch(1);
+        var heldUpProductChangePublisher = new ProductChangePublisher(applicationEventPublisher) {
+            @Override
+            public void publishAfterCommit(Collection<Product> products) {
+                assertDoesNotThrow(() -> firstFlush.await());
+                super.publishAfterCommit(products);
+            }
+        };
+        var coalescer = new QuantityChangeCoalescer(heldUpProductChangePublisher, productRepository,
+            transactionTemplate, new QuantityChangeCoalescingProperties(500, 100), coalescerMeterRegistry);
+
+        // Submit the changes one after another, each once the previous one waits for the held-up flush
+        var callers = new ArrayList<Thread>();
+        for (var version = 1; version <= 3; version++) {
+            var quantity = 10 * version;
+            var quantityVersion = version;
+            var caller = Thread.ofPlatform().start(() ->
+                coalescer.applyAndWait(product.getId(), quantity, quantityVersion)
+            );
+            await().until(() -> caller.getState() == Thread.State.WAITING);
+            callers.add(caller);
+        }
+        firstFlush.countDown();
+        for (var caller : callers)
+            assertDoesNotThrow(() -> caller.join(Duration.ofSeconds(5)));
+        assertThat(callers).noneMatch(Thread::isAlive);
+
+        var changedProduct = productRepository.findById(product.getId()).orElseThrow();
+        assertThat(changedProduct.getCurrentQuantity()).isEqualTo(30);
+        assertThat(changedProduct.getQuantityVersion()).isEqualTo(3);
+        assertThat(coalescerMeterRegistry.get("catalog.quantity.changes.received").counter().count()).isEqualTo(3);
+        assertThat(coalescerMeterRegistry.get("catalog.quantity.changes.coalesced").counter().count()).isEqualTo(1);
+        assertThat(coalescerMeterRegistry.get("catalog.quantity.changes.skipped").counter().count()).isZero();
+        var flushedBatchSizes = coalescerMeterRegistry.get("catalog.quantity.changes.flushed").summary();
+        assertThat(flushedBatchSizes.count()).isEqualTo(2);
+        assertThat(flushedBatchSizes.totalAmount()).isEqualTo(2);
+
+        coalescer.applyAndWait(product.getId(), 20, 2);
+        assertThat(coalescerMeterRegistry.get("catalog.quantity.changes.skipped").counter().count()).isEqualTo(1);
+        assertThat(flushedBatchSizes.count()).isEqualTo(2);
+
+        // Clean up
+        productRepository.delete(product);
+    }
+
+    private long timerCount(String name, String... tags) {
+        var timer = meterRegistry.find(name).tags(tags).timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    /**
+     * Test that following the cursors of {@link ProductApi#scrollProducts(String)} visits every product exactly once
+     * and in ascending order of product IDs, and that the pages of {@link ProductApi#getProducts(int)} contain the same
+     * products. Both are answered from the {@link CatalogReadModel}, which gets loaded from the database and then
+     * follows {@link ProductsChanged} events.
+     */
+    @Test
+    void testScrollProducts() {
+        catalogReadModel.rebuild();
+        // Create enough test products for several pages
+        var products = productRepository.saveAll(IntStream.range(0, 2 * ProductApi.CATALOG_PAGE_SIZE + 5)
+            .mapToObj(i -> new Product("Scroll Test Product " + i, "", Price.of(100, DEFAULT_CURRENCY), 0))
+            .toList());
+        productChangePublisher.publishAfterCommit(products);
+
+        var scrolledProductIds = new ArrayList<Long>();
+        CursorPage page = null;
+        do {
+            page = productApi.scrollProducts(page != null ? page.nextCursor() : null);
+            assertThat(page.productIds()).hasSizeLessThanOrEqualTo(ProductApi.CATALOG_PAGE_SIZE);
+            scrolledProductIds.addAll(page.productIds());
+        } while (page.nextCursor() != null);
+
+        assertThat(scrolledProductIds)
+            .isSorted()
+            .containsExactlyInAnyOrderElementsOf(mapIdToQuantityForAllProducts().keySet());
+
+        var pagedProductIds = new ArrayList<Long>();
+        List<Long> productIds;
+        for (var pageNumber = 0; !(productIds = productApi.getProducts(pageNumber)).isEmpty(); pageNumber++)
+            pagedProductIds.addAll(productIds);
+        assertThat(pagedProductIds).containsExactlyElementsOf(scrolledProductIds);
+
+        // Clean up
+        productRepository.deleteAll(products);
+        catalogReadModel.rebuild();
+    }
+
+    /**
+     * Test that the out-of-stock endpoints of the {@link ProductApi} follow product quantities crossing zero as
+     * communicated by {@link ProductsChanged} events, including products whose IDs lie in different chunks of the
+     * {@link CatalogReadModel}.
+     */
+    @Test
+    void testOutOfStockProducts() {
+        await().atMost(Duration.ofSeconds(5)).until(catalogReadModel::isLoaded);
+        var initialCount = productApi.countOutOfStockProducts();
+        var testProductIds = List.of(4_095L, 4_096L, 4_160L, 10_000_000L);
+        publishQuantityChanges(testProductIds, 0);
+        assertThat(productApi.countOutOfStockProducts()).isEqualTo(initialCount + testProductIds.size());
+        assertThat(productApi.getOutOfStockProducts())
+            .isSorted()
+            .containsAll(testProductIds);
+
+        // Scrolling through out-of-stock products yields the same product IDs as the unpaged endpoint
+        var scrolledProductIds = new ArrayList<Long>();
+        CursorPage page = null;
+        do {
+            page = productApi.scrollOutOfStockProducts(page != null ? page.nextCursor() : null);
+            scrolledProductIds.addAll(page.productIds());
+        } while (page.nextCursor() != null);
+        assertThat(scrolledProductIds).containsExactlyElementsOf(productApi.getOutOfStockProducts());
+
+        // Restocked products leave the set
+        publishQuantityChanges(testProductIds.subList(1, 3), 5);
+        assertThat(productApi.countOutOfStockProducts()).isEqualTo(initialCount + 2);
+        assertThat(productApi.getOutOfStockProducts())
+            .contains(testProductIds.getFirst(), testProductIds.getLast())
+            .doesNotContainAnyElementsOf(testProductIds.subList(1, 3));
+
+        // Clean up
+        catalogReadModel.rebuild();
+    }
+
+    private void publishQuantityChanges(List<Long> productIds, int newQuantity) {
+        applicationEventPublisher.publishEvent(new ProductsChanged(productIds.stream()
+            .map(id -> new ProductsChanged.ChangedProduct(id, "", "", Price.of(100, DEFAULT_CURRENCY), 10000L,
+                newQuantity))
+            .toList()));
+    }
+
+    /**
+     * Test that product details are served from the cache with an entity tag, that requests with the current entity
+     * tag in their {@code If-None-Match} header get a {@code 304 Not Modified} response, and that the cache follows
+     * changes to products as communicated by {@link ProductsChanged} events.
+     */
+    @Test
+    void testProductDetailCaching() throws Exception {
+        var product = productRepository.save(new Product("Cached Test Product", "", Price.of(100, DEFAULT_CURRENCY),
+            0));
+        productChangePublisher.publishAfterCommit(List.of(product));
+        var productUri = "/catalog/products/%s".formatted(product.getId());
+        var hitsBefore = meterRegistry.get("cache.gets").tags("cache", "catalog.product-details", "result", "hit")
+            .functionCounter().count();
+
+        var eTag = mockMvc.perform(get(productUri))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Cached Test Product"))
+            .andExpect(jsonPath("$.priceAmount").value("100"))
+            .andExpect(jsonPath("$.priceCurrency").value("EUR"))
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(productUri).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        assertThat(meterRegistry.get("cache.gets").tags("cache", "catalog.product-details", "result", "hit")
+            .functionCounter().count()).isGreaterThan(hitsBefore);
+
+        // Changes of the current quantity don't affect product details and hence keep the entity tag valid
+        product.setCurrentQuantity(10);
+        applicationEventPublisher.publishEvent(new ProductsChanged(List.of(ProductsChanged.ChangedProduct.of(
+            productRepository.save(product)))));
+        mockMvc.perform(get(productUri).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+
+        // Changes of product details invalidate the cached details
+        product.setName("Renamed Cached Test Product");
+        product.setPrice(Price.of(0.5, DEFAULT_CURRENCY));
+        applicationEventPublisher.publishEvent(new ProductsChanged(List.of(ProductsChanged.ChangedProduct.of(
+            productRepository.save(product)))));
+        mockMvc.perform(get(productUri).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Renamed Cached Test Product"))
+            .andExpect(jsonPath("$.priceAmount").value("0.5"))
+            .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+
+        // Clean up
+        productRepository.delete(product);
+        catalogReadModel.rebuild();
+    }
+
+    /**
+     * Test that a CSV product feed is imported in batches with progress reports per batch, that the Inventory module
+     * creates the stocks of the imported products, whose quantities then reach the Catalog module, and that malformed
+     * feeds are rejected, either by status code or, once batches got committed, by the final line of the response.
+     */
+    @Test
+    void testProductImport() throws Exception {
+        var response = mockMvc.perform(post("/catalog/products/import")
+                .contentType("text/csv")
+                .content("""
+                    name,description,priceAmount,priceCurrency,quantity
+                    Imported Kettle,"Steel kettle, 1.5 l",29.99,EUR,10
+                    Imported Lamp,"Desk lamp with ""smart"" dimmer",49.50,EUR,20
+                    Imported Chair,Oak chair,120,EUR,0
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+        assertThat(response.lines().toList()).hasSize(3).satisfies(lines -> {
+            assertThat(lines.get(0)).contains("\"batch\":1", "\"importedProducts\":2", "\"productsPerSecond\"");
+            assertThat(lines.get(1)).contains("\"batch\":2", "\"importedProducts\":3");
+            assertThat(lines.get(2)).isEqualTo("{\"importedProducts\":3,\"error\":null}");
+        });
+
+        var expectedQuantities = Map.of("Imported Kettle", 10, "Imported Lamp", 20, "Imported Chair", 0);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(importedProducts())
+            .extracting(Product::getName, Product::getCurrentQuantity)
+            .containsExactlyInAnyOrderElementsOf(expectedQuantities.entrySet().stream()
+                .map(quantity -> tuple(quantity.getKey(), quantity.getValue()))
+                .toList()));
+        assertThat(importedProducts())
+            .filteredOn(product -> product.getName().equals("Imported Lamp"))
+            .singleElement()
+            .satisfies(product -> {
+                assertThat(product.getDescription()).isEqualTo("Desk lamp with \"smart\" dimmer");
+                assertThat(product.getPrice()).isEqualTo(Price.of(49.5, DEFAULT_CURRENCY));
+            });
+        awaitCompletedPublications();
+        productRepository.deleteAll(importedProducts());
+
+        // The first product is malformed, so nothing got committed yet
+        mockMvc.perform(post("/catalog/products/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("""
+                    {"name":"Imported Pan","description":"","priceAmount":10,"priceCurrency":"XYZ","quantity":1}
+                    """))
+            .andExpect(status().isBadRequest());
+
+        // The third product is malformed, after the first batch got committed
+        mockMvc.perform(post("/catalog/products/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("""
+                    {"name":"Imported Pan","description":"","priceAmount":10,"priceCurrency":"EUR","quantity":1}
+                    {"name":"Imported Mug","description":"","priceAmount":5,"priceCurrency":"EUR","quantity":1}
+                    {"name":"Imported Shelf","description":"","priceAmount":-1,"priceCurrency":"EUR","quantity":1}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(content().string(endsWith(
+                "{\"importedProducts\":2,\"error\":\"Line 3: Product price is missing or negative\"}\n")));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(importedProducts())
+            .extracting(Product::getName, Product::getCurrentQuantity)
+            .containsExactlyInAnyOrder(tuple("Imported Pan", 1), tuple("Imported Mug", 1)));
+        awaitCompletedPublications();
+        productRepository.deleteAll(importedProducts());
+    }
+
+    /**
+     * Wait until the Catalog module's listeners handled all quantity changes of imported products before cleaning up,
+     * so that they don't miss the products. Waiting for the expected quantities doesn't suffice, since they might equal
+     * the quantities that the products got imported with.
+     */
+    private void awaitCompletedPublications() {
+        await().atMost(Duration.ofSeconds(5))
+            .until(() -> eventPublicationRepository.findIncompletePublications().isEmpty());
+    }
+
+    /**
+     * Test that the whole catalog is exported as newline-delimited JSON in the order of product IDs, compressed with
+     * gzip if the client accepts it, and that incremental exports only comprise products changed since a given time.
+     */
+    @Test
+    void testProductExport() throws Exception {
+        var kettle = productRepository.save(new Product("Exported Kettle", "Steel kettle", Price.of(29.99,
+            DEFAULT_CURRENCY), 10));
+        var changedSince = kettle.getLastModified().plusMillis(1);
+        await().until(() -> Instant.now().isAfter(changedSince));
+        var lamp = productRepository.save(new Product("Exported Lamp", "Desk lamp", Price.of(49.5, "USD"), 20));
+        var kettleLine = """
+            {"id":%d,"name":"Exported Kettle","description":"Steel kettle","priceAmount":"29.99","priceCurrency":"EUR",\
+            "currentQuantity":10}""".formatted(kettle.getId());
+        var lampLine = """
+            {"id":%d,"name":"Exported Lamp","description":"Desk lamp","priceAmount":"49.5","priceCurrency":"USD",\
+            "currentQuantity":20}""".formatted(lamp.getId());
+
+        var lines = mockMvc.perform(get("/catalog/products/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+            .andReturn().getResponse().getContentAsString().lines().toList();
+        assertThat(lines).hasSize((int) productRepository.count()).containsSubsequence(kettleLine, lampLine);
+
+        var compressed = mockMvc.perform(get("/catalog/products/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0.8"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn().getResponse().getContentAsByteArray();
+        try (var decompressed = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(new String(decompressed.readAllBytes(), StandardCharsets.UTF_8).lines())
+                .containsSubsequence(kettleLine, lampLine);
+        }
+
+        // Of both products, only the lamp was saved after the given time
+        var changedLines = mockMvc.perform(get("/catalog/products/export")
+                .param("changedSince", changedSince.toString()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString().lines().toList();
+        assertThat(changedLines).contains(lampLine).doesNotContain(kettleLine);
+
+        // Clean up
+        productRepository.deleteAll(List.of(kettle, lamp));
+    }
+
+    /**
+     * Test that exchange rates replaced via the HTTP API recompute the normalized prices of products, on which price
+     * searches rely, and that invalid rates are rejected without replacing the current ones.
+     */
+    @Test
+    void testExchangeRateUpdate() throws Exception {
+        var product = productRepository.save(new Product("Globe", "Shows all currencies", Price.of(1000, "USD"), 1));
+        var rates = mockMvc.perform(get("/catalog/exchangeRates"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.USD").value(0.86))
+            .andReturn().getResponse().getContentAsString();
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getNormalizedPrice()).isEqualTo(86000L);
+
+        try {
+            mockMvc.perform(put("/catalog/exchangeRates").contentType(MediaType.APPLICATION_JSON)
+                    .content("""
+                        {"USD": 1.5, "GBP": 1.15}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.USD").value(1.5))
+                .andExpect(jsonPath("$.CHF").doesNotExist());
+            assertThat(productRepository.findById(product.getId()).orElseThrow().getNormalizedPrice())
+                .isEqualTo(150000L);
+
+            for (var invalidRates : List.of("{\"USD\": 0}", "{\"XYZ\": 1}"))
+                mockMvc.perform(put("/catalog/exchangeRates").contentType(MediaType.APPLICATION_JSON)
+                        .content(invalidRates))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get("/catalog/exchangeRates"))
+                .andExpect(jsonPath("$.USD").value(1.5));
+        } finally {
+            mockMvc.perform(put("/catalog/exchangeRates").contentType(MediaType.APPLICATION_JSON).content(rates))
+                .andExpect(status().isOk());
+            productRepository.delete(product);
+        }
+    }
+
+    /**
+     * Test that the application only reports readiness while no warm-up work is pending, and that warm-up work in the
+     * background doesn't keep the application from serving other requests.
+     */
+    @Test
+    void testReadinessAwaitsWarmUp() throws Exception {
+        await().until(warmUp::isComplete);
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isOk());
+
+        var warmedUp = new CountDownLatch(1);
+        warmUp.runInBackground("test warm-up", () -> {
+            try {
+                warmedUp.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            mockMvc.perform(get("/actuator/health/readiness"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("OUT_OF_SERVICE"));
+            mockMvc.perform(get("/actuator/health/liveness"))
+                .andExpect(status().isOk());
+            mockMvc.perform(get("/catalog").param("pageNumber", "0"))
+                .andExpect(status().isOk());
+        } finally {
+            warmedUp.countDown();
+        }
+
+        await().until(warmUp::isComplete);
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isOk());
+    }
+
+    private List<Product> importedProducts() {
+        return productRepository.findAll().stream()
+            .filter(product -> product.getName().startsWith("Imported "))
+            .toList();
+    }
+}
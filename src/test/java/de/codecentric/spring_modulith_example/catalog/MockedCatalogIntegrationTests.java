@@ -1,18 +1,17 @@
 package de.codecentric.spring_modulith_example.catalog;
 
+import de.codecentric.spring_modulith_example.catalog.model.Price;
 import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.model.ProductView;
 import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
 import de.codecentric.spring_modulith_example.inventory.QuantityChanged;
-import de.codecentric.spring_modulith_example.inventory.model.Stock;
 import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
-import org.javamoney.moneta.Money;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.modulith.test.ApplicationModuleTest;
 import org.springframework.modulith.test.Scenario;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -23,13 +22,17 @@ import tools.jackson.databind.ObjectMapper;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.StreamSupport;
 
 import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -54,6 +57,7 @@ class MockedCatalogIntegrationTests {
          */
         @Bean
         @Primary
+        @SuppressWarnings("unchecked")
         public ProductRepository mockProductRepository() {
             var productRepository = mock(ProductRepository.class);
 
@@ -68,20 +72,49 @@ class MockedCatalogIntegrationTests {
                     return product;
                 });
 
-            // Ensure that all paged requests to findAll() return the mock product. Note that this behavior is
-            // inconsistent with the previous mock configuration, i.e., findAll() will not return any other product
-            // save()d to the repository. Currently, this behavior is fine.
-            when(productRepository.findAll(any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(MOCK_PRODUCT)));
+            // Ensure that findAllById() returns all products that findById() returns for the given IDs
+            when(productRepository.findAllById(any()))
+                .thenAnswer(ids -> StreamSupport.stream(((Iterable<Long>) ids.getArguments()[0]).spliterator(), false)
+                    .map(productRepository::findById)
+                    .flatMap(Optional::stream)
+                    .toList()
+                );
+
+            // Ensure that all paged requests to findIds() return the ID of the mock product. Note that this behavior is
+            // inconsistent with the previous mock configuration, i.e., findIds() will not return the ID of any other
+            // product save()d to the repository. Currently, this behavior is fine.
+            when(productRepository.findIds(any(Pageable.class))).thenReturn(List.of(MOCK_PRODUCT.getId()));
 
             // Ensure that the mock product can be found with findById()
             when(productRepository.findById(MOCK_PRODUCT.getId())).thenReturn(Optional.of(MOCK_PRODUCT));
 
+            // Ensure that the CatalogReadModel loads the mock product. Products save()d to the repository get into the
+            // read model from the ProductsChanged events that are published for them.
+            when(productRepository.findIdRanges(anyDouble())).thenReturn(List.of(new ProductRepository.IdRange() {
+                @Override
+                public Long getMinId() {
+                    return MOCK_PRODUCT.getId();
+                }
+
+                @Override
+                public Long getMaxId() {
+                    return MOCK_PRODUCT.getId();
+                }
+
+                @Override
+                public long getProductCount() {
+                    return 1;
+                }
+            }));
+            when(productRepository.findViewsByIdBetween(any(), any()))
+                .thenReturn(List.of(ProductView.of(MOCK_PRODUCT)));
+
             return productRepository;
         }
     }
 
     private static final Product MOCK_PRODUCT = new Product(Long.MAX_VALUE, "Some Mock Product", "",
-        Money.of(100, DEFAULT_CURRENCY), 1);
+        Price.of(100, DEFAULT_CURRENCY), 1);
 
     private final MockMvc mockMvc;
 
@@ -102,32 +135,52 @@ class MockedCatalogIntegrationTests {
      */
     @Test
     void testE2eQuantityChange(Scenario scenario) {
-        // Configure StockRepository mock to return a suitable Stock instance for the mock product
-        when(stockRepository.findByProductId(MOCK_PRODUCT.getId()))
-            .thenReturn(new Stock(MOCK_PRODUCT.getId(), MOCK_PRODUCT.getCurrentQuantity()));
+        // Configure StockRepository mock to keep track of the mock product's quantity and version, which the Inventory
+        // module reads once into its stock table and afterwards increments in the database
+        var mockQuantity = new AtomicInteger(MOCK_PRODUCT.getCurrentQuantity());
+        var mockVersion = new AtomicLong();
+        when(stockRepository.findAndLockQuantityByProductId(MOCK_PRODUCT.getId()))
+            .thenAnswer(invocation -> mockQuantity.get());
+        when(stockRepository.incrementAndGetQuantity(eq(MOCK_PRODUCT.getId()), anyInt()))
+            .thenAnswer(invocation -> {
+                var quantity = mockQuantity.addAndGet(invocation.getArgument(1, Integer.class));
+                var version = mockVersion.incrementAndGet();
+                return new StockRepository.VersionedQuantity() {
+                    @Override
+                    public int getQuantity() {
+                        return quantity;
+                    }
+
+                    @Override
+                    public long getVersion() {
+                        return version;
+                    }
+                };
+            });
 
-        // Verify that product IDs can be queried from the Catalog module's HTTP API
+        // Verify that product IDs can be queried from the Catalog module's HTTP API. Besides the mock product, they may
+        // include the initial products, which are unknown to the StockRepository mock.
         var productIds = httpGetAllProductIds();
-        assertThat(productIds).isNotEmpty();
+        assertThat(productIds).contains(MOCK_PRODUCT.getId());
 
-        // Retrieve the current quantity of a random product from the Inventory module's HTTP API
-        var randomProductId = productIds.get(new Random().nextInt(productIds.size()));
-        var currentQuantity = httpGetCurrentQuantity(randomProductId);
+        // Retrieve the current quantity of the mock product from the Inventory module's HTTP API
+        var productId = MOCK_PRODUCT.getId();
+        var currentQuantity = httpGetCurrentQuantity(productId);
 
         // Verify that the change of a product's quantity by adding stock to it via the Inventory module's HTTP API
         // results in a QuantityChanged event that informs about the product's new (cumulated) quantity
         var addedQuantity = 100;
         var expectedNewQuantity = currentQuantity + addedQuantity;
         scenario
-            .stimulate(() -> httpAddStock(randomProductId, addedQuantity))
+            .stimulate(() -> httpAddStock(productId, addedQuantity))
             .andWaitForEventOfType(QuantityChanged.class)
             .toArriveAndVerify(event -> {
-                assertThat(randomProductId).isEqualTo(event.getProductId());
+                assertThat(productId).isEqualTo(event.getProductId());
                 assertThat(expectedNewQuantity).isEqualTo(event.getNewQuantity());
             });
 
         // Verify that the new quantity is visible to external callers from the Inventory module's HTTP API
-        currentQuantity = httpGetCurrentQuantity(randomProductId);
+        currentQuantity = httpGetCurrentQuantity(productId);
         assertThat(expectedNewQuantity).isEqualTo(currentQuantity);
     }
 
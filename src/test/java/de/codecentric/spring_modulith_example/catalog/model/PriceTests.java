@@ -0,0 +1,96 @@
+package de.codecentric.spring_modulith_example.catalog.model;
+
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Unit tests for the conversions of {@link Price}s from and to amounts, and from and to their columns by the
+ * {@link PriceType}.
+ */
+class PriceTests {
+    /**
+     * Test that amounts are converted to minor units according to the fraction digits of their currencies, including
+     * currencies without minor units.
+     */
+    @Test
+    void testMinorUnitsFollowCurrencyFractionDigits() {
+        assertThat(Price.of(49.5, "EUR")).isEqualTo(new Price(4950, "EUR"));
+        assertThat(Price.of(120, "JPY")).isEqualTo(new Price(120, "JPY"));
+        assertThat(Price.of(new BigDecimal("1.234"), "BHD")).isEqualTo(new Price(1234, "BHD"));
+        // Gold has no minor units, which Currency reports as -1 fraction digits
+        assertThat(Price.of(3, "XAU")).isEqualTo(new Price(3, "XAU"));
+        assertThat(Price.of(Money.of(new BigDecimal("-0.05"), "EUR"))).isEqualTo(new Price(-5, "EUR"));
+
+        var price = new Price(4950, "EUR");
+        assertThat(Price.of(price.toMoney())).isEqualTo(price);
+        assertThat(price.toMoney().getNumber().numberValue(BigDecimal.class)).isEqualByComparingTo("49.5");
+    }
+
+    /**
+     * Test that amounts with fractions of minor units are rejected instead of being rounded.
+     */
+    @Test
+    void testFractionsOfMinorUnitsAreRejected() {
+        assertThatIllegalArgumentException()
+            .isThrownBy(() -> Price.of(new BigDecimal("1.005"), "EUR"))
+            .withMessageContaining("1.005 EUR");
+        assertThatIllegalArgumentException().isThrownBy(() -> Price.of(1.5, "JPY"));
+        assertThatIllegalArgumentException().isThrownBy(() -> Price.of(new BigDecimal("0.0001"), "BHD"));
+        // Trailing zeros beyond the currency's fraction digits are no fractions of minor units
+        assertThat(Price.of(new BigDecimal("1.500"), "EUR")).isEqualTo(new Price(150, "EUR"));
+    }
+
+    /**
+     * Test that amounts are rendered like {@link BigDecimal#toPlainString()} renders them without trailing zeros,
+     * including zero, amounts of less than one major unit, and negative amounts.
+     */
+    @Test
+    void testToPlainString() {
+        assertThat(new Price(0, "EUR").toPlainString()).isEqualTo("0");
+        assertThat(new Price(5, "EUR").toPlainString()).isEqualTo("0.05");
+        assertThat(new Price(50, "EUR").toPlainString()).isEqualTo("0.5");
+        assertThat(new Price(-5, "EUR").toPlainString()).isEqualTo("-0.05");
+        assertThat(new Price(-4950, "EUR").toPlainString()).isEqualTo("-49.5");
+        assertThat(new Price(12000, "EUR").toPlainString()).isEqualTo("120");
+        assertThat(new Price(-120, "JPY").toPlainString()).isEqualTo("-120");
+        assertThat(new Price(1, "BHD").toPlainString()).isEqualTo("0.001");
+
+        LongStream.concat(LongStream.rangeClosed(-10_000, 10_000), LongStream.of(Long.MIN_VALUE + 1, Long.MAX_VALUE))
+            .forEach(minorUnits -> assertThat(new Price(minorUnits, "EUR").toPlainString())
+                .as("%s cents", minorUnits)
+                .isEqualTo(BigDecimal.valueOf(minorUnits, 2).stripTrailingZeros().toPlainString()));
+    }
+
+    /**
+     * Test that prices are written to the amount or to the minor units column depending on the storage, and that
+     * prices written with either storage are read with both.
+     */
+    @Test
+    void testPricesAreReadWithEitherStorage() {
+        var price = new Price(4950, "EUR");
+        var moneyType = new PriceType(new PriceProperties(PriceProperties.Storage.MONEY));
+        var compactType = new PriceType(new PriceProperties(PriceProperties.Storage.COMPACT));
+
+        var moneyColumns = columns(moneyType, price);
+        assertThat((BigDecimal) moneyColumns[0]).isEqualByComparingTo("49.5");
+        assertThat(moneyColumns).containsExactly(moneyColumns[0], "EUR", null);
+        assertThat(columns(compactType, price)).containsExactly(null, "EUR", 4950L);
+
+        for (var type : new PriceType[]{moneyType, compactType}) {
+            assertThat(type.instantiate(() -> moneyColumns)).isEqualTo(price);
+            assertThat(type.instantiate(() -> columns(compactType, price))).isEqualTo(price);
+            assertThat(type.instantiate(() -> new Object[]{null, null, null})).isNull();
+        }
+    }
+
+    private static Object[] columns(PriceType type, Price price) {
+        return new Object[]{type.getPropertyValue(price, 0), type.getPropertyValue(price, 1),
+            type.getPropertyValue(price, 2)};
+    }
+}
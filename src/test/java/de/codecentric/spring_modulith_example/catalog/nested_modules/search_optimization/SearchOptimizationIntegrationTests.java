@@ -0,0 +1,301 @@
+package de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization;
+
+import de.codecentric.spring_modulith_example.catalog.controller.CursorPage;
+import de.codecentric.spring_modulith_example.catalog.model.ExchangeRates;
+import de.codecentric.spring_modulith_example.catalog.model.Price;
+import de.codecentric.spring_modulith_example.catalog.model.Product;
+import de.codecentric.spring_modulith_example.catalog.model.ProductsChanged;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.controller.SearchOptimizationApi;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductPriceIndex;
+import de.codecentric.spring_modulith_example.catalog.nested_modules.search_optimization.index.ProductTextIndex;
+import de.codecentric.spring_modulith_example.catalog.repository.ProductRepository;
+import org.javamoney.moneta.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.modulith.test.ApplicationModuleTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static de.codecentric.spring_modulith_example.shared.Defaults.DEFAULT_CURRENCY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Integration tests for the Search Optimization module that assume a running database (here: embedded H2). The tests
+ * ensure that the module's in-memory indexes answer queries exactly like the database queries they replace.
+ */
+@ApplicationModuleTest(ApplicationModuleTest.BootstrapMode.DIRECT_DEPENDENCIES)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class SearchOptimizationIntegrationTests {
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ExchangeRates exchangeRates;
+    private final ProductPriceIndex productPriceIndex;
+    private final ProductRepository productRepository;
+    private final ProductTextIndex productTextIndex;
+    private final SearchOptimizationApi searchOptimizationApi;
+
+    private List<Product> testProducts;
+
+    SearchOptimizationIntegrationTests(ApplicationEventPublisher applicationEventPublisher, ExchangeRates exchangeRates,
+        ProductPriceIndex productPriceIndex, ProductRepository productRepository, ProductTextIndex productTextIndex,
+        SearchOptimizationApi searchOptimizationApi) {
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.exchangeRates = exchangeRates;
+        this.productPriceIndex = productPriceIndex;
+        this.productRepository = productRepository;
+        this.productTextIndex = productTextIndex;
+        this.searchOptimizationApi = searchOptimizationApi;
+    }
+
+    @BeforeEach
+    void createTestProducts() {
+        testProducts = productRepository.saveAll(List.of(
+            new Product("Stainless Steel Kettle", "Boils water in no time", Price.of(30, DEFAULT_CURRENCY), 10),
+            new Product("Kettle Bell", "Heavy iron weight for workouts", Price.of(50, DEFAULT_CURRENCY), 10),
+            new Product("Water Bottle", "Keeps drinks cold, made of STEEL", Price.of(20, DEFAULT_CURRENCY), 10),
+            new Product("Tea Pot", "Ceramic pot for tea", Price.of(25, DEFAULT_CURRENCY), 10),
+            new Product("Tea Cup", "Ceramic cup for tea", Price.of(new BigDecimal("2.49"), DEFAULT_CURRENCY), 10),
+            new Product("Tea Bags", "Black tea, imported", Price.of(2, "USD"), 10)
+        ));
+        productPriceIndex.rebuild();
+        productTextIndex.rebuild();
+    }
+
+    @AfterEach
+    void deleteTestProducts() {
+        productRepository.deleteAll(testProducts);
+        productPriceIndex.rebuild();
+        productTextIndex.rebuild();
+    }
+
+    /**
+     * Test that the {@link ProductTextIndex} finds the same products as the leading-wildcard LIKE query of the
+     * {@link ProductRepository} it replaces, including short queries without trigrams and empty queries that match all
+     * products.
+     */
+    @Test
+    void testTextIndexMatchesLikeQuery() {
+        var queries = List.of(
+            new String[] {"kettle", "kettle"},
+            new String[] {"steel", "steel"},
+            new String[] {"STEEL", "nothing"},
+            new String[] {"te", "te"},
+            new String[] {"water", "pot for"},
+            new String[] {"", "tea"},
+            new String[] {"unknown", "unknown"}
+        );
+        for (var query : queries) {
+            var expected = productRepository
+                .searchByNameLikeIgnoreCaseOrDescriptionLikeIgnoreCase("%" + query[0] + "%", "%" + query[1] + "%",
+                    PageRequest.of(0, Integer.MAX_VALUE))
+                .stream()
+                .map(Product::getId)
+                .toList();
+            assertThat(productTextIndex.search(query[0], query[1], 0, Integer.MAX_VALUE))
+                .as("name: '%s', description: '%s'", query[0], query[1])
+                .containsExactlyInAnyOrderElementsOf(expected)
+                .isSorted();
+        }
+    }
+
+    /**
+     * Test that the {@link ProductTextIndex} follows changes to products' names and descriptions as communicated by
+     * {@link ProductsChanged} events.
+     */
+    @Test
+    void testTextIndexFollowsProductChanges() {
+        var teaPot = testProducts.get(3);
+        assertThat(productTextIndex.search("kettle", "kettle", 0, Integer.MAX_VALUE)).doesNotContain(teaPot.getId());
+
+        applicationEventPublisher.publishEvent(new ProductsChanged(List.of(new ProductsChanged.ChangedProduct(
+            teaPot.getId(), "Tea Kettle", teaPot.getDescription(), teaPot.getPrice(), teaPot.getNormalizedPrice(),
+            teaPot.getCurrentQuantity()
+        ))));
+        assertThat(productTextIndex.search("kettle", "kettle", 0, Integer.MAX_VALUE)).contains(teaPot.getId());
+        assertThat(productTextIndex.search("tea pot", "nothing", 0, Integer.MAX_VALUE)).doesNotContain(teaPot.getId());
+    }
+
+    /**
+     * Test that the {@link ProductPriceIndex} finds the same products as the repository's filtering of normalized
+     * product prices, with the matches sorted by ascending price.
+     */
+    @Test
+    void testPriceIndexMatchesPriceFilter() {
+        var products = productRepository.findAll();
+        var queries = List.of(
+            new String[] {"0", "2.49"},
+            new String[] {"2.49", "2.4999"},
+            new String[] {"2.485", "30"},
+            new String[] {"25", "25"},
+            new String[] {"30", "1000000000000000000000000"},
+            new String[] {"50", "20"}
+        );
+        for (var query : queries) {
+            var minPrice = Money.of(new BigDecimal(query[0]), DEFAULT_CURRENCY);
+            var maxPrice = Money.of(new BigDecimal(query[1]), DEFAULT_CURRENCY);
+            var expected = products.stream()
+                .filter(product -> product.getNormalizedPrice() != null)
+                .filter(product -> !normalizedPrice(product).isLessThan(minPrice))
+                .filter(product -> !normalizedPrice(product).isGreaterThan(maxPrice))
+                .map(Product::getId)
+                .toList();
+            var matches = productPriceIndex.searchByPriceRange(minPrice.getNumberStripped(),
+                maxPrice.getNumberStripped(), 0, Integer.MAX_VALUE);
+            assertThat(matches)
+                .as("min price: %s, max price: %s", query[0], query[1])
+                .containsExactlyInAnyOrderElementsOf(expected);
+            assertThat(matches.stream().map(id -> productRepository.findById(id).orElseThrow().getNormalizedPrice())
+                .toList())
+                .isSortedAccordingTo(Comparator.naturalOrder());
+        }
+
+        assertThat(productPriceIndex.searchByMaxPrice(new BigDecimal("25"), 0, Integer.MAX_VALUE))
+            .containsExactlyElementsOf(
+                productPriceIndex.searchByPriceRange(new BigDecimal("-1"), new BigDecimal("25"), 0, Integer.MAX_VALUE)
+            );
+        assertThat(productPriceIndex.searchByMaxPrice(new BigDecimal("1000"), 1, 2))
+            .containsExactlyElementsOf(
+                productPriceIndex.searchByMaxPrice(new BigDecimal("1000"), 0, Integer.MAX_VALUE).subList(1, 3)
+            );
+    }
+
+    /**
+     * Test that the {@link ProductPriceIndex} follows changes to products' prices as communicated by
+     * {@link ProductsChanged} events.
+     */
+    @Test
+    void testPriceIndexFollowsProductChanges() {
+        var teaPot = testProducts.get(3);
+        assertThat(productPriceIndex.searchByMaxPrice(new BigDecimal("10"), 0, Integer.MAX_VALUE))
+            .doesNotContain(teaPot.getId());
+
+        applicationEventPublisher.publishEvent(new ProductsChanged(List.of(new ProductsChanged.ChangedProduct(
+            teaPot.getId(), teaPot.getName(), teaPot.getDescription(), Price.of(9.99, DEFAULT_CURRENCY), 999L,
+            teaPot.getCurrentQuantity()
+        ))));
+        assertThat(productPriceIndex.searchByMaxPrice(new BigDecimal("10"), 0, Integer.MAX_VALUE))
+            .contains(teaPot.getId());
+        assertThat(productPriceIndex.searchByPriceRange(new BigDecimal("20"), new BigDecimal("30"), 0,
+            Integer.MAX_VALUE)).doesNotContain(teaPot.getId());
+
+        // Prices in currencies without exchange rate have no normalized price
+        applicationEventPublisher.publishEvent(new ProductsChanged(List.of(new ProductsChanged.ChangedProduct(
+            teaPot.getId(), teaPot.getName(), teaPot.getDescription(), Price.of(9.99, "SEK"), null,
+            teaPot.getCurrentQuantity()
+        ))));
+        assertThat(productPriceIndex.searchByMaxPrice(new BigDecimal("10"), 0, Integer.MAX_VALUE))
+            .doesNotContain(teaPot.getId());
+    }
+
+    /**
+     * Test that products priced in other currencies are found by their prices in the default currency, that query
+     * prices in other currencies are converted before they are compared, and that changed exchange rates let the
+     * normalized prices be recomputed.
+     */
+    @Test
+    void testPriceSearchInOtherCurrencies() {
+        var teaCup = testProducts.get(4);
+        var teaBags = testProducts.get(5);
+        // 2 USD at 0.86 EUR per USD
+        assertThat(productRepository.findById(teaBags.getId()).orElseThrow().getNormalizedPrice()).isEqualTo(172L);
+        assertThat(searchOptimizationApi.searchProductsByMaxPrice("2.49", null, 0))
+            .containsExactly(teaBags.getId(), teaCup.getId());
+        // 2.90 USD are worth 2.494 EUR
+        assertThat(searchOptimizationApi.searchProductsByMaxPrice("2.90", "USD", 0))
+            .containsExactly(teaBags.getId(), teaCup.getId());
+        assertThat(searchOptimizationApi.searchProductsByPriceRange("1", "2.80", "USD", 0))
+            .containsExactly(teaBags.getId());
+        for (var currency : List.of("SEK", "XYZ"))
+            assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> searchOptimizationApi.searchProductsByMaxPrice("10", currency, 0))
+                .satisfies(ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+
+        var rates = exchangeRates.rates();
+        try {
+            exchangeRates.update(Map.of("USD", new BigDecimal("1.5")));
+            assertThat(productRepository.findById(teaBags.getId()).orElseThrow().getNormalizedPrice()).isEqualTo(300L);
+            assertThat(searchOptimizationApi.searchProductsByMaxPrice("2.49", null, 0))
+                .containsExactly(teaCup.getId());
+            assertThat(searchOptimizationApi.searchProductsByMaxPrice("3", null, 0))
+                .containsExactly(teaCup.getId(), teaBags.getId());
+
+            exchangeRates.update(Map.of());
+            assertThat(productRepository.findById(teaBags.getId()).orElseThrow().getNormalizedPrice()).isNull();
+            assertThat(searchOptimizationApi.searchProductsByMaxPrice("3", null, 0)).containsExactly(teaCup.getId());
+        } finally {
+            exchangeRates.update(rates);
+        }
+    }
+
+    /**
+     * Test that following the cursors of the keyset-paginated search endpoints visits every match exactly once and in
+     * the same order as the offset-based search endpoints, and that malformed cursors are rejected.
+     */
+    @Test
+    void testScrollingVisitsAllMatches() {
+        // Add enough products for several pages, including products with equal prices that only differ in their IDs
+        var scrollProducts = productRepository.saveAll(IntStream.range(0, 50)
+            .mapToObj(i -> new Product("Scroll Kettle " + i, "", Price.of(10 + i % 7, DEFAULT_CURRENCY), 10))
+            .toList());
+        productPriceIndex.rebuild();
+        productTextIndex.rebuild();
+
+        try {
+            assertThat(scrollAll(after -> searchOptimizationApi.scrollProductsByNameAndDescription("", "", after)))
+                .hasSizeGreaterThan(50)
+                .containsExactlyElementsOf(productTextIndex.search("", "", 0, Integer.MAX_VALUE));
+            assertThat(scrollAll(
+                after -> searchOptimizationApi.scrollProductsByNameAndDescription("kettle", "w", after)
+            ))
+                .hasSizeGreaterThan(50)
+                .containsExactlyElementsOf(productTextIndex.search("kettle", "x", 0, Integer.MAX_VALUE));
+            assertThat(scrollAll(after -> searchOptimizationApi.scrollProductsByMaxPrice("15", null, after)))
+                .hasSizeGreaterThan(40)
+                .containsExactlyElementsOf(productPriceIndex.searchByMaxPrice(new BigDecimal("15"), 0,
+                    Integer.MAX_VALUE));
+            assertThat(scrollAll(after -> searchOptimizationApi.scrollProductsByPriceRange("11", "13.5", null, after)))
+                .hasSizeGreaterThan(20)
+                .containsExactlyElementsOf(productPriceIndex.searchByPriceRange(new BigDecimal("11"),
+                    new BigDecimal("13.5"), 0, Integer.MAX_VALUE));
+
+            assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> searchOptimizationApi.scrollProductsByMaxPrice("15", null, "not a cursor!"))
+                .satisfies(ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+            assertThatExceptionOfType(ResponseStatusException.class)
+                .isThrownBy(() -> searchOptimizationApi.scrollProductsByMaxPrice("15", null,
+                    CursorPage.encodeCursor(1)))
+                .satisfies(ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        } finally {
+            productRepository.deleteAll(scrollProducts);
+        }
+    }
+
+    private static Money normalizedPrice(Product product) {
+        return Money.ofMinor(DEFAULT_CURRENCY, product.getNormalizedPrice());
+    }
+
+    private static List<Long> scrollAll(Function<String, CursorPage> pageFetcher) {
+        var productIds = new ArrayList<Long>();
+        var page = pageFetcher.apply(null);
+        productIds.addAll(page.productIds());
+        while (page.nextCursor() != null) {
+            page = pageFetcher.apply(page.nextCursor());
+            assertThat(page.productIds()).isNotEmpty();
+            productIds.addAll(page.productIds());
+        }
+        return productIds;
+    }
+}
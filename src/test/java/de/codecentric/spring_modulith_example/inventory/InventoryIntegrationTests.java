@@ -1,29 +1,96 @@
 package de.codecentric.spring_modulith_example.inventory;
 
+import com.jayway.jsonpath.JsonPath;
 import de.codecentric.spring_modulith_example.catalog.external_events.InventoryProductCreated;
+import de.codecentric.spring_modulith_example.inventory.InventoryData.PurchaseResult;
+import de.codecentric.spring_modulith_example.inventory.model.Stock;
 import de.codecentric.spring_modulith_example.inventory.repository.StockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
 import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
 import org.springframework.modulith.events.core.EventPublicationRepository;
 import org.springframework.modulith.test.ApplicationModuleTest;
 import org.springframework.modulith.test.PublishedEvents;
 import org.springframework.modulith.test.Scenario;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
- * Integration tests for the Inventory module that assume a running database (here: embedded H2).
+ * Integration tests for the Inventory module that assume a running database (here: embedded H2). The maintenance of
+ * the event publication registry runs frequently and only keeps the most recently completed publication, so that
+ * {@link #testCompletedPublicationsArePruned(Scenario)} doesn't need to wait for it. If the registry keeps its
+ * publications in the journal, the journal's segments are small enough for a few publications each, so that the test
+ * sees them compacted. The timing wheel of the
+ * {@link StockReservations} ticks frequently, so that {@link #testReservations()} sees reservations expire in time.
+ * Hot products are enabled, but only evaluated when {@link #testHotProducts()} asks for it.
  */
 @ApplicationModuleTest
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
 @AutoConfigureMockMvc
+@TestPropertySource(properties = {
+    "event-publication-registry.maintenance-interval=100ms",
+    "event-publication-registry.max-completed-publications=0",
+    "event-publication-registry.journal.segment-size=1KB",
+    "inventory.reservations.tick-duration=10ms",
+    "inventory.reservations.bucket-count=64",
+    "inventory.hot-products.enabled=true",
+    "inventory.hot-products.evaluation-interval=1h",
+    "inventory.hot-products.demotion-delay=1h"
+})
 class InventoryIntegrationTests {
+    private final HotProducts hotProducts;
+    private final InventoryData inventoryData;
+    private final MeterRegistry meterRegistry;
+    private final MockMvc mockMvc;
+    private final StockCounters stockCounters;
     private final StockRepository stockRepository;
+    private final StockTable stockTable;
+    private final TransactionTemplate transactionTemplate;
+    private final String eventPublicationStore;
 
-    InventoryIntegrationTests(StockRepository stockRepository) {
+    InventoryIntegrationTests(HotProducts hotProducts, InventoryData inventoryData, MeterRegistry meterRegistry,
+        MockMvc mockMvc, StockCounters stockCounters, StockRepository stockRepository, StockTable stockTable,
+        TransactionTemplate transactionTemplate,
+        @Value("${event-publication-registry.store}") String eventPublicationStore) {
+        this.hotProducts = hotProducts;
+        this.inventoryData = inventoryData;
+        this.meterRegistry = meterRegistry;
+        this.mockMvc = mockMvc;
+        this.stockCounters = stockCounters;
         this.stockRepository = stockRepository;
+        this.stockTable = stockTable;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublicationStore = eventPublicationStore;
     }
 
     /**
@@ -54,5 +121,458 @@ class InventoryIntegrationTests {
         assertThat(
             publishedEvents.ofType(QuantityChanged.class).matchingValue(QuantityChanged::getNewQuantity, quantity)
         ).hasSize(1);
+
+        // The event got handled on the Inventory module's own listener executor
+        assertThat(meterRegistry.get("listener.executor.queue.time").tag("module", "inventory").timer().count())
+            .isPositive();
+    }
+
+    /**
+     * Test that concurrent purchases of the same product by means of
+     * {@link InventoryData#purchaseAndPublishQuantityChangedEvent(Long, int)} never oversell the product's stock. To
+     * this end, the test fires twice as many single-item purchases from concurrent threads as there are items in stock,
+     * and verifies that exactly half of them succeed and that the product's stock ends up at zero.
+     */
+    @Test
+    void testConcurrentPurchasesDoNotOversell() {
+        var productId = 2L;
+        var initialQuantity = 200;
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, initialQuantity)).isTrue();
+
+        var purchases = initialQuantity * 2;
+        var results = assertDoesNotThrow(() -> {
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                var futures = IntStream.range(0, purchases)
+                    .mapToObj(i -> executor.submit(
+                        () -> inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 1)
+                    ))
+                    .toList();
+                var resultCounts = new EnumMap<PurchaseResult, Long>(PurchaseResult.class);
+                for (var future : futures)
+                    resultCounts.merge(future.get(), 1L, Long::sum);
+                return resultCounts;
+            }
+        });
+
+        assertThat(results)
+            .containsEntry(PurchaseResult.PURCHASED, (long) initialQuantity)
+            .containsEntry(PurchaseResult.INSUFFICIENT_STOCK, (long) (purchases - initialQuantity))
+            .doesNotContainKey(PurchaseResult.UNKNOWN_PRODUCT);
+        assertThat(stockRepository.findByProductId(productId).getQuantity()).isZero();
+    }
+
+    /**
+     * Test that the {@link QuantityChanged} events of additions and purchases carry the quantity and version that the
+     * product's UPDATE resulted in, and that purchases of non-positive quantities are rejected without changing the
+     * stock.
+     */
+    @Test
+    void testPurchases(PublishedEvents publishedEvents) throws Exception {
+        var productId = 11L;
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 10)).isTrue();
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 5)).isTrue();
+        mockMvc.perform(post("/inventory/stock/{productId}", productId).param("purchaseQuantity", "4"))
+            .andExpect(status().isOk());
+        assertThat(publishedEvents.ofType(QuantityChanged.class)
+                .matching(event -> event.getProductId() == productId))
+            .extracting(QuantityChanged::getNewQuantity, QuantityChanged::getVersion)
+            .containsExactly(tuple(10, 0L), tuple(15, 1L), tuple(11, 2L));
+
+        for (var purchaseQuantity : List.of("0", "-3"))
+            mockMvc.perform(post("/inventory/stock/{productId}", productId).param("purchaseQuantity", purchaseQuantity))
+                .andExpect(status().isBadRequest());
+        assertThatIllegalArgumentException()
+            .isThrownBy(() -> inventoryData.purchaseAndPublishQuantityChangedEvent(productId, -3));
+        assertQuantity(productId, 11);
+    }
+
+    /**
+     * Test the all-or-nothing semantics of orders placed via the Inventory module's HTTP API. First, an order whose
+     * lines can all be served must decrement the stocks of all ordered products (including repeated lines for the same
+     * product) and result in exactly one {@link QuantitiesChanged} event. Second, an order with one line that exceeds
+     * the remaining stock must be rejected as a whole, i.e., without changing the stock of any ordered product. Third,
+     * an order whose lines for the same product add up to more than an {@code int} holds must be rejected as invalid.
+     */
+    @Test
+    void testOrderIsAllOrNothing(PublishedEvents publishedEvents) {
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(3L, 10)).isTrue();
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(4L, 5)).isTrue();
+
+        httpPlaceOrder("""
+            [{"productId": 3, "quantity": 4}, {"productId": 4, "quantity": 5}, {"productId": 3, "quantity": 1}]
+            """, 200);
+        assertThat(stockRepository.findByProductId(3L).getQuantity()).isEqualTo(5);
+        assertThat(stockRepository.findByProductId(4L).getQuantity()).isZero();
+        assertThat(publishedEvents.ofType(QuantitiesChanged.class))
+            .singleElement()
+            .satisfies(event -> assertThat(event.getQuantityChanges()).containsExactly(
+                new QuantitiesChanged.QuantityChange(3L, 5, 1),
+                new QuantitiesChanged.QuantityChange(4L, 0, 1)
+            ));
+
+        httpPlaceOrder("""
+            [{"productId": 3, "quantity": 1}, {"productId": 4, "quantity": 1}]
+            """, 412);
+        assertThat(stockRepository.findByProductId(3L).getQuantity()).isEqualTo(5);
+        assertThat(stockRepository.findByProductId(4L).getQuantity()).isZero();
+        assertThat(publishedEvents.ofType(QuantitiesChanged.class)).hasSize(1);
+
+        // The total of these lines overflows an int, which must not turn into a negative quantity that adds stock
+        httpPlaceOrder("""
+            [{"productId": 3, "quantity": 2000000000}, {"productId": 3, "quantity": 2000000000}]
+            """, 400);
+        assertThat(stockRepository.findByProductId(3L).getQuantity()).isEqualTo(5);
+        assertThat(publishedEvents.ofType(QuantitiesChanged.class)).hasSize(1);
+    }
+
+    /**
+     * Test that the {@link StockTable} follows the committed quantities of the database when stock is concurrently
+     * added, purchased, and ordered, and that the Inventory module's HTTP API serves the table's quantities.
+     */
+    @Test
+    void testStockTableIsWrittenThrough() {
+        var productIds = List.of(5L, 6L);
+        for (var productId : productIds)
+            assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 50)).isTrue();
+
+        assertDoesNotThrow(() -> {
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                var futures = IntStream.range(0, 300)
+                    .mapToObj(i -> executor.submit(() -> {
+                        var productId = productIds.get(i % productIds.size());
+                        switch (i % 3) {
+                            case 0 -> inventoryData.addStockAndPublishQuantityChangedEvent(productId, 2);
+                            case 1 -> inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 3);
+                            default -> inventoryData.placeOrderAndPublishQuantitiesChangedEvent(
+                                new TreeMap<>(Map.of(5L, 1, 6L, 1))
+                            );
+                        }
+                    }))
+                    .toList();
+                for (var future : futures)
+                    future.get();
+            }
+        });
+
+        assertThat(stockTable.checkConsistency()).isZero();
+        for (var productId : productIds)
+            assertDoesNotThrow(() -> mockMvc
+                .perform(get("/inventory/stock/{productId}", productId))
+                .andExpect(status().isOk())
+                .andExpect(content().string(stockRepository.findQuantityByProductId(productId).toString()))
+            );
+    }
+
+    /**
+     * Test that products that are unknown to the {@link StockTable}, since their stocks were written by other means
+     * than this module, are added to the table by their first reads while other products are written all the time, and
+     * that the table follows the committed quantities of these products, which are purchased while they are fetched.
+     */
+    @Test
+    void testUnknownProductsAreFetchedDuringWrites() {
+        var writtenProductIds = List.of(12L, 13L);
+        for (var productId : writtenProductIds)
+            assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 1000)).isTrue();
+        var unknownProductIds = LongStream.range(100, 120).boxed().toList();
+
+        assertDoesNotThrow(() -> {
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                var writing = new AtomicBoolean(true);
+                var writers = IntStream.range(0, 6)
+                    .mapToObj(i -> executor.submit(() -> {
+                        var productId = writtenProductIds.get(i % writtenProductIds.size());
+                        while (writing.get()) {
+                            inventoryData.addStockAndPublishQuantityChangedEvent(productId, 1);
+                            inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 1);
+                        }
+                    }))
+                    .toList();
+                for (var productId : unknownProductIds) {
+                    stockRepository.save(new Stock(productId, 50));
+                    var purchases = IntStream.range(0, 2)
+                        .mapToObj(i -> executor.submit(
+                            () -> inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 1)
+                        ))
+                        .toList();
+                    for (var purchase : purchases)
+                        assertThat(purchase.get()).isEqualTo(PurchaseResult.PURCHASED);
+                }
+                writing.set(false);
+                for (var writer : writers)
+                    writer.get();
+            }
+        });
+
+        // All unknown products are known by now, so that reading them again doesn't touch the database
+        var misses = meterRegistry.get("inventory.stock.table.misses").counter();
+        var missCount = misses.count();
+        for (var productId : unknownProductIds)
+            assertThat(stockTable.quantity(productId)).hasValue(48);
+        assertThat(misses.count()).isEqualTo(missCount);
+        assertThat(stockTable.checkConsistency()).isZero();
+    }
+
+    /**
+     * Test that completed event publications are moved to the archive table of Spring Modulith's event publication
+     * registry, and that the registry's maintenance prunes the archive down to the configured maximum number of
+     * completed publications. Both registry tables are observed by means of the table size gauge. If the registry
+     * keeps its publications in the journal instead, its compaction deletes all segments but the active one.
+     */
+    @Test
+    void testCompletedPublicationsArePruned(Scenario scenario) {
+        for (var productId : List.of(7L, 8L))
+            scenario
+                .publish(new InventoryProductCreated(productId, 1))
+                .andWaitForStateChange(() -> stockRepository.findByProductId(productId));
+
+        if (eventPublicationStore.equalsIgnoreCase("journal")) {
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(meterRegistry.get("events.journal.segments").gauge().value()).isEqualTo(1));
+            return;
+        }
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(tableSize("event_publication")).isZero();
+            assertThat(tableSize("event_publication_archive")).isEqualTo(1);
+        });
+        assertThat(meterRegistry.get("events.publications.pruned").counter().count()).isPositive();
+    }
+
+    /**
+     * Test that reservations made via the Inventory module's HTTP API take their quantities from the available stock,
+     * that confirmed reservations keep them, that released and expired reservations return them, and that confirmed,
+     * released, and expired reservations can't be confirmed or released again.
+     */
+    @Test
+    void testReservations() throws Exception {
+        var productId = 9L;
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 10)).isTrue();
+
+        var confirmedReservation = httpReserve(productId, "4", null);
+        assertQuantity(productId, 6);
+        mockMvc.perform(post("/inventory/stock/{productId}/reservations", productId).param("quantity", "7"))
+            .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(post("/inventory/reservations/{reservationId}/confirmation", confirmedReservation))
+            .andExpect(status().isOk());
+        assertQuantity(productId, 6);
+
+        var releasedReservation = httpReserve(productId, "2", null);
+        assertQuantity(productId, 4);
+        mockMvc.perform(delete("/inventory/reservations/{reservationId}", releasedReservation))
+            .andExpect(status().isOk());
+        assertQuantity(productId, 6);
+
+        var expiredBefore = meterRegistry.get("inventory.reservations.expired").counter().count();
+        var expiredReservation = httpReserve(productId, "5", "1");
+        assertQuantity(productId, 1);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertQuantity(productId, 6));
+        assertThat(meterRegistry.get("inventory.reservations.expired").counter().count())
+            .isEqualTo(expiredBefore + 1);
+
+        for (var reservationId : List.of(confirmedReservation, releasedReservation, expiredReservation)) {
+            mockMvc.perform(post("/inventory/reservations/{reservationId}/confirmation", reservationId))
+                .andExpect(status().isNotFound());
+            mockMvc.perform(delete("/inventory/reservations/{reservationId}", reservationId))
+                .andExpect(status().isNotFound());
+        }
+        assertThat(stockTable.checkConsistency()).isZero();
+    }
+
+    /**
+     * Test that the {@link TimingWheel} of the reservations yields every scheduled element once it's due, never early,
+     * at most one tick late, and not at all if it got cancelled, also for many elements spanning several rounds.
+     */
+    @Test
+    void testTimingWheel() {
+        var tickNanos = Duration.ofMillis(10).toNanos();
+        var timingWheel = new TimingWheel<Long>(Duration.ofNanos(tickNanos), 64, 0);
+        var random = new Random(42);
+        var deadlines = new HashMap<Long, Long>();
+        for (var element = 0L; element < 100_000; element++) {
+            // Deadlines span up to 100 rounds of the wheel
+            var deadlineNanos = random.nextLong(100 * 64 * tickNanos);
+            var timeout = timingWheel.schedule(element, deadlineNanos);
+            if (element % 2 == 0)
+                deadlines.put(element, deadlineNanos);
+            else
+                assertThat(timeout.cancel()).isTrue();
+        }
+
+        var dueElements = new HashSet<Long>();
+        var previousNanos = 0L;
+        for (var nowNanos = 0L; nowNanos <= 101 * 64 * tickNanos; nowNanos += tickNanos / 3) {
+            // Elements that became due weren't due one tick before the previous advance
+            for (var element : timingWheel.advance(nowNanos)) {
+                assertThat(deadlines.get(element)).isBetween(previousNanos - tickNanos, nowNanos);
+                assertThat(dueElements.add(element)).isTrue();
+            }
+            previousNanos = nowNanos;
+        }
+        assertThat(dueElements).isEqualTo(deadlines.keySet());
+    }
+    /**
+     * Test that a product gets promoted to a hot product once enough contended UPDATEs of its stock were recorded, that
+     * purchases of the hot product take from its stripes without overselling, also if the purchased quantity is
+     * fragmented across several stripes, and that the product gets demoted once its UPDATEs calmed down. The product's
+     * quantity must stay the same across promotion and demotion.
+     */
+    @Test
+    void testHotProducts() throws Exception {
+        var productId = 10L;
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 16)).isTrue();
+        for (var i = 0; i < 20; i++)
+            hotProducts.recordUpdate(productId, Duration.ofSeconds(1).toNanos());
+        hotProducts.evaluate();
+        assertThat(hotProducts.stripeCount(productId)).isEqualTo(8);
+        assertThat(stockRepository.findByProductId(productId).getQuantity()).isZero();
+        assertQuantity(productId, 16);
+
+        // Each stripe holds 2 items, so that the purchase needs to take from several stripes
+        assertThat(inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 10))
+            .isEqualTo(PurchaseResult.PURCHASED);
+        assertThat(inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 7))
+            .isEqualTo(PurchaseResult.INSUFFICIENT_STOCK);
+        assertQuantity(productId, 6);
+
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 94)).isTrue();
+        var purchases = 200;
+        var results = assertDoesNotThrow(() -> {
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                var futures = IntStream.range(0, purchases)
+                    .mapToObj(i -> executor.submit(
+                        () -> inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 1)
+                    ))
+                    .toList();
+                var resultCounts = new EnumMap<PurchaseResult, Long>(PurchaseResult.class);
+                for (var future : futures)
+                    resultCounts.merge(future.get(), 1L, Long::sum);
+                return resultCounts;
+            }
+        });
+        assertThat(results)
+            .containsEntry(PurchaseResult.PURCHASED, 100L)
+            .containsEntry(PurchaseResult.INSUFFICIENT_STOCK, (long) (purchases - 100));
+        assertQuantity(productId, 0);
+
+        // The first evaluation still sees the purchases' UPDATEs, the second one none
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 5)).isTrue();
+        hotProducts.evaluate();
+        hotProducts.evaluate();
+        assertThat(hotProducts.stripeCount(productId)).isZero();
+        assertThat(stockRepository.findByProductId(productId).getQuantity()).isEqualTo(5);
+        assertQuantity(productId, 5);
+        assertThat(stockTable.checkConsistency()).isZero();
+    }
+
+    /**
+     * Test that purchases of a hot product whose quantity is fragmented across its stripes, so that they fail to take
+     * from a single stripe and lock the product's stock and all of its stripes instead, neither deadlock with each
+     * other nor with orders of the product, which lock the stocks of the ordered products before their stripes, and
+     * that they don't oversell.
+     */
+    @Test
+    void testFragmentedHotProductPurchasesDoNotDeadlock() throws Exception {
+        var productId = 14L;
+        var otherProductId = 15L;
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 80)).isTrue();
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(otherProductId, 1000)).isTrue();
+        for (var i = 0; i < 20; i++)
+            hotProducts.recordUpdate(productId, Duration.ofSeconds(1).toNanos());
+        hotProducts.evaluate();
+        assertThat(hotProducts.stripeCount(productId)).isEqualTo(8);
+
+        // Each stripe holds 10 items, so that every purchase needs several stripes
+        var takenQuantity = assertDoesNotThrow(() -> {
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                var futures = IntStream.range(0, 40)
+                    .mapToObj(i -> executor.submit(() -> {
+                        if (i % 2 == 0)
+                            return inventoryData.purchaseAndPublishQuantityChangedEvent(productId, 15)
+                                == PurchaseResult.PURCHASED ? 15 : 0;
+                        else
+                            return inventoryData.placeOrderAndPublishQuantitiesChangedEvent(
+                                new TreeMap<>(Map.of(productId, 1, otherProductId, 1))
+                            ) == PurchaseResult.PURCHASED ? 1 : 0;
+                    }))
+                    .toList();
+                var quantity = 0;
+                for (var future : futures)
+                    quantity += future.get();
+                return quantity;
+            }
+        });
+
+        assertThat(takenQuantity).isBetween(66, 80);
+        assertQuantity(productId, 80 - takenQuantity);
+        assertThat(stockTable.checkConsistency()).isZero();
+    }
+
+    /**
+     * Test that concurrent writes of different stripes of a hot product return distinct versions, and that the quantity
+     * returned with the highest version is the product's final quantity. That's the quantity the Catalog module ends up
+     * with, since it skips quantity changes whose versions aren't higher than the last one it applied.
+     */
+    @Test
+    void testConcurrentStripeWritesAreVersioned() throws Exception {
+        var productId = 16L;
+        assertThat(inventoryData.addStockAndPublishQuantityChangedEvent(productId, 800)).isTrue();
+        for (var i = 0; i < 20; i++)
+            hotProducts.recordUpdate(productId, Duration.ofSeconds(1).toNanos());
+        hotProducts.evaluate();
+        assertThat(hotProducts.stripeCount(productId)).isEqualTo(8);
+
+        var changes = assertDoesNotThrow(() -> {
+            try (var executor = Executors.newFixedThreadPool(8)) {
+                var futures = IntStream.range(0, 400)
+                    .mapToObj(i -> executor.submit(() -> transactionTemplate.execute(status -> {
+                        var newQuantity = i % 2 == 0
+                            ? stockCounters.take(productId, 3)
+                            : stockCounters.add(productId, 1);
+                        return Map.entry(newQuantity.getVersion(), newQuantity.getQuantity());
+                    })))
+                    .toList();
+                var versionedQuantities = new TreeMap<Long, Integer>();
+                for (var future : futures) {
+                    var change = future.get();
+                    assertThat(versionedQuantities.put(change.getKey(), change.getValue())).isNull();
+                }
+                return versionedQuantities;
+            }
+        });
+
+        assertThat(changes).hasSize(400);
+        assertThat(changes.lastEntry().getValue()).isEqualTo(800 - 200 * 3 + 200);
+        // The stock counters were written past the stock table
+        stockTable.reload();
+        assertQuantity(productId, changes.lastEntry().getValue());
+        assertThat(stockTable.checkConsistency()).isZero();
+    }
+
+    private long httpReserve(long productId, String quantity, String ttlSeconds) throws Exception {
+        var response = mockMvc.perform(post("/inventory/stock/{productId}/reservations", productId)
+                .param("quantity", quantity)
+                .param("ttlSeconds", ttlSeconds))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.productId").value(productId))
+            .andExpect(jsonPath("$.expiresAt").exists())
+            .andReturn().getResponse().getContentAsString();
+        return JsonPath.<Number>read(response, "$.reservationId").longValue();
+    }
+
+    private void assertQuantity(long productId, int quantity) throws Exception {
+        mockMvc.perform(get("/inventory/stock/{productId}", productId))
+            .andExpect(status().isOk())
+            .andExpect(content().string(Integer.toString(quantity)));
+        assertThat(stockRepository.findQuantityByProductId(productId)).isEqualTo(quantity);
+    }
+
+    private double tableSize(String table) {
+        return meterRegistry.get("events.publications.table.size").tag("table", table).gauge().value();
+    }
+
+    private void httpPlaceOrder(String orderLines, int expectedStatus) {
+        assertDoesNotThrow(() -> mockMvc
+            .perform(post("/inventory/orders").contentType(MediaType.APPLICATION_JSON).content(orderLines))
+            .andExpect(status().is(expectedStatus))
+        );
     }
 }
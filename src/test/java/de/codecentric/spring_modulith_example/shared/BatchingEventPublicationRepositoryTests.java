@@ -0,0 +1,130 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import de.codecentric.spring_modulith_example.shared.EventPublicationRegistryProperties.Journal;
+import de.codecentric.spring_modulith_example.shared.EventPublicationRegistryProperties.Store;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.modulith.events.core.EventPublicationRepository;
+import org.springframework.modulith.events.support.CompletionMode;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for the {@link BatchingEventPublicationRepository} on top of a mocked repository, JDBC template and
+ * transaction manager. The flush interval is long, so that batches are only written when they are full or flushed
+ * explicitly.
+ */
+class BatchingEventPublicationRepositoryTests {
+    private static final Instant COMPLETION_DATE = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final EventPublicationRepository delegate = mock(EventPublicationRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BatchingEventPublicationRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null)
+            repository.close();
+    }
+
+    /**
+     * Test that a full batch is written in one transaction with one JDBC batch per statement, and that processing marks
+     * of publications that got completed in the same batch are skipped.
+     */
+    @Test
+    void testMarksAreWrittenInOneBatch() {
+        repository = repository(CompletionMode.ARCHIVE, 3);
+        var completedIdentifier = UUID.randomUUID();
+        var otherCompletedIdentifier = UUID.randomUUID();
+        var processingIdentifier = UUID.randomUUID();
+
+        repository.markProcessing(completedIdentifier);
+        repository.markCompleted(completedIdentifier, COMPLETION_DATE);
+        repository.markCompleted(otherCompletedIdentifier, COMPLETION_DATE);
+        verify(transactionManager, never()).getTransaction(any());
+        repository.markProcessing(processingIdentifier);
+
+        verify(transactionManager).getTransaction(any());
+        verify(jdbcTemplate).batchUpdate(contains("set status = 'PROCESSING'"),
+            argThat((List<Object[]> arguments) -> arguments.size() == 1
+                && arguments.getFirst()[0].equals(processingIdentifier)));
+        verify(jdbcTemplate).batchUpdate(startsWith("insert into event_publication_archive"),
+            argThat((List<Object[]> arguments) -> arguments.size() == 2));
+        verify(jdbcTemplate).batchUpdate(startsWith("delete"),
+            argThat((List<Object[]> arguments) -> arguments.size() == 2));
+        verify(delegate, never()).markProcessing(any());
+        verify(delegate, never()).markCompleted(any(UUID.class), any());
+        assertThat(meterRegistry.get("events.publications.flushed").summary().totalAmount()).isEqualTo(3);
+    }
+
+    /**
+     * Test that the marks of a batch that cannot be written are retried one by one, so that only the publication whose
+     * mark fails again remains incomplete.
+     */
+    @Test
+    void testFailedBatchIsRetriedMarkByMark() {
+        repository = repository(CompletionMode.ARCHIVE, 100);
+        var identifiers = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        doThrow(new IllegalStateException("Database is unavailable")).when(jdbcTemplate).batchUpdate(any(), anyList());
+        doThrow(new IllegalStateException("Publication is gone"))
+            .when(delegate).markCompleted(identifiers.get(1), COMPLETION_DATE);
+
+        identifiers.forEach(identifier -> repository.markCompleted(identifier, COMPLETION_DATE));
+        repository.flush();
+
+        identifiers.forEach(identifier -> verify(delegate).markCompleted(identifier, COMPLETION_DATE));
+        // One transaction for the batch and one per completion
+        verify(transactionManager, times(4)).getTransaction(any());
+        assertThat(meterRegistry.get("events.publications.flush.failures").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Test that completed publications of a failed batch are deleted one by one in the {@code delete} completion mode.
+     */
+    @Test
+    void testFailedBatchIsRetriedMarkByMarkInDeleteMode() {
+        repository = repository(CompletionMode.DELETE, 100);
+        var identifiers = List.of(UUID.randomUUID(), UUID.randomUUID());
+        doThrow(new IllegalStateException("Database is unavailable")).when(delegate).deletePublications(identifiers);
+
+        identifiers.forEach(identifier -> repository.markCompleted(identifier, COMPLETION_DATE));
+        repository.flush();
+
+        verify(delegate).deletePublications(List.of(identifiers.get(0)));
+        verify(delegate).deletePublications(List.of(identifiers.get(1)));
+        assertThat(meterRegistry.get("events.publications.flush.failures").counter().count()).isZero();
+    }
+
+    private BatchingEventPublicationRepository repository(CompletionMode completionMode, int completionBatchSize) {
+        var properties = new EventPublicationRegistryProperties(Store.JPA, completionBatchSize, Duration.ofHours(1),
+            Duration.ofMinutes(1), Duration.ofDays(7), 1_000_000, Duration.ofSeconds(10),
+            new Journal(Path.of("event-journal"), DataSize.ofMegabytes(64), EventJournal.FsyncPolicy.INTERVAL,
+                Duration.ofMillis(100)));
+        return new BatchingEventPublicationRepository(delegate, completionMode, jdbcTemplate,
+            new TransactionTemplate(transactionManager), properties, meterRegistry);
+    }
+}
@@ -0,0 +1,133 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Unit tests for the {@link EventJournal} in a temporary directory. Segments are small, so that a few hundred records
+ * span many of them.
+ */
+class EventJournalTests {
+    private static final int SEGMENT_SIZE = 1024;
+    private static final byte TYPE = 7;
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Test that records are read in the order in which they were appended, across rolled segments, from any record's
+     * position on, and one by one by their positions.
+     */
+    @Test
+    void testRecordsAreReadAcrossSegments() {
+        try (var journal = new EventJournal(directory, SEGMENT_SIZE, EventJournal.FsyncPolicy.NEVER)) {
+            var positions = append(journal, 0, 300);
+            assertThat(journal.segments().size()).isGreaterThan(3);
+
+            assertThat(read(journal, 0)).containsExactlyElementsOf(records(0, 300));
+            assertThat(read(journal, positions.get(150))).containsExactlyElementsOf(records(150, 300));
+            var record = new ArrayList<String>();
+            assertThat(journal.readRecord(positions.get(42), (position, type, body) -> record.add(string(body))))
+                .isTrue();
+            assertThat(record).containsExactly("record-42");
+            assertThat(journal.readRecord(positions.get(42) + 1, (position, type, body) -> record.add(string(body))))
+                .isFalse();
+        }
+    }
+
+    /**
+     * Test that the journal continues after its last record when it's opened again, and that sealed segments are
+     * truncated to their records.
+     */
+    @Test
+    void testJournalIsReopened() throws Exception {
+        try (var journal = new EventJournal(directory, SEGMENT_SIZE, EventJournal.FsyncPolicy.NEVER)) {
+            append(journal, 0, 100);
+        }
+        try (var journal = new EventJournal(directory, SEGMENT_SIZE, EventJournal.FsyncPolicy.NEVER)) {
+            append(journal, 100, 200);
+            assertThat(read(journal, 0)).containsExactlyElementsOf(records(0, 200));
+            var sealedSegment = journal.segments().firstEntry();
+            try (var files = Files.list(directory)) {
+                assertThat(files.filter(file -> file.getFileName().toString().startsWith("%020d".formatted(0))))
+                    .singleElement()
+                    .satisfies(file -> assertThat(Files.size(file)).isEqualTo(sealedSegment.getValue().longValue()));
+            }
+        }
+    }
+
+    /**
+     * Test that deleted segments are skipped by later reads, while a read that already started on a deleted segment
+     * continues to see its records.
+     */
+    @Test
+    void testSegmentsAreDeleted() {
+        try (var journal = new EventJournal(directory, SEGMENT_SIZE, EventJournal.FsyncPolicy.NEVER)) {
+            var positions = append(journal, 0, 300);
+            var records = new ArrayList<String>();
+            journal.read(0, (position, type, body) -> {
+                if (records.isEmpty())
+                    assertThat(journal.deleteSegmentsBefore(positions.get(200))).isPositive();
+                records.add(string(body));
+            });
+
+            assertThat(records).startsWith("record-0", "record-1").contains("record-200", "record-299");
+            assertThat(read(journal, 0)).first().isNotEqualTo("record-0");
+            assertThat(journal.readRecord(positions.getFirst(), (position, type, body) -> records.add(string(body))))
+                .isFalse();
+        }
+    }
+
+    /**
+     * Test that a closed journal rejects appends, and that its directory can be opened again.
+     */
+    @Test
+    void testClosedJournalRejectsAppends() {
+        var journal = new EventJournal(directory, SEGMENT_SIZE, EventJournal.FsyncPolicy.ALWAYS);
+        append(journal, 0, 10);
+        journal.close();
+        assertThatIllegalStateException().isThrownBy(() -> append(journal, 10, 11));
+        assertThat(read(journal, 0)).isEmpty();
+
+        try (var reopenedJournal = new EventJournal(directory, SEGMENT_SIZE, EventJournal.FsyncPolicy.ALWAYS)) {
+            assertThat(read(reopenedJournal, 0)).containsExactlyElementsOf(records(0, 10));
+        }
+    }
+
+    private static List<Long> append(EventJournal journal, int from, int to) {
+        var positions = new ArrayList<Long>();
+        for (var i = from; i < to; i++)
+            positions.add(journal.append(TYPE, ByteBuffer.wrap(("record-" + i).getBytes(StandardCharsets.UTF_8))));
+        return positions;
+    }
+
+    private static List<String> read(EventJournal journal, long fromPosition) {
+        var records = new ArrayList<String>();
+        journal.read(fromPosition, (position, type, body) -> {
+            assertThat(type).isEqualTo(TYPE);
+            records.add(string(body));
+        });
+        return records;
+    }
+
+    private static List<String> records(int from, int to) {
+        var records = new ArrayList<String>();
+        for (var i = from; i < to; i++)
+            records.add("record-" + i);
+        return records;
+    }
+
+    private static String string(ByteBuffer body) {
+        return StandardCharsets.UTF_8.decode(body).toString();
+    }
+}
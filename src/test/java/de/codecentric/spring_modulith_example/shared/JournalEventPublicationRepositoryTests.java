@@ -0,0 +1,287 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import de.codecentric.spring_modulith_example.shared.EventPublicationRegistryProperties.Journal;
+import de.codecentric.spring_modulith_example.shared.EventPublicationRegistryProperties.Store;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.modulith.events.EventPublication;
+import org.springframework.modulith.events.core.EventSerializer;
+import org.springframework.modulith.events.core.PublicationTargetIdentifier;
+import org.springframework.modulith.events.core.TargetEventPublication;
+import org.springframework.modulith.events.support.CompletionMode;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Unit tests for the {@link JournalEventPublicationRepository} on top of a journal in a temporary directory. Events are
+ * strings that serialize to themselves. Maintenance never runs on its own, so that the tests compact the journal
+ * explicitly.
+ */
+class JournalEventPublicationRepositoryTests {
+    private static final PublicationTargetIdentifier LISTENER = PublicationTargetIdentifier.of("test.Listener.on()");
+    private static final Instant PUBLICATION_DATE = Instant.parse("2026-01-01T00:00:00Z");
+    private static final EventSerializer SERIALIZER = new EventSerializer() {
+        @Override
+        public Object serialize(Object event) {
+            return event.toString();
+        }
+
+        @Override
+        public <T> T deserialize(Object serialized, Class<T> type) {
+            return type.cast(serialized);
+        }
+    };
+
+    @TempDir
+    private Path directory;
+    private final List<JournalEventPublicationRepository> repositories = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        repositories.forEach(JournalEventPublicationRepository::close);
+    }
+
+    /**
+     * Test that incomplete publications are recovered with their states when the journal is opened again, and that
+     * completed and deleted publications aren't, while completed publications are still found as such.
+     */
+    @Test
+    void testPublicationsAreReplayed() {
+        var repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        var publications = createPublications(repository, 100);
+        for (var i = 0; i < 90; i++)
+            repository.markCompleted(publications.get(i).getIdentifier(), completionDate(i));
+        repository.markFailed(publications.get(90).getIdentifier());
+        repository.markResubmitted(publications.get(91).getIdentifier(), PUBLICATION_DATE.plusSeconds(1000));
+        repository.deletePublications(List.of(publications.get(92).getIdentifier()));
+        close(repository);
+
+        repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        assertThat(repository.findIncompletePublications())
+            .extracting(TargetEventPublication::getEvent, TargetEventPublication::getStatus)
+            .containsExactly(
+                tuple("event-90", EventPublication.Status.FAILED),
+                tuple("event-91", EventPublication.Status.RESUBMITTED),
+                tuple("event-93", EventPublication.Status.PUBLISHED),
+                tuple("event-94", EventPublication.Status.PUBLISHED),
+                tuple("event-95", EventPublication.Status.PUBLISHED),
+                tuple("event-96", EventPublication.Status.PUBLISHED),
+                tuple("event-97", EventPublication.Status.PUBLISHED),
+                tuple("event-98", EventPublication.Status.PUBLISHED),
+                tuple("event-99", EventPublication.Status.PUBLISHED));
+        var resubmitted = repository.findIncompletePublications().get(1);
+        assertThat(resubmitted.getCompletionAttempts()).isEqualTo(2);
+        assertThat(resubmitted.getLastResubmissionDate()).isEqualTo(PUBLICATION_DATE.plusSeconds(1000));
+        assertThat(repository.countByStatus(EventPublication.Status.FAILED)).isEqualTo(1);
+
+        assertThat(repository.countByStatus(EventPublication.Status.COMPLETED)).isEqualTo(90);
+        var completedPublications = repository.findCompletedPublications();
+        assertThat(completedPublications).hasSize(90);
+        assertThat(completedPublications.get(10).getEvent()).isEqualTo("event-10");
+        assertThat(completedPublications.get(10).getCompletionDate()).contains(completionDate(10));
+        assertThat(completedPublications.get(10).getTargetIdentifier()).isEqualTo(LISTENER);
+    }
+
+    /**
+     * Test that publications that are created within a transaction are only journaled right before the transaction
+     * commits, so that neither a crash before the commit nor a failed commit leaves them to be replayed.
+     */
+    @Test
+    void testPublicationsAreJournaledOnCommit() {
+        var repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        inTransaction(() -> {
+            createPublications(repository, 1);
+            assertThat(repository.findIncompletePublications()).isEmpty();
+        }, null);
+        close(repository);
+
+        var reopenedRepository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        assertThat(reopenedRepository.findIncompletePublications()).isEmpty();
+        inTransaction(() -> createPublications(reopenedRepository, 1), TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(reopenedRepository.findIncompletePublications()).isEmpty();
+        inTransaction(() -> createPublications(reopenedRepository, 2), TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(reopenedRepository.findIncompletePublications()).hasSize(2);
+        close(reopenedRepository);
+
+        assertThat(open(CompletionMode.ARCHIVE, "64KB", 1_000_000).findIncompletePublications())
+            .extracting(TargetEventPublication::getEvent)
+            .containsExactly("event-0", "event-1");
+    }
+
+    /**
+     * Test that completed publications that are deleted are neither counted nor found anymore, also after the journal
+     * is opened again, and that the delete completion mode doesn't keep completed publications at all.
+     */
+    @Test
+    void testCompletedPublicationsAreDeleted() {
+        var repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        var publications = createPublications(repository, 10);
+        for (var i = 0; i < 10; i++)
+            repository.markCompleted(publications.get(i).getIdentifier(), completionDate(i));
+        repository.deleteCompletedPublicationsBefore(completionDate(6));
+        assertThat(repository.countByStatus(EventPublication.Status.COMPLETED)).isEqualTo(4);
+        close(repository);
+
+        repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        assertThat(repository.findCompletedPublications())
+            .extracting(TargetEventPublication::getEvent)
+            .containsExactly("event-6", "event-7", "event-8", "event-9");
+        repository.deleteCompletedPublications();
+        assertThat(repository.countByStatus(EventPublication.Status.COMPLETED)).isZero();
+        close(repository);
+
+        repository = open(CompletionMode.DELETE, "64KB", 1_000_000);
+        repository.markCompleted(createPublications(repository, 1).getFirst().getIdentifier(), completionDate(0));
+        assertThat(repository.countByStatus(EventPublication.Status.COMPLETED)).isZero();
+        assertThat(repository.findCompletedPublications()).isEmpty();
+    }
+
+    /**
+     * Test that a record torn by a crash ends the journal when it's opened again, and that records appended afterwards
+     * are replayed.
+     */
+    @Test
+    void testTornTailIsDiscarded() throws IOException {
+        var repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        createPublications(repository, 3);
+        var endPosition = repository.journal().endPosition();
+        close(repository);
+        try (var file = new RandomAccessFile(directory.resolve("%020d.segment".formatted(0)).toFile(), "rw")) {
+            file.seek(endPosition - 3);
+            file.write(new byte[] {1, 2, 3});
+        }
+
+        repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        assertThat(repository.findIncompletePublications())
+            .extracting(TargetEventPublication::getEvent)
+            .containsExactly("event-0", "event-1");
+        repository.create(TargetEventPublication.of("event-3", LISTENER, PUBLICATION_DATE.plusSeconds(3)));
+        close(repository);
+
+        repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        assertThat(repository.findIncompletePublications())
+            .extracting(TargetEventPublication::getEvent)
+            .containsExactly("event-0", "event-1", "event-3");
+    }
+
+    /**
+     * Test that a journal cannot be opened twice at the same time.
+     */
+    @Test
+    void testJournalIsLocked() {
+        var repository = open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+        assertThatIllegalStateException()
+            .isThrownBy(() -> open(CompletionMode.ARCHIVE, "64KB", 1_000_000))
+            .withMessageContaining("already in use");
+        close(repository);
+
+        open(CompletionMode.ARCHIVE, "64KB", 1_000_000);
+    }
+
+    /**
+     * Test that the journal is rolled into many small segments, and that compaction moves a publication that stays
+     * incomplete out of its old segment, so that segments are deleted from the start of the journal on until at most
+     * the configured maximum of completed publications is kept, or none in the delete completion mode.
+     */
+    @ParameterizedTest
+    @EnumSource(value = CompletionMode.class, names = {"ARCHIVE", "DELETE"})
+    void testSegmentsAreRolledAndCompacted(CompletionMode completionMode) {
+        var repository = open(completionMode, "4KB", 100);
+        createPublications(repository, 1);
+        for (var i = 1; i <= 2000; i++)
+            repository.markCompleted(repository.create(TargetEventPublication.of("event-" + i, LISTENER,
+                PUBLICATION_DATE.plusSeconds(i))).getIdentifier(), completionDate(i));
+        var segmentCount = repository.journal().segments().size();
+        assertThat(segmentCount).isGreaterThan(50);
+
+        repository.compact();
+        var compactedSegmentCount = repository.journal().segments().size();
+        var completedCount = repository.countByStatus(EventPublication.Status.COMPLETED);
+        if (completionMode == CompletionMode.DELETE) {
+            assertThat(compactedSegmentCount).isEqualTo(1);
+            assertThat(completedCount).isZero();
+        } else {
+            assertThat(compactedSegmentCount).isBetween(2, 10);
+            assertThat(completedCount).isPositive().isLessThanOrEqualTo(100);
+            assertThat(repository.findCompletedPublications())
+                .hasSize(completedCount)
+                .extracting(TargetEventPublication::getEvent)
+                .last()
+                .isEqualTo("event-2000");
+        }
+        close(repository);
+
+        repository = open(completionMode, "4KB", 100);
+        assertThat(repository.journal().segments()).hasSize(compactedSegmentCount);
+        assertThat(repository.findIncompletePublications())
+            .extracting(TargetEventPublication::getEvent)
+            .containsExactly("event-0");
+        assertThat(repository.countByStatus(EventPublication.Status.COMPLETED)).isEqualTo(completedCount);
+    }
+
+    private JournalEventPublicationRepository open(CompletionMode completionMode, String segmentSize,
+        int maxCompletedPublications) {
+        var properties = new EventPublicationRegistryProperties(Store.JOURNAL, 500, Duration.ofMillis(50),
+            Duration.ofHours(1), Duration.ofDays(7), maxCompletedPublications, Duration.ofSeconds(10),
+            new Journal(directory, DataSize.parse(segmentSize), EventJournal.FsyncPolicy.NEVER,
+                Duration.ofMillis(100)));
+        var repository = new JournalEventPublicationRepository(completionMode, SERIALIZER, properties,
+            new SimpleMeterRegistry());
+        repositories.add(repository);
+        return repository;
+    }
+
+    /**
+     * Run the given action with transaction synchronization, and complete the transaction with the given status after
+     * committing it, if any. Without a status, the transaction just ends as if the application crashed.
+     */
+    private static void inTransaction(Runnable action, Integer status) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            action.run();
+            if (status != null) {
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), status);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void close(JournalEventPublicationRepository repository) {
+        repositories.remove(repository);
+        repository.close();
+    }
+
+    private static List<TargetEventPublication> createPublications(JournalEventPublicationRepository repository,
+        int count) {
+        var publications = new ArrayList<TargetEventPublication>();
+        for (var i = 0; i < count; i++)
+            publications.add(repository.create(TargetEventPublication.of("event-" + i, LISTENER,
+                PUBLICATION_DATE.plusSeconds(i))));
+        return publications;
+    }
+
+    private static Instant completionDate(int publication) {
+        return PUBLICATION_DATE.plusSeconds(publication).plusMillis(500);
+    }
+}
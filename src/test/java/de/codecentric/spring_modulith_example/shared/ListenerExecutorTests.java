@@ -0,0 +1,161 @@
+package de.codecentric.spring_modulith_example.shared;
+
+import de.codecentric.spring_modulith_example.shared.ListenerExecutor.Mode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Unit tests for the {@link ListenerExecutor} in both of its modes. Tasks block on latches, so that the tests control
+ * which tasks are active and which are queued.
+ */
+class ListenerExecutorTests {
+    private static final String MODULE = "test";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Test that at most {@code maxConcurrency} tasks run at the same time and the others wait in the queue.
+     */
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void testConcurrencyIsLimited(Mode mode) throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var finished = new CountDownLatch(10);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        try (var executor = new ListenerExecutor(MODULE, mode, 3, 10, SHUTDOWN_TIMEOUT, meterRegistry)) {
+            for (var i = 0; i < 10; i++)
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    block(release);
+                    running.decrementAndGet();
+                    finished.countDown();
+                });
+
+            await().until(() -> running.get() == 3);
+            assertThat(gauge("listener.executor.active")).isEqualTo(3);
+            assertThat(gauge("listener.executor.queued")).isEqualTo(7);
+
+            release.countDown();
+            assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(maxRunning).hasValue(3);
+        assertThat(meterRegistry.get("listener.executor.queue.time").timer().count()).isEqualTo(10);
+    }
+
+    /**
+     * Test that queued tasks run in the order they were submitted.
+     */
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void testQueuedTasksRunInOrder(Mode mode) {
+        var release = new CountDownLatch(1);
+        var order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        try (var executor = new ListenerExecutor(MODULE, mode, 1, 100, SHUTDOWN_TIMEOUT, meterRegistry)) {
+            executor.execute(() -> block(release));
+            for (var i = 0; i < 50; i++) {
+                var task = i;
+                executor.execute(() -> order.add(task));
+            }
+            release.countDown();
+        }
+        assertThat(order).containsExactlyElementsOf(IntStream.range(0, 50).boxed().toList());
+    }
+
+    /**
+     * Test that tasks are rejected once the queue is full, and that a queue capacity of 0 only rejects tasks that would
+     * have to wait.
+     */
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void testTasksAreRejectedIfQueueIsFull(Mode mode) {
+        var release = new CountDownLatch(1);
+
+        try (var executor = new ListenerExecutor(MODULE, mode, 1, 1, SHUTDOWN_TIMEOUT, meterRegistry)) {
+            executor.execute(() -> block(release));
+            executor.execute(() -> block(release));
+            assertThatThrownBy(() -> executor.execute(() -> block(release)))
+                .isInstanceOf(TaskRejectedException.class)
+                .hasMessageContaining("queue is full");
+            assertThat(rejectedCount()).isEqualTo(1);
+            release.countDown();
+        }
+
+        var unqueuedRelease = new CountDownLatch(1);
+        var unqueuedRegistry = new SimpleMeterRegistry();
+        try (var executor = new ListenerExecutor(MODULE, mode, 2, 0, SHUTDOWN_TIMEOUT, unqueuedRegistry)) {
+            executor.execute(() -> block(unqueuedRelease));
+            executor.execute(() -> block(unqueuedRelease));
+            assertThatThrownBy(() -> executor.execute(() -> block(unqueuedRelease)))
+                .isInstanceOf(TaskRejectedException.class);
+
+            unqueuedRelease.countDown();
+            await().until(() -> unqueuedRegistry.get("listener.executor.active").gauge().value() == 0);
+            executor.execute(() -> block(unqueuedRelease));
+        }
+    }
+
+    /**
+     * Test that closing the executor waits for queued and active tasks to finish and rejects new tasks.
+     */
+    @ParameterizedTest
+    @EnumSource(Mode.class)
+    void testCloseDrainsTasks(Mode mode) {
+        var finished = new AtomicInteger();
+        var executor = new ListenerExecutor(MODULE, mode, 2, 10, SHUTDOWN_TIMEOUT, meterRegistry);
+        for (var i = 0; i < 10; i++)
+            executor.execute(() -> {
+                sleep(Duration.ofMillis(20));
+                finished.incrementAndGet();
+            });
+
+        executor.close();
+        assertThat(finished).hasValue(10);
+        assertThatThrownBy(() -> executor.execute(finished::incrementAndGet))
+            .isInstanceOf(TaskRejectedException.class)
+            .hasMessageContaining("closed");
+        assertThat(rejectedCount()).isEqualTo(1);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("module", MODULE).gauge().value();
+    }
+
+    private double rejectedCount() {
+        return meterRegistry.get("listener.executor.rejected").tag("module", MODULE).counter().count();
+    }
+
+    private static void block(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}